@@ -21,6 +21,8 @@ public class YogaConfig {
 
   long mNativePointer;
   private YogaLogger mLogger;
+  private boolean mBatchStyleWrites;
+  private boolean mBulkLayoutReadback;
 
   private native long jni_YGConfigNew();
   public YogaConfig() {
@@ -78,4 +80,31 @@ public class YogaConfig {
   public YogaLogger getLogger() {
     return mLogger;
   }
+
+  /**
+   * Nodes created with this config record their style writes on the Java side and apply them to
+   * the native node in a single JNI call, right before the layout is calculated or the style is
+   * read back. Only affects the nodes created after this is set.
+   */
+  public void setBatchStyleWrites(boolean batchStyleWrites) {
+    mBatchStyleWrites = batchStyleWrites;
+  }
+
+  public boolean isBatchStyleWritesEnabled() {
+    return mBatchStyleWrites;
+  }
+
+  /**
+   * When calculating the layout of a tree whose root was created with this config, the layout
+   * outputs of all the nodes are copied into a single float array by the same JNI call, rather
+   * than being set on every YogaNode field by field from native code. Only affects the nodes
+   * created after this is set.
+   */
+  public void setBulkLayoutReadback(boolean bulkLayoutReadback) {
+    mBulkLayoutReadback = bulkLayoutReadback;
+  }
+
+  public boolean isBulkLayoutReadbackEnabled() {
+    return mBulkLayoutReadback;
+  }
 }
@@ -11,6 +11,7 @@ package com.facebook.yoga;
 
 import javax.annotation.Nullable;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.ArrayList;
 
@@ -44,6 +45,81 @@ public class YogaNode {
   @DoNotStrip
   private int mEdgeSetFlag = 0;
 
+  /* Those opcodes needs be in sync with YGJNI.cpp */
+  private final static int STYLE_DIRECTION = 0;
+  private final static int STYLE_FLEX_DIRECTION = 1;
+  private final static int STYLE_JUSTIFY_CONTENT = 2;
+  private final static int STYLE_ALIGN_ITEMS = 3;
+  private final static int STYLE_ALIGN_SELF = 4;
+  private final static int STYLE_ALIGN_CONTENT = 5;
+  private final static int STYLE_POSITION_TYPE = 6;
+  private final static int STYLE_FLEX_WRAP = 7;
+  private final static int STYLE_OVERFLOW = 8;
+  private final static int STYLE_DISPLAY = 9;
+  private final static int STYLE_FLEX = 10;
+  private final static int STYLE_FLEX_GROW = 11;
+  private final static int STYLE_FLEX_SHRINK = 12;
+  private final static int STYLE_FLEX_BASIS = 13;
+  private final static int STYLE_FLEX_BASIS_PERCENT = 14;
+  private final static int STYLE_FLEX_BASIS_AUTO = 15;
+  private final static int STYLE_MARGIN = 16;
+  private final static int STYLE_MARGIN_PERCENT = 17;
+  private final static int STYLE_MARGIN_AUTO = 18;
+  private final static int STYLE_PADDING = 19;
+  private final static int STYLE_PADDING_PERCENT = 20;
+  private final static int STYLE_BORDER = 21;
+  private final static int STYLE_POSITION = 22;
+  private final static int STYLE_POSITION_PERCENT = 23;
+  private final static int STYLE_WIDTH = 24;
+  private final static int STYLE_WIDTH_PERCENT = 25;
+  private final static int STYLE_WIDTH_AUTO = 26;
+  private final static int STYLE_HEIGHT = 27;
+  private final static int STYLE_HEIGHT_PERCENT = 28;
+  private final static int STYLE_HEIGHT_AUTO = 29;
+  private final static int STYLE_MIN_WIDTH = 30;
+  private final static int STYLE_MIN_WIDTH_PERCENT = 31;
+  private final static int STYLE_MIN_HEIGHT = 32;
+  private final static int STYLE_MIN_HEIGHT_PERCENT = 33;
+  private final static int STYLE_MAX_WIDTH = 34;
+  private final static int STYLE_MAX_WIDTH_PERCENT = 35;
+  private final static int STYLE_MAX_HEIGHT = 36;
+  private final static int STYLE_MAX_HEIGHT_PERCENT = 37;
+  private final static int STYLE_ASPECT_RATIO = 38;
+
+  /* Every buffered style write is encoded as [opcode, edge, value] */
+  private final static int STYLE_WRITE_SIZE = 3;
+  private final static int STYLE_BUFFER_INITIAL_CAPACITY = 8 * STYLE_WRITE_SIZE;
+
+  /**
+   * When enabled through {@link YogaConfig#setBatchStyleWrites}, style writes are recorded in
+   * {@link #mStyleBuffer} and applied to the native node in a single JNI call, either before the
+   * layout is calculated or before the native style is read back.
+   */
+  private final boolean mBatchStyleWrites;
+  private float[] mStyleBuffer;
+  private int mStyleBufferSize;
+
+  /* Every node is read back as [hasNewLayout, direction, left, top, width, height, margin (left,
+   * top, right, bottom), padding (...), border (...)], needs to be in sync with YGJNI.cpp */
+  private final static int LAYOUT_HAS_NEW_LAYOUT = 0;
+  private final static int LAYOUT_DIRECTION = 1;
+  private final static int LAYOUT_LEFT = 2;
+  private final static int LAYOUT_TOP = 3;
+  private final static int LAYOUT_WIDTH = 4;
+  private final static int LAYOUT_HEIGHT = 5;
+  private final static int LAYOUT_MARGIN = 6;
+  private final static int LAYOUT_PADDING = 10;
+  private final static int LAYOUT_BORDER = 14;
+  private final static int LAYOUT_OUTPUT_SIZE = 18;
+
+  /**
+   * When enabled through {@link YogaConfig#setBulkLayoutReadback}, the layout outputs of the whole
+   * tree are copied into {@link #mLayoutOutputs} by the JNI call that calculates the layout,
+   * instead of being set on every node field by field from native code.
+   */
+  private final boolean mBulkLayoutReadback;
+  private float[] mLayoutOutputs;
+
   private boolean mHasSetPosition = false;
 
   @DoNotStrip
@@ -89,6 +165,8 @@ public class YogaNode {
     if (mNativePointer == 0) {
       throw new IllegalStateException("Failed to allocate native memory");
     }
+    mBatchStyleWrites = false;
+    mBulkLayoutReadback = false;
   }
 
   private native long jni_YGNodeNewWithConfig(long configPointer);
@@ -97,6 +175,8 @@ public class YogaNode {
     if (mNativePointer == 0) {
       throw new IllegalStateException("Failed to allocate native memory");
     }
+    mBatchStyleWrites = config.isBatchStyleWritesEnabled();
+    mBulkLayoutReadback = config.isBulkLayoutReadbackEnabled();
   }
 
   private native void jni_YGNodeFree(long nativePointer);
@@ -110,6 +190,39 @@ public class YogaNode {
 
   private native void jni_YGNodeReset(long nativePointer);
   public void reset() {
+    resetFields();
+    jni_YGNodeReset(mNativePointer);
+  }
+
+  private native void jni_YGNodeResetSubtree(long nativePointer);
+
+  /**
+   * Detaches all the descendants of this node and resets every node of the subtree, like
+   * {@link #reset()} would do one by one, with a single JNI call.
+   *
+   * @param outNodes receives the nodes of the subtree, this one included, so they can be recycled.
+   */
+  public void resetSubtree(List<YogaNode> outNodes) {
+    if (mParent != null) {
+      throw new IllegalStateException("Cannot reset a subtree still attached to a parent");
+    }
+
+    resetSubtreeFields(outNodes);
+    jni_YGNodeResetSubtree(mNativePointer);
+  }
+
+  private void resetSubtreeFields(List<YogaNode> outNodes) {
+    for (int i = getChildCount() - 1; i >= 0; i--) {
+      final YogaNode child = mChildren.remove(i);
+      child.mParent = null;
+      child.resetSubtreeFields(outNodes);
+    }
+
+    resetFields();
+    outNodes.add(this);
+  }
+
+  private void resetFields() {
     mEdgeSetFlag = 0;
     mHasSetPosition = false;
     mHasNewLayout = true;
@@ -136,7 +249,9 @@ public class YogaNode {
     mBaselineFunction = null;
     mData = null;
 
-    jni_YGNodeReset(mNativePointer);
+    // The native style is reset as well, so pending writes would be stale.
+    mStyleBufferSize = 0;
+    mLayoutOutputs = null;
   }
 
   public int getChildCount() {
@@ -181,7 +296,115 @@ public class YogaNode {
 
   private native void jni_YGNodeCalculateLayout(long nativePointer, float width, float height);
   public void calculateLayout(float width, float height) {
-    jni_YGNodeCalculateLayout(mNativePointer, width, height);
+    if (mBatchStyleWrites) {
+      flushStyleRecursive();
+    }
+
+    if (mBulkLayoutReadback) {
+      final int size = getSubtreeSize() * LAYOUT_OUTPUT_SIZE;
+      if (mLayoutOutputs == null || mLayoutOutputs.length < size) {
+        mLayoutOutputs = new float[size];
+      }
+
+      jni_YGNodeCalculateLayoutWithOutputs(mNativePointer, width, height, mLayoutOutputs);
+      applyLayoutOutputs(mLayoutOutputs, 0);
+    } else {
+      jni_YGNodeCalculateLayout(mNativePointer, width, height);
+    }
+  }
+
+  private native void jni_YGNodeCalculateLayoutWithOutputs(
+      long nativePointer,
+      float width,
+      float height,
+      float[] outputs);
+
+  private int getSubtreeSize() {
+    int size = 1;
+    for (int i = 0, count = getChildCount(); i < count; i++) {
+      size += mChildren.get(i).getSubtreeSize();
+    }
+
+    return size;
+  }
+
+  /**
+   * Sets the layout outputs copied in pre-order into {@code outputs} on this subtree, the same way
+   * the native code does field by field otherwise. Like there, the subtree of a node without a new
+   * layout is skipped, it only takes a single entry in {@code outputs}.
+   *
+   * @return the offset of the entry following the ones of this subtree.
+   */
+  private int applyLayoutOutputs(float[] outputs, int offset) {
+    if (outputs[offset + LAYOUT_HAS_NEW_LAYOUT] == 0) {
+      return offset + LAYOUT_OUTPUT_SIZE;
+    }
+
+    mHasNewLayout = true;
+    mLayoutDirection = (int) outputs[offset + LAYOUT_DIRECTION];
+    mLeft = outputs[offset + LAYOUT_LEFT];
+    mTop = outputs[offset + LAYOUT_TOP];
+    mWidth = outputs[offset + LAYOUT_WIDTH];
+    mHeight = outputs[offset + LAYOUT_HEIGHT];
+
+    if ((mEdgeSetFlag & MARGIN) == MARGIN) {
+      mMarginLeft = outputs[offset + LAYOUT_MARGIN];
+      mMarginTop = outputs[offset + LAYOUT_MARGIN + 1];
+      mMarginRight = outputs[offset + LAYOUT_MARGIN + 2];
+      mMarginBottom = outputs[offset + LAYOUT_MARGIN + 3];
+    }
+
+    if ((mEdgeSetFlag & PADDING) == PADDING) {
+      mPaddingLeft = outputs[offset + LAYOUT_PADDING];
+      mPaddingTop = outputs[offset + LAYOUT_PADDING + 1];
+      mPaddingRight = outputs[offset + LAYOUT_PADDING + 2];
+      mPaddingBottom = outputs[offset + LAYOUT_PADDING + 3];
+    }
+
+    if ((mEdgeSetFlag & BORDER) == BORDER) {
+      mBorderLeft = outputs[offset + LAYOUT_BORDER];
+      mBorderTop = outputs[offset + LAYOUT_BORDER + 1];
+      mBorderRight = outputs[offset + LAYOUT_BORDER + 2];
+      mBorderBottom = outputs[offset + LAYOUT_BORDER + 3];
+    }
+
+    int next = offset + LAYOUT_OUTPUT_SIZE;
+    for (int i = 0, count = getChildCount(); i < count; i++) {
+      next = mChildren.get(i).applyLayoutOutputs(outputs, next);
+    }
+
+    return next;
+  }
+
+  private native void jni_YGNodeStyleApplyBuffer(long nativePointer, float[] buffer, int size);
+
+  /**
+   * Applies the style writes buffered since the last flush to the native node.
+   */
+  private void flushStyle() {
+    if (mStyleBufferSize > 0) {
+      jni_YGNodeStyleApplyBuffer(mNativePointer, mStyleBuffer, mStyleBufferSize);
+      mStyleBufferSize = 0;
+    }
+  }
+
+  private void flushStyleRecursive() {
+    flushStyle();
+    for (int i = 0, count = getChildCount(); i < count; i++) {
+      mChildren.get(i).flushStyleRecursive();
+    }
+  }
+
+  private void bufferStyle(int opcode, int edge, float value) {
+    if (mStyleBuffer == null) {
+      mStyleBuffer = new float[STYLE_BUFFER_INITIAL_CAPACITY];
+    } else if (mStyleBufferSize + STYLE_WRITE_SIZE > mStyleBuffer.length) {
+      mStyleBuffer = Arrays.copyOf(mStyleBuffer, mStyleBuffer.length * 2);
+    }
+
+    mStyleBuffer[mStyleBufferSize++] = opcode;
+    mStyleBuffer[mStyleBufferSize++] = edge;
+    mStyleBuffer[mStyleBufferSize++] = value;
   }
 
   public boolean hasNewLayout() {
@@ -195,11 +418,15 @@ public class YogaNode {
 
   private native boolean jni_YGNodeIsDirty(long nativePointer);
   public boolean isDirty() {
+    flushStyle();
     return jni_YGNodeIsDirty(mNativePointer);
   }
 
   private native void jni_YGNodeCopyStyle(long dstNativePointer, long srcNativePointer);
   public void copyStyle(YogaNode srcNode) {
+    // The whole style gets overwritten, including the writes still pending on this node.
+    mStyleBufferSize = 0;
+    srcNode.flushStyle();
     jni_YGNodeCopyStyle(mNativePointer, srcNode.mNativePointer);
   }
 
@@ -209,141 +436,217 @@ public class YogaNode {
 
   private native int jni_YGNodeStyleGetDirection(long nativePointer);
   public YogaDirection getStyleDirection() {
+    flushStyle();
     return YogaDirection.fromInt(jni_YGNodeStyleGetDirection(mNativePointer));
   }
 
   private native void jni_YGNodeStyleSetDirection(long nativePointer, int direction);
   public void setDirection(YogaDirection direction) {
+    if (mBatchStyleWrites) {
+      bufferStyle(STYLE_DIRECTION, 0, direction.intValue());
+      return;
+    }
     jni_YGNodeStyleSetDirection(mNativePointer, direction.intValue());
   }
 
   private native int jni_YGNodeStyleGetFlexDirection(long nativePointer);
   public YogaFlexDirection getFlexDirection() {
+    flushStyle();
     return YogaFlexDirection.fromInt(jni_YGNodeStyleGetFlexDirection(mNativePointer));
   }
 
   private native void jni_YGNodeStyleSetFlexDirection(long nativePointer, int flexDirection);
   public void setFlexDirection(YogaFlexDirection flexDirection) {
+    if (mBatchStyleWrites) {
+      bufferStyle(STYLE_FLEX_DIRECTION, 0, flexDirection.intValue());
+      return;
+    }
     jni_YGNodeStyleSetFlexDirection(mNativePointer, flexDirection.intValue());
   }
 
   private native int jni_YGNodeStyleGetJustifyContent(long nativePointer);
   public YogaJustify getJustifyContent() {
+    flushStyle();
     return YogaJustify.fromInt(jni_YGNodeStyleGetJustifyContent(mNativePointer));
   }
 
   private native void jni_YGNodeStyleSetJustifyContent(long nativePointer, int justifyContent);
   public void setJustifyContent(YogaJustify justifyContent) {
+    if (mBatchStyleWrites) {
+      bufferStyle(STYLE_JUSTIFY_CONTENT, 0, justifyContent.intValue());
+      return;
+    }
     jni_YGNodeStyleSetJustifyContent(mNativePointer, justifyContent.intValue());
   }
 
   private native int jni_YGNodeStyleGetAlignItems(long nativePointer);
   public YogaAlign getAlignItems() {
+    flushStyle();
     return YogaAlign.fromInt(jni_YGNodeStyleGetAlignItems(mNativePointer));
   }
 
   private native void jni_YGNodeStyleSetAlignItems(long nativePointer, int alignItems);
   public void setAlignItems(YogaAlign alignItems) {
+    if (mBatchStyleWrites) {
+      bufferStyle(STYLE_ALIGN_ITEMS, 0, alignItems.intValue());
+      return;
+    }
     jni_YGNodeStyleSetAlignItems(mNativePointer, alignItems.intValue());
   }
 
   private native int jni_YGNodeStyleGetAlignSelf(long nativePointer);
   public YogaAlign getAlignSelf() {
+    flushStyle();
     return YogaAlign.fromInt(jni_YGNodeStyleGetAlignSelf(mNativePointer));
   }
 
   private native void jni_YGNodeStyleSetAlignSelf(long nativePointer, int alignSelf);
   public void setAlignSelf(YogaAlign alignSelf) {
+    if (mBatchStyleWrites) {
+      bufferStyle(STYLE_ALIGN_SELF, 0, alignSelf.intValue());
+      return;
+    }
     jni_YGNodeStyleSetAlignSelf(mNativePointer, alignSelf.intValue());
   }
 
   private native int jni_YGNodeStyleGetAlignContent(long nativePointer);
   public YogaAlign getAlignContent() {
+    flushStyle();
     return YogaAlign.fromInt(jni_YGNodeStyleGetAlignContent(mNativePointer));
   }
 
   private native void jni_YGNodeStyleSetAlignContent(long nativePointer, int alignContent);
   public void setAlignContent(YogaAlign alignContent) {
+    if (mBatchStyleWrites) {
+      bufferStyle(STYLE_ALIGN_CONTENT, 0, alignContent.intValue());
+      return;
+    }
     jni_YGNodeStyleSetAlignContent(mNativePointer, alignContent.intValue());
   }
 
   private native int jni_YGNodeStyleGetPositionType(long nativePointer);
   public YogaPositionType getPositionType() {
+    flushStyle();
     return YogaPositionType.fromInt(jni_YGNodeStyleGetPositionType(mNativePointer));
   }
 
   private native void jni_YGNodeStyleSetPositionType(long nativePointer, int positionType);
   public void setPositionType(YogaPositionType positionType) {
+    if (mBatchStyleWrites) {
+      bufferStyle(STYLE_POSITION_TYPE, 0, positionType.intValue());
+      return;
+    }
     jni_YGNodeStyleSetPositionType(mNativePointer, positionType.intValue());
   }
 
   private native void jni_YGNodeStyleSetFlexWrap(long nativePointer, int wrapType);
   public void setWrap(YogaWrap flexWrap) {
+    if (mBatchStyleWrites) {
+      bufferStyle(STYLE_FLEX_WRAP, 0, flexWrap.intValue());
+      return;
+    }
     jni_YGNodeStyleSetFlexWrap(mNativePointer, flexWrap.intValue());
   }
 
   private native int jni_YGNodeStyleGetOverflow(long nativePointer);
   public YogaOverflow getOverflow() {
+    flushStyle();
     return YogaOverflow.fromInt(jni_YGNodeStyleGetOverflow(mNativePointer));
   }
 
   private native void jni_YGNodeStyleSetOverflow(long nativePointer, int overflow);
   public void setOverflow(YogaOverflow overflow) {
+    if (mBatchStyleWrites) {
+      bufferStyle(STYLE_OVERFLOW, 0, overflow.intValue());
+      return;
+    }
     jni_YGNodeStyleSetOverflow(mNativePointer, overflow.intValue());
   }
 
   private native int jni_YGNodeStyleGetDisplay(long nativePointer);
   public YogaDisplay getDisplay() {
+    flushStyle();
     return YogaDisplay.fromInt(jni_YGNodeStyleGetDisplay(mNativePointer));
   }
 
   private native void jni_YGNodeStyleSetDisplay(long nativePointer, int display);
   public void setDisplay(YogaDisplay display) {
+    if (mBatchStyleWrites) {
+      bufferStyle(STYLE_DISPLAY, 0, display.intValue());
+      return;
+    }
     jni_YGNodeStyleSetDisplay(mNativePointer, display.intValue());
   }
 
   private native void jni_YGNodeStyleSetFlex(long nativePointer, float flex);
   public void setFlex(float flex) {
+    if (mBatchStyleWrites) {
+      bufferStyle(STYLE_FLEX, 0, flex);
+      return;
+    }
     jni_YGNodeStyleSetFlex(mNativePointer, flex);
   }
 
   private native float jni_YGNodeStyleGetFlexGrow(long nativePointer);
   public float getFlexGrow() {
+    flushStyle();
     return jni_YGNodeStyleGetFlexGrow(mNativePointer);
   }
 
   private native void jni_YGNodeStyleSetFlexGrow(long nativePointer, float flexGrow);
   public void setFlexGrow(float flexGrow) {
+    if (mBatchStyleWrites) {
+      bufferStyle(STYLE_FLEX_GROW, 0, flexGrow);
+      return;
+    }
     jni_YGNodeStyleSetFlexGrow(mNativePointer, flexGrow);
   }
 
   private native float jni_YGNodeStyleGetFlexShrink(long nativePointer);
   public float getFlexShrink() {
+    flushStyle();
     return jni_YGNodeStyleGetFlexShrink(mNativePointer);
   }
 
   private native void jni_YGNodeStyleSetFlexShrink(long nativePointer, float flexShrink);
   public void setFlexShrink(float flexShrink) {
+    if (mBatchStyleWrites) {
+      bufferStyle(STYLE_FLEX_SHRINK, 0, flexShrink);
+      return;
+    }
     jni_YGNodeStyleSetFlexShrink(mNativePointer, flexShrink);
   }
 
   private native Object jni_YGNodeStyleGetFlexBasis(long nativePointer);
   public YogaValue getFlexBasis() {
+    flushStyle();
     return (YogaValue) jni_YGNodeStyleGetFlexBasis(mNativePointer);
   }
 
   private native void jni_YGNodeStyleSetFlexBasis(long nativePointer, float flexBasis);
   public void setFlexBasis(float flexBasis) {
+    if (mBatchStyleWrites) {
+      bufferStyle(STYLE_FLEX_BASIS, 0, flexBasis);
+      return;
+    }
     jni_YGNodeStyleSetFlexBasis(mNativePointer, flexBasis);
   }
 
   private native void jni_YGNodeStyleSetFlexBasisPercent(long nativePointer, float percent);
   public void setFlexBasisPercent(float percent) {
+    if (mBatchStyleWrites) {
+      bufferStyle(STYLE_FLEX_BASIS_PERCENT, 0, percent);
+      return;
+    }
     jni_YGNodeStyleSetFlexBasisPercent(mNativePointer, percent);
   }
 
   private native void jni_YGNodeStyleSetFlexBasisAuto(long nativePointer);
   public void setFlexBasisAuto() {
+    if (mBatchStyleWrites) {
+      bufferStyle(STYLE_FLEX_BASIS_AUTO, 0, 0);
+      return;
+    }
     jni_YGNodeStyleSetFlexBasisAuto(mNativePointer);
   }
 
@@ -352,24 +655,37 @@ public class YogaNode {
     if (!((mEdgeSetFlag & MARGIN) == MARGIN)) {
       return YogaValue.UNDEFINED;
     }
+    flushStyle();
     return (YogaValue) jni_YGNodeStyleGetMargin(mNativePointer, edge.intValue());
   }
 
   private native void jni_YGNodeStyleSetMargin(long nativePointer, int edge, float margin);
   public void setMargin(YogaEdge edge, float margin) {
     mEdgeSetFlag |= MARGIN;
+    if (mBatchStyleWrites) {
+      bufferStyle(STYLE_MARGIN, edge.intValue(), margin);
+      return;
+    }
     jni_YGNodeStyleSetMargin(mNativePointer, edge.intValue(), margin);
   }
 
   private native void jni_YGNodeStyleSetMarginPercent(long nativePointer, int edge, float percent);
   public void setMarginPercent(YogaEdge edge, float percent) {
     mEdgeSetFlag |= MARGIN;
+    if (mBatchStyleWrites) {
+      bufferStyle(STYLE_MARGIN_PERCENT, edge.intValue(), percent);
+      return;
+    }
     jni_YGNodeStyleSetMarginPercent(mNativePointer, edge.intValue(), percent);
   }
 
   private native void jni_YGNodeStyleSetMarginAuto(long nativePointer, int edge);
   public void setMarginAuto(YogaEdge edge) {
     mEdgeSetFlag |= MARGIN;
+    if (mBatchStyleWrites) {
+      bufferStyle(STYLE_MARGIN_AUTO, edge.intValue(), 0);
+      return;
+    }
     jni_YGNodeStyleSetMarginAuto(mNativePointer, edge.intValue());
   }
 
@@ -378,18 +694,27 @@ public class YogaNode {
     if (!((mEdgeSetFlag & PADDING) == PADDING)) {
       return YogaValue.UNDEFINED;
     }
+    flushStyle();
     return (YogaValue) jni_YGNodeStyleGetPadding(mNativePointer, edge.intValue());
   }
 
   private native void jni_YGNodeStyleSetPadding(long nativePointer, int edge, float padding);
   public void setPadding(YogaEdge edge, float padding) {
     mEdgeSetFlag |= PADDING;
+    if (mBatchStyleWrites) {
+      bufferStyle(STYLE_PADDING, edge.intValue(), padding);
+      return;
+    }
     jni_YGNodeStyleSetPadding(mNativePointer, edge.intValue(), padding);
   }
 
   private native void jni_YGNodeStyleSetPaddingPercent(long nativePointer, int edge, float percent);
   public void setPaddingPercent(YogaEdge edge, float percent) {
     mEdgeSetFlag |= PADDING;
+    if (mBatchStyleWrites) {
+      bufferStyle(STYLE_PADDING_PERCENT, edge.intValue(), percent);
+      return;
+    }
     jni_YGNodeStyleSetPaddingPercent(mNativePointer, edge.intValue(), percent);
   }
 
@@ -398,12 +723,17 @@ public class YogaNode {
     if (!((mEdgeSetFlag & BORDER) == BORDER)) {
       return YogaConstants.UNDEFINED;
     }
+    flushStyle();
     return jni_YGNodeStyleGetBorder(mNativePointer, edge.intValue());
   }
 
   private native void jni_YGNodeStyleSetBorder(long nativePointer, int edge, float border);
   public void setBorder(YogaEdge edge, float border) {
     mEdgeSetFlag |= BORDER;
+    if (mBatchStyleWrites) {
+      bufferStyle(STYLE_BORDER, edge.intValue(), border);
+      return;
+    }
     jni_YGNodeStyleSetBorder(mNativePointer, edge.intValue(), border);
   }
 
@@ -412,128 +742,204 @@ public class YogaNode {
     if (!mHasSetPosition) {
       return YogaValue.UNDEFINED;
     }
+    flushStyle();
     return (YogaValue) jni_YGNodeStyleGetPosition(mNativePointer, edge.intValue());
   }
 
   private native void jni_YGNodeStyleSetPosition(long nativePointer, int edge, float position);
   public void setPosition(YogaEdge edge, float position) {
     mHasSetPosition = true;
+    if (mBatchStyleWrites) {
+      bufferStyle(STYLE_POSITION, edge.intValue(), position);
+      return;
+    }
     jni_YGNodeStyleSetPosition(mNativePointer, edge.intValue(), position);
   }
 
   private native void jni_YGNodeStyleSetPositionPercent(long nativePointer, int edge, float percent);
   public void setPositionPercent(YogaEdge edge, float percent) {
     mHasSetPosition = true;
+    if (mBatchStyleWrites) {
+      bufferStyle(STYLE_POSITION_PERCENT, edge.intValue(), percent);
+      return;
+    }
     jni_YGNodeStyleSetPositionPercent(mNativePointer, edge.intValue(), percent);
   }
 
   private native Object jni_YGNodeStyleGetWidth(long nativePointer);
   public YogaValue getWidth() {
+    flushStyle();
     return (YogaValue) jni_YGNodeStyleGetWidth(mNativePointer);
   }
 
   private native void jni_YGNodeStyleSetWidth(long nativePointer, float width);
   public void setWidth(float width) {
+    if (mBatchStyleWrites) {
+      bufferStyle(STYLE_WIDTH, 0, width);
+      return;
+    }
     jni_YGNodeStyleSetWidth(mNativePointer, width);
   }
 
   private native void jni_YGNodeStyleSetWidthPercent(long nativePointer, float percent);
   public void setWidthPercent(float percent) {
+    if (mBatchStyleWrites) {
+      bufferStyle(STYLE_WIDTH_PERCENT, 0, percent);
+      return;
+    }
     jni_YGNodeStyleSetWidthPercent(mNativePointer, percent);
   }
 
   private native void jni_YGNodeStyleSetWidthAuto(long nativePointer);
   public void setWidthAuto() {
+    if (mBatchStyleWrites) {
+      bufferStyle(STYLE_WIDTH_AUTO, 0, 0);
+      return;
+    }
     jni_YGNodeStyleSetWidthAuto(mNativePointer);
   }
 
   private native Object jni_YGNodeStyleGetHeight(long nativePointer);
   public YogaValue getHeight() {
+    flushStyle();
     return (YogaValue) jni_YGNodeStyleGetHeight(mNativePointer);
   }
 
   private native void jni_YGNodeStyleSetHeight(long nativePointer, float height);
   public void setHeight(float height) {
+    if (mBatchStyleWrites) {
+      bufferStyle(STYLE_HEIGHT, 0, height);
+      return;
+    }
     jni_YGNodeStyleSetHeight(mNativePointer, height);
   }
 
   private native void jni_YGNodeStyleSetHeightPercent(long nativePointer, float percent);
   public void setHeightPercent(float percent) {
+    if (mBatchStyleWrites) {
+      bufferStyle(STYLE_HEIGHT_PERCENT, 0, percent);
+      return;
+    }
     jni_YGNodeStyleSetHeightPercent(mNativePointer, percent);
   }
 
   private native void jni_YGNodeStyleSetHeightAuto(long nativePointer);
   public void setHeightAuto() {
+    if (mBatchStyleWrites) {
+      bufferStyle(STYLE_HEIGHT_AUTO, 0, 0);
+      return;
+    }
     jni_YGNodeStyleSetHeightAuto(mNativePointer);
   }
 
   private native Object jni_YGNodeStyleGetMinWidth(long nativePointer);
   public YogaValue getMinWidth() {
+    flushStyle();
     return (YogaValue) jni_YGNodeStyleGetMinWidth(mNativePointer);
   }
 
   private native void jni_YGNodeStyleSetMinWidth(long nativePointer, float minWidth);
   public void setMinWidth(float minWidth) {
+    if (mBatchStyleWrites) {
+      bufferStyle(STYLE_MIN_WIDTH, 0, minWidth);
+      return;
+    }
     jni_YGNodeStyleSetMinWidth(mNativePointer, minWidth);
   }
 
   private native void jni_YGNodeStyleSetMinWidthPercent(long nativePointer, float percent);
   public void setMinWidthPercent(float percent) {
+    if (mBatchStyleWrites) {
+      bufferStyle(STYLE_MIN_WIDTH_PERCENT, 0, percent);
+      return;
+    }
     jni_YGNodeStyleSetMinWidthPercent(mNativePointer, percent);
   }
 
   private native Object jni_YGNodeStyleGetMinHeight(long nativePointer);
   public YogaValue getMinHeight() {
+    flushStyle();
     return (YogaValue) jni_YGNodeStyleGetMinHeight(mNativePointer);
   }
 
   private native void jni_YGNodeStyleSetMinHeight(long nativePointer, float minHeight);
   public void setMinHeight(float minHeight) {
+    if (mBatchStyleWrites) {
+      bufferStyle(STYLE_MIN_HEIGHT, 0, minHeight);
+      return;
+    }
     jni_YGNodeStyleSetMinHeight(mNativePointer, minHeight);
   }
 
   private native void jni_YGNodeStyleSetMinHeightPercent(long nativePointer, float percent);
   public void setMinHeightPercent(float percent) {
+    if (mBatchStyleWrites) {
+      bufferStyle(STYLE_MIN_HEIGHT_PERCENT, 0, percent);
+      return;
+    }
     jni_YGNodeStyleSetMinHeightPercent(mNativePointer, percent);
   }
 
   private native Object jni_YGNodeStyleGetMaxWidth(long nativePointer);
   public YogaValue getMaxWidth() {
+    flushStyle();
     return (YogaValue) jni_YGNodeStyleGetMaxWidth(mNativePointer);
   }
 
   private native void jni_YGNodeStyleSetMaxWidth(long nativePointer, float maxWidth);
   public void setMaxWidth(float maxWidth) {
+    if (mBatchStyleWrites) {
+      bufferStyle(STYLE_MAX_WIDTH, 0, maxWidth);
+      return;
+    }
     jni_YGNodeStyleSetMaxWidth(mNativePointer, maxWidth);
   }
 
   private native void jni_YGNodeStyleSetMaxWidthPercent(long nativePointer, float percent);
   public void setMaxWidthPercent(float percent) {
+    if (mBatchStyleWrites) {
+      bufferStyle(STYLE_MAX_WIDTH_PERCENT, 0, percent);
+      return;
+    }
     jni_YGNodeStyleSetMaxWidthPercent(mNativePointer, percent);
   }
 
   private native Object jni_YGNodeStyleGetMaxHeight(long nativePointer);
   public YogaValue getMaxHeight() {
+    flushStyle();
     return (YogaValue) jni_YGNodeStyleGetMaxHeight(mNativePointer);
   }
 
   private native void jni_YGNodeStyleSetMaxHeight(long nativePointer, float maxheight);
   public void setMaxHeight(float maxheight) {
+    if (mBatchStyleWrites) {
+      bufferStyle(STYLE_MAX_HEIGHT, 0, maxheight);
+      return;
+    }
     jni_YGNodeStyleSetMaxHeight(mNativePointer, maxheight);
   }
 
   private native void jni_YGNodeStyleSetMaxHeightPercent(long nativePointer, float percent);
   public void setMaxHeightPercent(float percent) {
+    if (mBatchStyleWrites) {
+      bufferStyle(STYLE_MAX_HEIGHT_PERCENT, 0, percent);
+      return;
+    }
     jni_YGNodeStyleSetMaxHeightPercent(mNativePointer, percent);
   }
 
   private native float jni_YGNodeStyleGetAspectRatio(long nativePointer);
   public float getAspectRatio() {
+    flushStyle();
     return jni_YGNodeStyleGetAspectRatio(mNativePointer);
   }
 
   private native void jni_YGNodeStyleSetAspectRatio(long nativePointer, float aspectRatio);
   public void setAspectRatio(float aspectRatio) {
+    if (mBatchStyleWrites) {
+      bufferStyle(STYLE_ASPECT_RATIO, 0, aspectRatio);
+      return;
+    }
     jni_YGNodeStyleSetAspectRatio(mNativePointer, aspectRatio);
   }
 
@@ -669,6 +1075,7 @@ public class YogaNode {
    * layout of the tree rooted at this node.
    */
   public void print() {
+    flushStyleRecursive();
     jni_YGNodePrint(mNativePointer);
   }
 }
@@ -8,6 +8,7 @@
  */
 
 #include <fb/fbjni.h>
+#include <algorithm>
 #include <iostream>
 #include <yoga/Yoga.h>
 
@@ -99,6 +100,57 @@ static void YGTransferLayoutOutputsRecursive(YGNodeRef root) {
   }
 }
 
+/* Every node is read back as [hasNewLayout, direction, left, top, width, height, margin (left,
+ * top, right, bottom), padding (...), border (...)], needs to be in sync with YogaNode.java */
+const int kLayoutOutputSize = 18;
+
+static size_t YGCountLayoutOutputsRecursive(YGNodeRef root) {
+  // Like YGTransferLayoutOutputsRecursive, a node without a new layout skips its whole subtree.
+  size_t count = kLayoutOutputSize;
+  if (YGNodeGetHasNewLayout(root)) {
+    for (uint32_t i = 0; i < YGNodeGetChildCount(root); i++) {
+      count += YGCountLayoutOutputsRecursive(YGNodeGetChild(root, i));
+    }
+  }
+  return count;
+}
+
+static jfloat *YGCopyLayoutOutputsRecursive(YGNodeRef root, jfloat *outputs) {
+  if (!YGNodeGetHasNewLayout(root)) {
+    std::fill(outputs, outputs + kLayoutOutputSize, 0);
+    return outputs + kLayoutOutputSize;
+  }
+
+  *outputs++ = 1;
+  *outputs++ = static_cast<jfloat>(YGNodeLayoutGetDirection(root));
+  *outputs++ = YGNodeLayoutGetLeft(root);
+  *outputs++ = YGNodeLayoutGetTop(root);
+  *outputs++ = YGNodeLayoutGetWidth(root);
+  *outputs++ = YGNodeLayoutGetHeight(root);
+
+  *outputs++ = YGNodeLayoutGetMargin(root, YGEdgeLeft);
+  *outputs++ = YGNodeLayoutGetMargin(root, YGEdgeTop);
+  *outputs++ = YGNodeLayoutGetMargin(root, YGEdgeRight);
+  *outputs++ = YGNodeLayoutGetMargin(root, YGEdgeBottom);
+
+  *outputs++ = YGNodeLayoutGetPadding(root, YGEdgeLeft);
+  *outputs++ = YGNodeLayoutGetPadding(root, YGEdgeTop);
+  *outputs++ = YGNodeLayoutGetPadding(root, YGEdgeRight);
+  *outputs++ = YGNodeLayoutGetPadding(root, YGEdgeBottom);
+
+  *outputs++ = YGNodeLayoutGetBorder(root, YGEdgeLeft);
+  *outputs++ = YGNodeLayoutGetBorder(root, YGEdgeTop);
+  *outputs++ = YGNodeLayoutGetBorder(root, YGEdgeRight);
+  *outputs++ = YGNodeLayoutGetBorder(root, YGEdgeBottom);
+
+  YGNodeSetHasNewLayout(root, false);
+
+  for (uint32_t i = 0; i < YGNodeGetChildCount(root); i++) {
+    outputs = YGCopyLayoutOutputsRecursive(YGNodeGetChild(root, i), outputs);
+  }
+  return outputs;
+}
+
 static void YGPrint(YGNodeRef node) {
   if (auto obj = YGNodeJobject(node)->lockLocal()) {
     cout << obj->toString() << endl;
@@ -214,6 +266,23 @@ void jni_YGNodeReset(alias_ref<jobject> thiz, jlong nativePointer) {
   YGNodeSetPrintFunc(node, YGPrint);
 }
 
+static void YGNodeResetRecursive(YGNodeRef node) {
+  for (uint32_t i = YGNodeGetChildCount(node); i > 0; i--) {
+    const YGNodeRef child = YGNodeGetChild(node, i - 1);
+    YGNodeRemoveChild(node, child);
+    YGNodeResetRecursive(child);
+  }
+
+  void *context = YGNodeGetContext(node);
+  YGNodeReset(node);
+  YGNodeSetContext(node, context);
+  YGNodeSetPrintFunc(node, YGPrint);
+}
+
+void jni_YGNodeResetSubtree(alias_ref<jobject> thiz, jlong nativePointer) {
+  YGNodeResetRecursive(_jlong2YGNodeRef(nativePointer));
+}
+
 void jni_YGNodePrint(alias_ref<jobject> thiz, jlong nativePointer) {
   const YGNodeRef node = _jlong2YGNodeRef(nativePointer);
   YGNodePrint(node,
@@ -241,6 +310,29 @@ void jni_YGNodeCalculateLayout(alias_ref<jobject>,
   YGTransferLayoutOutputsRecursive(root);
 }
 
+void jni_YGNodeCalculateLayoutWithOutputs(alias_ref<jobject>,
+                                          jlong nativePointer,
+                                          jfloat width,
+                                          jfloat height,
+                                          alias_ref<JArrayFloat> outputs) {
+  const YGNodeRef root = _jlong2YGNodeRef(nativePointer);
+  YGNodeCalculateLayout(root,
+                        static_cast<float>(width),
+                        static_cast<float>(height),
+                        YGNodeStyleGetDirection(root));
+
+  // Java would otherwise read the stale outputs of a previous layout.
+  if (YGCountLayoutOutputsRecursive(root) > static_cast<size_t>(outputs->size())) {
+    throwNewJavaException("java/lang/IllegalStateException",
+                          "Layout outputs buffer is smaller than the tree");
+  }
+
+  // The outputs are written straight into the Java array, no JNI call is made while it's pinned.
+  auto pinnedOutputs = outputs->pinCritical();
+  YGCopyLayoutOutputsRecursive(root, pinnedOutputs.get());
+  pinnedOutputs.release();
+}
+
 void jni_YGNodeMarkDirty(alias_ref<jobject>, jlong nativePointer) {
   YGNodeMarkDirty(_jlong2YGNodeRef(nativePointer));
 }
@@ -377,6 +469,189 @@ YG_NODE_JNI_STYLE_UNIT_PROP(MaxHeight);
 // Yoga specific properties, not compatible with flexbox specification
 YG_NODE_JNI_STYLE_PROP(jfloat, float, AspectRatio);
 
+/* Those opcodes need to be in sync with YogaNode.java */
+enum YGJNIStyleWrite {
+  kStyleDirection = 0,
+  kStyleFlexDirection = 1,
+  kStyleJustifyContent = 2,
+  kStyleAlignItems = 3,
+  kStyleAlignSelf = 4,
+  kStyleAlignContent = 5,
+  kStylePositionType = 6,
+  kStyleFlexWrap = 7,
+  kStyleOverflow = 8,
+  kStyleDisplay = 9,
+  kStyleFlex = 10,
+  kStyleFlexGrow = 11,
+  kStyleFlexShrink = 12,
+  kStyleFlexBasis = 13,
+  kStyleFlexBasisPercent = 14,
+  kStyleFlexBasisAuto = 15,
+  kStyleMargin = 16,
+  kStyleMarginPercent = 17,
+  kStyleMarginAuto = 18,
+  kStylePadding = 19,
+  kStylePaddingPercent = 20,
+  kStyleBorder = 21,
+  kStylePosition = 22,
+  kStylePositionPercent = 23,
+  kStyleWidth = 24,
+  kStyleWidthPercent = 25,
+  kStyleWidthAuto = 26,
+  kStyleHeight = 27,
+  kStyleHeightPercent = 28,
+  kStyleHeightAuto = 29,
+  kStyleMinWidth = 30,
+  kStyleMinWidthPercent = 31,
+  kStyleMinHeight = 32,
+  kStyleMinHeightPercent = 33,
+  kStyleMaxWidth = 34,
+  kStyleMaxWidthPercent = 35,
+  kStyleMaxHeight = 36,
+  kStyleMaxHeightPercent = 37,
+  kStyleAspectRatio = 38,
+};
+
+/* Every buffered style write is encoded as [opcode, edge, value] */
+const int kStyleWriteSize = 3;
+
+void jni_YGNodeStyleApplyBuffer(alias_ref<jobject>,
+                                jlong nativePointer,
+                                alias_ref<JArrayFloat> buffer,
+                                jint size) {
+  const YGNodeRef node = _jlong2YGNodeRef(nativePointer);
+  const auto writes = buffer->getRegion(0, size);
+
+  for (jint i = 0; i + kStyleWriteSize <= size; i += kStyleWriteSize) {
+    const int opcode = static_cast<int>(writes[i]);
+    const YGEdge edge = static_cast<YGEdge>(static_cast<int>(writes[i + 1]));
+    const float value = static_cast<float>(writes[i + 2]);
+
+    switch (opcode) {
+      case kStyleDirection:
+        YGNodeStyleSetDirection(node, static_cast<YGDirection>(static_cast<int>(value)));
+        break;
+      case kStyleFlexDirection:
+        YGNodeStyleSetFlexDirection(node, static_cast<YGFlexDirection>(static_cast<int>(value)));
+        break;
+      case kStyleJustifyContent:
+        YGNodeStyleSetJustifyContent(node, static_cast<YGJustify>(static_cast<int>(value)));
+        break;
+      case kStyleAlignItems:
+        YGNodeStyleSetAlignItems(node, static_cast<YGAlign>(static_cast<int>(value)));
+        break;
+      case kStyleAlignSelf:
+        YGNodeStyleSetAlignSelf(node, static_cast<YGAlign>(static_cast<int>(value)));
+        break;
+      case kStyleAlignContent:
+        YGNodeStyleSetAlignContent(node, static_cast<YGAlign>(static_cast<int>(value)));
+        break;
+      case kStylePositionType:
+        YGNodeStyleSetPositionType(node, static_cast<YGPositionType>(static_cast<int>(value)));
+        break;
+      case kStyleFlexWrap:
+        YGNodeStyleSetFlexWrap(node, static_cast<YGWrap>(static_cast<int>(value)));
+        break;
+      case kStyleOverflow:
+        YGNodeStyleSetOverflow(node, static_cast<YGOverflow>(static_cast<int>(value)));
+        break;
+      case kStyleDisplay:
+        YGNodeStyleSetDisplay(node, static_cast<YGDisplay>(static_cast<int>(value)));
+        break;
+      case kStyleFlex:
+        YGNodeStyleSetFlex(node, value);
+        break;
+      case kStyleFlexGrow:
+        YGNodeStyleSetFlexGrow(node, value);
+        break;
+      case kStyleFlexShrink:
+        YGNodeStyleSetFlexShrink(node, value);
+        break;
+      case kStyleFlexBasis:
+        YGNodeStyleSetFlexBasis(node, value);
+        break;
+      case kStyleFlexBasisPercent:
+        YGNodeStyleSetFlexBasisPercent(node, value);
+        break;
+      case kStyleFlexBasisAuto:
+        YGNodeStyleSetFlexBasisAuto(node);
+        break;
+      case kStyleMargin:
+        YGNodeStyleSetMargin(node, edge, value);
+        break;
+      case kStyleMarginPercent:
+        YGNodeStyleSetMarginPercent(node, edge, value);
+        break;
+      case kStyleMarginAuto:
+        YGNodeStyleSetMarginAuto(node, edge);
+        break;
+      case kStylePadding:
+        YGNodeStyleSetPadding(node, edge, value);
+        break;
+      case kStylePaddingPercent:
+        YGNodeStyleSetPaddingPercent(node, edge, value);
+        break;
+      case kStyleBorder:
+        YGNodeStyleSetBorder(node, edge, value);
+        break;
+      case kStylePosition:
+        YGNodeStyleSetPosition(node, edge, value);
+        break;
+      case kStylePositionPercent:
+        YGNodeStyleSetPositionPercent(node, edge, value);
+        break;
+      case kStyleWidth:
+        YGNodeStyleSetWidth(node, value);
+        break;
+      case kStyleWidthPercent:
+        YGNodeStyleSetWidthPercent(node, value);
+        break;
+      case kStyleWidthAuto:
+        YGNodeStyleSetWidthAuto(node);
+        break;
+      case kStyleHeight:
+        YGNodeStyleSetHeight(node, value);
+        break;
+      case kStyleHeightPercent:
+        YGNodeStyleSetHeightPercent(node, value);
+        break;
+      case kStyleHeightAuto:
+        YGNodeStyleSetHeightAuto(node);
+        break;
+      case kStyleMinWidth:
+        YGNodeStyleSetMinWidth(node, value);
+        break;
+      case kStyleMinWidthPercent:
+        YGNodeStyleSetMinWidthPercent(node, value);
+        break;
+      case kStyleMinHeight:
+        YGNodeStyleSetMinHeight(node, value);
+        break;
+      case kStyleMinHeightPercent:
+        YGNodeStyleSetMinHeightPercent(node, value);
+        break;
+      case kStyleMaxWidth:
+        YGNodeStyleSetMaxWidth(node, value);
+        break;
+      case kStyleMaxWidthPercent:
+        YGNodeStyleSetMaxWidthPercent(node, value);
+        break;
+      case kStyleMaxHeight:
+        YGNodeStyleSetMaxHeight(node, value);
+        break;
+      case kStyleMaxHeightPercent:
+        YGNodeStyleSetMaxHeightPercent(node, value);
+        break;
+      case kStyleAspectRatio:
+        YGNodeStyleSetAspectRatio(node, value);
+        break;
+      default:
+        YGLog(node, YGLogLevelError, "Unknown buffered style write %d\n", opcode);
+        break;
+    }
+  }
+}
+
 jlong jni_YGConfigNew(alias_ref<jobject>) {
   return reinterpret_cast<jlong>(YGConfigNew());
 }
@@ -450,9 +725,11 @@ jint JNI_OnLoad(JavaVM *vm, void *) {
                         YGMakeNativeMethod(jni_YGNodeNewWithConfig),
                         YGMakeNativeMethod(jni_YGNodeFree),
                         YGMakeNativeMethod(jni_YGNodeReset),
+                        YGMakeNativeMethod(jni_YGNodeResetSubtree),
                         YGMakeNativeMethod(jni_YGNodeInsertChild),
                         YGMakeNativeMethod(jni_YGNodeRemoveChild),
                         YGMakeNativeMethod(jni_YGNodeCalculateLayout),
+                        YGMakeNativeMethod(jni_YGNodeCalculateLayoutWithOutputs),
                         YGMakeNativeMethod(jni_YGNodeMarkDirty),
                         YGMakeNativeMethod(jni_YGNodeIsDirty),
                         YGMakeNativeMethod(jni_YGNodeSetHasMeasureFunc),
@@ -520,6 +797,7 @@ jint JNI_OnLoad(JavaVM *vm, void *) {
                         YGMakeNativeMethod(jni_YGNodeStyleSetMaxHeightPercent),
                         YGMakeNativeMethod(jni_YGNodeStyleGetAspectRatio),
                         YGMakeNativeMethod(jni_YGNodeStyleSetAspectRatio),
+                        YGMakeNativeMethod(jni_YGNodeStyleApplyBuffer),
                         YGMakeNativeMethod(jni_YGNodeGetInstanceCount),
                         YGMakeNativeMethod(jni_YGNodePrint),
                     });
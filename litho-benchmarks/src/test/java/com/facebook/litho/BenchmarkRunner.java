@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2017-present, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+
+package com.facebook.litho;
+
+import java.io.File;
+import java.util.Collection;
+
+import com.facebook.litho.testing.testrunner.ComponentsTestRunner;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Entry point for the JMH benchmarks. JMH runs in-process ({@code @Fork(0)} on every benchmark)
+ * so that the benchmarks execute inside the Robolectric sandbox created by this runner, which
+ * backs the framework classes with the android-all implementation jar.
+ *
+ * <p>The {@link GCProfiler} is always attached so that every result reports the allocation rate
+ * ({@code gc.alloc.rate.norm}) next to the throughput.
+ *
+ * <p>In smoke mode every benchmark runs a single short measurement iteration without warmup.
+ * The numbers are meaningless, but it checks on CI that all the benchmarks still run.
+ */
+@RunWith(ComponentsTestRunner.class)
+public class BenchmarkRunner {
+
+  private static final String INCLUDE_PROPERTY = "com.facebook.litho.jmh.include";
+  private static final String OUTPUT_PROPERTY = "com.facebook.litho.jmh.output";
+  private static final String SMOKE_PROPERTY = "com.facebook.litho.jmh.smoke";
+
+  @Test
+  public void runBenchmarks() throws Exception {
+    final OptionsBuilder builder = new OptionsBuilder();
+    builder
+        .include(System.getProperty(INCLUDE_PROPERTY, ".*Benchmark.*"))
+        .addProfiler(GCProfiler.class)
+        .shouldFailOnError(true);
+
+    if (Boolean.getBoolean(SMOKE_PROPERTY)) {
+      builder
+          .warmupIterations(0)
+          .measurementIterations(1)
+          .measurementTime(TimeValue.milliseconds(100));
+    }
+
+    final String output = System.getProperty(OUTPUT_PROPERTY);
+    if (output != null) {
+      new File(output).getParentFile().mkdirs();
+      builder.output(output);
+    }
+
+    final Options options = builder.build();
+    final Collection<RunResult> results = new Runner(options).run();
+
+    // An include pattern that matches nothing, or benchmarks that JMH didn't find in the
+    // sandbox, would otherwise look like a successful run.
+    assertFalse("No benchmark was run", results.isEmpty());
+  }
+}
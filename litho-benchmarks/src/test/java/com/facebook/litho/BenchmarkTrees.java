@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2017-present, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+
+package com.facebook.litho;
+
+import com.facebook.litho.testing.TestDrawableComponent;
+import com.facebook.litho.testing.TestSizeDependentComponent;
+import com.facebook.litho.testing.TestViewComponent;
+import com.facebook.litho.testing.util.InlineLayoutSpec;
+import com.facebook.litho.widget.Text;
+import com.facebook.yoga.YogaEdge;
+
+/**
+ * Component tree shapes shared by the benchmarks. Every shape is parameterized by a size so that
+ * the same benchmark can be run against small and large hierarchies.
+ */
+final class BenchmarkTrees {
+
+  /** A single chain of nested containers, {@code size} levels deep. */
+  static final String DEEP = "deep";
+
+  /** A single container with {@code size} fixed size children. */
+  static final String WIDE = "wide";
+
+  /** A container with {@code size} Text children, exercising text measurement. */
+  static final String TEXT = "text";
+
+  /** A container with {@code size} children that each resolve a nested tree on measure. */
+  static final String NESTED = "nested";
+
+  static final int CHILD_SIZE_PX = 20;
+
+  private BenchmarkTrees() {
+  }
+
+  static Component<?> create(final String shape, final int size) {
+    switch (shape) {
+      case DEEP:
+        return new InlineLayoutSpec() {
+          @Override
+          protected ComponentLayout onCreateLayout(ComponentContext c) {
+            ComponentLayout.Builder node = TestDrawableComponent.create(c)
+                .withLayout()
+                .widthPx(CHILD_SIZE_PX)
+                .heightPx(CHILD_SIZE_PX);
+            for (int i = 0; i < size; i++) {
+              node = Column.create(c)
+                  .paddingPx(YogaEdge.ALL, 1)
+                  .child(node)
+                  .child(
+                      TestViewComponent.create(c)
+                          .withLayout()
+                          .heightPx(CHILD_SIZE_PX));
+            }
+            return node.build();
+          }
+        };
+
+      case WIDE:
+        return new InlineLayoutSpec() {
+          @Override
+          protected ComponentLayout onCreateLayout(ComponentContext c) {
+            final ComponentLayout.ContainerBuilder column = Column.create(c);
+            for (int i = 0; i < size; i++) {
+              column.child(
+                  TestDrawableComponent.create(c)
+                      .withLayout()
+                      .heightPx(CHILD_SIZE_PX)
+                      .marginPx(YogaEdge.BOTTOM, 1));
+            }
+            return column.build();
+          }
+        };
+
+      case TEXT:
+        return new InlineLayoutSpec() {
+          @Override
+          protected ComponentLayout onCreateLayout(ComponentContext c) {
+            final ComponentLayout.ContainerBuilder column = Column.create(c);
+            for (int i = 0; i < size; i++) {
+              column.child(
+                  Text.create(c)
+                      .text("Benchmark row " + i + " with enough text to wrap on narrow widths")
+                      .textSizePx(14));
+            }
+            return column.build();
+          }
+        };
+
+      case NESTED:
+        return new InlineLayoutSpec() {
+          @Override
+          protected ComponentLayout onCreateLayout(ComponentContext c) {
+            final ComponentLayout.ContainerBuilder column = Column.create(c);
+            for (int i = 0; i < size; i++) {
+              column.child(
+                  TestSizeDependentComponent.create(c)
+                      .setFixSizes(false)
+                      .setDelegate(false));
+            }
+            return column.build();
+          }
+        };
+
+      default:
+        throw new IllegalArgumentException("Unknown tree shape: " + shape);
+    }
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2017-present, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+
+package com.facebook.litho;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.robolectric.RuntimeEnvironment;
+
+/**
+ * Benchmarks {@link LayoutState#calculate} end to end, and the creation plus Yoga measurement of
+ * the {@link InternalNode} tree on its own.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(0)
+public class LayoutStateBenchmark {
+
+  private static final int WIDTH = 1080;
+  private static final int HEIGHT = 1920;
+
+  @Param({BenchmarkTrees.DEEP, BenchmarkTrees.WIDE, BenchmarkTrees.TEXT, BenchmarkTrees.NESTED})
+  public String shape;
+
+  @Param({"10", "100"})
+  public int size;
+
+  private ComponentContext mContext;
+  private Component<?> mComponent;
+  private int mWidthSpec;
+  private int mHeightSpec;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    mContext = new ComponentContext(RuntimeEnvironment.application);
+    mComponent = BenchmarkTrees.create(shape, size);
+    mWidthSpec = SizeSpec.makeSizeSpec(WIDTH, SizeSpec.EXACTLY);
+    mHeightSpec = SizeSpec.makeSizeSpec(HEIGHT, SizeSpec.AT_MOST);
+  }
+
+  @Benchmark
+  public int calculate() {
+    final LayoutState layoutState = LayoutState.calculate(
+        mContext,
+        mComponent,
+        -1,
+        mWidthSpec,
+        mHeightSpec);
+    final int count = layoutState.getMountableOutputCount();
+    layoutState.releaseRef();
+    return count;
+  }
+
+  @Benchmark
+  public int createAndMeasureTree() {
+    final InternalNode root = LayoutState.createAndMeasureTreeForComponent(
+        mContext,
+        mComponent,
+        mWidthSpec,
+        mHeightSpec);
+    final int height = root.getHeight();
+    LayoutState.releaseNodeTree(root, false);
+    return height;
+  }
+}
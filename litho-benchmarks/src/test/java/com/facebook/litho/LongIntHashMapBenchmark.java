@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2017-present, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+
+package com.facebook.litho;
+
+import java.util.concurrent.TimeUnit;
+
+import android.support.v4.util.LongSparseArray;
+
+import com.facebook.litho.internal.LongIntHashMap;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the {@code LongSparseArray<Integer>} that used to map output ids to positions in a
+ * {@link LayoutState} with {@link LongIntHashMap}, filling the map once and looking every id up
+ * as {@code collectResults} and incremental mount do. The gc profiler of {@link BenchmarkRunner}
+ * reports the allocations caused by boxing the positions.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(0)
+public class LongIntHashMapBenchmark {
+
+  // Same layout as the ids from LayoutStateOutputIdCalculator: component id, level, sequence.
+  private static final int COMPONENT_ID_SHIFT = 26;
+  private static final int LEVEL_SHIFT = 18;
+
+  @Param({"10", "100", "1000"})
+  public int size;
+
+  private long[] mIds;
+  private final LongSparseArray<Integer> mSparseArray = new LongSparseArray<>(8);
+  private final LongIntHashMap mHashMap = new LongIntHashMap(8);
+
+  @Setup(Level.Trial)
+  public void setup() {
+    mIds = new long[size];
+    for (int i = 0; i < size; i++) {
+      mIds[i] = (((long) i + 1) << COMPONENT_ID_SHIFT) | ((long) (i % 16) << LEVEL_SHIFT) | i % 3;
+    }
+  }
+
+  @Benchmark
+  public int longSparseArray() {
+    final LongSparseArray<Integer> map = mSparseArray;
+    map.clear();
+    for (int i = 0; i < size; i++) {
+      map.put(mIds[i], i);
+    }
+
+    int sum = 0;
+    for (int i = 0; i < size; i++) {
+      sum += map.get(mIds[i], -1);
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public int longIntHashMap() {
+    final LongIntHashMap map = mHashMap;
+    map.clear();
+    for (int i = 0; i < size; i++) {
+      map.put(mIds[i], i);
+    }
+
+    int sum = 0;
+    for (int i = 0; i < size; i++) {
+      sum += map.get(mIds[i], -1);
+    }
+    return sum;
+  }
+}
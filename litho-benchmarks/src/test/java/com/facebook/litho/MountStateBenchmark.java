@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2017-present, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+
+package com.facebook.litho;
+
+import java.util.concurrent.TimeUnit;
+
+import android.graphics.Rect;
+
+import com.facebook.litho.testing.ComponentTestHelper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.robolectric.RuntimeEnvironment;
+
+/**
+ * Benchmarks {@link MountState#mount} for a full, dirty mount and for incremental mount while
+ * scrolling a viewport over the laid out tree.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(0)
+public class MountStateBenchmark {
+
+  private static final int WIDTH = 1080;
+  private static final int VIEWPORT_HEIGHT = 400;
+  private static final int SCROLL_STEP = 7;
+
+  @Param({BenchmarkTrees.DEEP, BenchmarkTrees.WIDE, BenchmarkTrees.TEXT, BenchmarkTrees.NESTED})
+  public String shape;
+
+  @Param({"10", "100"})
+  public int size;
+
+  private LithoView mLithoView;
+  private MountState mMountState;
+  private LayoutState mLayoutState;
+  private final Rect mFullRect = new Rect();
+  private final Rect mViewport = new Rect();
+  private int mScrollRange;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    ThreadUtils.setMainThreadOverride(ThreadUtils.OVERRIDE_MAIN_THREAD_TRUE);
+
+    final ComponentContext c = new ComponentContext(RuntimeEnvironment.application);
+    mLithoView = ComponentTestHelper.mountComponent(
+        c,
+        new LithoView(c),
+        BenchmarkTrees.create(shape, size),
+        true,
+        WIDTH,
+        VIEWPORT_HEIGHT);
+
+    mMountState = mLithoView.getMountState();
+    mLayoutState = mLithoView.getComponentTree().getMainThreadLayoutState();
+    mFullRect.set(0, 0, mLayoutState.getWidth(), mLayoutState.getHeight());
+    mScrollRange = Math.max(1, mLayoutState.getHeight() - VIEWPORT_HEIGHT);
+    mViewport.set(0, 0, WIDTH, VIEWPORT_HEIGHT);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    ComponentTestHelper.unmountComponent(mLithoView);
+    ThreadUtils.setMainThreadOverride(ThreadUtils.OVERRIDE_DISABLED);
+  }
+
+  @Benchmark
+  public void mount() {
+    mMountState.setDirty();
+    mMountState.mount(mLayoutState, mFullRect);
+  }
+
+  @Benchmark
+  public void incrementalMount() {
+    int top = mViewport.top + SCROLL_STEP;
+    if (top > mScrollRange) {
+      top = 0;
+    }
+    mViewport.offsetTo(0, top);
+
+    // The LayoutState is unchanged, so after the first pass this goes through
+    // performIncrementalMount instead of the full mount loop.
+    mMountState.mount(mLayoutState, mViewport);
+  }
+}
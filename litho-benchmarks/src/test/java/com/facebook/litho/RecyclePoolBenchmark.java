@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2017-present, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+
+package com.facebook.litho;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the synchronized {@link RecyclePool} with {@link MagazineRecyclePool} when several
+ * layout threads acquire and release nodes from the same pool at the same time, as they do with
+ * {@link ThreadPoolLayoutHandler}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Threads(4)
+@Fork(0)
+public class RecyclePoolBenchmark {
+
+  // Roughly the number of nodes of a list item.
+  private static final int NODE_COUNT = 32;
+
+  private final RecyclePool<Object> mSynchronizedPool = new RecyclePool<>("Sync", 256, true);
+  private final RecyclePool<Object> mMagazinePool = new MagazineRecyclePool<>("Magazine", 256);
+
+  @Benchmark
+  public int synchronizedPool() {
+    return acquireAndRelease(mSynchronizedPool);
+  }
+
+  @Benchmark
+  public int magazinePool() {
+    return acquireAndRelease(mMagazinePool);
+  }
+
+  private static int acquireAndRelease(RecyclePool<Object> pool) {
+    final Object[] nodes = new Object[NODE_COUNT];
+    int allocated = 0;
+    for (int i = 0; i < NODE_COUNT; i++) {
+      Object node = pool.acquire();
+      if (node == null) {
+        node = new Object();
+        allocated++;
+      }
+      nodes[i] = node;
+    }
+
+    for (int i = 0; i < NODE_COUNT; i++) {
+      pool.release(nodes[i]);
+    }
+
+    return allocated;
+  }
+}
@@ -121,7 +121,7 @@ public abstract class Component<L extends ComponentLifecycle> implements HasEven
 
   private static final AtomicInteger sIdGenerator = new AtomicInteger(0);
   private int mId = sIdGenerator.getAndIncrement();
-  private String mGlobalKey;
+  private GlobalKey mGlobalKey;
   private String mKey;
 
   private final L mLifecycle;
@@ -178,7 +178,7 @@ public abstract class Component<L extends ComponentLifecycle> implements HasEven
    * Get a key that is unique to this component within its tree.
    * @return
    */
-  String getGlobalKey() {
+  GlobalKey getGlobalKey() {
     return mGlobalKey;
   }
 
@@ -189,7 +189,7 @@ public abstract class Component<L extends ComponentLifecycle> implements HasEven
    */
   // thread-safe because the one write is before all the reads
   @ThreadSafe(enableChecks = false)
-  private void setGlobalKey(String key) {
+  private void setGlobalKey(GlobalKey key) {
     mGlobalKey = key;
   }
 
@@ -341,7 +341,10 @@ public abstract class Component<L extends ComponentLifecycle> implements HasEven
   void applyStateUpdates(ComponentContext c) {
     final Component<?> parentScope = c.getComponentScope();
     final String key = getKey();
-    setGlobalKey(parentScope == null ? key : parentScope.getGlobalKey() + key);
+    setGlobalKey(
+        parentScope == null
+            ? GlobalKey.root(key)
+            : GlobalKey.create(parentScope.getGlobalKey(), key));
 
     setScopedContext(ComponentContext.withComponentScope(c, this));
 
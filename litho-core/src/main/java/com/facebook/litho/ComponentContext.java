@@ -26,17 +26,16 @@ public class ComponentContext extends ContextWrapper {
 
   static final InternalNode NULL_LAYOUT = new NoOpInternalNode();
 
-  private final String mLogTag;
-  private final ComponentsLogger mLogger;
-  private final StateHandler mStateHandler;
+  // Shared by the copies of this context, which every component scope gets. Only reassigned when
+  // a subtree of the previous layout is reused, see moveToLayoutOf().
+  @ThreadConfined(ThreadConfined.ANY)
+  private LayoutScope mLayoutScope;
   private String mNoStateUpdatesMethod;
 
   // Hold a reference to the component which scope we are currently within.
   @ThreadConfined(ThreadConfined.ANY)
   private Component<?> mComponentScope;
   @ThreadConfined(ThreadConfined.ANY)
-  private final ResourceCache mResourceCache;
-  @ThreadConfined(ThreadConfined.ANY)
   private int mWidthSpec;
   @ThreadConfined(ThreadConfined.ANY)
   private int mHeightSpec;
@@ -95,18 +94,29 @@ public class ComponentContext extends ContextWrapper {
 
     if (componentContext != null) {
       mTreeProps = componentContext.mTreeProps;
-      mResourceCache = componentContext.mResourceCache;
       mWidthSpec = componentContext.mWidthSpec;
       mHeightSpec = componentContext.mHeightSpec;
       mComponentScope = componentContext.mComponentScope;
       mComponentTree = componentContext.mComponentTree;
-    } else {
-      mResourceCache = ResourceCache.getLatest(context.getResources().getConfiguration());
     }
 
-    mLogger = transferLogging ? componentContext.mLogger : logger;
-    mLogTag = transferLogging ? componentContext.mLogTag : logTag;
-    mStateHandler = transferStateHandler ? componentContext.mStateHandler : stateHandler;
+    final LayoutScope layoutScope = componentContext != null
+        ? componentContext.mLayoutScope
+        : null;
+    if (transferLogging && transferStateHandler) {
+      // A plain copy, as made for every component scope, doesn't need a LayoutScope of its own.
+      mLayoutScope = layoutScope;
+    } else {
+      mLayoutScope = new LayoutScope(
+          transferLogging ? layoutScope.mLogTag : logTag,
+          transferLogging ? layoutScope.mLogger : logger,
+          layoutScope != null
+              ? layoutScope.mResourceCache
+              : ResourceCache.getLatest(context.getResources().getConfiguration()),
+          transferStateHandler ? layoutScope.mStateHandler : stateHandler,
+          layoutScope != null ? layoutScope.mReusableNodeTree : null,
+          layoutScope != null ? layoutScope.mLayoutCancellationToken : null);
+    }
   }
 
   static ComponentContext withComponentTree(
@@ -120,9 +130,42 @@ public class ComponentContext extends ContextWrapper {
     return componentContext;
   }
 
+  static ComponentContext withReusableNodeTree(
+      ComponentContext context,
+      ReusableNodeTree reusableNodeTree) {
+    ComponentContext componentContext = context.makeNewCopy();
+    final LayoutScope layoutScope = context.mLayoutScope;
+    componentContext.mLayoutScope = new LayoutScope(
+        layoutScope.mLogTag,
+        layoutScope.mLogger,
+        layoutScope.mResourceCache,
+        layoutScope.mStateHandler,
+        reusableNodeTree,
+        layoutScope.mLayoutCancellationToken);
+
+    return componentContext;
+  }
+
+  static ComponentContext withLayoutCancellationToken(
+      ComponentContext context,
+      LayoutCancellationToken cancellationToken) {
+    ComponentContext componentContext = context.makeNewCopy();
+    final LayoutScope layoutScope = context.mLayoutScope;
+    componentContext.mLayoutScope = new LayoutScope(
+        layoutScope.mLogTag,
+        layoutScope.mLogger,
+        layoutScope.mResourceCache,
+        layoutScope.mStateHandler,
+        layoutScope.mReusableNodeTree,
+        cancellationToken);
+
+    return componentContext;
+  }
+
   /**
    * Creates a new ComponentContext instance scoped to the given component and sets it on the
-   *  component.
+   *  component. The new instance shares the per-layout part of {@code context} rather than copying
+   *  it.
    * @param context context scoped to the parent component
    * @param scope component associated with the newly created scoped context
    * @return a new ComponentContext instance scoped to the given component
@@ -210,12 +253,12 @@ public class ComponentContext extends ContextWrapper {
   }
 
   public String getLogTag() {
-    return mLogTag;
+    return mLayoutScope.mLogTag;
   }
 
   @Nullable
   public ComponentsLogger getLogger() {
-    return mLogger;
+    return mLayoutScope.mLogger;
   }
 
   ComponentTree getComponentTree() {
@@ -232,7 +275,7 @@ public class ComponentContext extends ContextWrapper {
   }
 
   public ResourceCache getResourceCache() {
-    return mResourceCache;
+    return mLayoutScope.mResourceCache;
   }
 
   EventHandler newEventHandler(int id) {
@@ -305,8 +348,27 @@ public class ComponentContext extends ContextWrapper {
     mHeightSpec = heightSpec;
   }
 
+  @Nullable
+  ReusableNodeTree getReusableNodeTree() {
+    return mLayoutScope.mReusableNodeTree;
+  }
+
+  @Nullable
+  LayoutCancellationToken getLayoutCancellationToken() {
+    return mLayoutScope.mLayoutCancellationToken;
+  }
+
   StateHandler getStateHandler() {
-    return mStateHandler;
+    return mLayoutScope.mStateHandler;
+  }
+
+  /**
+   * Moves a context created during a previous layout calculation to the layout calculation
+   * {@code layoutContext} is used in, so that a reused subtree neither refers to the StateHandler,
+   * cancellation token or reusable tree of the previous layout nor keeps them alive.
+   */
+  void moveToLayoutOf(ComponentContext layoutContext) {
+    mLayoutScope = layoutContext.mLayoutScope;
   }
 
   private void applyStyle(InternalNode node, @AttrRes int defStyleAttr, @StyleRes int defStyleRes) {
@@ -324,4 +386,34 @@ public class ComponentContext extends ContextWrapper {
       setDefStyle(0, 0);
     }
   }
+
+  /**
+   * The part of a ComponentContext that is the same for every component scope of a layout
+   * calculation. It's immutable, so that the copies made for the component scopes can share it.
+   */
+  private static final class LayoutScope {
+    private final String mLogTag;
+    private final ComponentsLogger mLogger;
+    private final ResourceCache mResourceCache;
+    private final StateHandler mStateHandler;
+    // The previous layout of the ComponentTree, for the layout calculation this is used in.
+    private final ReusableNodeTree mReusableNodeTree;
+    // Set when the layout calculation this is used in can be cancelled.
+    private final LayoutCancellationToken mLayoutCancellationToken;
+
+    private LayoutScope(
+        String logTag,
+        ComponentsLogger logger,
+        ResourceCache resourceCache,
+        StateHandler stateHandler,
+        ReusableNodeTree reusableNodeTree,
+        LayoutCancellationToken layoutCancellationToken) {
+      mLogTag = logTag;
+      mLogger = logger;
+      mResourceCache = resourceCache;
+      mStateHandler = stateHandler;
+      mReusableNodeTree = reusableNodeTree;
+      mLayoutCancellationToken = layoutCancellationToken;
+    }
+  }
 }
@@ -116,10 +116,46 @@ public abstract class ComponentLifecycle implements EventDispatcher {
       int outputHeight = 0;
 
       if (Component.isNestedTree(component) || node.hasNestedTree()) {
-        final InternalNode nestedTree = LayoutState.resolveNestedTree(node, widthSpec, heightSpec);
+        final boolean isCacheable = LayoutCache.isCacheable(node, component);
+        final Size cachedSize = isCacheable ? acquireSize(Integer.MIN_VALUE) : null;
 
-        outputWidth = nestedTree.getWidth();
-        outputHeight = nestedTree.getHeight();
+        try {
+          if (isCacheable
+              && LayoutCache.get().get(
+                  component,
+                  node.getContext().getResources(),
+                  node.getResolvedLayoutDirection(),
+                  widthSpec,
+                  heightSpec,
+                  cachedSize)) {
+            // The nested tree will be resolved once with its final size when collecting results.
+            outputWidth = cachedSize.width;
+            outputHeight = cachedSize.height;
+          } else {
+            final InternalNode nestedTree =
+                LayoutState.resolveNestedTree(node, widthSpec, heightSpec);
+
+            outputWidth = nestedTree.getWidth();
+            outputHeight = nestedTree.getHeight();
+
+            if (isCacheable
+                && nestedTree != ComponentContext.NULL_LAYOUT
+                && !LayoutCache.hasStatefulComponents(nestedTree)) {
+              LayoutCache.get().put(
+                  component,
+                  node.getContext().getResources(),
+                  node.getResolvedLayoutDirection(),
+                  widthSpec,
+                  heightSpec,
+                  outputWidth,
+                  outputHeight);
+            }
+          }
+        } finally {
+          if (cachedSize != null) {
+            releaseSize(cachedSize);
+          }
+        }
       } else if (diffNode != null
           && diffNode.getLastWidthSpec() == widthSpec
           && diffNode.getLastHeightSpec() == heightSpec) {
@@ -216,6 +252,14 @@ public abstract class ComponentLifecycle implements EventDispatcher {
     final boolean deferNestedTreeResolution =
         Component.isNestedTree(component) && !resolveNestedTree;
 
+    final ReusableNodeTree reusableNodeTree = context.getReusableNodeTree();
+    if (reusableNodeTree != null && !Component.isNestedTree(component)) {
+      final InternalNode reusedNode = reusableNodeTree.take(context, component);
+      if (reusedNode != null) {
+        return reusedNode;
+      }
+    }
+
     final TreeProps parentTreeProps = context.getTreeProps();
     populateTreeProps(component, parentTreeProps);
     context.setTreeProps(getTreePropsForChildren(context, component, parentTreeProps));
@@ -262,7 +306,6 @@ public abstract class ComponentLifecycle implements EventDispatcher {
     }
 
     if (context.getTreeProps() != parentTreeProps) {
-      ComponentsPools.release(context.getTreeProps());
       context.setTreeProps(parentTreeProps);
     }
 
@@ -15,9 +15,13 @@ import javax.annotation.concurrent.GuardedBy;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.ref.WeakReference;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import android.content.Context;
 import android.content.ContextWrapper;
@@ -27,6 +31,7 @@ import android.os.HandlerThread;
 import android.os.Looper;
 import android.os.Message;
 import android.os.Process;
+import android.os.SystemClock;
 import android.support.annotation.IntDef;
 import android.support.annotation.Keep;
 import android.support.annotation.NonNull;
@@ -39,12 +44,18 @@ import android.view.ViewParent;
 import com.facebook.infer.annotation.ReturnsOwnership;
 import com.facebook.infer.annotation.ThreadConfined;
 import com.facebook.infer.annotation.ThreadSafe;
+import com.facebook.litho.config.ComponentsConfiguration;
+import com.facebook.litho.dataflow.ChoreographerCompat;
 
 import static com.facebook.litho.ComponentLifecycle.StateUpdate;
+import static com.facebook.litho.FrameworkLogEvents.EVENT_ASYNC_ROOTS_DROPPED;
 import static com.facebook.litho.FrameworkLogEvents.EVENT_LAYOUT_CALCULATE;
 import static com.facebook.litho.FrameworkLogEvents.EVENT_PRE_ALLOCATE_MOUNT_CONTENT;
+import static com.facebook.litho.FrameworkLogEvents.EVENT_STATE_UPDATES_COALESCED;
+import static com.facebook.litho.FrameworkLogEvents.PARAM_DROPPED_ROOT_COUNT;
 import static com.facebook.litho.FrameworkLogEvents.PARAM_IS_BACKGROUND_LAYOUT;
 import static com.facebook.litho.FrameworkLogEvents.PARAM_LOG_TAG;
+import static com.facebook.litho.FrameworkLogEvents.PARAM_STATE_UPDATE_COUNT;
 import static com.facebook.litho.FrameworkLogEvents.PARAM_TREE_DIFF_ENABLED;
 import static com.facebook.litho.ThreadUtils.assertHoldsLock;
 import static com.facebook.litho.ThreadUtils.assertMainThread;
@@ -122,10 +133,44 @@ public class ComponentTree {
     }
   };
 
+  private final ChoreographerCompat.FrameCallback mCoalescedStateUpdateFrameCallback =
+      new ChoreographerCompat.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+          flushCoalescedStateUpdates();
+        }
+      };
+  private final Runnable mPostCoalescedStateUpdateRunnable = new Runnable() {
+    @Override
+    public void run() {
+      ChoreographerCompat.getInstance().postFrameCallback(mCoalescedStateUpdateFrameCallback);
+    }
+  };
+
+  private final Runnable mCoalescedRootLayoutRunnable = new Runnable() {
+    @Override
+    public void run() {
+      calculateCoalescedRootLayout();
+    }
+  };
+  private final Runnable mPostCoalescedRootLayoutRunnable = new Runnable() {
+    @Override
+    public void run() {
+      mLayoutThreadHandler.post(mCoalescedRootLayoutRunnable);
+    }
+  };
+
   private final ComponentContext mContext;
   private final boolean mCanPrefetchDisplayLists;
   private final boolean mCanCacheDrawingDisplayLists;
   private final boolean mShouldClipChildren;
+  private final boolean mParallelNestedTreeResolutionEnabled;
+  private final boolean mIncrementalLayoutEnabled;
+  private final boolean mVisibilityEventBatchingEnabled;
+  private final @Nullable Executor mVisibilityEventExecutor;
+  private final boolean mStateUpdateCoalescingEnabled;
+  private final boolean mAsyncRootCoalescingEnabled;
+  private final long mAsyncRootMinIntervalMs;
 
   // These variables are only accessed from the main thread.
   @ThreadConfined(ThreadConfined.UI)
@@ -146,11 +191,36 @@ public class ComponentTree {
   @GuardedBy("this")
   private boolean mHasViewMeasureSpec;
 
+  // The priority of the layouts on a ThreadPoolLayoutHandler while the tree isn't attached.
+  @GuardedBy("this")
+  private @ThreadPoolLayoutHandler.Priority int mDetachedLayoutPriority;
+
+  // The async state updates queued since the last coalesced layout was scheduled.
+  private final AtomicBoolean mIsCoalescedStateUpdatePosted = new AtomicBoolean();
+  private final AtomicInteger mCoalescedStateUpdateCount = new AtomicInteger();
+  private final AtomicLong mMergedStateUpdateCount = new AtomicLong();
+
+  // State updates are queued here without taking the lock of the tree, and only moved to the
+  // StateHandler, under the lock, when a layout needs them.
+  private final StateUpdateQueue mStateUpdateQueue = new StateUpdateQueue();
+
+  // When async roots are coalesced, whether a layout for the latest root is already scheduled,
+  // when the last one started and how many roots were replaced before being laid out.
+  @GuardedBy("this")
+  private boolean mIsCoalescedRootLayoutScheduled;
+  @GuardedBy("this")
+  private long mLastCoalescedRootLayoutTimeMs = -1;
+  @GuardedBy("this")
+  private int mPendingDroppedRootCount;
+  @GuardedBy("this")
+  private long mDroppedRootCount;
+
   // TODO(6606683): Enable recycling of mComponent.
   // We will need to ensure there are no background threads referencing mComponent. We'll need
   // to keep a reference count or something. :-/
+  // Only written under the lock, volatile so that state updates can check it without taking it.
   @GuardedBy("this")
-  private Component<?> mRoot;
+  private volatile Component<?> mRoot;
 
   @GuardedBy("this")
   private int mWidthSpec = SIZE_UNINITIALIZED;
@@ -171,6 +241,10 @@ public class ComponentTree {
   @GuardedBy("this")
   private StateHandler mStateHandler;
 
+  // Tokens of the layouts currently being calculated for the current root and size specs.
+  @GuardedBy("this")
+  private final List<LayoutCancellationToken> mRunningLayoutTokens = new ArrayList<>();
+
   @ThreadConfined(ThreadConfined.UI)
   private RenderState mPreviousRenderState;
 
@@ -211,11 +285,24 @@ public class ComponentTree {
     mCanPrefetchDisplayLists = builder.canPrefetchDisplayLists;
     mCanCacheDrawingDisplayLists = builder.canCacheDrawingDisplayLists;
     mShouldClipChildren = builder.shouldClipChildren;
+    mParallelNestedTreeResolutionEnabled = builder.parallelNestedTreeResolution;
+    mIncrementalLayoutEnabled = builder.incrementalLayout;
+    mVisibilityEventBatchingEnabled = builder.batchVisibilityEvents;
+    mVisibilityEventExecutor = builder.visibilityEventExecutor;
+    mStateUpdateCoalescingEnabled = builder.coalesceStateUpdates;
+    mAsyncRootCoalescingEnabled = builder.coalesceAsyncRoots;
+    mAsyncRootMinIntervalMs = builder.asyncRootMinIntervalMs;
 
     if (mLayoutThreadHandler == null) {
-      mLayoutThreadHandler = new DefaultLayoutHandler(getDefaultLayoutThreadLooper());
+      mLayoutThreadHandler = ComponentsConfiguration.useLayoutThreadPool
+          ? new ThreadPoolLayoutHandler(ThreadPoolLayoutHandler.PRIORITY_PREFETCH)
+          : new DefaultLayoutHandler(getDefaultLayoutThreadLooper());
     }
 
+    mDetachedLayoutPriority = mLayoutThreadHandler instanceof ThreadPoolLayoutHandler
+        ? ((ThreadPoolLayoutHandler) mLayoutThreadHandler).getPriority()
+        : ThreadPoolLayoutHandler.PRIORITY_PREFETCH;
+
     final StateHandler builderStateHandler = builder.stateHandler;
     mStateHandler = builderStateHandler == null
         ? StateHandler.acquireNewInstance(null)
@@ -233,6 +320,23 @@ public class ComponentTree {
     }
   }
 
+  boolean isParallelNestedTreeResolutionEnabled() {
+    return mParallelNestedTreeResolutionEnabled;
+  }
+
+  boolean isIncrementalLayoutEnabled() {
+    return mIncrementalLayoutEnabled;
+  }
+
+  boolean isVisibilityEventBatchingEnabled() {
+    return mVisibilityEventBatchingEnabled;
+  }
+
+  @Nullable
+  Executor getVisibilityEventExecutor() {
+    return mVisibilityEventExecutor;
+  }
+
   @ThreadConfined(ThreadConfined.UI)
   LayoutState getMainThreadLayoutState() {
     return mMainThreadLayoutState;
@@ -359,6 +463,7 @@ public class ComponentTree {
     synchronized (this) {
       // We need to track that we are attached regardless...
       mIsAttached = true;
+      updateLayoutPriority();
 
       // ... and then we do state transfer
       toRelease = setBestMainThreadLayoutAndReturnOldLayout();
@@ -526,6 +631,27 @@ public class ComponentTree {
     synchronized (this) {
       mIsAttached = false;
       mHasViewMeasureSpec = false;
+      updateLayoutPriority();
+    }
+  }
+
+  /**
+   * Sets the priority of the layouts of this tree while it isn't attached, e.g.
+   * {@link ThreadPoolLayoutHandler#PRIORITY_PREFETCH} for a tree laid out ahead of the viewport.
+   * The layouts of an attached tree always run with
+   * {@link ThreadPoolLayoutHandler#PRIORITY_VISIBLE}. This only has an effect when the layouts run
+   * on a {@link ThreadPoolLayoutHandler}.
+   */
+  public synchronized void setLayoutPriority(@ThreadPoolLayoutHandler.Priority int priority) {
+    mDetachedLayoutPriority = priority;
+    updateLayoutPriority();
+  }
+
+  @GuardedBy("this")
+  private void updateLayoutPriority() {
+    if (mLayoutThreadHandler instanceof ThreadPoolLayoutHandler) {
+      ((ThreadPoolLayoutHandler) mLayoutThreadHandler).setPriority(
+          mIsAttached ? ThreadPoolLayoutHandler.PRIORITY_VISIBLE : mDetachedLayoutPriority);
     }
   }
 
@@ -782,24 +908,21 @@ public class ComponentTree {
         null /* output */);
   }
 
-  synchronized void updateStateLazy(String componentKey, StateUpdate stateUpdate) {
+  void updateStateLazy(GlobalKey componentKey, StateUpdate stateUpdate) {
     if (mRoot == null) {
       return;
     }
 
-    mStateHandler.queueStateUpdate(componentKey, stateUpdate);
+    mStateUpdateQueue.add(componentKey, stateUpdate);
   }
 
-  void updateState(String componentKey, StateUpdate stateUpdate) {
-
-    synchronized (this) {
-      if (mRoot == null) {
-        return;
-      }
-
-      mStateHandler.queueStateUpdate(componentKey, stateUpdate);
+  void updateState(GlobalKey componentKey, StateUpdate stateUpdate) {
+    if (mRoot == null) {
+      return;
     }
 
+    mStateUpdateQueue.add(componentKey, stateUpdate);
+
     Looper looper = Looper.myLooper();
 
     if (looper == null) {
@@ -812,39 +935,93 @@ public class ComponentTree {
       return;
     }
 
-    Handler handler;
-
-    synchronized (this) {
-      final WeakReference<Handler> handlerWr = sSyncStateUpdatesHandler.get();
-      if (handlerWr != null && handlerWr.get() != null) {
-        handler = handlerWr.get();
-        handler.removeCallbacks(mUpdateStateSyncRunnable);
-      } else {
-        handler = new Handler(looper);
-        sSyncStateUpdatesHandler.set(new WeakReference<>(handler));
-      }
+    // The handler is thread local, so it is looked up without taking the lock of the tree.
+    final Handler handler;
+    final WeakReference<Handler> handlerWr = sSyncStateUpdatesHandler.get();
+    if (handlerWr != null && handlerWr.get() != null) {
+      handler = handlerWr.get();
+      handler.removeCallbacks(mUpdateStateSyncRunnable);
+    } else {
+      handler = new Handler(looper);
+      sSyncStateUpdatesHandler.set(new WeakReference<>(handler));
     }
 
     handler.post(mUpdateStateSyncRunnable);
   }
 
-  void updateStateAsync(String componentKey, StateUpdate stateUpdate) {
+  void updateStateAsync(GlobalKey componentKey, StateUpdate stateUpdate) {
     if (!mIsAsyncUpdateStateEnabled) {
         throw new RuntimeException("Triggering async state updates on this component tree is " +
             "disabled, use sync state updates.");
     }
 
+    if (mRoot == null) {
+      return;
+    }
+
+    mStateUpdateQueue.add(componentKey, stateUpdate);
+
+    if (!mStateUpdateCoalescingEnabled) {
+      updateStateInternal(true);
+      return;
+    }
+
+    mCoalescedStateUpdateCount.incrementAndGet();
+    if (mIsCoalescedStateUpdatePosted.compareAndSet(false, true)) {
+      if (isMainThread()) {
+        mPostCoalescedStateUpdateRunnable.run();
+      } else {
+        sMainThreadHandler.post(mPostCoalescedStateUpdateRunnable);
+      }
+    }
+  }
+
+  /**
+   * Schedules a single layout for all the async state updates queued since the last frame.
+   */
+  @ThreadConfined(ThreadConfined.UI)
+  private void flushCoalescedStateUpdates() {
+    mIsCoalescedStateUpdatePosted.set(false);
+    final int stateUpdateCount = mCoalescedStateUpdateCount.getAndSet(0);
+
     synchronized (this) {
-      if (mRoot == null) {
+      if (mRoot == null || stateUpdateCount == 0) {
         return;
       }
+    }
 
-      mStateHandler.queueStateUpdate(componentKey, stateUpdate);
+    mMergedStateUpdateCount.addAndGet(stateUpdateCount - 1);
+
+    final ComponentsLogger logger = mContext.getLogger();
+    if (logger != null) {
+      final LogEvent event = logger.newEvent(EVENT_STATE_UPDATES_COALESCED);
+      event.addParam(PARAM_LOG_TAG, mContext.getLogTag());
+      event.addParam(PARAM_STATE_UPDATE_COUNT, String.valueOf(stateUpdateCount));
+      logger.log(event);
     }
 
     updateStateInternal(true);
   }
 
+  /**
+   * @return the number of async state updates that didn't need a layout of their own because they
+   * were coalesced with others of the same frame.
+   */
+  long getMergedStateUpdateCount() {
+    return mMergedStateUpdateCount.get();
+  }
+
+  /**
+   * Moves the state updates queued since the last call to the StateHandler of the tree, so that the
+   * next layout applies them.
+   */
+  @GuardedBy("this")
+  private void drainStateUpdateQueue() {
+    if (mStateHandler != null) {
+      mStateUpdateQueue.drainTo(mStateHandler);
+    }
+  }
+
   void updateStateInternal(boolean isAsync) {
 
     final Component<?> root;
@@ -862,6 +1039,11 @@ public class ComponentTree {
         return;
       }
 
+      if (mRoot == null) {
+        // The updates were queued before a root was set, or after the tree was released.
+        return;
+      }
+
       root = mRoot.makeShallowCopy();
     }
 
@@ -996,6 +1178,7 @@ public class ComponentTree {
    * @return a copy of the state handler instance held by ComponentTree.
    */
   public synchronized StateHandler getStateHandler() {
+    drainStateUpdateQueue();
     return StateHandler.acquireNewInstance(mStateHandler);
   }
 
@@ -1021,10 +1204,14 @@ public class ComponentTree {
       boolean shouldAnimateTransitions,
       Size output) {
 
+    // Only set when the layout of a coalesced async root has to be scheduled.
+    long coalescedRootLayoutDelayMs = -1;
+
     synchronized (this) {
 
       mLastShouldAnimateTransitions = shouldAnimateTransitions;
-      final Map<String, List<StateUpdate>> pendingStateUpdates =
+      drainStateUpdateQueue();
+      final Map<GlobalKey, PersistentList<StateUpdate>> pendingStateUpdates =
           mStateHandler.getPendingStateUpdates();
       if (pendingStateUpdates != null && pendingStateUpdates.size() > 0 && root != null) {
         root = root.makeShallowCopyWithNewId();
@@ -1063,6 +1250,11 @@ public class ComponentTree {
               mostRecentLayoutState.getWidth(),
               mostRecentLayoutState.getHeight()));
       final boolean rootDidntChange = !rootInitialized || root.getId() == mRoot.getId();
+      final boolean coalesceRoot = isAsync && rootInitialized && mAsyncRootCoalescingEnabled;
+      // The layout in flight may only be for new size specs or state updates of a root that was
+      // already laid out, which isn't dropped by replacing it.
+      final boolean previousRootWasLaidOut = mRoot == null
+          || (mostRecentLayoutState != null && mostRecentLayoutState.isComponentId(mRoot.getId()));
 
       if (rootDidntChange && sizeSpecsAreCompatible) {
         // The spec and the root haven't changed. Either we have a layout already, or we're
@@ -1085,9 +1277,39 @@ public class ComponentTree {
       if (rootInitialized) {
         mRoot = root;
       }
+
+      if (coalesceRoot
+          && !previousRootWasLaidOut
+          && (mIsCoalescedRootLayoutScheduled || !mRunningLayoutTokens.isEmpty())) {
+        // The previous root is replaced before its layout was started or completed.
+        mPendingDroppedRootCount++;
+        mDroppedRootCount++;
+      }
+
+      // Layouts still running for the previous root or size specs would be discarded anyway.
+      cancelRunningLayouts();
+
+      if (coalesceRoot) {
+        if (mIsCoalescedRootLayoutScheduled) {
+          // The scheduled layout picks up the latest root when it starts.
+          return;
+        }
+
+        mIsCoalescedRootLayoutScheduled = true;
+        coalescedRootLayoutDelayMs = mLastCoalescedRootLayoutTimeMs < 0
+            ? 0
+            : Math.max(
+                0,
+                mLastCoalescedRootLayoutTimeMs + mAsyncRootMinIntervalMs
+                    - SystemClock.uptimeMillis());
+      }
     }
 
-    if (isAsync && output != null) {
+    if (coalescedRootLayoutDelayMs > 0) {
+      sMainThreadHandler.postDelayed(mPostCoalescedRootLayoutRunnable, coalescedRootLayoutDelayMs);
+    } else if (coalescedRootLayoutDelayMs == 0) {
+      mLayoutThreadHandler.post(mCoalescedRootLayoutRunnable);
+    } else if (isAsync && output != null) {
       throw new IllegalArgumentException("The layout can't be calculated asynchronously if" +
           " we need the Size back");
     } else if (isAsync) {
@@ -1102,6 +1324,43 @@ public class ComponentTree {
     }
   }
 
+  /**
+   * Calculates the layout of the latest root set with coalescing of async roots enabled, along with
+   * any root or size spec set since it was scheduled.
+   */
+  private void calculateCoalescedRootLayout() {
+    final int droppedRootCount;
+    synchronized (this) {
+      if (!mIsCoalescedRootLayoutScheduled) {
+        // The tree was released in the meantime.
+        return;
+      }
+
+      mIsCoalescedRootLayoutScheduled = false;
+      mLastCoalescedRootLayoutTimeMs = SystemClock.uptimeMillis();
+      droppedRootCount = mPendingDroppedRootCount;
+      mPendingDroppedRootCount = 0;
+    }
+
+    final ComponentsLogger logger = mContext.getLogger();
+    if (logger != null && droppedRootCount > 0) {
+      final LogEvent event = logger.newEvent(EVENT_ASYNC_ROOTS_DROPPED);
+      event.addParam(PARAM_LOG_TAG, mContext.getLogTag());
+      event.addParam(PARAM_DROPPED_ROOT_COUNT, String.valueOf(droppedRootCount));
+      logger.log(event);
+    }
+
+    calculateLayout(null, mLastShouldAnimateTransitions);
+  }
+
+  /**
+   * @return the number of async roots that were replaced by a newer one before their layout was
+   * completed, when coalescing of async roots is enabled.
+   */
+  synchronized long getDroppedRootCount() {
+    return mDroppedRootCount;
+  }
+
   /**
    * Calculates the layout.
    * @param output a destination where the size information should be saved
@@ -1112,6 +1371,7 @@ public class ComponentTree {
     int heightSpec;
     Component<?> root;
     LayoutState previousLayoutState = null;
+    LayoutCancellationToken cancellationToken = null;
 
     // Cancel any scheduled layout requests we might have in the background queue
     // since we are starting a new layout computation.
@@ -1142,8 +1402,19 @@ public class ComponentTree {
       if (mMainThreadLayoutState != null) {
         previousLayoutState = mMainThreadLayoutState.acquireRef();
       }
+
+      // A caller that needs the size back always gets a complete layout.
+      if (output == null) {
+        cancellationToken = new LayoutCancellationToken();
+        mRunningLayoutTokens.add(cancellationToken);
+      }
     }
 
+    final ReusableNodeTree reusableNodeTree =
+        previousLayoutState != null && ReusableNodeTree.isEnabled(mContext)
+            ? ReusableNodeTree.take(previousLayoutState)
+            : null;
+
     final ComponentsLogger logger = mContext.getLogger();
     LogEvent layoutEvent = null;
     if (logger != null) {
@@ -1153,9 +1424,18 @@ public class ComponentTree {
       layoutEvent.addParam(PARAM_IS_BACKGROUND_LAYOUT, String.valueOf(!ThreadUtils.isMainThread()));
     }
 
+    ComponentContext context = mContext;
+    if (reusableNodeTree != null) {
+      context = ComponentContext.withReusableNodeTree(context, reusableNodeTree);
+    }
+    if (cancellationToken != null) {
+      context = ComponentContext.withLayoutCancellationToken(context, cancellationToken);
+    }
+
+    // This is null if the layout was cancelled, in which case it has already been released.
     LayoutState localLayoutState = calculateLayoutState(
         mLayoutLock,
-        mContext,
+        context,
         root,
         widthSpec,
         heightSpec,
@@ -1163,6 +1443,16 @@ public class ComponentTree {
         shouldAnimateTransitions,
         previousLayoutState != null ? previousLayoutState.getDiffTree() : null);
 
+    if (reusableNodeTree != null) {
+      reusableNodeTree.release();
+    }
+
+    if (cancellationToken != null) {
+      synchronized (this) {
+        mRunningLayoutTokens.remove(cancellationToken);
+      }
+    }
+
     if (output != null) {
       output.width = localLayoutState.getWidth();
       output.height = localLayoutState.getHeight();
@@ -1242,10 +1532,23 @@ public class ComponentTree {
     LayoutState backgroundLayoutState;
     synchronized (this) {
       mReleased = true;
+      if (mIsCoalescedStateUpdatePosted.getAndSet(false)) {
+        ChoreographerCompat.getInstance().removeFrameCallback(mCoalescedStateUpdateFrameCallback);
+      }
+      mCoalescedStateUpdateCount.set(0);
+      if (mIsCoalescedRootLayoutScheduled) {
+        mIsCoalescedRootLayoutScheduled = false;
+        sMainThreadHandler.removeCallbacks(mPostCoalescedRootLayoutRunnable);
+        mLayoutThreadHandler.removeCallbacks(mCoalescedRootLayoutRunnable);
+      }
+      mPendingDroppedRootCount = 0;
       if (mLithoView != null) {
         mLithoView.setComponentTree(null);
       }
       mRoot = null;
+      // Cleared once the root is gone, so that it doesn't take new state updates anymore.
+      mStateUpdateQueue.clear();
+      cancelRunningLayouts();
 
       mainThreadLayoutState = mMainThreadLayoutState;
       mMainThreadLayoutState = null;
@@ -1274,6 +1577,15 @@ public class ComponentTree {
     }
   }
 
+  private void cancelRunningLayouts() {
+    assertHoldsLock(this);
+
+    for (int i = 0, size = mRunningLayoutTokens.size(); i < size; i++) {
+      mRunningLayoutTokens.get(i).cancel();
+    }
+    mRunningLayoutTokens.clear();
+  }
+
   private boolean isCompatibleComponentAndSpec(LayoutState layoutState) {
     assertHoldsLock(this);
 
@@ -1367,7 +1679,9 @@ public class ComponentTree {
       @Nullable DiffNode diffNode) {
     final ComponentContext contextWithStateHandler;
     synchronized (this) {
-       contextWithStateHandler =
+      // Picks up the state updates queued since the layout was scheduled.
+      drainStateUpdateQueue();
+      contextWithStateHandler =
           new ComponentContext(context, StateHandler.acquireNewInstance(mStateHandler));
     }
 
@@ -1437,6 +1751,13 @@ public class ComponentTree {
     private boolean canPrefetchDisplayLists = false;
     private boolean canCacheDrawingDisplayLists = false;
     private boolean shouldClipChildren = true;
+    private boolean parallelNestedTreeResolution = false;
+    private boolean incrementalLayout = false;
+    private boolean batchVisibilityEvents = false;
+    private Executor visibilityEventExecutor;
+    private boolean coalesceStateUpdates = false;
+    private boolean coalesceAsyncRoots = false;
+    private long asyncRootMinIntervalMs = 0;
 
     protected Builder() {
     }
@@ -1465,6 +1786,13 @@ public class ComponentTree {
       canPrefetchDisplayLists = false;
       canCacheDrawingDisplayLists = false;
       shouldClipChildren = true;
+      parallelNestedTreeResolution = false;
+      incrementalLayout = false;
+      batchVisibilityEvents = false;
+      visibilityEventExecutor = null;
+      coalesceStateUpdates = false;
+      coalesceAsyncRoots = false;
+      asyncRootMinIntervalMs = 0;
     }
 
     /**
@@ -1516,6 +1844,17 @@ public class ComponentTree {
       return this;
     }
 
+    /**
+     * Run layouts on the pool of background threads shared by all the ComponentTrees using it,
+     * see {@link ThreadPoolLayoutHandler}, rather than on the single default layout thread. The
+     * priority decides which pending layouts run first when all the threads are busy, and applies
+     * while the tree isn't attached: the layouts of an attached tree always run first.
+     */
+    public Builder layoutThreadPool(@ThreadPoolLayoutHandler.Priority int priority) {
+      layoutThreadHandler = new ThreadPoolLayoutHandler(priority);
+      return this;
+    }
+
     /**
      * Specify a lock to be acquired during layout. This is an advanced feature
      * that can lead to deadlock if you don't know what you are doing.
@@ -1596,6 +1935,88 @@ public class ComponentTree {
       return this;
     }
 
+    /**
+     * Specify whether sibling nested trees (i.e. children defined by a LayoutSpec with
+     * OnCreateLayoutWithSizeSpec) that have a fixed width and height can be resolved in parallel on
+     * a shared pool of worker threads during layout calculation. False by default.
+     *
+     * NOTE: Components in a tree with this enabled must be safe to lay out concurrently with their
+     * siblings.
+     */
+    public Builder parallelNestedTreeResolution(boolean enabled) {
+      this.parallelNestedTreeResolution = enabled;
+      return this;
+    }
+
+    /**
+     * Specify whether background layouts can reuse the parts of the previous layout that are
+     * untouched by the pending state updates, instead of calling onCreateLayout again for every
+     * component. This keeps the node tree of the current layout in memory. False by default.
+     *
+     * NOTE: Only the subtrees of equivalent components that are added to their parent without
+     * any layout props, don't receive tree props and don't contain nested trees are reused.
+     */
+    public Builder incrementalLayout(boolean enabled) {
+      this.incrementalLayout = enabled;
+      return this;
+    }
+
+    /**
+     * Specify whether the visibility events of the components (visible, invisible, focused,
+     * unfocused and full impression) are collected during mount and delivered together once per
+     * frame, after the mounted frame is drawn, rather than one by one during the mount. False by
+     * default.
+     *
+     * NOTE: The handlers then run up to a frame after the visibility change, when the components
+     * may have been updated or unmounted already.
+     */
+    public Builder batchVisibilityEvents(boolean enabled) {
+      this.batchVisibilityEvents = enabled;
+      return this;
+    }
+
+    /**
+     * Specify an executor the batched visibility events are delivered on instead of the main
+     * thread. Only has an effect if {@link #batchVisibilityEvents(boolean)} is enabled.
+     *
+     * NOTE: Only use this if all the visibility event handlers of the tree are safe to run on a
+     * background thread, e.g. if they only log impressions. Use a serial executor to receive the
+     * events in order.
+     */
+    public Builder visibilityEventExecutor(Executor executor) {
+      this.visibilityEventExecutor = executor;
+      return this;
+    }
+
+    /**
+     * Specify whether the async state updates of the tree are coalesced so that all the ones queued
+     * during a frame trigger a single layout on the next frame, instead of one layout each. False
+     * by default.
+     */
+    public Builder coalesceStateUpdates(boolean enabled) {
+      this.coalesceStateUpdates = enabled;
+      return this;
+    }
+
+    /**
+     * Specify whether roots set asynchronously are coalesced so that only the latest one is laid
+     * out. A root set while the layout of a previous one is scheduled replaces it, and one set
+     * while it is being calculated cancels it. False by default.
+     */
+    public Builder coalesceAsyncRoots(boolean enabled) {
+      this.coalesceAsyncRoots = enabled;
+      return this;
+    }
+
+    /**
+     * When roots set asynchronously are coalesced, the minimum time between the start of two of
+     * their layouts, so that a burst of roots is laid out at most once per interval. 0 by default.
+     */
+    public Builder asyncRootMinIntervalMs(long intervalMs) {
+      this.asyncRootMinIntervalMs = intervalMs;
+      return this;
+    }
+
     /**
      * Builds a {@link ComponentTree} using the parameters specified in this builder.
      */
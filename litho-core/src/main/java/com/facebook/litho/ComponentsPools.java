@@ -10,13 +10,16 @@
 package com.facebook.litho;
 
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 import android.annotation.TargetApi;
 import android.app.Activity;
 import android.app.Application;
+import android.content.ComponentCallbacks2;
 import android.content.Context;
 import android.content.ContextWrapper;
 import android.content.res.Resources;
@@ -37,6 +40,14 @@ import com.facebook.yoga.YogaDirection;
 import com.facebook.yoga.YogaNode;
 
 import static android.support.v4.view.ViewCompat.IMPORTANT_FOR_ACCESSIBILITY_AUTO;
+import static com.facebook.litho.FrameworkLogEvents.EVENT_POOL_STATS;
+import static com.facebook.litho.FrameworkLogEvents.PARAM_POOL_ACQUIRE_HITS;
+import static com.facebook.litho.FrameworkLogEvents.PARAM_POOL_ACQUIRE_MISSES;
+import static com.facebook.litho.FrameworkLogEvents.PARAM_POOL_CURRENT_SIZE;
+import static com.facebook.litho.FrameworkLogEvents.PARAM_POOL_HIGH_WATER_MARK;
+import static com.facebook.litho.FrameworkLogEvents.PARAM_POOL_MAX_SIZE;
+import static com.facebook.litho.FrameworkLogEvents.PARAM_POOL_NAME;
+import static com.facebook.litho.FrameworkLogEvents.PARAM_POOL_RELEASE_DROPS;
 
 /**
  * Pools of recycled resources.
@@ -48,7 +59,7 @@ public class ComponentsPools {
 
   private static final int SCRAP_ARRAY_INITIAL_SIZE = 4;
 
-  private static YogaConfig sYogaConfig;
+  private static volatile YogaConfig sYogaConfig;
 
   private ComponentsPools() {
   }
@@ -58,19 +69,19 @@ public class ComponentsPools {
   private static final Object mountContentLock = new Object();
 
   static final RecyclePool<LayoutState> sLayoutStatePool =
-      new RecyclePool<>("LayoutState", 64, true);
+      createLayoutPool("LayoutState", 64);
 
   static final RecyclePool<InternalNode> sInternalNodePool =
-      new RecyclePool<>("InternalNode", 256, true);
+      createLayoutPool("InternalNode", 256);
 
   static final RecyclePool<NodeInfo> sNodeInfoPool =
-      new RecyclePool<>("NodeInfo", 256, true);
+      createLayoutPool("NodeInfo", 256);
 
   static final RecyclePool<ViewNodeInfo> sViewNodeInfoPool =
-      new RecyclePool<>("ViewNodeInfo", 64, true);
+      createLayoutPool("ViewNodeInfo", 64);
 
   static final RecyclePool<YogaNode> sYogaNodePool =
-      new RecyclePool<>("YogaNode", 256, true);
+      createLayoutPool("YogaNode", 256);
 
   static final RecyclePool<MountItem> sMountItemPool =
       new RecyclePool<>("MountItem", 256, true);
@@ -79,13 +90,13 @@ public class ComponentsPools {
       new ConcurrentHashMap<>(4);
 
   static final RecyclePool<LayoutOutput> sLayoutOutputPool =
-      new RecyclePool<>("LayoutOutput", 256, true);
+      createLayoutPool("LayoutOutput", 256);
 
   static final RecyclePool<DisplayListContainer> sDisplayListContainerPool =
       new RecyclePool<>("DisplayListContainer", 64, true);
 
   static final RecyclePool<VisibilityOutput> sVisibilityOutputPool =
-      new RecyclePool<>("VisibilityOutput", 64, true);
+      createLayoutPool("VisibilityOutput", 64);
 
   // These are lazily initialized as they are only needed when we're in a test environment.
   static RecyclePool<TestOutput> sTestOutputPool = null;
@@ -95,13 +106,13 @@ public class ComponentsPools {
       new RecyclePool<>("VisibilityItem", 64, true);
 
   static final RecyclePool<Output<?>> sOutputPool =
-      new RecyclePool<>("Output", 20, true);
+      createLayoutPool("Output", 20);
 
   static final RecyclePool<DiffNode> sDiffNodePool =
-      new RecyclePool<>("DiffNode", 256, true);
+      createLayoutPool("DiffNode", 256);
 
   static final RecyclePool<Diff<?>> sDiffPool =
-      new RecyclePool<>("Diff", 20, true);
+      createLayoutPool("Diff", 20);
 
   static final RecyclePool<ComponentTree.Builder> sComponentTreeBuilderPool =
       new RecyclePool<>("ComponentTree.Builder", 2, true);
@@ -122,7 +133,7 @@ public class ComponentsPools {
       new RecyclePool<>("Rect", 30, true);
 
   static final RecyclePool<Edges> sEdgesPool =
-      new RecyclePool<>("Edges", 30, true);
+      createLayoutPool("Edges", 30);
 
   static final RecyclePool<TransitionContext> sTransitionContextPool =
       new RecyclePool<>("TransitionContext", 2, true);
@@ -130,9 +141,6 @@ public class ComponentsPools {
   static final RecyclePool<DisplayListDrawable> sDisplayListDrawablePool =
       new RecyclePool<>("DisplayListDrawable", 10, false);
 
-  static final RecyclePool<TreeProps> sTreePropsMapPool =
-      new RecyclePool<>("TreeProps", 10, true);
-
   static final RecyclePool<ArraySet> sArraySetPool =
       new RecyclePool<>("ArraySet", 10, true);
 
@@ -150,6 +158,183 @@ public class ComponentsPools {
 
   private static PoolsActivityCallback sActivityCallbacks;
 
+  /**
+   * @return a pool for objects that are acquired and released on the layout threads, which only
+   * takes locks if {@link ComponentsConfiguration#useMagazinePools} is disabled.
+   */
+  private static <T> RecyclePool<T> createLayoutPool(String name, int maxSize) {
+    return ComponentsConfiguration.useMagazinePools
+        ? new MagazineRecyclePool<T>(name, maxSize)
+        : new RecyclePool<T>(name, maxSize, true);
+  }
+
+  /**
+   * @return all the pools that were created so far.
+   */
+  static List<RecyclePool> getPools() {
+    final List<RecyclePool> pools = new ArrayList<>();
+
+    synchronized (mountContentLock) {
+      for (SparseArray<RecyclePool> contentPools : sMountContentPoolsByContext.values()) {
+        for (int i = 0, count = contentPools.size(); i < count; i++) {
+          pools.add(contentPools.valueAt(i));
+        }
+      }
+    }
+
+    pools.add(sLayoutStatePool);
+    pools.add(sInternalNodePool);
+    pools.add(sNodeInfoPool);
+    pools.add(sViewNodeInfoPool);
+    pools.add(sYogaNodePool);
+    pools.add(sMountItemPool);
+    pools.add(sLayoutOutputPool);
+    pools.add(sVisibilityOutputPool);
+    pools.add(sVisibilityItemPool);
+    pools.add(sOutputPool);
+    pools.add(sDiffNodePool);
+    pools.add(sDiffPool);
+    pools.add(sComponentTreeBuilderPool);
+    pools.add(sStateHandlerPool);
+    pools.add(sMountItemScrapArrayPool);
+    pools.add(sTouchableScrapArrayPool);
+    pools.add(sRectFPool);
+    pools.add(sRectPool);
+    pools.add(sEdgesPool);
+    pools.add(sTransitionContextPool);
+    pools.add(sDisplayListDrawablePool);
+    pools.add(sDisplayListContainerPool);
+    pools.add(sArraySetPool);
+    pools.add(sArrayDequePool);
+    pools.add(sLogEventPool);
+    pools.add(sRenderStatePool);
+
+    if (sTestOutputPool != null) {
+      pools.add(sTestOutputPool);
+    }
+
+    if (sTestItemPool != null) {
+      pools.add(sTestItemPool);
+    }
+
+    if (sBorderColorDrawablePool != null) {
+      pools.add(sBorderColorDrawablePool);
+    }
+
+    return pools;
+  }
+
+  /**
+   * @return a snapshot of the stats of every pool, see {@link RecyclePool#getStats()}.
+   */
+  public static List<PoolStats> getPoolStats() {
+    final List<RecyclePool> pools = getPools();
+    final List<PoolStats> poolStats = new ArrayList<>(pools.size());
+    for (int i = 0, size = pools.size(); i < size; i++) {
+      poolStats.add(pools.get(i).getStats());
+    }
+
+    return poolStats;
+  }
+
+  /**
+   * Logs an {@link FrameworkLogEvents#EVENT_POOL_STATS} event with the stats of every pool.
+   */
+  public static void logPoolStats(ComponentsLogger logger) {
+    final List<PoolStats> poolStats = getPoolStats();
+    for (int i = 0, size = poolStats.size(); i < size; i++) {
+      final PoolStats stats = poolStats.get(i);
+      final LogEvent event = logger.newEvent(EVENT_POOL_STATS);
+      event.addParam(PARAM_POOL_NAME, stats.getName());
+      event.addParam(PARAM_POOL_MAX_SIZE, stats.getMaxSize());
+      event.addParam(PARAM_POOL_CURRENT_SIZE, stats.getCurrentSize());
+      event.addParam(PARAM_POOL_HIGH_WATER_MARK, stats.getHighWaterMark());
+      event.addParam(PARAM_POOL_ACQUIRE_HITS, stats.getAcquireHits());
+      event.addParam(PARAM_POOL_ACQUIRE_MISSES, stats.getAcquireMisses());
+      event.addParam(PARAM_POOL_RELEASE_DROPS, stats.getReleaseDrops());
+      logger.log(event);
+    }
+  }
+
+  /**
+   * Resets the stats of every pool, e.g. when a new screen is shown to measure its own demand.
+   */
+  public static void resetPoolStats() {
+    final List<RecyclePool> pools = getPools();
+    for (int i = 0, size = pools.size(); i < size; i++) {
+      pools.get(i).resetStats();
+    }
+  }
+
+  /**
+   * Adapts the max size of every pool to the demand it saw since the last call, see
+   * {@link RecyclePool#adaptMaxSize()}. Meant to be called every now and then from the main
+   * thread, e.g. when the user moves to another screen, so that pools grow for screens that churn
+   * through many objects and give memory back on screens that don't need it.
+   */
+  public static void adaptPoolSizes() {
+    final List<RecyclePool> pools = getPools();
+    for (int i = 0, size = pools.size(); i < size; i++) {
+      pools.get(i).adaptMaxSize();
+    }
+  }
+
+  /**
+   * Gives memory back according to the given level of memory pressure, one of the
+   * {@code TRIM_MEMORY_*} levels of {@link ComponentCallbacks2#onTrimMemory(int)}. Rather than
+   * clearing everything, every pool, including the mount content pools, the resource cache and the
+   * {@link LayoutCache} drop a share of their items that grows with the level, so that the UI
+   * doesn't have to recreate all of its mount content once the pressure goes down.
+   */
+  public static void trimMemory(int level) {
+    final float fraction = getTrimFraction(level);
+    if (fraction <= 0) {
+      return;
+    }
+
+    final List<RecyclePool> pools = getPools();
+    for (int i = 0, size = pools.size(); i < size; i++) {
+      pools.get(i).trim(fraction);
+    }
+
+    ResourceCache.trimLatest(fraction);
+    LayoutCache.get().trim(fraction);
+  }
+
+  /**
+   * @return the fraction of the pooled and cached items to drop for the given trim memory level,
+   * which never decreases as the level increases.
+   */
+  static float getTrimFraction(int level) {
+    if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE) {
+      return 1f;
+    } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+      // Also covers TRIM_MEMORY_UI_HIDDEN and TRIM_MEMORY_BACKGROUND, whose values are higher.
+      return 0.75f;
+    } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+      return 0.5f;
+    } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE) {
+      return 0.25f;
+    }
+
+    return 0f;
+  }
+
+  /**
+   * @return the number of items held by every pool, by the resource cache and by the
+   * {@link LayoutCache}, i.e. what {@link #trimMemory(int)} can give back.
+   */
+  public static List<PoolStats> getMemoryFootprint() {
+    final List<PoolStats> footprint = getPoolStats();
+    final PoolStats resourceCacheStats = ResourceCache.getLatestStats();
+    if (resourceCacheStats != null) {
+      footprint.add(resourceCacheStats);
+    }
+    footprint.add(LayoutCache.get().getStats());
+
+    return footprint;
+  }
+
   /**
    * To support Gingerbread (where the registerActivityLifecycleCallbacks API
    * doesn't exist), we allow apps to explicitly invoke activity callbacks. If
@@ -168,26 +353,47 @@ public class ComponentsPools {
     return state;
   }
 
-  static synchronized YogaNode acquireYogaNode(ComponentContext c) {
-    if (sYogaConfig == null) {
-      sYogaConfig = new YogaConfig();
-      sYogaConfig.setUseWebDefaults(true);
-      sYogaConfig.setUseLegacyStretchBehaviour(true);
-    }
-
-    if (sYogaConfig.getLogger() != ComponentsConfiguration.YOGA_LOGGER) {
-      sYogaConfig.setLogger(ComponentsConfiguration.YOGA_LOGGER);
-    }
+  static YogaNode acquireYogaNode(ComponentContext c) {
+    final YogaConfig yogaConfig = getYogaConfig();
 
     YogaNode node = ComponentsConfiguration.usePooling ? sYogaNodePool.acquire() : null;
     if (node == null) {
-      node = new YogaNode(sYogaConfig);
+      node = new YogaNode(yogaConfig);
     }
 
     return node;
   }
 
-  static synchronized InternalNode acquireInternalNode(
+  /**
+   * Only takes the lock of the class when the config needs to be created or its logger changed,
+   * so that layout threads don't contend on it for every node they acquire.
+   */
+  private static YogaConfig getYogaConfig() {
+    YogaConfig yogaConfig = sYogaConfig;
+    if (yogaConfig != null && yogaConfig.getLogger() == ComponentsConfiguration.YOGA_LOGGER) {
+      return yogaConfig;
+    }
+
+    synchronized (ComponentsPools.class) {
+      yogaConfig = sYogaConfig;
+      if (yogaConfig == null) {
+        yogaConfig = new YogaConfig();
+        yogaConfig.setUseWebDefaults(true);
+        yogaConfig.setUseLegacyStretchBehaviour(true);
+        yogaConfig.setBatchStyleWrites(ComponentsConfiguration.batchYogaStyleWrites);
+        yogaConfig.setBulkLayoutReadback(ComponentsConfiguration.bulkYogaLayoutReadback);
+        sYogaConfig = yogaConfig;
+      }
+
+      if (yogaConfig.getLogger() != ComponentsConfiguration.YOGA_LOGGER) {
+        yogaConfig.setLogger(ComponentsConfiguration.YOGA_LOGGER);
+      }
+
+      return yogaConfig;
+    }
+  }
+
+  static InternalNode acquireInternalNode(
       ComponentContext componentContext,
       Resources resources) {
     InternalNode node = ComponentsConfiguration.usePooling ? sInternalNodePool.acquire() : null;
@@ -199,7 +405,7 @@ public class ComponentsPools {
     return node;
   }
 
-  static synchronized NodeInfo acquireNodeInfo() {
+  static NodeInfo acquireNodeInfo() {
     NodeInfo nodeInfo = ComponentsConfiguration.usePooling ? sNodeInfoPool.acquire() : null;
     if (nodeInfo == null) {
       nodeInfo = new NodeInfo();
@@ -208,7 +414,7 @@ public class ComponentsPools {
     return nodeInfo;
   }
 
-  static synchronized ViewNodeInfo acquireViewNodeInfo() {
+  static ViewNodeInfo acquireViewNodeInfo() {
     ViewNodeInfo viewNodeInfo =
         ComponentsConfiguration.usePooling ? sViewNodeInfoPool.acquire() : null;
     if (viewNodeInfo == null) {
@@ -271,15 +477,7 @@ public class ComponentsPools {
     synchronized (mountContentLock) {
 
       if (allocatePool) {
-        if (sActivityCallbacks == null && !sIsManualCallbacks) {
-          if (Build.VERSION.SDK_INT < Build.VERSION_CODES.ICE_CREAM_SANDWICH) {
-            throw new RuntimeException(
-                "Activity callbacks must be invoked manually below ICS (API level 14)");
-          }
-          sActivityCallbacks = new PoolsActivityCallback();
-          ((Application) context.getApplicationContext())
-              .registerActivityLifecycleCallbacks(sActivityCallbacks);
-        }
+        maybeRegisterActivityCallbacks(context);
       }
 
       SparseArray<RecyclePool> poolsArray =
@@ -307,6 +505,37 @@ public class ComponentsPools {
     return acquireMountContent(context, componentId, true);
   }
 
+  /**
+   * Allocates the mount content pools of the given context, which must be alive, so that mount
+   * content can be released to them before any was acquired, e.g. to fill them ahead of the first
+   * mount.
+   */
+  static void ensureMountContentPools(Context context) {
+    if (context instanceof ComponentContext) {
+      context = ((ComponentContext) context).getBaseContext();
+    }
+
+    synchronized (mountContentLock) {
+      maybeRegisterActivityCallbacks(context);
+
+      if (!sMountContentPoolsByContext.containsKey(context)) {
+        sMountContentPoolsByContext.put(context, new SparseArray<RecyclePool>());
+      }
+    }
+  }
+
+  private static void maybeRegisterActivityCallbacks(Context context) {
+    if (sActivityCallbacks == null && !sIsManualCallbacks) {
+      if (Build.VERSION.SDK_INT < Build.VERSION_CODES.ICE_CREAM_SANDWICH) {
+        throw new RuntimeException(
+            "Activity callbacks must be invoked manually below ICS (API level 14)");
+      }
+      sActivityCallbacks = new PoolsActivityCallback();
+      ((Application) context.getApplicationContext())
+          .registerActivityLifecycleCallbacks(sActivityCallbacks);
+    }
+  }
+
   static LayoutOutput acquireLayoutOutput() {
     LayoutOutput output = ComponentsConfiguration.usePooling ? sLayoutOutputPool.acquire() : null;
     if (output == null) {
@@ -441,15 +670,6 @@ public class ComponentsPools {
     return transitionContext;
   }
 
-  public static TreeProps acquireTreeProps() {
-    TreeProps treeProps = ComponentsConfiguration.usePooling ? sTreePropsMapPool.acquire() : null;
-    if (treeProps == null) {
-      treeProps = new TreeProps();
-    }
-
-    return treeProps;
-  }
-
   public static LogEvent acquireLogEvent(int eventId) {
     LogEvent event = ComponentsConfiguration.usePooling ? sLogEventPool.acquire() : null;
     if (event == null) {
@@ -461,15 +681,6 @@ public class ComponentsPools {
   }
 
   //TODO t16407516 shb: change all "enableChecks = false" here to @TakesOwnership
-  @ThreadSafe(enableChecks = false)
-  public static void release(TreeProps treeProps) {
-    if (!ComponentsConfiguration.usePooling) {
-      return;
-    }
-    treeProps.reset();
-    sTreePropsMapPool.release(treeProps);
-  }
-
   @ThreadSafe(enableChecks = false)
   static void release(TransitionContext transitionContext) {
     if (!ComponentsConfiguration.usePooling) {
@@ -523,6 +734,29 @@ public class ComponentsPools {
     sInternalNodePool.release(node);
   }
 
+  /**
+   * Releases a whole tree at once: its YogaNodes are detached and reset with a single JNI call and
+   * all the nodes are returned to their pools in a batch.
+   *
+   * @param root the root of the tree, which must not be attached to a parent.
+   * @param nodes all the InternalNodes of the tree, root included.
+   */
+  @ThreadSafe(enableChecks = false)
+  static void releaseNodeTree(InternalNode root, List<InternalNode> nodes) {
+    if (!ComponentsConfiguration.usePooling) {
+      return;
+    }
+
+    final List<YogaNode> yogaNodes = new ArrayList<>(nodes.size());
+    root.mYogaNode.resetSubtree(yogaNodes);
+    sYogaNodePool.releaseAll(yogaNodes);
+
+    for (int i = 0, size = nodes.size(); i < size; i++) {
+      nodes.get(i).releaseWithoutYogaNode();
+    }
+    sInternalNodePool.releaseAll(nodes);
+  }
+
   @ThreadSafe(enableChecks = false)
   static void release(NodeInfo nodeInfo) {
     if (!ComponentsConfiguration.usePooling) {
@@ -26,6 +26,9 @@ public interface FrameworkLogEvents {
   int EVENT_STETHO_UPDATE_COMPONENT = 9;
   int EVENT_STETHO_INSPECT_COMPONENT = 10;
   int EVENT_ERROR = 11;
+  int EVENT_POOL_STATS = 12;
+  int EVENT_STATE_UPDATES_COALESCED = 13;
+  int EVENT_ASYNC_ROOTS_DROPPED = 14;
 
   String PARAM_COMPONENT = "component";
   String PARAM_LOG_TAG = "log_tag";
@@ -41,4 +44,13 @@ public interface FrameworkLogEvents {
   String PARAM_NO_OP_COUNT = "no_op_count";
   String PARAM_IS_DIRTY = "is_dirty";
   String PARAM_MESSAGE = "message";
+  String PARAM_POOL_NAME = "pool_name";
+  String PARAM_POOL_MAX_SIZE = "pool_max_size";
+  String PARAM_POOL_CURRENT_SIZE = "pool_current_size";
+  String PARAM_POOL_HIGH_WATER_MARK = "pool_high_water_mark";
+  String PARAM_POOL_ACQUIRE_HITS = "pool_acquire_hits";
+  String PARAM_POOL_ACQUIRE_MISSES = "pool_acquire_misses";
+  String PARAM_POOL_RELEASE_DROPS = "pool_release_drops";
+  String PARAM_STATE_UPDATE_COUNT = "state_update_count";
+  String PARAM_DROPPED_ROOT_COUNT = "dropped_root_count";
 }
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2017-present, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+
+package com.facebook.litho;
+
+import javax.annotation.Nullable;
+
+/**
+ * A key that is unique to a {@link Component} within its tree, made of the key of the component
+ * linked to the global key of the component that created it.
+ *
+ * <p>Creating a global key takes a single small object regardless of the depth of the component,
+ * and its hash code is computed from the one of its parent when it's created. Equal keys of two
+ * different layouts are compared level by level, without building the concatenated string
+ * returned by {@link #toString()}.
+ */
+public final class GlobalKey {
+
+  private final @Nullable GlobalKey mParent;
+  private final String mKey;
+  private final int mDepth;
+  private final int mHashCode;
+
+  // Only built when needed, e.g. for debugging or error messages.
+  private String mString;
+
+  private GlobalKey(@Nullable GlobalKey parent, String key) {
+    mParent = parent;
+    mKey = key;
+    mDepth = parent == null ? 0 : parent.mDepth + 1;
+    mHashCode = 31 * (parent == null ? 0 : parent.mHashCode) + key.hashCode();
+  }
+
+  /**
+   * @return the global key of a component created by the component with the global key
+   * {@code parent}, or of a root component if {@code parent} is null.
+   */
+  static GlobalKey create(@Nullable GlobalKey parent, String key) {
+    return new GlobalKey(parent, key);
+  }
+
+  /**
+   * @return the global key of a root component.
+   */
+  static GlobalKey root(String key) {
+    return new GlobalKey(null, key);
+  }
+
+  /**
+   * @return the global key of the component that created this one, or null for a root component.
+   */
+  @Nullable
+  GlobalKey getParent() {
+    return mParent;
+  }
+
+  /**
+   * @return whether this is the global key of {@code ancestor}, or of any component that was
+   * created from it.
+   */
+  boolean isSelfOrDescendantOf(GlobalKey ancestor) {
+    GlobalKey current = this;
+    while (current != null && current.mDepth > ancestor.mDepth) {
+      current = current.mParent;
+    }
+
+    return ancestor.equals(current);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+
+    if (!(o instanceof GlobalKey)) {
+      return false;
+    }
+
+    GlobalKey current = this;
+    GlobalKey other = (GlobalKey) o;
+    while (current != other) {
+      if (current == null
+          || other == null
+          || current.mHashCode != other.mHashCode
+          || current.mDepth != other.mDepth
+          || !current.mKey.equals(other.mKey)) {
+        return false;
+      }
+
+      current = current.mParent;
+      other = other.mParent;
+    }
+
+    return true;
+  }
+
+  @Override
+  public int hashCode() {
+    return mHashCode;
+  }
+
+  /**
+   * @return the keys of all the components from the root to this one, concatenated.
+   */
+  @Override
+  public String toString() {
+    if (mString == null) {
+      mString = mParent == null ? mKey : mParent.toString() + mKey;
+    }
+
+    return mString;
+  }
+}
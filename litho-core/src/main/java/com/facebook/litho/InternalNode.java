@@ -48,6 +48,8 @@ import com.facebook.yoga.YogaJustify;
 import com.facebook.yoga.YogaMeasureFunction;
 import com.facebook.yoga.YogaNode;
 import com.facebook.yoga.YogaPositionType;
+import com.facebook.yoga.YogaUnit;
+import com.facebook.yoga.YogaValue;
 import com.facebook.yoga.YogaWrap;
 
 import static android.os.Build.VERSION.SDK_INT;
@@ -187,6 +189,7 @@ class InternalNode implements ComponentLayout, ComponentLayout.ContainerBuilder
 
   private boolean mCachedMeasuresValid;
   private TreeProps mPendingTreeProps;
+  private boolean mAddedAsComponent;
 
   void init(YogaNode yogaNode, ComponentContext componentContext, Resources resources) {
     yogaNode.setData(this);
@@ -1023,7 +1026,11 @@ class InternalNode implements ComponentLayout, ComponentLayout.ContainerBuilder
   @Override
   public InternalNode child(Component<?> child) {
     if (child != null) {
-      child(Layout.create(mComponentContext, child));
+      final ComponentLayout.Builder builder = Layout.create(mComponentContext, child);
+      if (builder != NULL_LAYOUT) {
+        ((InternalNode) builder).setAddedAsComponent(true);
+      }
+      child(builder);
     }
     return this;
   }
@@ -1417,6 +1424,72 @@ class InternalNode implements ComponentLayout, ComponentLayout.ContainerBuilder
     return mYogaNode.getMinWidth().value;
   }
 
+  /**
+   * @return Whether the laid out size of this node only depends on its own style, so that
+   * {@link #getFixedLayoutWidth()} and {@link #getFixedLayoutHeight()} are known before the tree
+   * is measured. The size must be a whole amount of points in both directions, within min and max
+   * sizes that are points as well, and this node must not flex or have an aspect ratio.
+   */
+  boolean hasFixedLayoutSize() {
+    return !(mYogaNode.getFlexGrow() > 0)
+        && !(mYogaNode.getFlexShrink() > 0)
+        && isAutoOrUndefined(mYogaNode.getFlexBasis())
+        && YogaConstants.isUndefined(mYogaNode.getAspectRatio())
+        && getFixedLayoutWidth() >= 0
+        && getFixedLayoutHeight() >= 0;
+  }
+
+  /**
+   * @return the width this node is going to be laid out with if it only depends on its style, or
+   * -1. Only meaningful if {@link #hasFixedLayoutSize()}.
+   */
+  int getFixedLayoutWidth() {
+    return getFixedLayoutSize(
+        mYogaNode.getWidth(),
+        mYogaNode.getMinWidth(),
+        mYogaNode.getMaxWidth());
+  }
+
+  /**
+   * @return the height this node is going to be laid out with if it only depends on its style, or
+   * -1. Only meaningful if {@link #hasFixedLayoutSize()}.
+   */
+  int getFixedLayoutHeight() {
+    return getFixedLayoutSize(
+        mYogaNode.getHeight(),
+        mYogaNode.getMinHeight(),
+        mYogaNode.getMaxHeight());
+  }
+
+  private static int getFixedLayoutSize(YogaValue size, YogaValue minSize, YogaValue maxSize) {
+    if (size.unit != YogaUnit.POINT
+        || !isPointOrUndefined(minSize)
+        || !isPointOrUndefined(maxSize)) {
+      return -1;
+    }
+
+    // Same order as Yoga: the max size is applied first, then the min size.
+    float boundSize = size.value;
+    if (maxSize.unit == YogaUnit.POINT && boundSize > maxSize.value) {
+      boundSize = maxSize.value;
+    }
+    if (minSize.unit == YogaUnit.POINT && boundSize < minSize.value) {
+      boundSize = minSize.value;
+    }
+
+    // Yoga rounds fractional sizes to the pixel grid.
+    final int intSize = (int) boundSize;
+    return intSize == boundSize && intSize >= 0 ? intSize : -1;
+  }
+
+  private static boolean isPointOrUndefined(YogaValue value) {
+    return value.unit == YogaUnit.POINT || value.unit == YogaUnit.UNDEFINED;
+  }
+
+  private static boolean isAutoOrUndefined(YogaValue value) {
+    return value.unit == YogaUnit.AUTO || value.unit == YogaUnit.UNDEFINED;
+  }
+
   float getMaxWidth() {
     return mYogaNode.getMaxWidth().value;
   }
@@ -1570,6 +1643,18 @@ class InternalNode implements ComponentLayout, ComponentLayout.ContainerBuilder
     return mNestedTree != null;
   }
 
+  /**
+   * @return whether this node was added to its parent straight from a component, so that its
+   * parent didn't set any layout props on it.
+   */
+  boolean wasAddedAsComponent() {
+    return mAddedAsComponent;
+  }
+
+  void setAddedAsComponent(boolean addedAsComponent) {
+    mAddedAsComponent = addedAsComponent;
+  }
+
   @Nullable InternalNode getNestedTree() {
     return mNestedTree;
   }
@@ -1875,6 +1960,14 @@ class InternalNode implements ComponentLayout, ComponentLayout.ContainerBuilder
     }
 
     ComponentsPools.release(mYogaNode);
+    releaseWithoutYogaNode();
+  }
+
+  /**
+   * Like {@link #release()}, for a node whose YogaNode has already been reset and released together
+   * with the rest of its tree by {@link ComponentsPools#releaseNodeTree(InternalNode, List)}.
+   */
+  void releaseWithoutYogaNode() {
     mYogaNode = null;
 
     mResourceResolver.internalRelease();
@@ -1934,12 +2027,9 @@ class InternalNode implements ComponentLayout, ComponentLayout.ContainerBuilder
     mCachedMeasuresValid = false;
     mIsNestedTreeHolder = false;
     mTestKey = null;
+    mAddedAsComponent = false;
 
-    if (mPendingTreeProps != null) {
-      mPendingTreeProps.reset();
-      ComponentsPools.release(mPendingTreeProps);
-      mPendingTreeProps = null;
-    }
+    mPendingTreeProps = null;
   }
 
   private NodeInfo getOrCreateNodeInfo() {
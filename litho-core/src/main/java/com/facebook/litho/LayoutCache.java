@@ -0,0 +1,350 @@
+/*
+ * Copyright (c) 2017-present, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+
+package com.facebook.litho;
+
+import javax.annotation.concurrent.GuardedBy;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import android.content.res.Resources;
+import android.support.annotation.VisibleForTesting;
+import android.util.DisplayMetrics;
+
+import com.facebook.litho.config.ComponentsConfiguration;
+import com.facebook.yoga.YogaDirection;
+
+/**
+ * A bounded, thread-safe LRU cache of measured sizes for nested trees (LayoutSpecs with
+ * OnCreateLayoutWithSizeSpec), shared across all the ComponentTrees of the process.
+ *
+ * <p>Entries are keyed by the component type, the size specs the nested tree was measured with
+ * and the parts of the environment a layout can depend on (display density, font scale, locale and
+ * layout direction), and matched against the component's props with
+ * {@link Component#isEquivalentTo}. A hit lets Yoga's measure pass skip creating and measuring the
+ * nested tree altogether: the nested tree is then only created once, with the final size, when the
+ * results of the layout are collected.
+ *
+ * <p>Only specs that declare their layout a function of their props ({@code isPureRender = true})
+ * are cached, and only when no tree props are in scope and no component of the resolved nested
+ * tree has state.
+ */
+public final class LayoutCache {
+
+  private static final int DEFAULT_MAX_SIZE = 256;
+  private static final int MAX_ENTRIES_PER_KEY = 4;
+
+  private static final LayoutCache sInstance = new LayoutCache(DEFAULT_MAX_SIZE);
+
+  private final int mMaxSize;
+
+  @GuardedBy("this")
+  private final LinkedHashMap<Key, Entry> mEntries;
+
+  // Reused to look up entries without allocating, only accessed while holding the lock.
+  @GuardedBy("this")
+  private final Key mLookupKey = new Key();
+
+  @GuardedBy("this")
+  private long mHitCount;
+  @GuardedBy("this")
+  private long mMissCount;
+  @GuardedBy("this")
+  private long mEvictionCount;
+
+  @VisibleForTesting
+  LayoutCache(int maxSize) {
+    mMaxSize = maxSize;
+    mEntries = new LinkedHashMap<Key, Entry>(16, 0.75f, true /* accessOrder */) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+        if (size() > mMaxSize) {
+          mEvictionCount++;
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  /**
+   * @return the cache shared by all the ComponentTrees.
+   */
+  public static LayoutCache get() {
+    return sInstance;
+  }
+
+  /**
+   * @return whether the size of the nested tree held by {@code holder} can be stored in and read
+   * from the cache.
+   */
+  static boolean isCacheable(InternalNode holder, Component<?> component) {
+    return ComponentsConfiguration.useCrossTreeLayoutCache
+        && Component.isLayoutSpecWithSizeSpec(component)
+        && component.getLifecycle().isPureRender()
+        && !component.getLifecycle().hasState()
+        && holder.getPendingTreeProps() == null;
+  }
+
+  /**
+   * @return whether any component of the resolved {@code nestedTree}, including the ones of the
+   * nested trees it holds, has state. Nested trees that aren't resolved yet count as stateful
+   * since their components aren't known.
+   */
+  static boolean hasStatefulComponents(InternalNode nestedTree) {
+    final List<Component> components = nestedTree.getComponents();
+    for (int i = 0, size = components.size(); i < size; i++) {
+      if (components.get(i).getLifecycle().hasState()) {
+        return true;
+      }
+    }
+
+    if (nestedTree.hasNestedTree()) {
+      return hasStatefulComponents(nestedTree.getNestedTree());
+    } else if (Component.isNestedTree(nestedTree.getRootComponent())) {
+      return true;
+    }
+
+    for (int i = 0, count = nestedTree.getChildCount(); i < count; i++) {
+      if (hasStatefulComponents(nestedTree.getChildAt(i))) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Looks up the measured size of a component equivalent to {@code component} for the given size
+   * specs, resources and layout direction.
+   *
+   * @return true and sets {@code outputSize} if an entry was found, false otherwise.
+   */
+  synchronized boolean get(
+      Component<?> component,
+      Resources resources,
+      YogaDirection layoutDirection,
+      int widthSpec,
+      int heightSpec,
+      Size outputSize) {
+    mLookupKey.set(
+        component.getLifecycle().getId(),
+        resources,
+        layoutDirection,
+        widthSpec,
+        heightSpec);
+
+    for (Entry entry = mEntries.get(mLookupKey); entry != null; entry = entry.mNext) {
+      if (entry.mComponent.isEquivalentTo(component)) {
+        mHitCount++;
+        outputSize.width = entry.mWidth;
+        outputSize.height = entry.mHeight;
+        return true;
+      }
+    }
+
+    mMissCount++;
+    return false;
+  }
+
+  /**
+   * Stores the size a component was measured at for the given size specs, resources and layout
+   * direction.
+   */
+  synchronized void put(
+      Component<?> component,
+      Resources resources,
+      YogaDirection layoutDirection,
+      int widthSpec,
+      int heightSpec,
+      int width,
+      int height) {
+    mLookupKey.set(
+        component.getLifecycle().getId(),
+        resources,
+        layoutDirection,
+        widthSpec,
+        heightSpec);
+    final Entry head = mEntries.get(mLookupKey);
+
+    // Only the props are needed for isEquivalentTo(): don't keep the scoped context (and with it a
+    // Context) or a pooled InternalNode alive from the cache.
+    final Component<?> copy = component.makeCopyWithNullContext();
+    copy.clearCachedLayout();
+    final Entry entry = new Entry(copy, width, height);
+    entry.mNext = head;
+
+    // Bound the number of non equivalent components stored for the same type and specs.
+    Entry last = entry;
+    for (int i = 1; i < MAX_ENTRIES_PER_KEY && last.mNext != null; i++) {
+      last = last.mNext;
+    }
+    last.mNext = null;
+
+    // Replacing the value of an existing mapping keeps its key, so only copy the lookup key when
+    // adding a new one.
+    mEntries.put(head != null ? mLookupKey : mLookupKey.copy(), entry);
+  }
+
+  /**
+   * Removes all the entries from the cache. Statistics are preserved.
+   */
+  public synchronized void clear() {
+    mEntries.clear();
+  }
+
+  /**
+   * Removes the given fraction of the entries, rounded up, starting with the least recently used
+   * ones. Statistics are preserved.
+   */
+  synchronized void trim(float fraction) {
+    final int size = RecyclePool.getTrimmedSize(mEntries.size(), fraction);
+    final Iterator<Key> iterator = mEntries.keySet().iterator();
+    while (mEntries.size() > size && iterator.hasNext()) {
+      iterator.next();
+      iterator.remove();
+    }
+  }
+
+  /**
+   * @return the stats of the cache, whose sizes count the component type and size specs
+   * combinations. The cache doesn't track its high-water mark, its current size is reported
+   * instead.
+   */
+  synchronized PoolStats getStats() {
+    return new PoolStats(
+        "LayoutCache",
+        mMaxSize,
+        mEntries.size(),
+        mEntries.size(),
+        mHitCount,
+        mMissCount,
+        mEvictionCount);
+  }
+
+  /**
+   * @return the number of component type and size specs combinations currently cached.
+   */
+  public synchronized int getSize() {
+    return mEntries.size();
+  }
+
+  public int getMaxSize() {
+    return mMaxSize;
+  }
+
+  /**
+   * @return the number of times a measured size was served from the cache.
+   */
+  public synchronized long getHitCount() {
+    return mHitCount;
+  }
+
+  /**
+   * @return the number of times a cacheable nested tree had to be resolved.
+   */
+  public synchronized long getMissCount() {
+    return mMissCount;
+  }
+
+  /**
+   * @return the number of entries dropped because the cache was full.
+   */
+  public synchronized long getEvictionCount() {
+    return mEvictionCount;
+  }
+
+  private static final class Key {
+    private int mTypeId;
+    private int mDensityBits;
+    // Also reflects the user's font scale.
+    private int mScaledDensityBits;
+    private Locale mLocale;
+    private YogaDirection mLayoutDirection;
+    private int mWidthSpec;
+    private int mHeightSpec;
+
+    void set(
+        int typeId,
+        Resources resources,
+        YogaDirection layoutDirection,
+        int widthSpec,
+        int heightSpec) {
+      final DisplayMetrics displayMetrics = resources.getDisplayMetrics();
+
+      mTypeId = typeId;
+      mDensityBits = Float.floatToIntBits(displayMetrics.density);
+      mScaledDensityBits = Float.floatToIntBits(displayMetrics.scaledDensity);
+      mLocale = resources.getConfiguration().locale;
+      mLayoutDirection = layoutDirection;
+      mWidthSpec = widthSpec;
+      mHeightSpec = heightSpec;
+    }
+
+    Key copy() {
+      final Key key = new Key();
+      key.mTypeId = mTypeId;
+      key.mDensityBits = mDensityBits;
+      key.mScaledDensityBits = mScaledDensityBits;
+      key.mLocale = mLocale;
+      key.mLayoutDirection = mLayoutDirection;
+      key.mWidthSpec = mWidthSpec;
+      key.mHeightSpec = mHeightSpec;
+      return key;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+
+      final Key other = (Key) o;
+      return mTypeId == other.mTypeId
+          && mDensityBits == other.mDensityBits
+          && mScaledDensityBits == other.mScaledDensityBits
+          && (mLocale == null ? other.mLocale == null : mLocale.equals(other.mLocale))
+          && mLayoutDirection == other.mLayoutDirection
+          && mWidthSpec == other.mWidthSpec
+          && mHeightSpec == other.mHeightSpec;
+    }
+
+    @Override
+    public int hashCode() {
+      int result = mTypeId;
+      result = 31 * result + mDensityBits;
+      result = 31 * result + mScaledDensityBits;
+      result = 31 * result + (mLocale != null ? mLocale.hashCode() : 0);
+      result = 31 * result + (mLayoutDirection != null ? mLayoutDirection.hashCode() : 0);
+      result = 31 * result + mWidthSpec;
+      result = 31 * result + mHeightSpec;
+      return result;
+    }
+  }
+
+  private static final class Entry {
+    private final Component<?> mComponent;
+    private final int mWidth;
+    private final int mHeight;
+    private Entry mNext;
+
+    Entry(Component<?> component, int width, int height) {
+      mComponent = component;
+      mWidth = width;
+      mHeight = height;
+    }
+  }
+}
@@ -0,0 +1,29 @@
+/*
+ * Copyright (c) 2017-present, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+
+package com.facebook.litho;
+
+/**
+ * Lets a {@link ComponentTree} tell a layout calculation running on another thread that its result
+ * is going to be discarded, e.g. because a new root or size spec has been set in the meantime.
+ * {@link LayoutState} checks the token between the steps of the calculation and aborts as soon as
+ * it has been cancelled.
+ */
+final class LayoutCancellationToken {
+
+  private volatile boolean mIsCancelled;
+
+  void cancel() {
+    mIsCancelled = true;
+  }
+
+  boolean isCancelled() {
+    return mIsCancelled;
+  }
+}
@@ -10,8 +10,6 @@
 package com.facebook.litho;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Queue;
@@ -27,7 +25,6 @@ import android.graphics.drawable.Drawable;
 import android.os.Build;
 import android.support.annotation.Nullable;
 import android.support.annotation.VisibleForTesting;
-import android.support.v4.util.LongSparseArray;
 import android.support.v4.util.SimpleArrayMap;
 import android.support.v4.view.accessibility.AccessibilityManagerCompat;
 import android.text.TextUtils;
@@ -40,6 +37,7 @@ import com.facebook.infer.annotation.ThreadSafe;
 import com.facebook.litho.config.ComponentsConfiguration;
 import com.facebook.litho.displaylist.DisplayList;
 import com.facebook.litho.displaylist.DisplayListException;
+import com.facebook.litho.internal.LongIntHashMap;
 import com.facebook.litho.reference.BorderColorDrawableReference;
 import com.facebook.litho.reference.DrawableReference;
 import com.facebook.litho.reference.Reference;
@@ -54,7 +52,6 @@ import static android.os.Build.VERSION_CODES.JELLY_BEAN_MR1;
 import static android.os.Build.VERSION_CODES.M;
 import static android.support.v4.view.ViewCompat.IMPORTANT_FOR_ACCESSIBILITY_AUTO;
 import static android.support.v4.view.ViewCompat.IMPORTANT_FOR_ACCESSIBILITY_NO;
-import static com.facebook.litho.Component.isHostSpec;
 import static com.facebook.litho.Component.isLayoutSpecWithSizeSpec;
 import static com.facebook.litho.Component.isMountSpec;
 import static com.facebook.litho.Component.isMountViewSpec;
@@ -79,40 +76,6 @@ import static com.facebook.litho.SizeSpec.EXACTLY;
  * based on the provided {@link InternalNode} for later use in {@link MountState}.
  */
 class LayoutState {
-  static final Comparator<LayoutOutput> sTopsComparator =
-      new Comparator<LayoutOutput>() {
-        @Override
-        public int compare(LayoutOutput lhs, LayoutOutput rhs) {
-          final int lhsTop = lhs.getBounds().top;
-          final int rhsTop = rhs.getBounds().top;
-          return lhsTop < rhsTop
-              ? -1
-              : lhsTop > rhsTop
-              ? 1
-              // Hosts should be higher for tops so that they are mounted first if possible.
-              : isHostSpec(lhs.getComponent()) == isHostSpec(rhs.getComponent())
-              ? 0
-              : isHostSpec(lhs.getComponent()) ? -1 : 1;
-        }
-      };
-
-  static final Comparator<LayoutOutput> sBottomsComparator =
-      new Comparator<LayoutOutput>() {
-        @Override
-        public int compare(LayoutOutput lhs, LayoutOutput rhs) {
-          final int lhsBottom = lhs.getBounds().bottom;
-          final int rhsBottom = rhs.getBounds().bottom;
-          return lhsBottom < rhsBottom
-              ? -1
-              : lhsBottom > rhsBottom
-              ? 1
-              // Hosts should be lower for bottoms so that they are mounted first if possible.
-              : isHostSpec(lhs.getComponent()) == isHostSpec(rhs.getComponent())
-              ? 0
-              : isHostSpec(lhs.getComponent()) ? 1 : -1;
-        }
-      };
-
   @ThreadConfined(ThreadConfined.UI)
   private final Rect mDisplayListCreateRect = new Rect();
 
@@ -132,10 +95,11 @@ class LayoutState {
 
   private final List<LayoutOutput> mMountableOutputs = new ArrayList<>(8);
   private final List<VisibilityOutput> mVisibilityOutputs = new ArrayList<>(8);
-  private final LongSparseArray<Integer> mOutputsIdToPositionMap = new LongSparseArray<>(8);
+  private final LongIntHashMap mOutputsIdToPositionMap = new LongIntHashMap(8);
   private final LayoutStateOutputIdCalculator mLayoutStateOutputIdCalculator;
-  private final ArrayList<LayoutOutput> mMountableOutputTops = new ArrayList<>();
-  private final ArrayList<LayoutOutput> mMountableOutputBottoms = new ArrayList<>();
+  private final MountableOutputColumns mMountableOutputColumns = new MountableOutputColumns();
+  private final OutputBoundsIndex mVisibilityOutputBounds = new OutputBoundsIndex();
+  private boolean mHasVisibilityOutputBounds;
   private final Queue<Integer> mDisplayListsToPrefetch = new LinkedList<>();
   private final List<TestOutput> mTestOutputs;
 
@@ -171,6 +135,7 @@ class LayoutState {
   private boolean mClipChildren = true;
   private ArrayList<Component> mComponentsNeedingPreviousRenderInfo;
   private SimpleArrayMap<String, LayoutOutput> mTransitionKeyMapping;
+  private LayoutCancellationToken mCancellationToken;
 
   LayoutState() {
     mLayoutStateOutputIdCalculator = new LayoutStateOutputIdCalculator();
@@ -484,6 +449,11 @@ class LayoutState {
       InternalNode node,
       LayoutState layoutState,
       DiffNode parentDiffNode) {
+    // Stop collecting as soon as the layout is cancelled, the outputs are going to be discarded.
+    if (layoutState.isCancelled()) {
+      return;
+    }
+
     if (node.hasNewLayout()) {
       node.markLayoutSeen();
     }
@@ -757,8 +727,9 @@ class LayoutState {
       Reference<? extends Drawable> reference,
       @LayoutOutput.LayoutOutputType int type) {
     final Component<DrawableComponent> drawableComponent = DrawableComponent.create(reference);
-    drawableComponent.setScopedContext(
-        ComponentContext.withComponentScope(node.getContext(), drawableComponent));
+    // A DrawableComponent has neither state nor events, and never hands its context out to
+    // components code, so it can share the context of its node instead of getting its own copy.
+    drawableComponent.setScopedContext(node.getContext());
     final boolean isOutputUpdated;
     if (recycle != null) {
       isOutputUpdated = !drawableComponent.getLifecycle().shouldComponentUpdate(
@@ -795,7 +766,7 @@ class LayoutState {
   }
 
   private static void addLayoutOutputIdToPositionsMap(
-      LongSparseArray outputsIdToPositionMap,
+      LongIntHashMap outputsIdToPositionMap,
       LayoutOutput layoutOutput,
       int position) {
     if (outputsIdToPositionMap != null) {
@@ -841,6 +812,13 @@ class LayoutState {
       throw new IllegalArgumentException("Cannot release a null node tree");
     }
 
+    if (ComponentsConfiguration.batchReleaseNodeTrees && ComponentsConfiguration.usePooling) {
+      final List<InternalNode> nodes = new ArrayList<>();
+      collectNodeTree(node, nodes, isNestedTree);
+      ComponentsPools.releaseNodeTree(node, nodes);
+      return;
+    }
+
     for (int i = node.getChildCount() - 1; i >= 0; i--) {
       final InternalNode child = node.getChildAt(i);
 
@@ -862,6 +840,31 @@ class LayoutState {
     ComponentsPools.release(node);
   }
 
+  /**
+   * Adds all the nodes of the tree rooted at {@code node} to {@code nodes}, the nested trees it
+   * contains are separate Yoga trees and get released on their own. Like the node by node release,
+   * the layout of the nodes of a nested tree that have children is marked as seen.
+   */
+  private static void collectNodeTree(
+      InternalNode node,
+      List<InternalNode> nodes,
+      boolean isNestedTree) {
+    nodes.add(node);
+
+    final int childCount = node.getChildCount();
+    if (isNestedTree && childCount > 0 && node.hasNewLayout()) {
+      node.markLayoutSeen();
+    }
+
+    for (int i = 0; i < childCount; i++) {
+      collectNodeTree(node.getChildAt(i), nodes, isNestedTree);
+    }
+
+    if (node.hasNestedTree() && node.getNestedTree() != NULL_LAYOUT) {
+      releaseNodeTree(node.getNestedTree(), true);
+    }
+  }
+
   /**
    * If we have an interactive LayoutSpec or a MountSpec Drawable, we need to insert an
    * HostComponent in the Outputs such as it will be used as a HostView at Mount time. View
@@ -927,6 +930,11 @@ class LayoutState {
         true /* clipChildren */);
   }
 
+  /**
+   * @return the calculated LayoutState, or null if the {@link LayoutCancellationToken} of the
+   * given context was cancelled before the calculation completed.
+   */
+  @Nullable
   static <T extends ComponentLifecycle> LayoutState calculate(
       ComponentContext c,
       Component<T> component,
@@ -956,6 +964,7 @@ class LayoutState {
     layoutState.mCanPrefetchDisplayLists = canPrefetchDisplayLists;
     layoutState.mCanCacheDrawingDisplayLists = canCacheDrawingDisplayLists;
     layoutState.mClipChildren = clipChildren;
+    layoutState.mCancellationToken = c.getLayoutCancellationToken();
 
     component.applyStateUpdates(c);
 
@@ -965,7 +974,15 @@ class LayoutState {
         null, // nestedTreeHolder is null because this is measuring the root component tree.
         widthSpec,
         heightSpec,
-        previousDiffTreeRoot);
+        previousDiffTreeRoot,
+        layoutState.mCancellationToken);
+
+    if (layoutState.isCancelled()) {
+      if (root != NULL_LAYOUT) {
+        releaseNodeTree(root, false /* isNestedTree */);
+      }
+      return releaseCancelledLayout(layoutState);
+    }
 
     switch (SizeSpec.getMode(widthSpec)) {
       case SizeSpec.EXACTLY:
@@ -1013,15 +1030,23 @@ class LayoutState {
 
     collectResults(root, layoutState, null);
 
-    Collections.sort(layoutState.mMountableOutputTops, sTopsComparator);
-    Collections.sort(layoutState.mMountableOutputBottoms, sBottomsComparator);
+    layoutState.mMountableOutputColumns.set(layoutState.mMountableOutputs);
+    indexVisibilityOutputs(layoutState);
 
     if (logger != null) {
       logger.log(collectResultsEvent);
     }
     ComponentsSystrace.endSection();
 
-    if (!ComponentsConfiguration.isDebugModeEnabled && layoutState.mLayoutRoot != null) {
+    if (layoutState.isCancelled()) {
+      // The node tree is released along with the LayoutState.
+      return releaseCancelledLayout(layoutState);
+    }
+
+    // Keep the node tree around if the next layout may reuse parts of it.
+    if (!ComponentsConfiguration.isDebugModeEnabled
+        && !ReusableNodeTree.isEnabled(c)
+        && layoutState.mLayoutRoot != null) {
       releaseNodeTree(layoutState.mLayoutRoot, false /* isNestedTree */);
       layoutState.mLayoutRoot = null;
     }
@@ -1040,6 +1065,27 @@ class LayoutState {
     return layoutState;
   }
 
+  /**
+   * Releases a LayoutState whose calculation was cancelled, along with the StateHandler it was
+   * calculated with since its state updates must not be committed.
+   *
+   * @return null, which is what {@link #calculate} returns for a cancelled layout.
+   */
+  @Nullable
+  private static LayoutState releaseCancelledLayout(LayoutState layoutState) {
+    final StateHandler stateHandler = layoutState.consumeStateHandler();
+    if (stateHandler != null) {
+      ComponentsPools.release(stateHandler);
+    }
+
+    layoutState.releaseRef();
+    return null;
+  }
+
+  private boolean isCancelled() {
+    return mCancellationToken != null && mCancellationToken.isCancelled();
+  }
+
   @ThreadSafe(enableChecks = false)
   void preAllocateMountContent() {
     ComponentsSystrace.beginSection(
@@ -1147,6 +1193,7 @@ class LayoutState {
         (Drawable) ComponentsPools.acquireMountContent(context, lifecycle.getId());
     if (drawable == null) {
       drawable = (Drawable) lifecycle.createMountContent(context);
+      MountContentWarmup.recordMiss(lifecycle);
     }
 
     final LayoutOutput clickableOutput = findInteractiveRoot(this, output);
@@ -1286,6 +1333,12 @@ class LayoutState {
       ComponentsSystrace.endSection(/* applyDiffNode */);
     }
 
+    // Diff nodes have to be applied first so that nested trees resolved ahead of time can still
+    // reuse their previous measurements.
+    if (ParallelNestedTreeResolver.isEnabled(context)) {
+      ParallelNestedTreeResolver.resolveFixedSizeNestedTrees(root);
+    }
+
     final ComponentsLogger logger = context.getLogger();
     LogEvent layoutEvent = null;
     if (logger != null) {
@@ -1364,7 +1417,8 @@ class LayoutState {
             nestedTreeHolder,
             widthSpec,
             heightSpec,
-            nestedTreeHolder.getDiffNode()); // Previously set while traversing the holder's tree.
+            nestedTreeHolder.getDiffNode(), // Previously set while traversing the holder's tree.
+            null /* cancellationToken */);
         nestedTree.setLastWidthSpec(widthSpec);
         nestedTree.setLastHeightSpec(heightSpec);
         nestedTree.setLastMeasuredHeight(nestedTree.getHeight());
@@ -1388,7 +1442,14 @@ class LayoutState {
       Component component,
       int widthSpec,
       int heightSpec) {
-    return createAndMeasureTreeForComponent(c, component, null, widthSpec, heightSpec, null);
+    return createAndMeasureTreeForComponent(
+        c,
+        component,
+        null,
+        widthSpec,
+        heightSpec,
+        null,
+        null);
   }
 
   private static InternalNode createAndMeasureTreeForComponent(
@@ -1397,15 +1458,22 @@ class LayoutState {
       InternalNode nestedTreeHolder, // This will be set only if we are resolving a nested tree.
       int widthSpec,
       int heightSpec,
-      DiffNode diffTreeRoot) {
+      DiffNode diffTreeRoot,
+      @Nullable LayoutCancellationToken cancellationToken) {
 
     final boolean isTest = "robolectric".equals(Build.FINGERPRINT);
     // Copy the context so that it can have its own set of tree props.
-    // Robolectric tests keep the context so that tree props can be set externally.
-    if (!isTest) {
+    // Robolectric tests keep the context so that tree props can be set externally, unless sibling
+    // nested trees may be resolved concurrently on the same context.
+    // The scoped context of the component itself doesn't need to be copied: the copy would only
+    // be handed to that same component, and no other tree is created on it concurrently. Its tree
+    // props and size specs are restored once the tree is created.
+    if (c != component.getScopedContext()
+        && (!isTest || ParallelNestedTreeResolver.isEnabled(c))) {
       c = c.makeNewCopy();
     }
 
+    final TreeProps previousTreeProps = c.getTreeProps();
     final boolean hasNestedTreeHolder = nestedTreeHolder != null;
     if (hasNestedTreeHolder) {
       c.setTreeProps(nestedTreeHolder.getPendingTreeProps());
@@ -1420,21 +1488,26 @@ class LayoutState {
     c.setWidthSpec(widthSpec);
     c.setHeightSpec(heightSpec);
 
-    final InternalNode root = createTree(
-        component,
-        c);
-
-    if (hasNestedTreeHolder) {
-      c.setTreeProps(null);
+    final InternalNode root;
+    try {
+      root = createTree(
+          component,
+          c);
+    } finally {
+      c.setTreeProps(previousTreeProps);
+      c.setWidthSpec(previousWidthSpec);
+      c.setHeightSpec(previousHeightSpec);
     }
 
-    c.setWidthSpec(previousWidthSpec);
-    c.setHeightSpec(previousHeightSpec);
-
     if (root == NULL_LAYOUT) {
       return root;
     }
 
+    // Don't measure a tree whose layout is going to be discarded, the caller releases it.
+    if (cancellationToken != null && cancellationToken.isCancelled()) {
+      return root;
+    }
+
     // If measuring a ComponentTree with a LayoutSpecWithSizeSpec at the root, the nested tree
     // holder argument will be null.
     if (hasNestedTreeHolder && isLayoutSpecWithSizeSpec(component)) {
@@ -1624,12 +1697,20 @@ class LayoutState {
     return mMountableOutputs.get(index);
   }
 
-  ArrayList<LayoutOutput> getMountableOutputTops() {
-    return mMountableOutputTops;
+  MountableOutputColumns getMountableOutputColumns() {
+    return mMountableOutputColumns;
   }
 
-  ArrayList<LayoutOutput> getMountableOutputBottoms() {
-    return mMountableOutputBottoms;
+  /**
+   * @return the bounds of the visibility outputs, in the same order as
+   * {@link #getVisibilityOutputAt(int)}, indexed by edge.
+   */
+  OutputBoundsIndex getVisibilityOutputBounds() {
+    if (!mHasVisibilityOutputBounds) {
+      indexVisibilityOutputs(this);
+    }
+
+    return mVisibilityOutputBounds;
   }
 
   int getVisibilityOutputCount() {
@@ -1697,8 +1778,9 @@ class LayoutState {
         ComponentsPools.release(mMountableOutputs.get(i));
       }
       mMountableOutputs.clear();
-      mMountableOutputTops.clear();
-      mMountableOutputBottoms.clear();
+      mMountableOutputColumns.clear();
+      mVisibilityOutputBounds.clear();
+      mHasVisibilityOutputBounds = false;
       mOutputsIdToPositionMap.clear();
       mDisplayListsToPrefetch.clear();
 
@@ -1730,11 +1812,12 @@ class LayoutState {
         mTransitionContext = null;
       }
 
-      // This should only ever be true in non-release builds as we need this for Stetho integration.
-      // In release builds the node tree is released in calculateLayout().
-      if (mLayoutRoot != null) {
-        releaseNodeTree(mLayoutRoot, false /* isNestedTree */);
-        mLayoutRoot = null;
+      // This should only ever be true in non-release builds as we need this for Stetho integration,
+      // or if the node tree was kept for incremental layout and no other layout took it over.
+      // Otherwise the node tree is released in calculateLayout().
+      final InternalNode layoutRoot = takeLayoutRoot();
+      if (layoutRoot != null) {
+        releaseNodeTree(layoutRoot, false /* isNestedTree */);
       }
 
       if (mComponentsNeedingPreviousRenderInfo != null) {
@@ -1742,6 +1825,7 @@ class LayoutState {
       }
 
       mTransitionKeyMapping = null;
+      mCancellationToken = null;
 
       ComponentsPools.release(this);
     }
@@ -1785,6 +1869,19 @@ class LayoutState {
     return mLayoutRoot;
   }
 
+  /**
+   * Hands the ownership of the node tree of this layout over to the caller. Synchronized because
+   * concurrent layout calculations may try to reuse the same previous layout.
+   *
+   * @return the root of the node tree, or null if it has already been taken or released.
+   */
+  @Nullable
+  synchronized InternalNode takeLayoutRoot() {
+    final InternalNode layoutRoot = mLayoutRoot;
+    mLayoutRoot = null;
+    return layoutRoot;
+  }
+
   // If the layout root is a nested tree holder node, it gets skipped immediately while
   // collecting the LayoutOutputs. The nested tree itself effectively becomes the layout
   // root in this case.
@@ -1887,10 +1984,21 @@ class LayoutState {
     return getTransitionKeyMapping().get(transitionKey);
   }
 
+  private static void indexVisibilityOutputs(LayoutState layoutState) {
+    final List<VisibilityOutput> visibilityOutputs = layoutState.mVisibilityOutputs;
+    final OutputBoundsIndex visibilityOutputBounds = layoutState.mVisibilityOutputBounds;
+    final int count = visibilityOutputs.size();
+
+    visibilityOutputBounds.setCount(count);
+    for (int i = 0; i < count; i++) {
+      visibilityOutputBounds.setBounds(i, visibilityOutputs.get(i).getBounds());
+    }
+    visibilityOutputBounds.sortEdges();
+    layoutState.mHasVisibilityOutputBounds = true;
+  }
+
   private static void addMountableOutput(LayoutState layoutState, LayoutOutput layoutOutput) {
     layoutState.mMountableOutputs.add(layoutOutput);
-    layoutState.mMountableOutputTops.add(layoutOutput);
-    layoutState.mMountableOutputBottoms.add(layoutOutput);
   }
 
   private TransitionContext getOrCreateTransitionContext() {
@@ -9,7 +9,7 @@
 
 package com.facebook.litho;
 
-import android.support.v4.util.LongSparseArray;
+import com.facebook.litho.internal.LongIntHashMap;
 
 /**
  * Utility class used to calculate the id of a {@link LayoutOutput} in the context of a
@@ -18,9 +18,8 @@ import android.support.v4.util.LongSparseArray;
  */
 class LayoutStateOutputIdCalculator {
 
-  private final LongSparseArray<Integer> mLayoutCurrentSequenceForBaseId = new LongSparseArray<>(8);
-  private final LongSparseArray<Integer> mVisibilityCurrentSequenceForBaseId =
-      new LongSparseArray<>(8);
+  private final LongIntHashMap mLayoutCurrentSequenceForBaseId = new LongIntHashMap(8);
+  private final LongIntHashMap mVisibilityCurrentSequenceForBaseId = new LongIntHashMap(8);
 
   private static final int MAX_SEQUENCE = 65535; // (2^16 - 1)
   private static final int MAX_LEVEL = 255; // (2^8 - 1)
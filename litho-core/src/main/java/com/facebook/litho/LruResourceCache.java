@@ -15,7 +15,9 @@ import android.content.res.Configuration;
 import android.support.v4.util.LruCache;
 
 class LruResourceCache extends ResourceCache {
-  private final LruCache<Integer, Object> mCache = new LruCache<Integer, Object>(500) {
+  private static final int MAX_SIZE = 500;
+
+  private final LruCache<Integer, Object> mCache = new LruCache<Integer, Object>(MAX_SIZE) {
     @Override
     protected int sizeOf(Integer key, Object value) {
       if (value instanceof String) {
@@ -39,4 +41,26 @@ class LruResourceCache extends ResourceCache {
   void put(int key, Object object) {
     mCache.put(key, object);
   }
+
+  @Override
+  void trim(float fraction) {
+    mCache.trimToSize(RecyclePool.getTrimmedSize(mCache.size(), fraction));
+  }
+
+  /**
+   * @return the stats of the cache, whose sizes count the characters of the cached strings and
+   * one for any other resource. The cache doesn't track its high-water mark, its current size is
+   * reported instead.
+   */
+  @Override
+  PoolStats getStats() {
+    return new PoolStats(
+        "ResourceCache",
+        MAX_SIZE,
+        mCache.size(),
+        mCache.size(),
+        mCache.hitCount(),
+        mCache.missCount(),
+        mCache.evictionCount());
+  }
 }
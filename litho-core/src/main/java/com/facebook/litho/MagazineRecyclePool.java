@@ -0,0 +1,304 @@
+/*
+ * Copyright (c) 2017-present, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+
+package com.facebook.litho;
+
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.facebook.litho.config.ComponentsConfiguration;
+
+/**
+ * A thread safe {@link RecyclePool} that doesn't take any lock. Every thread acquires and releases
+ * items from its own magazine, a small stack of items only it accesses. When that magazine is full
+ * it is moved as a whole to a depot shared by all the threads, and when it is empty a full one is
+ * taken from the depot, so the threads only touch shared memory once every few items.
+ *
+ * <p>The max size bounds the number of items in the depot; each thread may hold up to one more
+ * magazine of items on top of it. The items left in the magazine of a thread that exited are
+ * released again when a new thread starts using the pool, or when the pool is adapted or trimmed.
+ * The size of the pool is only an estimate, and so are its stats: the acquire hits of a thread are
+ * only added to them when it next goes to the depot.
+ */
+final class MagazineRecyclePool<T> extends RecyclePool<T> {
+
+  private static final int MAX_MAGAZINE_SIZE = 16;
+
+  private final int mMagazineSize;
+  private final int mMinDepotMagazineCount;
+  private final int mDepotMagazineCountLimit;
+  private volatile int mMaxDepotMagazineCount;
+  private final ConcurrentLinkedQueue<Object[]> mDepot = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger mDepotMagazineCount = new AtomicInteger();
+  // The magazines of all the threads that used the pool and whose magazine wasn't reclaimed yet.
+  private final ConcurrentLinkedQueue<Magazine> mMagazineRegistry = new ConcurrentLinkedQueue<>();
+  private final ThreadLocal<Magazine> mMagazines = new ThreadLocal<Magazine>() {
+    @Override
+    protected Magazine initialValue() {
+      final Magazine magazine = new Magazine(Thread.currentThread(), mMagazineSize);
+      reclaimMagazinesOfExitedThreads(magazine);
+      mMagazineRegistry.offer(magazine);
+      return magazine;
+    }
+  };
+
+  private final AtomicLong mAcquireHits = new AtomicLong();
+  private final AtomicLong mAcquireMisses = new AtomicLong();
+  private final AtomicLong mReleaseDrops = new AtomicLong();
+  private final AtomicInteger mDepotHighWaterMark = new AtomicInteger();
+
+  // The demand observed since the last call to adaptMaxSize().
+  private volatile boolean mHasMissedSinceAdapt;
+  private volatile boolean mHasDroppedSinceAdapt;
+  private final AtomicInteger mDepotLowWaterMarkSinceAdapt = new AtomicInteger();
+
+  MagazineRecyclePool(String name, int maxSize) {
+    super(name, maxSize);
+    mMagazineSize = Math.max(1, Math.min(MAX_MAGAZINE_SIZE, maxSize / 4));
+    mMaxDepotMagazineCount = Math.max(1, maxSize / mMagazineSize);
+    mMinDepotMagazineCount = Math.max(1, getMinSize() / mMagazineSize);
+    mDepotMagazineCountLimit = Math.max(1, getMaxSizeLimit() / mMagazineSize);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public T acquire() {
+    final Magazine magazine = mMagazines.get();
+    if (magazine.mSize == 0) {
+      flushAcquireHits(magazine);
+
+      final Object[] fullMagazine = mDepot.poll();
+      if (fullMagazine == null) {
+        mAcquireMisses.incrementAndGet();
+        mHasMissedSinceAdapt = true;
+        return null;
+      }
+
+      lowerTo(mDepotLowWaterMarkSinceAdapt, mDepotMagazineCount.decrementAndGet());
+      magazine.mItems = fullMagazine;
+      magazine.mSize = fullMagazine.length;
+    }
+
+    final int index = --magazine.mSize;
+    final T item = (T) magazine.mItems[index];
+    magazine.mItems[index] = null;
+    magazine.mAcquireHits++;
+    return item;
+  }
+
+  @Override
+  public void release(T item) {
+    releaseInto(mMagazines.get(), item);
+  }
+
+  @Override
+  public void releaseAll(List<T> items) {
+    final Magazine magazine = mMagazines.get();
+    for (int i = 0, size = items.size(); i < size; i++) {
+      releaseInto(magazine, items.get(i));
+    }
+  }
+
+  private void releaseInto(Magazine magazine, T item) {
+    if (ComponentsConfiguration.isDebugModeEnabled) {
+      checkNotInPool(magazine, item);
+    }
+
+    if (magazine.mSize == magazine.mItems.length) {
+      flushAcquireHits(magazine);
+
+      final int depotMagazineCount = mDepotMagazineCount.incrementAndGet();
+      if (depotMagazineCount > mMaxDepotMagazineCount) {
+        // The depot is full, the item is dropped.
+        mDepotMagazineCount.decrementAndGet();
+        mReleaseDrops.incrementAndGet();
+        mHasDroppedSinceAdapt = true;
+        return;
+      }
+
+      raiseTo(mDepotHighWaterMark, depotMagazineCount);
+      mDepot.offer(magazine.mItems);
+      magazine.mItems = new Object[mMagazineSize];
+      magazine.mSize = 0;
+    }
+
+    magazine.mItems[magazine.mSize++] = item;
+  }
+
+  /**
+   * Like {@link RecyclePool}, throws if the item is released twice. Only the magazine of the
+   * calling thread and the depot are checked, the magazines of the other threads can't be read.
+   */
+  private void checkNotInPool(Magazine magazine, T item) {
+    for (int i = 0; i < magazine.mSize; i++) {
+      if (magazine.mItems[i] == item) {
+        throw new IllegalStateException("Already in the pool!");
+      }
+    }
+
+    for (Object[] depotMagazine : mDepot) {
+      for (Object depotItem : depotMagazine) {
+        if (depotItem == item) {
+          throw new IllegalStateException("Already in the pool!");
+        }
+      }
+    }
+  }
+
+  /**
+   * Releases the items left in the magazines of the threads that exited into {@code magazine},
+   * which belongs to the calling thread. A thread that exited doesn't access its magazine anymore,
+   * and its termination is visible to the thread that sees it isn't alive.
+   */
+  @SuppressWarnings("unchecked")
+  private void reclaimMagazinesOfExitedThreads(Magazine magazine) {
+    for (Magazine registeredMagazine : mMagazineRegistry) {
+      final Thread owner = registeredMagazine.mOwner.get();
+      if ((owner != null && owner.isAlive()) || !mMagazineRegistry.remove(registeredMagazine)) {
+        continue;
+      }
+
+      flushAcquireHits(registeredMagazine);
+      for (int i = 0; i < registeredMagazine.mSize; i++) {
+        releaseInto(magazine, (T) registeredMagazine.mItems[i]);
+      }
+    }
+  }
+
+  private void flushAcquireHits(Magazine magazine) {
+    if (magazine.mAcquireHits > 0) {
+      mAcquireHits.addAndGet(magazine.mAcquireHits);
+      magazine.mAcquireHits = 0;
+    }
+  }
+
+  /**
+   * Applies the policy of {@link RecyclePool#adaptMaxSize()} to the number of magazines the depot
+   * can hold. Must not be called concurrently.
+   */
+  @Override
+  public void adaptMaxSize() {
+    reclaimMagazinesOfExitedThreads(mMagazines.get());
+
+    final int unusedMagazineCount = mDepotLowWaterMarkSinceAdapt.get();
+    final int maxDepotMagazineCount = adaptMaxSize(
+        mMaxDepotMagazineCount,
+        mMinDepotMagazineCount,
+        mDepotMagazineCountLimit,
+        mHasMissedSinceAdapt && mHasDroppedSinceAdapt,
+        unusedMagazineCount);
+    mMaxDepotMagazineCount = maxDepotMagazineCount;
+
+    final int depotMagazineCount =
+        Math.min(maxDepotMagazineCount, mDepotMagazineCount.get() - unusedMagazineCount);
+    while (mDepotMagazineCount.get() > depotMagazineCount && mDepot.poll() != null) {
+      mDepotMagazineCount.decrementAndGet();
+    }
+
+    mHasMissedSinceAdapt = false;
+    mHasDroppedSinceAdapt = false;
+    mDepotLowWaterMarkSinceAdapt.set(mDepotMagazineCount.get());
+  }
+
+  /**
+   * Drops the given fraction of the magazines in the depot. The magazines of the other threads
+   * can't be reached, so they are only dropped along with the one of the calling thread when the
+   * whole pool is trimmed.
+   */
+  @Override
+  public void trim(float fraction) {
+    reclaimMagazinesOfExitedThreads(mMagazines.get());
+
+    final int depotMagazineCount = getTrimmedSize(mDepotMagazineCount.get(), fraction);
+    while (mDepotMagazineCount.get() > depotMagazineCount && mDepot.poll() != null) {
+      lowerTo(mDepotLowWaterMarkSinceAdapt, mDepotMagazineCount.decrementAndGet());
+    }
+
+    if (fraction >= 1) {
+      final Magazine magazine = mMagazines.get();
+      while (magazine.mSize > 0) {
+        magazine.mItems[--magazine.mSize] = null;
+      }
+    }
+  }
+
+  /**
+   * @return the stats of the pool, whose high-water mark only counts the items in the depot.
+   */
+  @Override
+  public PoolStats getStats() {
+    flushAcquireHits(mMagazines.get());
+
+    return new PoolStats(
+        getName(),
+        getMaxSize(),
+        getCurrentSize(),
+        mDepotHighWaterMark.get() * mMagazineSize,
+        mAcquireHits.get(),
+        mAcquireMisses.get(),
+        mReleaseDrops.get());
+  }
+
+  @Override
+  public void resetStats() {
+    mMagazines.get().mAcquireHits = 0;
+    mAcquireHits.set(0);
+    mAcquireMisses.set(0);
+    mReleaseDrops.set(0);
+    mDepotHighWaterMark.set(mDepotMagazineCount.get());
+  }
+
+  @Override
+  public int getMaxSize() {
+    return mMaxDepotMagazineCount * mMagazineSize;
+  }
+
+  /**
+   * @return the number of items in the depot and in the magazine of the calling thread.
+   */
+  @Override
+  public int getCurrentSize() {
+    return mDepotMagazineCount.get() * mMagazineSize + mMagazines.get().mSize;
+  }
+
+  @Override
+  public boolean isFull() {
+    return getCurrentSize() >= getMaxSize();
+  }
+
+  private static void lowerTo(AtomicInteger value, int candidate) {
+    int current;
+    while (candidate < (current = value.get()) && !value.compareAndSet(current, candidate)) {
+      // Retry.
+    }
+  }
+
+  private static void raiseTo(AtomicInteger value, int candidate) {
+    int current;
+    while (candidate > (current = value.get()) && !value.compareAndSet(current, candidate)) {
+      // Retry.
+    }
+  }
+
+  private static final class Magazine {
+    // Weak so that the registry doesn't keep the threads that exited alive.
+    private final WeakReference<Thread> mOwner;
+    private Object[] mItems;
+    private int mSize;
+    private int mAcquireHits;
+
+    private Magazine(Thread owner, int size) {
+      mOwner = new WeakReference<>(owner);
+      mItems = new Object[size];
+    }
+  }
+}
@@ -0,0 +1,275 @@
+/*
+ * Copyright (c) 2017-present, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+
+package com.facebook.litho;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.support.annotation.VisibleForTesting;
+
+import com.facebook.litho.config.ComponentsConfiguration;
+
+/**
+ * Warms up the mount content pools on cold start with the mount content the previous session
+ * needed.
+ *
+ * <p>When {@link ComponentsConfiguration#recordMountContentWarmup} is enabled, every mount content
+ * that had to be created because its pool was empty is counted per component. {@link #save(File)}
+ * writes those counts to a small manifest file, e.g. when the app goes to the background, and on
+ * the next launch {@link #warmUp(ComponentContext, File)} fills the pools of the given context
+ * with as much mount content, one item whenever the main thread is idle, so that the first
+ * scroll doesn't have to inflate it.
+ *
+ * <p>The ids of the components are only valid for a session, so the manifest refers to them by
+ * class name, and only generated components, which have a static {@code get()} method, can be
+ * warmed up. The content a warm up created counts as needed by the session, so that the next
+ * launch warms it up again; the counts are bounded by the pool size of every component.
+ */
+public final class MountContentWarmup {
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+  private static final String SEPARATOR = " ";
+
+  private static final Map<String, Integer> sMissCounts = new HashMap<>();
+
+  private MountContentWarmup() {
+  }
+
+  /**
+   * Counts a mount content that the given component had to create because its pool was empty.
+   */
+  static void recordMiss(ComponentLifecycle lifecycle) {
+    if (!ComponentsConfiguration.recordMountContentWarmup) {
+      return;
+    }
+
+    increment(lifecycle.getClass().getName());
+  }
+
+  private static void increment(String name) {
+    synchronized (sMissCounts) {
+      final Integer count = sMissCounts.get(name);
+      sMissCounts.put(name, count == null ? 1 : count + 1);
+    }
+  }
+
+  @VisibleForTesting
+  static Map<String, Integer> getMissCounts() {
+    synchronized (sMissCounts) {
+      return new HashMap<>(sMissCounts);
+    }
+  }
+
+  @VisibleForTesting
+  static void clearMissCounts() {
+    synchronized (sMissCounts) {
+      sMissCounts.clear();
+    }
+  }
+
+  /**
+   * Writes the mount content needed so far in this session to the given manifest, replacing it.
+   * Does disk I/O, so shouldn't be called on the main thread.
+   */
+  public static void save(File manifest) throws IOException {
+    final Map<String, Integer> missCounts = getMissCounts();
+
+    final File tempFile = new File(manifest.getPath() + ".tmp");
+    final Writer writer = new OutputStreamWriter(new FileOutputStream(tempFile), UTF_8);
+    try {
+      for (Map.Entry<String, Integer> entry : missCounts.entrySet()) {
+        writer.write(entry.getValue() + SEPARATOR + entry.getKey() + "\n");
+      }
+    } finally {
+      writer.close();
+    }
+
+    if (!tempFile.renameTo(manifest)) {
+      tempFile.delete();
+      throw new IOException("Could not write the warm up manifest " + manifest);
+    }
+  }
+
+  /**
+   * Reads the given manifest and fills the mount content pools of the given context with the
+   * content it lists, creating one item each time the main thread is idle. Reads the manifest on
+   * the calling thread, which therefore shouldn't be the main thread. A missing or malformed
+   * manifest is ignored.
+   */
+  public static void warmUp(ComponentContext context, File manifest) {
+    final WarmupIdleHandler idleHandler = createIdleHandler(context, manifest);
+    if (idleHandler == null) {
+      return;
+    }
+
+    new Handler(Looper.getMainLooper()).post(new Runnable() {
+      @Override
+      public void run() {
+        Looper.myQueue().addIdleHandler(idleHandler);
+      }
+    });
+  }
+
+  @VisibleForTesting
+  static WarmupIdleHandler createIdleHandler(ComponentContext context, File manifest) {
+    final Map<String, Integer> counts;
+    try {
+      counts = read(manifest);
+    } catch (IOException e) {
+      return null;
+    }
+
+    final WarmupIdleHandler idleHandler =
+        new WarmupIdleHandler(context, resolve(context, counts));
+    return idleHandler.hasNext() ? idleHandler : null;
+  }
+
+  private static Map<String, Integer> read(File manifest) throws IOException {
+    final Map<String, Integer> counts = new LinkedHashMap<>();
+    final BufferedReader reader =
+        new BufferedReader(new InputStreamReader(new FileInputStream(manifest), UTF_8));
+
+    try {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        final int separatorIndex = line.indexOf(SEPARATOR);
+        if (separatorIndex <= 0) {
+          continue;
+        }
+
+        try {
+          final int count = Integer.parseInt(line.substring(0, separatorIndex));
+          if (count > 0) {
+            counts.put(line.substring(separatorIndex + 1), count);
+          }
+        } catch (NumberFormatException e) {
+          // Skip the malformed line.
+        }
+      }
+    } finally {
+      reader.close();
+    }
+
+    return counts;
+  }
+
+  /**
+   * @return the components of the given manifest counts that still exist in this build, with the
+   * number of mount content to create for each of them.
+   */
+  private static List<WarmupEntry> resolve(
+      ComponentContext context,
+      Map<String, Integer> counts) {
+    final List<WarmupEntry> entries = new ArrayList<>(counts.size());
+
+    for (Map.Entry<String, Integer> count : counts.entrySet()) {
+      final ComponentLifecycle lifecycle = getLifecycle(context, count.getKey());
+      if (lifecycle != null) {
+        entries.add(new WarmupEntry(lifecycle, Math.min(count.getValue(), lifecycle.poolSize())));
+      }
+    }
+
+    return entries;
+  }
+
+  private static ComponentLifecycle getLifecycle(ComponentContext context, String className) {
+    try {
+      final Class<?> lifecycleClass = Class.forName(className, true, context.getClassLoader());
+      final Method get = lifecycleClass.getMethod("get");
+      if (!Modifier.isStatic(get.getModifiers())) {
+        return null;
+      }
+
+      final Object lifecycle = get.invoke(null);
+      return lifecycle instanceof ComponentLifecycle ? (ComponentLifecycle) lifecycle : null;
+    } catch (Exception e) {
+      // The component was renamed or removed since the manifest was written.
+      return null;
+    }
+  }
+
+  private static class WarmupEntry {
+    private final ComponentLifecycle mLifecycle;
+    private int mRemainingCount;
+
+    private WarmupEntry(ComponentLifecycle lifecycle, int count) {
+      mLifecycle = lifecycle;
+      mRemainingCount = count;
+    }
+  }
+
+  /**
+   * Creates a single mount content every time the main thread is idle, so that the warm up never
+   * delays a frame by more than the creation of one view or drawable.
+   */
+  @VisibleForTesting
+  static class WarmupIdleHandler implements MessageQueue.IdleHandler {
+    private final ComponentContext mContext;
+    private final List<WarmupEntry> mEntries;
+    private int mIndex;
+
+    WarmupIdleHandler(ComponentContext context, List<WarmupEntry> entries) {
+      mContext = context;
+      mEntries = entries;
+      ComponentsPools.ensureMountContentPools(context);
+    }
+
+    boolean hasNext() {
+      while (mIndex < mEntries.size()) {
+        final WarmupEntry entry = mEntries.get(mIndex);
+        if (entry.mRemainingCount > 0
+            && ComponentsPools.canAddMountContentToPool(
+                mContext.getBaseContext(),
+                entry.mLifecycle)) {
+          return true;
+        }
+        mIndex++;
+      }
+
+      return false;
+    }
+
+    @Override
+    public boolean queueIdle() {
+      if (!hasNext()) {
+        return false;
+      }
+
+      final WarmupEntry entry = mEntries.get(mIndex);
+      ComponentsPools.release(
+          mContext,
+          entry.mLifecycle,
+          entry.mLifecycle.createMountContent(mContext));
+      entry.mRemainingCount--;
+      if (ComponentsConfiguration.recordMountContentWarmup) {
+        increment(entry.mLifecycle.getClass().getName());
+      }
+
+      return hasNext();
+    }
+  }
+}
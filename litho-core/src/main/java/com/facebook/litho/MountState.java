@@ -9,7 +9,7 @@
 
 package com.facebook.litho;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Deque;
 import java.util.HashMap;
@@ -17,6 +17,7 @@ import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
 import android.graphics.Rect;
 import android.graphics.drawable.Drawable;
@@ -105,6 +106,28 @@ class MountState implements DataFlowTransitionManager.OnAnimationCompleteListene
   private DataFlowTransitionManager mTransitionManager;
   private int mPreviousTopsIndex;
   private int mPreviousBottomsIndex;
+  // Only set up once the visible rect moves horizontally, so that the outputs of the many trees
+  // that only ever scroll vertically are never sorted by left and right.
+  private boolean mHasPreviousHorizontalIndices;
+  private int mPreviousLeftsIndex;
+  private int mPreviousRightsIndex;
+
+  // The visibility outputs of the last mounted LayoutState that intersected the visible rect the
+  // last time they were processed, and the edge indices of that rect in its visibility outputs.
+  // As for mounting, the horizontal edge indices are only set up once the rect moves horizontally.
+  private boolean mHasVisibilityWindow;
+  private boolean[] mIsVisibilityOutputIntersecting = new boolean[0];
+  private int[] mIntersectingVisibilityOutputs = new int[0];
+  private int mIntersectingVisibilityOutputCount;
+  private int mPreviousVisibilityTopsIndex;
+  private int mPreviousVisibilityBottomsIndex;
+  private boolean mHasPreviousVisibilityHorizontalIndices;
+  private int mPreviousVisibilityLeftsIndex;
+  private int mPreviousVisibilityRightsIndex;
+  private int mPreviousVisibilityLeft;
+  private int mPreviousVisibilityRight;
+  // Only created if the ComponentTree batches its visibility events.
+  private VisibilityEventBatch mVisibilityEventBatch;
   private int mLastMountedComponentTreeId;
   private final HashMap<String, MountItem> mDisappearingMountItems = new HashMap<>();
   private final HashSet<String> mAnimatingTransitionKeys = new HashSet<>();
@@ -194,10 +217,13 @@ class MountState implements DataFlowTransitionManager.OnAnimationCompleteListene
     mMountStats.reset();
 
     final boolean isIncrementalMountEnabled = localVisibleRect != null;
+    final boolean canProcessVisibilityIncrementally =
+        !mIsDirty && layoutState == mLastMountedLayoutState;
 
     if (!isIncrementalMountEnabled ||
         !performIncrementalMount(layoutState, localVisibleRect)) {
       final MountItem rootMountItem = mIndexToItemMap.get(ROOT_HOST_ID);
+      final MountableOutputColumns columns = layoutState.getMountableOutputColumns();
 
       for (int i = 0, size = layoutState.getMountableOutputCount(); i < size; i++) {
         final LayoutOutput layoutOutput = layoutState.getMountableOutputAt(i);
@@ -209,7 +235,7 @@ class MountState implements DataFlowTransitionManager.OnAnimationCompleteListene
         final boolean isMountable =
             !isIncrementalMountEnabled ||
                 isMountedHostWithChildContent(currentMountItem) ||
-                Rect.intersects(localVisibleRect, layoutOutput.getBounds()) ||
+                columns.intersects(i, localVisibleRect) ||
                 isAnimationLocked(i) ||
                 (currentMountItem != null && currentMountItem == rootMountItem);
 
@@ -263,7 +289,7 @@ class MountState implements DataFlowTransitionManager.OnAnimationCompleteListene
     mLastMountedComponentTreeId = componentTreeId;
     mLastMountedLayoutState = layoutState.acquireRef();
 
-    processVisibilityOutputs(layoutState, localVisibleRect);
+    processVisibilityOutputs(layoutState, localVisibleRect, canProcessVisibilityIncrementally);
 
     processTestOutputs(layoutState);
 
@@ -282,85 +308,198 @@ class MountState implements DataFlowTransitionManager.OnAnimationCompleteListene
     ComponentsSystrace.endSection();
   }
 
-  private void processVisibilityOutputs(LayoutState layoutState, Rect localVisibleRect) {
+  /**
+   * Dispatches the visibility events of the visibility outputs that entered or left the visible
+   * rect, or whose visible part changed.
+   *
+   * <p>If the visible rect only moved since the last call for the same LayoutState, only the
+   * outputs that intersected the previous visible rect, and the ones that crossed one of its
+   * edges, are looked at: the others were and still are outside of it, so their visibility can't
+   * have changed.
+   */
+  private void processVisibilityOutputs(
+      LayoutState layoutState,
+      Rect localVisibleRect,
+      boolean canProcessIncrementally) {
     if (localVisibleRect == null) {
+      mHasVisibilityWindow = false;
       return;
     }
 
-    for (int j = 0, size = layoutState.getVisibilityOutputCount(); j < size; j++) {
-      final VisibilityOutput visibilityOutput = layoutState.getVisibilityOutputAt(j);
+    if (canProcessIncrementally && mHasVisibilityWindow) {
+      processVisibilityOutputsIncrementally(layoutState, localVisibleRect);
+      return;
+    }
 
-      final EventHandler<VisibleEvent> visibleHandler = visibilityOutput.getVisibleEventHandler();
-      final EventHandler<FocusedVisibleEvent> focusedHandler =
-          visibilityOutput.getFocusedEventHandler();
-      final EventHandler<UnfocusedVisibleEvent> unfocusedHandler =
-          visibilityOutput.getUnfocusedEventHandler();
-      final EventHandler<FullImpressionVisibleEvent> fullImpressionHandler =
-          visibilityOutput.getFullImpressionEventHandler();
-      final EventHandler<InvisibleEvent> invisibleHandler =
-          visibilityOutput.getInvisibleEventHandler();
-      final long visibilityOutputId = visibilityOutput.getId();
-      final Rect visibilityOutputBounds = visibilityOutput.getBounds();
-
-      sTempRect.set(visibilityOutputBounds);
-      final boolean isCurrentlyVisible = sTempRect.intersect(localVisibleRect)
-          && isInVisibleRange(visibilityOutput, visibilityOutputBounds, localVisibleRect);
-
-      VisibilityItem visibilityItem = mVisibilityIdToItemMap.get(visibilityOutputId);
-
-      if (isCurrentlyVisible) {
-        // The component is visible now, but used to be outside the viewport.
-        if (visibilityItem == null) {
-          visibilityItem =
-              ComponentsPools.acquireVisibilityItem(invisibleHandler, unfocusedHandler);
-          mVisibilityIdToItemMap.put(visibilityOutputId, visibilityItem);
-
-          if (visibleHandler != null) {
-            EventDispatcherUtils.dispatchOnVisible(visibleHandler);
-          }
+    final OutputBoundsIndex bounds = layoutState.getVisibilityOutputBounds();
+    final int count = layoutState.getVisibilityOutputCount();
+    if (mIsVisibilityOutputIntersecting.length < count) {
+      mIsVisibilityOutputIntersecting = new boolean[count];
+      mIntersectingVisibilityOutputs = new int[count];
+    }
+    mIntersectingVisibilityOutputCount = 0;
+
+    for (int j = 0; j < count; j++) {
+      processVisibilityOutput(layoutState.getVisibilityOutputAt(j), localVisibleRect);
+
+      final boolean isIntersecting = bounds.intersects(j, localVisibleRect);
+      mIsVisibilityOutputIntersecting[j] = isIntersecting;
+      if (isIntersecting) {
+        mIntersectingVisibilityOutputs[mIntersectingVisibilityOutputCount++] = j;
+      }
+    }
+
+    mPreviousVisibilityTopsIndex = bounds.findFirstIndexByTopAtOrBelow(localVisibleRect.bottom);
+    mPreviousVisibilityBottomsIndex = bounds.findFirstIndexByBottomBelow(localVisibleRect.top);
+    mHasPreviousVisibilityHorizontalIndices = false;
+    mPreviousVisibilityLeft = localVisibleRect.left;
+    mPreviousVisibilityRight = localVisibleRect.right;
+    mHasVisibilityWindow = true;
+  }
+
+  private void processVisibilityOutputsIncrementally(
+      LayoutState layoutState,
+      Rect localVisibleRect) {
+    final OutputBoundsIndex bounds = layoutState.getVisibilityOutputBounds();
+
+    // Adds the outputs that crossed an edge of the visible rect and now intersect it. The ones
+    // that left it are already in the intersecting outputs.
+    int index = bounds.findFirstIndexByTopAtOrBelow(localVisibleRect.bottom);
+    for (int i = mPreviousVisibilityTopsIndex; i < index; i++) {
+      addIntersectingVisibilityOutput(bounds, bounds.getPositionByTop(i), localVisibleRect);
+    }
+    mPreviousVisibilityTopsIndex = index;
+
+    index = bounds.findFirstIndexByBottomBelow(localVisibleRect.top);
+    for (int i = index; i < mPreviousVisibilityBottomsIndex; i++) {
+      addIntersectingVisibilityOutput(bounds, bounds.getPositionByBottom(i), localVisibleRect);
+    }
+    mPreviousVisibilityBottomsIndex = index;
+
+    if (localVisibleRect.left != mPreviousVisibilityLeft
+        || localVisibleRect.right != mPreviousVisibilityRight) {
+      if (!mHasPreviousVisibilityHorizontalIndices) {
+        mPreviousVisibilityLeftsIndex =
+            bounds.findFirstIndexByLeftAtOrAfter(mPreviousVisibilityRight);
+        mPreviousVisibilityRightsIndex = bounds.findFirstIndexByRightAfter(mPreviousVisibilityLeft);
+        mHasPreviousVisibilityHorizontalIndices = true;
+      }
+
+      index = bounds.findFirstIndexByLeftAtOrAfter(localVisibleRect.right);
+      for (int i = mPreviousVisibilityLeftsIndex; i < index; i++) {
+        addIntersectingVisibilityOutput(bounds, bounds.getPositionByLeft(i), localVisibleRect);
+      }
+      mPreviousVisibilityLeftsIndex = index;
+
+      index = bounds.findFirstIndexByRightAfter(localVisibleRect.left);
+      for (int i = index; i < mPreviousVisibilityRightsIndex; i++) {
+        addIntersectingVisibilityOutput(bounds, bounds.getPositionByRight(i), localVisibleRect);
+      }
+      mPreviousVisibilityRightsIndex = index;
+
+      mPreviousVisibilityLeft = localVisibleRect.left;
+      mPreviousVisibilityRight = localVisibleRect.right;
+    }
+
+    // Dispatches the events in the same order as a full pass would.
+    Arrays.sort(mIntersectingVisibilityOutputs, 0, mIntersectingVisibilityOutputCount);
+
+    int intersectingCount = 0;
+    for (int i = 0; i < mIntersectingVisibilityOutputCount; i++) {
+      final int position = mIntersectingVisibilityOutputs[i];
+      processVisibilityOutput(layoutState.getVisibilityOutputAt(position), localVisibleRect);
+
+      if (bounds.intersects(position, localVisibleRect)) {
+        mIntersectingVisibilityOutputs[intersectingCount++] = position;
+      } else {
+        mIsVisibilityOutputIntersecting[position] = false;
+      }
+    }
+    mIntersectingVisibilityOutputCount = intersectingCount;
+  }
+
+  private void addIntersectingVisibilityOutput(
+      OutputBoundsIndex bounds,
+      int position,
+      Rect localVisibleRect) {
+    if (!mIsVisibilityOutputIntersecting[position]
+        && bounds.intersects(position, localVisibleRect)) {
+      mIsVisibilityOutputIntersecting[position] = true;
+      mIntersectingVisibilityOutputs[mIntersectingVisibilityOutputCount++] = position;
+    }
+  }
+
+  private void processVisibilityOutput(VisibilityOutput visibilityOutput, Rect localVisibleRect) {
+    final EventHandler<VisibleEvent> visibleHandler = visibilityOutput.getVisibleEventHandler();
+    final EventHandler<FocusedVisibleEvent> focusedHandler =
+        visibilityOutput.getFocusedEventHandler();
+    final EventHandler<UnfocusedVisibleEvent> unfocusedHandler =
+        visibilityOutput.getUnfocusedEventHandler();
+    final EventHandler<FullImpressionVisibleEvent> fullImpressionHandler =
+        visibilityOutput.getFullImpressionEventHandler();
+    final EventHandler<InvisibleEvent> invisibleHandler =
+        visibilityOutput.getInvisibleEventHandler();
+    final long visibilityOutputId = visibilityOutput.getId();
+    final Rect visibilityOutputBounds = visibilityOutput.getBounds();
+
+    sTempRect.set(visibilityOutputBounds);
+    final boolean isCurrentlyVisible = sTempRect.intersect(localVisibleRect)
+        && isInVisibleRange(visibilityOutput, visibilityOutputBounds, localVisibleRect);
+
+    VisibilityItem visibilityItem = mVisibilityIdToItemMap.get(visibilityOutputId);
+
+    if (isCurrentlyVisible) {
+      // The component is visible now, but used to be outside the viewport.
+      if (visibilityItem == null) {
+        visibilityItem =
+            ComponentsPools.acquireVisibilityItem(invisibleHandler, unfocusedHandler);
+        mVisibilityIdToItemMap.put(visibilityOutputId, visibilityItem);
+
+        if (visibleHandler != null) {
+          dispatchVisibilityEvent(visibleHandler, VisibilityEventBatch.VISIBLE);
         }
+      }
 
-        // Check if the component has entered or exited the focused range.
-        if (focusedHandler != null || unfocusedHandler != null) {
-          if (isInFocusedRange(visibilityOutputBounds, sTempRect)) {
-            if (!visibilityItem.isInFocusedRange()) {
-              visibilityItem.setFocusedRange(true);
-              if (focusedHandler != null) {
-                EventDispatcherUtils.dispatchOnFocused(focusedHandler);
-              }
-            }
-          } else {
-            if (visibilityItem.isInFocusedRange()) {
-              visibilityItem.setFocusedRange(false);
-              if (unfocusedHandler != null) {
-                EventDispatcherUtils.dispatchOnUnfocused(unfocusedHandler);
-              }
+      // Check if the component has entered or exited the focused range.
+      if (focusedHandler != null || unfocusedHandler != null) {
+        if (isInFocusedRange(visibilityOutputBounds, sTempRect)) {
+          if (!visibilityItem.isInFocusedRange()) {
+            visibilityItem.setFocusedRange(true);
+            if (focusedHandler != null) {
+              dispatchVisibilityEvent(focusedHandler, VisibilityEventBatch.FOCUSED);
             }
           }
-        }
-        // If the component has not entered the full impression range yet, make sure to update the
-        // information about the visible edges.
-        if (fullImpressionHandler != null && !visibilityItem.isInFullImpressionRange()) {
-          visibilityItem.setVisibleEdges(visibilityOutputBounds, sTempRect);
-
-          if (visibilityItem.isInFullImpressionRange()) {
-            EventDispatcherUtils.dispatchOnFullImpression(fullImpressionHandler);
+        } else {
+          if (visibilityItem.isInFocusedRange()) {
+            visibilityItem.setFocusedRange(false);
+            if (unfocusedHandler != null) {
+              dispatchVisibilityEvent(unfocusedHandler, VisibilityEventBatch.UNFOCUSED);
+            }
           }
         }
-      } else if (visibilityItem != null) {
-        // The component is invisible now, but used to be visible.
-        if (invisibleHandler != null) {
-          EventDispatcherUtils.dispatchOnInvisible(invisibleHandler);
-        }
+      }
+      // If the component has not entered the full impression range yet, make sure to update the
+      // information about the visible edges.
+      if (fullImpressionHandler != null && !visibilityItem.isInFullImpressionRange()) {
+        visibilityItem.setVisibleEdges(visibilityOutputBounds, sTempRect);
 
-        if (unfocusedHandler != null) {
-          visibilityItem.setFocusedRange(false);
-          EventDispatcherUtils.dispatchOnUnfocused(unfocusedHandler);
+        if (visibilityItem.isInFullImpressionRange()) {
+          dispatchVisibilityEvent(fullImpressionHandler, VisibilityEventBatch.FULL_IMPRESSION);
         }
+      }
+    } else if (visibilityItem != null) {
+      // The component is invisible now, but used to be visible.
+      if (invisibleHandler != null) {
+        dispatchVisibilityEvent(invisibleHandler, VisibilityEventBatch.INVISIBLE);
+      }
 
-        mVisibilityIdToItemMap.remove(visibilityOutputId);
-        ComponentsPools.release(visibilityItem);
+      if (unfocusedHandler != null) {
+        visibilityItem.setFocusedRange(false);
+        dispatchVisibilityEvent(unfocusedHandler, VisibilityEventBatch.UNFOCUSED);
       }
+
+      mVisibilityIdToItemMap.remove(visibilityOutputId);
+      ComponentsPools.release(visibilityItem);
     }
   }
 
@@ -418,28 +557,15 @@ class MountState implements DataFlowTransitionManager.OnAnimationCompleteListene
       return;
     }
 
-    final ArrayList<LayoutOutput> layoutOutputTops = layoutState.getMountableOutputTops();
-    final ArrayList<LayoutOutput> layoutOutputBottoms = layoutState.getMountableOutputBottoms();
-    final int mountableOutputCount = layoutState.getMountableOutputCount();
-
-    mPreviousTopsIndex = layoutState.getMountableOutputCount();
-    for (int i = 0; i < mountableOutputCount; i++) {
-      if (localVisibleRect.bottom <= layoutOutputTops.get(i).getBounds().top) {
-        mPreviousTopsIndex = i;
-        break;
-      }
-    }
-
-    mPreviousBottomsIndex = layoutState.getMountableOutputCount();
-    for (int i = 0; i < mountableOutputCount; i++) {
-      if (localVisibleRect.top < layoutOutputBottoms.get(i).getBounds().bottom) {
-        mPreviousBottomsIndex = i;
-        break;
-      }
-    }
+    final MountableOutputColumns columns = layoutState.getMountableOutputColumns();
+    mPreviousTopsIndex = columns.findFirstIndexByTopAtOrBelow(localVisibleRect.bottom);
+    mPreviousBottomsIndex = columns.findFirstIndexByBottomBelow(localVisibleRect.top);
+    mHasPreviousHorizontalIndices = false;
   }
 
   private void clearVisibilityItems() {
+    mHasVisibilityWindow = false;
+
     for (int i = mVisibilityIdToItemMap.size() - 1; i >= 0; i--) {
       final VisibilityItem visibilityItem = mVisibilityIdToItemMap.valueAt(i);
       final EventHandler<InvisibleEvent> invisibleHandler = visibilityItem.getInvisibleHandler();
@@ -447,12 +573,12 @@ class MountState implements DataFlowTransitionManager.OnAnimationCompleteListene
           visibilityItem.getUnfocusedHandler();
 
       if (invisibleHandler != null) {
-        EventDispatcherUtils.dispatchOnInvisible(invisibleHandler);
+        dispatchVisibilityEvent(invisibleHandler, VisibilityEventBatch.INVISIBLE);
       }
 
       if (unfocusedHandler != null && visibilityItem.isInFocusedRange()) {
         visibilityItem.setFocusedRange(false);
-        EventDispatcherUtils.dispatchOnUnfocused(unfocusedHandler);
+        dispatchVisibilityEvent(unfocusedHandler, VisibilityEventBatch.UNFOCUSED);
       }
 
       mVisibilityIdToItemMap.removeAt(i);
@@ -460,6 +586,48 @@ class MountState implements DataFlowTransitionManager.OnAnimationCompleteListene
     }
   }
 
+  private void dispatchVisibilityEvent(
+      EventHandler<?> handler,
+      @VisibilityEventBatch.EventType int type) {
+    final VisibilityEventBatch batch = getVisibilityEventBatch();
+    if (batch != null) {
+      batch.add(handler, type);
+    } else {
+      VisibilityEventBatch.dispatch(handler, type);
+    }
+  }
+
+  /**
+   * @return the batch the visibility events should be added to, or null if they should be
+   * dispatched right away.
+   */
+  private VisibilityEventBatch getVisibilityEventBatch() {
+    final ComponentTree componentTree = mLithoView.getComponentTree();
+    if (componentTree == null) {
+      // The tree was just removed from the view: the events it leaves behind must be delivered
+      // after the ones that are still pending.
+      return mVisibilityEventBatch;
+    }
+
+    if (!componentTree.isVisibilityEventBatchingEnabled()) {
+      if (mVisibilityEventBatch != null) {
+        mVisibilityEventBatch.flush();
+        mVisibilityEventBatch = null;
+      }
+      return null;
+    }
+
+    final Executor executor = componentTree.getVisibilityEventExecutor();
+    if (mVisibilityEventBatch == null || mVisibilityEventBatch.getExecutor() != executor) {
+      if (mVisibilityEventBatch != null) {
+        mVisibilityEventBatch.flush();
+      }
+      mVisibilityEventBatch = new VisibilityEventBatch(executor);
+    }
+
+    return mVisibilityEventBatch;
+  }
+
   private void registerHost(long id, ComponentHost host) {
     host.suppressInvalidations(true);
     mHostsByMarker.put(id, host);
@@ -768,13 +936,14 @@ class MountState implements DataFlowTransitionManager.OnAnimationCompleteListene
       mIndexToItemMap.put(ROOT_HOST_ID, mRootHostMountItem);
     }
 
+    final MountableOutputColumns columns = layoutState.getMountableOutputColumns();
     int outputCount = layoutState.getMountableOutputCount();
     if (mLayoutOutputsIds == null || outputCount != mLayoutOutputsIds.length) {
       mLayoutOutputsIds = new long[layoutState.getMountableOutputCount()];
     }
 
     for (int i = 0; i < outputCount; i++) {
-      mLayoutOutputsIds[i] = layoutState.getMountableOutputAt(i).getId();
+      mLayoutOutputsIds[i] = columns.getId(i);
     }
 
     if (logger != null) {
@@ -946,6 +1115,9 @@ class MountState implements DataFlowTransitionManager.OnAnimationCompleteListene
     Object content = acquireMountContent(component, host);
     if (content == null) {
       content = lifecycle.createMountContent(mContext);
+      if (!isHostSpec(component)) {
+        MountContentWarmup.recordMiss(lifecycle);
+      }
     }
 
     lifecycle.mount(
@@ -1988,23 +2160,20 @@ class MountState implements DataFlowTransitionManager.OnAnimationCompleteListene
   }
 
   private int findLastDescendantIndex(LayoutState layoutState, int index) {
-    final LayoutOutput host = layoutState.getMountableOutputAt(index);
-    final long hostId = host.getId();
+    final MountableOutputColumns columns = layoutState.getMountableOutputColumns();
+    final long hostId = columns.getId(index);
 
     for (int i = index + 1, size = layoutState.getMountableOutputCount(); i < size; i++) {
-      final LayoutOutput layoutOutput = layoutState.getMountableOutputAt(i);
-
       // Walk up the parents looking for the host's id: if we find it, it's a descendant. If we
       // reach the root, then it's not a descendant and we can stop.
-      long curentHostId = layoutOutput.getHostMarker();
+      long curentHostId = columns.getHostMarker(i);
       while (curentHostId != hostId) {
         if (curentHostId == ROOT_HOST_ID) {
           return i - 1;
         }
 
         final int parentIndex = layoutState.getLayoutOutputPositionForId(curentHostId);
-        final LayoutOutput parent = layoutState.getMountableOutputAt(parentIndex);
-        curentHostId = parent.getHostMarker();
+        curentHostId = columns.getHostMarker(parentIndex);
       }
     }
 
@@ -2041,7 +2210,8 @@ class MountState implements DataFlowTransitionManager.OnAnimationCompleteListene
     }
 
     // Update parents
-    long hostId = layoutState.getMountableOutputAt(index).getHostMarker();
+    final MountableOutputColumns columns = layoutState.getMountableOutputColumns();
+    long hostId = columns.getHostMarker(index);
     while (hostId != ROOT_HOST_ID) {
       int hostIndex = layoutState.getLayoutOutputPositionForId(hostId);
       if (increment) {
@@ -2051,7 +2221,7 @@ class MountState implements DataFlowTransitionManager.OnAnimationCompleteListene
           throw new RuntimeException("Decremented animation lock count below 0!");
         }
       }
-      hostId = layoutState.getMountableOutputAt(hostIndex).getHostMarker();
+      hostId = columns.getHostMarker(hostIndex);
     }
   }
 
@@ -2225,6 +2395,11 @@ class MountState implements DataFlowTransitionManager.OnAnimationCompleteListene
   }
 
   /**
+   * Each axis is swept on its own, looking only at the outputs with an edge between the previous
+   * and the new edge of the visible rect on that axis. An output that enters the visible rect on
+   * one axis is only mounted if it also intersects it on the other one, so that the mounted items
+   * are the same as after a full mount step.
+   *
    * @return true if this method did all the work that was necessary and there is no other
    * content that needs mounting/unmounting in this mount step. If false then a full mount step
    * should take place.
@@ -2234,23 +2409,16 @@ class MountState implements DataFlowTransitionManager.OnAnimationCompleteListene
       return false;
     }
 
-    if (localVisibleRect.left != mPreviousLocalVisibleRect.left ||
-        localVisibleRect.right != mPreviousLocalVisibleRect.right) {
-      return false;
-    }
-
-    final ArrayList<LayoutOutput> layoutOutputTops = layoutState.getMountableOutputTops();
-    final ArrayList<LayoutOutput> layoutOutputBottoms = layoutState.getMountableOutputBottoms();
-    final int count = layoutState.getMountableOutputCount();
+    final MountableOutputColumns columns = layoutState.getMountableOutputColumns();
+    final int count = columns.getCount();
 
     if (localVisibleRect.top > 0 || mPreviousLocalVisibleRect.top > 0) {
       // View is going on/off the top of the screen. Check the bottoms to see if there is anything
       // that has moved on/off the top of the screen.
       while (mPreviousBottomsIndex < count &&
           localVisibleRect.top >=
-              layoutOutputBottoms.get(mPreviousBottomsIndex).getBounds().bottom) {
-        final long id = layoutOutputBottoms.get(mPreviousBottomsIndex).getId();
-        final int layoutOutputIndex = layoutState.getLayoutOutputPositionForId(id);
+              columns.getBottom(columns.getPositionByBottom(mPreviousBottomsIndex))) {
+        final int layoutOutputIndex = columns.getPositionByBottom(mPreviousBottomsIndex);
         if (!isAnimationLocked(layoutOutputIndex)) {
           unmountItem(mContext, layoutOutputIndex, mHostsByMarker);
         }
@@ -2259,15 +2427,14 @@ class MountState implements DataFlowTransitionManager.OnAnimationCompleteListene
 
       while (mPreviousBottomsIndex > 0 &&
           localVisibleRect.top <
-              layoutOutputBottoms.get(mPreviousBottomsIndex - 1).getBounds().bottom) {
+              columns.getBottom(columns.getPositionByBottom(mPreviousBottomsIndex - 1))) {
         mPreviousBottomsIndex--;
-        final LayoutOutput layoutOutput = layoutOutputBottoms.get(mPreviousBottomsIndex);
-        final int layoutOutputIndex =
-            layoutState.getLayoutOutputPositionForId(layoutOutput.getId());
-        if (getItemAt(layoutOutputIndex) == null) {
+        final int layoutOutputIndex = columns.getPositionByBottom(mPreviousBottomsIndex);
+        if (getItemAt(layoutOutputIndex) == null &&
+            columns.intersectsHorizontally(layoutOutputIndex, localVisibleRect)) {
           mountLayoutOutput(
-              layoutState.getLayoutOutputPositionForId(layoutOutput.getId()),
-              layoutOutput,
+              layoutOutputIndex,
+              layoutState.getMountableOutputAt(layoutOutputIndex),
               layoutState);
         }
       }
@@ -2278,14 +2445,13 @@ class MountState implements DataFlowTransitionManager.OnAnimationCompleteListene
       // View is going on/off the bottom of the screen. Check the tops to see if there is anything
       // that has changed.
       while (mPreviousTopsIndex < count &&
-          localVisibleRect.bottom > layoutOutputTops.get(mPreviousTopsIndex).getBounds().top) {
-        final LayoutOutput layoutOutput = layoutOutputTops.get(mPreviousTopsIndex);
-        final int layoutOutputIndex =
-            layoutState.getLayoutOutputPositionForId(layoutOutput.getId());
-        if (getItemAt(layoutOutputIndex) == null) {
+          localVisibleRect.bottom > columns.getTop(columns.getPositionByTop(mPreviousTopsIndex))) {
+        final int layoutOutputIndex = columns.getPositionByTop(mPreviousTopsIndex);
+        if (getItemAt(layoutOutputIndex) == null &&
+            columns.intersectsHorizontally(layoutOutputIndex, localVisibleRect)) {
           mountLayoutOutput(
-              layoutState.getLayoutOutputPositionForId(layoutOutput.getId()),
-              layoutOutput,
+              layoutOutputIndex,
+              layoutState.getMountableOutputAt(layoutOutputIndex),
               layoutState);
         }
         mPreviousTopsIndex++;
@@ -2293,10 +2459,77 @@ class MountState implements DataFlowTransitionManager.OnAnimationCompleteListene
 
       while (mPreviousTopsIndex > 0 &&
           localVisibleRect.bottom <=
-              layoutOutputTops.get(mPreviousTopsIndex - 1).getBounds().top) {
+              columns.getTop(columns.getPositionByTop(mPreviousTopsIndex - 1))) {
         mPreviousTopsIndex--;
-        final long id = layoutOutputTops.get(mPreviousTopsIndex).getId();
-        final int layoutOutputIndex = layoutState.getLayoutOutputPositionForId(id);
+        final int layoutOutputIndex = columns.getPositionByTop(mPreviousTopsIndex);
+        if (!isAnimationLocked(layoutOutputIndex)) {
+          unmountItem(mContext, layoutOutputIndex, mHostsByMarker);
+        }
+      }
+    }
+
+    final boolean movedHorizontally = localVisibleRect.left != mPreviousLocalVisibleRect.left
+        || localVisibleRect.right != mPreviousLocalVisibleRect.right;
+    if (movedHorizontally && !mHasPreviousHorizontalIndices) {
+      mPreviousLeftsIndex = columns.findFirstIndexByLeftAtOrAfter(mPreviousLocalVisibleRect.right);
+      mPreviousRightsIndex = columns.findFirstIndexByRightAfter(mPreviousLocalVisibleRect.left);
+      mHasPreviousHorizontalIndices = true;
+    }
+
+    // The horizontal sweeps can't find anything to do unless the visible rect moved horizontally.
+    if (movedHorizontally
+        && (localVisibleRect.left > 0 || mPreviousLocalVisibleRect.left > 0)) {
+      // View is going on/off the left of the screen. Check the rights to see if there is anything
+      // that has moved on/off the left of the screen.
+      while (mPreviousRightsIndex < count &&
+          localVisibleRect.left >=
+              columns.getRight(columns.getPositionByRight(mPreviousRightsIndex))) {
+        final int layoutOutputIndex = columns.getPositionByRight(mPreviousRightsIndex);
+        if (!isAnimationLocked(layoutOutputIndex)) {
+          unmountItem(mContext, layoutOutputIndex, mHostsByMarker);
+        }
+        mPreviousRightsIndex++;
+      }
+
+      while (mPreviousRightsIndex > 0 &&
+          localVisibleRect.left <
+              columns.getRight(columns.getPositionByRight(mPreviousRightsIndex - 1))) {
+        mPreviousRightsIndex--;
+        final int layoutOutputIndex = columns.getPositionByRight(mPreviousRightsIndex);
+        if (getItemAt(layoutOutputIndex) == null &&
+            columns.intersectsVertically(layoutOutputIndex, localVisibleRect)) {
+          mountLayoutOutput(
+              layoutOutputIndex,
+              layoutState.getMountableOutputAt(layoutOutputIndex),
+              layoutState);
+        }
+      }
+    }
+
+    final int width = mLithoView.getWidth();
+    if (movedHorizontally
+        && (localVisibleRect.right < width || mPreviousLocalVisibleRect.right < width)) {
+      // View is going on/off the right of the screen. Check the lefts to see if there is anything
+      // that has changed.
+      while (mPreviousLeftsIndex < count &&
+          localVisibleRect.right >
+              columns.getLeft(columns.getPositionByLeft(mPreviousLeftsIndex))) {
+        final int layoutOutputIndex = columns.getPositionByLeft(mPreviousLeftsIndex);
+        if (getItemAt(layoutOutputIndex) == null &&
+            columns.intersectsVertically(layoutOutputIndex, localVisibleRect)) {
+          mountLayoutOutput(
+              layoutOutputIndex,
+              layoutState.getMountableOutputAt(layoutOutputIndex),
+              layoutState);
+        }
+        mPreviousLeftsIndex++;
+      }
+
+      while (mPreviousLeftsIndex > 0 &&
+          localVisibleRect.right <=
+              columns.getLeft(columns.getPositionByLeft(mPreviousLeftsIndex - 1))) {
+        mPreviousLeftsIndex--;
+        final int layoutOutputIndex = columns.getPositionByLeft(mPreviousLeftsIndex);
         if (!isAnimationLocked(layoutOutputIndex)) {
           unmountItem(mContext, layoutOutputIndex, mHostsByMarker);
         }
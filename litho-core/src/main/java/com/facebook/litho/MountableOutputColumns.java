@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2017-present, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+
+package com.facebook.litho;
+
+import java.util.List;
+
+import static com.facebook.litho.Component.isHostSpec;
+
+/**
+ * The data of the mountable {@link LayoutOutput}s of a {@link LayoutState} that {@link MountState}
+ * reads for every output on each mount pass: their bounds, indexed by edge, plus their ids and
+ * host markers. Incremental mount can then walk the outputs sorted by any of their four edges
+ * without dereferencing a LayoutOutput and its bounds for each of them.
+ */
+final class MountableOutputColumns extends OutputBoundsIndex {
+
+  private long[] mIds = EMPTY_LONG_ARRAY;
+  private long[] mHostMarkers = EMPTY_LONG_ARRAY;
+
+  // The outputs of the LayoutState, only read to tell the hosts apart while sorting.
+  private List<LayoutOutput> mOutputs;
+
+  /**
+   * Fills the columns with the data of {@code outputs}, which must not change afterwards.
+   */
+  void set(List<LayoutOutput> outputs) {
+    mOutputs = outputs;
+    final int count = outputs.size();
+    setCount(count);
+    if (mIds.length < count) {
+      mIds = new long[count];
+      mHostMarkers = new long[count];
+    }
+
+    for (int i = 0; i < count; i++) {
+      final LayoutOutput output = outputs.get(i);
+      setBounds(i, output.getBounds());
+      mIds[i] = output.getId();
+      mHostMarkers[i] = output.getHostMarker();
+    }
+
+    sortEdges();
+  }
+
+  @Override
+  boolean isHost(int position) {
+    return isHostSpec(mOutputs.get(position).getComponent());
+  }
+
+  @Override
+  void clear() {
+    super.clear();
+    mOutputs = null;
+  }
+
+  long getId(int position) {
+    return mIds[position];
+  }
+
+  long getHostMarker(int position) {
+    return mHostMarkers[position];
+  }
+}
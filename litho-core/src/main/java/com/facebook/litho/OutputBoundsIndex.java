@@ -0,0 +1,277 @@
+/*
+ * Copyright (c) 2017-present, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+
+package com.facebook.litho;
+
+import java.util.Arrays;
+
+import android.graphics.Rect;
+
+/**
+ * The bounds of a list of outputs of a {@link LayoutState}, stored in parallel primitive arrays
+ * indexed by the position of the output, together with the positions of the outputs sorted by
+ * each of their four edges. {@link MountState} uses them to find the outputs that cross an edge
+ * of the visible rect when it moves, without going through all the outputs.
+ *
+ * <p>Most visible rects only ever move vertically, so the outputs are only sorted by left and
+ * right the first time they are looked up in that order.
+ *
+ * <p>The outputs sorted by top or left have hosts first among the outputs with the same
+ * coordinate, and the ones sorted by bottom or right have them last, so that hosts are mounted
+ * before their children if possible.
+ */
+class OutputBoundsIndex {
+
+  private static final int[] EMPTY_INT_ARRAY = new int[0];
+  static final long[] EMPTY_LONG_ARRAY = new long[0];
+
+  private static final long POSITION_MASK = 0x7FFFFFFFL;
+  private static final int TIE_BREAK_SHIFT = 31;
+  private static final int COORDINATE_SHIFT = 32;
+
+  // Used to sort the positions without boxing them. It is only needed while sorting, so it is
+  // kept once per thread that calculates layouts rather than once per index.
+  private static final ThreadLocal<long[]> sSortKeys = new ThreadLocal<>();
+
+  private int mCount;
+
+  private int[] mLefts = EMPTY_INT_ARRAY;
+  private int[] mTops = EMPTY_INT_ARRAY;
+  private int[] mRights = EMPTY_INT_ARRAY;
+  private int[] mBottoms = EMPTY_INT_ARRAY;
+  private int[] mPositionsByTop = EMPTY_INT_ARRAY;
+  private int[] mPositionsByBottom = EMPTY_INT_ARRAY;
+  private int[] mPositionsByLeft = EMPTY_INT_ARRAY;
+  private int[] mPositionsByRight = EMPTY_INT_ARRAY;
+  private boolean mIsSortedHorizontally;
+
+  /**
+   * Starts filling the index with {@code count} outputs, whose bounds are then set with
+   * {@link #setBounds(int, Rect)} before calling {@link #sortEdges()}.
+   */
+  void setCount(int count) {
+    if (mTops.length < count) {
+      mLefts = new int[count];
+      mTops = new int[count];
+      mRights = new int[count];
+      mBottoms = new int[count];
+      mPositionsByTop = new int[count];
+      mPositionsByBottom = new int[count];
+    }
+
+    mCount = count;
+    mIsSortedHorizontally = false;
+  }
+
+  void setBounds(int position, Rect bounds) {
+    mLefts[position] = bounds.left;
+    mTops[position] = bounds.top;
+    mRights[position] = bounds.right;
+    mBottoms[position] = bounds.bottom;
+  }
+
+  /**
+   * @return whether the output at {@code position} is a host, which is only read while sorting.
+   */
+  boolean isHost(int position) {
+    return false;
+  }
+
+  /**
+   * Sorts the positions of the outputs by their top and bottom, once all their bounds are set.
+   */
+  void sortEdges() {
+    sortPositions(mTops, false, mPositionsByTop);
+    sortPositions(mBottoms, true, mPositionsByBottom);
+  }
+
+  /**
+   * Sorts the positions of the outputs by their left and right, unless they already are.
+   */
+  private void maybeSortHorizontalEdges() {
+    if (mIsSortedHorizontally) {
+      return;
+    }
+
+    if (mPositionsByLeft.length < mCount) {
+      mPositionsByLeft = new int[mTops.length];
+      mPositionsByRight = new int[mTops.length];
+    }
+
+    sortPositions(mLefts, false, mPositionsByLeft);
+    sortPositions(mRights, true, mPositionsByRight);
+    mIsSortedHorizontally = true;
+  }
+
+  void clear() {
+    mCount = 0;
+    mIsSortedHorizontally = false;
+  }
+
+  int getCount() {
+    return mCount;
+  }
+
+  int getTop(int position) {
+    return mTops[position];
+  }
+
+  int getBottom(int position) {
+    return mBottoms[position];
+  }
+
+  int getLeft(int position) {
+    return mLefts[position];
+  }
+
+  int getRight(int position) {
+    return mRights[position];
+  }
+
+  /**
+   * @return whether the bounds of the output at {@code position} intersect {@code rect}, with the
+   * same semantics as {@link Rect#intersects(Rect, Rect)}.
+   */
+  boolean intersects(int position, Rect rect) {
+    return intersectsHorizontally(position, rect) && intersectsVertically(position, rect);
+  }
+
+  /**
+   * @return whether the horizontal span of the output at {@code position} intersects the one of
+   * {@code rect}.
+   */
+  boolean intersectsHorizontally(int position, Rect rect) {
+    return mLefts[position] < rect.right && rect.left < mRights[position];
+  }
+
+  /**
+   * @return whether the vertical span of the output at {@code position} intersects the one of
+   * {@code rect}.
+   */
+  boolean intersectsVertically(int position, Rect rect) {
+    return mTops[position] < rect.bottom && rect.top < mBottoms[position];
+  }
+
+  /**
+   * @return the position of the output that comes at {@code index} when sorted by top.
+   */
+  int getPositionByTop(int index) {
+    return mPositionsByTop[index];
+  }
+
+  /**
+   * @return the position of the output that comes at {@code index} when sorted by bottom.
+   */
+  int getPositionByBottom(int index) {
+    return mPositionsByBottom[index];
+  }
+
+  /**
+   * @return the position of the output that comes at {@code index} when sorted by left.
+   */
+  int getPositionByLeft(int index) {
+    maybeSortHorizontalEdges();
+    return mPositionsByLeft[index];
+  }
+
+  /**
+   * @return the position of the output that comes at {@code index} when sorted by right.
+   */
+  int getPositionByRight(int index) {
+    maybeSortHorizontalEdges();
+    return mPositionsByRight[index];
+  }
+
+  /**
+   * @return the index, in top order, of the first output whose top is at or below {@code y}, or
+   * the count of outputs if there is none.
+   */
+  int findFirstIndexByTopAtOrBelow(int y) {
+    return findFirstIndex(mTops, mPositionsByTop, y, true);
+  }
+
+  /**
+   * @return the index, in bottom order, of the first output whose bottom is below {@code y}, or
+   * the count of outputs if there is none.
+   */
+  int findFirstIndexByBottomBelow(int y) {
+    return findFirstIndex(mBottoms, mPositionsByBottom, y, false);
+  }
+
+  /**
+   * @return the index, in left order, of the first output whose left is at or to the right of
+   * {@code x}, or the count of outputs if there is none.
+   */
+  int findFirstIndexByLeftAtOrAfter(int x) {
+    maybeSortHorizontalEdges();
+    return findFirstIndex(mLefts, mPositionsByLeft, x, true);
+  }
+
+  /**
+   * @return the index, in right order, of the first output whose right is to the right of
+   * {@code x}, or the count of outputs if there is none.
+   */
+  int findFirstIndexByRightAfter(int x) {
+    maybeSortHorizontalEdges();
+    return findFirstIndex(mRights, mPositionsByRight, x, false);
+  }
+
+  private int findFirstIndex(
+      int[] coordinates,
+      int[] sortedPositions,
+      int value,
+      boolean inclusive) {
+    int low = 0;
+    int high = mCount;
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      final int coordinate = coordinates[sortedPositions[mid]];
+      if (coordinate < value || (!inclusive && coordinate == value)) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+
+    return low;
+  }
+
+  /**
+   * Packs the coordinate, a tie breaker and the position of an output into a long whose natural
+   * order is the order of the outputs. The position is last so that equal outputs keep the order
+   * in which they were added.
+   */
+  private static long sortKey(int coordinate, boolean sortsLastOnTie, int position) {
+    return ((long) coordinate << COORDINATE_SHIFT)
+        | ((sortsLastOnTie ? 1L : 0L) << TIE_BREAK_SHIFT)
+        | position;
+  }
+
+  /**
+   * Sorts the positions of the outputs by {@code coordinates}, with hosts last among equal
+   * coordinates if {@code hostsLast}, or first otherwise.
+   */
+  private void sortPositions(int[] coordinates, boolean hostsLast, int[] outPositions) {
+    final int count = mCount;
+    long[] sortKeys = sSortKeys.get();
+    if (sortKeys == null || sortKeys.length < count) {
+      sortKeys = new long[count];
+      sSortKeys.set(sortKeys);
+    }
+
+    for (int i = 0; i < count; i++) {
+      sortKeys[i] = sortKey(coordinates[i], isHost(i) == hostsLast, i);
+    }
+
+    Arrays.sort(sortKeys, 0, count);
+    for (int i = 0; i < count; i++) {
+      outPositions[i] = (int) (sortKeys[i] & POSITION_MASK);
+    }
+  }
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2017-present, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+
+package com.facebook.litho;
+
+import javax.annotation.concurrent.GuardedBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import android.os.Process;
+
+import static com.facebook.litho.ComponentContext.NULL_LAYOUT;
+import static com.facebook.litho.SizeSpec.EXACTLY;
+
+/**
+ * Resolves the nested trees of sibling {@link InternalNode}s in parallel before the tree they
+ * belong to is measured by Yoga.
+ *
+ * <p>Only nested tree holders whose laid out size only depends on their own style are resolved
+ * ahead of time (see {@link InternalNode#hasFixedLayoutSize()}). For those, the exact size specs
+ * the nested tree is finally resolved with while collecting results are known upfront. The
+ * nested tree is stored on the holder along with the specs it was resolved with, and
+ * {@link LayoutState#resolveNestedTree(InternalNode, int, int)} reuses it as long as it's called
+ * with compatible specs, or resolves it again otherwise.
+ *
+ * <p>Anything thrown while resolving a nested tree on a worker, including {@link Error}s, is
+ * rethrown on the calling thread.
+ *
+ * <p>The calling thread takes part in the work, so a fan out started from a worker thread (i.e. a
+ * nested tree containing other nested trees) cannot deadlock even if all workers are busy.
+ */
+final class ParallelNestedTreeResolver {
+
+  private static final int MAX_WORKER_COUNT =
+      Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+  private static final long KEEP_ALIVE_SECONDS = 30;
+
+  @GuardedBy("ParallelNestedTreeResolver.class")
+  private static ExecutorService sExecutor;
+
+  private ParallelNestedTreeResolver() {
+  }
+
+  /**
+   * @return whether the ComponentTree the given context belongs to has opted into parallel nested
+   * tree resolution.
+   */
+  static boolean isEnabled(ComponentContext c) {
+    final ComponentTree componentTree = c.getComponentTree();
+    return componentTree != null && componentTree.isParallelNestedTreeResolutionEnabled();
+  }
+
+  /**
+   * Resolves in parallel the nested trees of the fixed size nested tree holders found in the tree
+   * rooted at {@code root}. This doesn't descend into the holders themselves: deeper nested trees
+   * are fanned out when their own tree gets measured.
+   */
+  static void resolveFixedSizeNestedTrees(InternalNode root) {
+    final List<InternalNode> holders = new ArrayList<>();
+    collectFixedSizeNestedTreeHolders(root, holders);
+
+    final int size = holders.size();
+    if (size < 2) {
+      // Nothing to parallelize, the holder will be resolved during measure as usual.
+      return;
+    }
+
+    ComponentsSystrace.beginSection("resolveNestedTreesInParallel");
+    final Batch batch = new Batch(holders);
+    final ExecutorService executor = getExecutor();
+    for (int i = 0, workers = Math.min(size - 1, MAX_WORKER_COUNT); i < workers; i++) {
+      executor.execute(batch);
+    }
+
+    batch.run();
+    batch.await();
+    ComponentsSystrace.endSection();
+  }
+
+  private static void collectFixedSizeNestedTreeHolders(
+      InternalNode node,
+      List<InternalNode> holders) {
+    if (node == NULL_LAYOUT) {
+      return;
+    }
+
+    if (node.isNestedTreeHolder()) {
+      if (node.hasFixedLayoutSize()) {
+        holders.add(node);
+      }
+      return;
+    }
+
+    for (int i = 0, count = node.getChildCount(); i < count; i++) {
+      collectFixedSizeNestedTreeHolders(node.getChildAt(i), holders);
+    }
+  }
+
+  private static synchronized ExecutorService getExecutor() {
+    if (sExecutor == null) {
+      final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+          MAX_WORKER_COUNT,
+          MAX_WORKER_COUNT,
+          KEEP_ALIVE_SECONDS,
+          TimeUnit.SECONDS,
+          new LinkedBlockingQueue<Runnable>(),
+          new ResolverThreadFactory());
+      executor.allowCoreThreadTimeOut(true);
+      sExecutor = executor;
+    }
+
+    return sExecutor;
+  }
+
+  /**
+   * A set of holders shared between the calling thread and the workers. Every participant claims
+   * the next unresolved holder until none is left, so a worker that starts late just returns.
+   */
+  private static class Batch implements Runnable {
+    private final List<InternalNode> mHolders;
+    private final AtomicInteger mNextIndex = new AtomicInteger();
+    private final CountDownLatch mPendingCount;
+    private volatile Throwable mError;
+
+    Batch(List<InternalNode> holders) {
+      mHolders = holders;
+      mPendingCount = new CountDownLatch(holders.size());
+    }
+
+    @Override
+    public void run() {
+      final int size = mHolders.size();
+      int index;
+      while ((index = mNextIndex.getAndIncrement()) < size) {
+        final InternalNode holder = mHolders.get(index);
+        try {
+          LayoutState.resolveNestedTree(
+              holder,
+              SizeSpec.makeSizeSpec(holder.getFixedLayoutWidth(), EXACTLY),
+              SizeSpec.makeSizeSpec(holder.getFixedLayoutHeight(), EXACTLY));
+        } catch (Throwable t) {
+          // Don't let the worker die silently, the calling thread rethrows it.
+          mError = t;
+        } finally {
+          mPendingCount.countDown();
+        }
+      }
+    }
+
+    void await() {
+      boolean interrupted = false;
+      while (true) {
+        try {
+          mPendingCount.await();
+          break;
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+
+      final Throwable error = mError;
+      if (error instanceof RuntimeException) {
+        throw (RuntimeException) error;
+      } else if (error instanceof Error) {
+        throw (Error) error;
+      } else if (error != null) {
+        throw new RuntimeException(error);
+      }
+    }
+  }
+
+  private static class ResolverThreadFactory implements ThreadFactory {
+    private final AtomicInteger mCount = new AtomicInteger();
+
+    @Override
+    public Thread newThread(final Runnable runnable) {
+      return new Thread(
+          new Runnable() {
+            @Override
+            public void run() {
+              Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+              runnable.run();
+            }
+          },
+          "ComponentNestedTreeResolver-" + mCount.incrementAndGet());
+    }
+  }
+}
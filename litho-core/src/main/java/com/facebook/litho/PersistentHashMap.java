@@ -0,0 +1,525 @@
+/*
+ * Copyright (c) 2017-present, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+
+package com.facebook.litho;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An immutable hash map that shares its structure with the maps it was derived from, a hash array
+ * mapped trie. {@link #plus(Object, Object)} and {@link #minus(Object)} return a new map that only
+ * copies the O(log32(n)) nodes on the path to the changed entry, so a map can be handed to another
+ * thread, or kept as a snapshot, without copying it.
+ *
+ * <p>The {@link Map} methods are read only; iterating the map copies its entries, which
+ * {@link #forEachEntry(EntryVisitor)} visits in place instead. Keys can't be null.
+ */
+final class PersistentHashMap<K, V> extends AbstractMap<K, V> {
+
+  private static final int BITS_PER_LEVEL = 5;
+  private static final int LEVEL_MASK = (1 << BITS_PER_LEVEL) - 1;
+  private static final Object NOT_FOUND = new Object();
+
+  private static final PersistentHashMap EMPTY = new PersistentHashMap(null, 0);
+
+  /**
+   * Visits the entries of a map without copying them.
+   */
+  interface EntryVisitor<K, V> {
+
+    /**
+     * @return whether to go on with the entries that weren't visited yet.
+     */
+    boolean visit(K key, V value);
+  }
+
+  private final Node mRoot;
+  private final int mSize;
+
+  private PersistentHashMap(Node root, int size) {
+    mRoot = root;
+    mSize = size;
+  }
+
+  @SuppressWarnings("unchecked")
+  static <K, V> PersistentHashMap<K, V> empty() {
+    return EMPTY;
+  }
+
+  @Override
+  public int size() {
+    return mSize;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return mSize == 0;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public V get(Object key) {
+    final Object value = find(key);
+    return value == NOT_FOUND ? null : (V) value;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return find(key) != NOT_FOUND;
+  }
+
+  private Object find(Object key) {
+    if (mRoot == null || key == null) {
+      return NOT_FOUND;
+    }
+
+    return mRoot.find(key, hash(key), 0);
+  }
+
+  /**
+   * Visits the entries of this map, in no particular order, until the visitor returns false.
+   *
+   * @return whether all the entries were visited.
+   */
+  boolean forEachEntry(EntryVisitor<? super K, ? super V> visitor) {
+    return mRoot == null || mRoot.forEachEntry(visitor);
+  }
+
+  /**
+   * @return a map with the given entry in addition to, or instead of, the entry of this map with
+   * the same key.
+   */
+  PersistentHashMap<K, V> plus(K key, V value) {
+    if (key == null) {
+      throw new IllegalArgumentException("Null keys are not supported");
+    }
+
+    final boolean[] addedEntry = new boolean[1];
+    final Node root = (mRoot == null ? BitmapNode.EMPTY : mRoot)
+        .plus(key, hash(key), value, 0, addedEntry);
+
+    if (root == mRoot) {
+      return this;
+    }
+
+    return new PersistentHashMap<>(root, addedEntry[0] ? mSize + 1 : mSize);
+  }
+
+  /**
+   * @return a map without the entry of this map with the given key.
+   */
+  PersistentHashMap<K, V> minus(K key) {
+    if (mRoot == null || key == null) {
+      return this;
+    }
+
+    final Node root = mRoot.minus(key, hash(key), 0);
+    if (root == mRoot) {
+      return this;
+    }
+
+    if (root == null) {
+      return empty();
+    }
+
+    return new PersistentHashMap<>(root, mSize - 1);
+  }
+
+  /**
+   * @return a map with the entries of {@code updated} that were added or changed since
+   * {@code base}, which {@code updated} was derived from by only adding or changing entries, in
+   * addition to the entries of this map. Only the parts of the two tries that don't share their
+   * structure are compared, so the cost grows with the number of changes rather than with the
+   * size of the maps. Values are compared by identity.
+   */
+  @SuppressWarnings("unchecked")
+  PersistentHashMap<K, V> plusChanges(
+      PersistentHashMap<K, V> base,
+      PersistentHashMap<K, V> updated) {
+    if (base.mRoot == updated.mRoot) {
+      return this;
+    }
+
+    if (mRoot == base.mRoot) {
+      // Nothing changed here since base, all the changes are in the updated map.
+      return updated;
+    }
+
+    final List<Object> changes = new ArrayList<>();
+    collectChanges(base, base.mRoot, updated.mRoot, changes);
+
+    PersistentHashMap<K, V> result = this;
+    for (int i = 0, size = changes.size(); i < size; i += 2) {
+      result = result.plus((K) changes.get(i), (V) changes.get(i + 1));
+    }
+
+    return result;
+  }
+
+  private static void collectChanges(
+      PersistentHashMap base,
+      Node baseNode,
+      Node node,
+      List<Object> changes) {
+    if (baseNode == node || node == null) {
+      return;
+    }
+
+    if (!(baseNode instanceof BitmapNode) || !(node instanceof BitmapNode)) {
+      collectChangedEntries(base, node, changes);
+      return;
+    }
+
+    final BitmapNode baseBitmapNode = (BitmapNode) baseNode;
+    final BitmapNode bitmapNode = (BitmapNode) node;
+
+    for (int bit = 1, index = 0; bit != 0; bit <<= 1) {
+      if ((bitmapNode.mBitmap & bit) == 0) {
+        continue;
+      }
+
+      final Object key = bitmapNode.mArray[2 * index];
+      final Object value = bitmapNode.mArray[2 * index + 1];
+      index++;
+
+      if ((baseBitmapNode.mBitmap & bit) != 0) {
+        final int baseIndex = baseBitmapNode.index(bit);
+        final Object baseKey = baseBitmapNode.mArray[2 * baseIndex];
+        final Object baseValue = baseBitmapNode.mArray[2 * baseIndex + 1];
+
+        if (key == null && baseKey == null) {
+          collectChanges(base, (Node) baseValue, (Node) value, changes);
+          continue;
+        }
+
+        if (key != null && key.equals(baseKey) && value == baseValue) {
+          continue;
+        }
+      }
+
+      if (key == null) {
+        collectChangedEntries(base, (Node) value, changes);
+      } else if (base.find(key) != value) {
+        changes.add(key);
+        changes.add(value);
+      }
+    }
+  }
+
+  private static void collectChangedEntries(
+      final PersistentHashMap base,
+      Node node,
+      final List<Object> changes) {
+    node.forEachEntry(new EntryVisitor<Object, Object>() {
+      @Override
+      public boolean visit(Object key, Object value) {
+        if (base.find(key) != value) {
+          changes.add(key);
+          changes.add(value);
+        }
+        return true;
+      }
+    });
+  }
+
+  @Override
+  public Set<Entry<K, V>> entrySet() {
+    return new AbstractSet<Entry<K, V>>() {
+      @Override
+      public Iterator<Entry<K, V>> iterator() {
+        final List<Entry<K, V>> entrySet = new ArrayList<>(mSize);
+        forEachEntry(new EntryVisitor<K, V>() {
+          @Override
+          public boolean visit(K key, V value) {
+            entrySet.add(new SimpleImmutableEntry<>(key, value));
+            return true;
+          }
+        });
+
+        return entrySet.iterator();
+      }
+
+      @Override
+      public int size() {
+        return mSize;
+      }
+    };
+  }
+
+  private static int hash(Object key) {
+    final int hash = key.hashCode();
+    return hash ^ (hash >>> 16);
+  }
+
+  private static int bit(int hash, int shift) {
+    return 1 << ((hash >>> shift) & LEVEL_MASK);
+  }
+
+  private abstract static class Node {
+    abstract Object find(Object key, int hash, int shift);
+
+    abstract Node plus(Object key, int hash, Object value, int shift, boolean[] addedEntry);
+
+    /**
+     * @return the node without the given key, or null if that leaves it empty.
+     */
+    abstract Node minus(Object key, int hash, int shift);
+
+    /**
+     * Visits the entries under this node until the visitor returns false.
+     *
+     * @return whether all the entries were visited.
+     */
+    abstract boolean forEachEntry(EntryVisitor visitor);
+  }
+
+  /**
+   * Holds up to one entry, or one child node, per possible value of the next bits of the hashes.
+   * The array holds the key and value of every entry, or null and the child node.
+   */
+  private static final class BitmapNode extends Node {
+    private static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+
+    private final int mBitmap;
+    private final Object[] mArray;
+
+    private BitmapNode(int bitmap, Object[] array) {
+      mBitmap = bitmap;
+      mArray = array;
+    }
+
+    private int index(int bit) {
+      return Integer.bitCount(mBitmap & (bit - 1));
+    }
+
+    @Override
+    Object find(Object key, int hash, int shift) {
+      final int bit = bit(hash, shift);
+      if ((mBitmap & bit) == 0) {
+        return NOT_FOUND;
+      }
+
+      final int index = index(bit);
+      final Object entryKey = mArray[2 * index];
+      final Object value = mArray[2 * index + 1];
+
+      if (entryKey == null) {
+        return ((Node) value).find(key, hash, shift + BITS_PER_LEVEL);
+      }
+
+      return key.equals(entryKey) ? value : NOT_FOUND;
+    }
+
+    @Override
+    Node plus(Object key, int hash, Object value, int shift, boolean[] addedEntry) {
+      final int bit = bit(hash, shift);
+      final int index = index(bit);
+
+      if ((mBitmap & bit) == 0) {
+        final Object[] array = new Object[mArray.length + 2];
+        System.arraycopy(mArray, 0, array, 0, 2 * index);
+        array[2 * index] = key;
+        array[2 * index + 1] = value;
+        System.arraycopy(mArray, 2 * index, array, 2 * index + 2, mArray.length - 2 * index);
+        addedEntry[0] = true;
+        return new BitmapNode(mBitmap | bit, array);
+      }
+
+      final Object entryKey = mArray[2 * index];
+      final Object entryValue = mArray[2 * index + 1];
+
+      if (entryKey == null) {
+        final Node child = (Node) entryValue;
+        final Node newChild = child.plus(key, hash, value, shift + BITS_PER_LEVEL, addedEntry);
+        return newChild == child ? this : with(2 * index + 1, newChild);
+      }
+
+      if (key.equals(entryKey)) {
+        return value == entryValue ? this : with(2 * index + 1, value);
+      }
+
+      addedEntry[0] = true;
+      final Node child = createNode(
+          entryKey,
+          entryValue,
+          key,
+          hash,
+          value,
+          shift + BITS_PER_LEVEL);
+      final Object[] array = mArray.clone();
+      array[2 * index] = null;
+      array[2 * index + 1] = child;
+      return new BitmapNode(mBitmap, array);
+    }
+
+    @Override
+    Node minus(Object key, int hash, int shift) {
+      final int bit = bit(hash, shift);
+      if ((mBitmap & bit) == 0) {
+        return this;
+      }
+
+      final int index = index(bit);
+      final Object entryKey = mArray[2 * index];
+      final Object entryValue = mArray[2 * index + 1];
+
+      if (entryKey == null) {
+        final Node child = (Node) entryValue;
+        final Node newChild = child.minus(key, hash, shift + BITS_PER_LEVEL);
+        if (newChild == child) {
+          return this;
+        }
+        if (newChild != null) {
+          return with(2 * index + 1, newChild);
+        }
+      } else if (!key.equals(entryKey)) {
+        return this;
+      }
+
+      if (mBitmap == bit) {
+        return null;
+      }
+
+      final Object[] array = new Object[mArray.length - 2];
+      System.arraycopy(mArray, 0, array, 0, 2 * index);
+      System.arraycopy(mArray, 2 * index + 2, array, 2 * index, array.length - 2 * index);
+      return new BitmapNode(mBitmap & ~bit, array);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    boolean forEachEntry(EntryVisitor visitor) {
+      for (int i = 0; i < mArray.length; i += 2) {
+        final boolean visitedAll = mArray[i] == null
+            ? ((Node) mArray[i + 1]).forEachEntry(visitor)
+            : visitor.visit(mArray[i], mArray[i + 1]);
+        if (!visitedAll) {
+          return false;
+        }
+      }
+
+      return true;
+    }
+
+    private BitmapNode with(int arrayIndex, Object item) {
+      final Object[] array = mArray.clone();
+      array[arrayIndex] = item;
+      return new BitmapNode(mBitmap, array);
+    }
+
+    private static Node createNode(
+        Object key1,
+        Object value1,
+        Object key2,
+        int hash2,
+        Object value2,
+        int shift) {
+      final int hash1 = hash(key1);
+      if (hash1 == hash2) {
+        return new CollisionNode(hash1, new Object[] {key1, value1, key2, value2});
+      }
+
+      final boolean[] addedEntry = new boolean[1];
+      return EMPTY
+          .plus(key1, hash1, value1, shift, addedEntry)
+          .plus(key2, hash2, value2, shift, addedEntry);
+    }
+  }
+
+  /**
+   * Holds the entries whose keys have the same hash.
+   */
+  private static final class CollisionNode extends Node {
+    private final int mHash;
+    private final Object[] mArray;
+
+    private CollisionNode(int hash, Object[] array) {
+      mHash = hash;
+      mArray = array;
+    }
+
+    private int indexOf(Object key) {
+      for (int i = 0; i < mArray.length; i += 2) {
+        if (key.equals(mArray[i])) {
+          return i;
+        }
+      }
+
+      return -1;
+    }
+
+    @Override
+    Object find(Object key, int hash, int shift) {
+      final int index = hash == mHash ? indexOf(key) : -1;
+      return index < 0 ? NOT_FOUND : mArray[index + 1];
+    }
+
+    @Override
+    Node plus(Object key, int hash, Object value, int shift, boolean[] addedEntry) {
+      if (hash != mHash) {
+        // Nest this node in a bitmap node that can tell the two hashes apart.
+        return new BitmapNode(bit(mHash, shift), new Object[] {null, this})
+            .plus(key, hash, value, shift, addedEntry);
+      }
+
+      final int index = indexOf(key);
+      if (index >= 0) {
+        if (mArray[index + 1] == value) {
+          return this;
+        }
+
+        final Object[] array = mArray.clone();
+        array[index + 1] = value;
+        return new CollisionNode(mHash, array);
+      }
+
+      final Object[] array = new Object[mArray.length + 2];
+      System.arraycopy(mArray, 0, array, 0, mArray.length);
+      array[mArray.length] = key;
+      array[mArray.length + 1] = value;
+      addedEntry[0] = true;
+      return new CollisionNode(mHash, array);
+    }
+
+    @Override
+    Node minus(Object key, int hash, int shift) {
+      final int index = hash == mHash ? indexOf(key) : -1;
+      if (index < 0) {
+        return this;
+      }
+
+      if (mArray.length == 2) {
+        return null;
+      }
+
+      final Object[] array = new Object[mArray.length - 2];
+      System.arraycopy(mArray, 0, array, 0, index);
+      System.arraycopy(mArray, index + 2, array, index, array.length - index);
+      return new CollisionNode(mHash, array);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    boolean forEachEntry(EntryVisitor visitor) {
+      for (int i = 0; i < mArray.length; i += 2) {
+        if (!visitor.visit(mArray[i], mArray[i + 1])) {
+          return false;
+        }
+      }
+
+      return true;
+    }
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2017-present, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+
+package com.facebook.litho;
+
+import javax.annotation.concurrent.GuardedBy;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * An immutable list to which {@link #plus(Object)} appends an item in amortized constant time.
+ *
+ * <p>The lists derived from one another by appending items share a growing array, of which every
+ * list only reads the items it was created with. Appending to a list that another list was already
+ * derived from copies its items into a new array, so it doesn't change the items of that list.
+ *
+ * <p>The {@link java.util.List} methods are read only.
+ */
+final class PersistentList<E> extends AbstractList<E> implements RandomAccess {
+
+  private static final int INITIAL_CAPACITY = 4;
+
+  private static final PersistentList EMPTY = new PersistentList(null, new Object[0], 0);
+
+  // Null for the empty list, which has no array to append to.
+  private final Buffer mBuffer;
+  private final Object[] mArray;
+  private final int mSize;
+
+  private PersistentList(Buffer buffer, Object[] array, int size) {
+    mBuffer = buffer;
+    mArray = array;
+    mSize = size;
+  }
+
+  @SuppressWarnings("unchecked")
+  static <E> PersistentList<E> empty() {
+    return EMPTY;
+  }
+
+  @Override
+  public int size() {
+    return mSize;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public E get(int index) {
+    if (index < 0 || index >= mSize) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", size: " + mSize);
+    }
+
+    return (E) mArray[index];
+  }
+
+  /**
+   * @return a list with the items of this list followed by the given item.
+   */
+  PersistentList<E> plus(E item) {
+    if (mBuffer != null) {
+      synchronized (mBuffer) {
+        // Only the last list derived from the buffer can append to it in place.
+        if (mBuffer.mSize == mSize) {
+          if (mSize == mBuffer.mArray.length) {
+            final Object[] array = new Object[2 * mSize];
+            System.arraycopy(mBuffer.mArray, 0, array, 0, mSize);
+            mBuffer.mArray = array;
+          }
+
+          mBuffer.mArray[mSize] = item;
+          mBuffer.mSize++;
+          return new PersistentList<>(mBuffer, mBuffer.mArray, mSize + 1);
+        }
+      }
+    }
+
+    final Object[] array = new Object[Math.max(INITIAL_CAPACITY, 2 * mSize)];
+    System.arraycopy(mArray, 0, array, 0, mSize);
+    array[mSize] = item;
+    return new PersistentList<>(new Buffer(array, mSize + 1), array, mSize + 1);
+  }
+
+  /**
+   * The array shared by the lists derived from one another, and how many of its items are used.
+   */
+  private static final class Buffer {
+    @GuardedBy("this")
+    private Object[] mArray;
+    @GuardedBy("this")
+    private int mSize;
+
+    private Buffer(Object[] array, int size) {
+      mArray = array;
+      mSize = size;
+    }
+  }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2017-present, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+
+package com.facebook.litho;
+
+/**
+ * A snapshot of the size and of the counters of a {@link RecyclePool}, since it was created or
+ * since its stats were last reset.
+ */
+public final class PoolStats {
+
+  private final String mName;
+  private final int mMaxSize;
+  private final int mCurrentSize;
+  private final int mHighWaterMark;
+  private final long mAcquireHits;
+  private final long mAcquireMisses;
+  private final long mReleaseDrops;
+
+  PoolStats(
+      String name,
+      int maxSize,
+      int currentSize,
+      int highWaterMark,
+      long acquireHits,
+      long acquireMisses,
+      long releaseDrops) {
+    mName = name;
+    mMaxSize = maxSize;
+    mCurrentSize = currentSize;
+    mHighWaterMark = highWaterMark;
+    mAcquireHits = acquireHits;
+    mAcquireMisses = acquireMisses;
+    mReleaseDrops = releaseDrops;
+  }
+
+  public String getName() {
+    return mName;
+  }
+
+  public int getMaxSize() {
+    return mMaxSize;
+  }
+
+  public int getCurrentSize() {
+    return mCurrentSize;
+  }
+
+  /**
+   * @return the largest number of items the pool held at once.
+   */
+  public int getHighWaterMark() {
+    return mHighWaterMark;
+  }
+
+  /**
+   * @return the number of acquires that returned a recycled item.
+   */
+  public long getAcquireHits() {
+    return mAcquireHits;
+  }
+
+  /**
+   * @return the number of acquires that found the pool empty, so that a new item was allocated.
+   */
+  public long getAcquireMisses() {
+    return mAcquireMisses;
+  }
+
+  /**
+   * @return the number of released items that were dropped because the pool was full.
+   */
+  public long getReleaseDrops() {
+    return mReleaseDrops;
+  }
+
+  @Override
+  public String toString() {
+    return mName
+        + " size=" + mCurrentSize + "/" + mMaxSize
+        + " highWaterMark=" + mHighWaterMark
+        + " hits=" + mAcquireHits
+        + " misses=" + mAcquireMisses
+        + " drops=" + mReleaseDrops;
+  }
+}
@@ -9,53 +9,285 @@
 
 package com.facebook.litho;
 
-import android.support.v4.util.Pools;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * Used to recycle objects in Litho. Can be configured to be either syncronized or not.
  * A {@link RecyclePool} will keep track of its own size so that it can be queried to debug
  * pool sizes.
+ *
+ * <p>The pool also counts the acquires it could and couldn't serve and the released items it had
+ * to drop, see {@link #getStats()}, and can adapt its max size to that demand, see
+ * {@link #adaptMaxSize()}.
  */
 public class RecyclePool<T> {
+
+  // Bounds of the max size of a pool, relative to the one it was created with.
+  static final int MIN_SIZE_DIVISOR = 4;
+  static final int MAX_SIZE_MULTIPLIER = 4;
+
   private final String mName;
-  private final int mMaxSize;
   private final boolean mIsSync;
-  private final Pools.Pool<T> mPool;
+  private final int mMinSize;
+  private final int mMaxSizeLimit;
+  private int mMaxSize;
+  private Object[] mItems;
   private int mCurrentSize = 0;
 
+  private long mAcquireHits;
+  private long mAcquireMisses;
+  private long mReleaseDrops;
+  private int mHighWaterMark;
+
+  // The demand observed since the last call to adaptMaxSize().
+  private boolean mHasMissedSinceAdapt;
+  private boolean mHasDroppedSinceAdapt;
+  private int mLowWaterMarkSinceAdapt;
+
   public RecyclePool(String name, int maxSize, boolean sync) {
+    this(name, maxSize, sync, new Object[maxSize]);
+  }
+
+  /**
+   * For subclasses that store the recycled items themselves, and override all the methods that
+   * access them.
+   */
+  RecyclePool(String name, int maxSize) {
+    this(name, maxSize, false, null);
+  }
+
+  private RecyclePool(String name, int maxSize, boolean sync, Object[] items) {
     mIsSync = sync;
     mName = name;
     mMaxSize = maxSize;
-    mPool = sync ? new Pools.SynchronizedPool<T>(maxSize) : new Pools.SimplePool<T>(maxSize);
+    mMinSize = Math.min(maxSize, Math.max(1, maxSize / MIN_SIZE_DIVISOR));
+    mMaxSizeLimit = maxSize * MAX_SIZE_MULTIPLIER;
+    mItems = items;
   }
 
   public T acquire() {
-    T item;
     if (mIsSync) {
       synchronized (this) {
-        item = mPool.acquire();
-        mCurrentSize = Math.max(0, mCurrentSize - 1);
+        return acquireInternal();
       }
     } else {
-      item = mPool.acquire();
-      mCurrentSize = Math.max(0, mCurrentSize - 1);
+      return acquireInternal();
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private T acquireInternal() {
+    if (mCurrentSize == 0) {
+      mAcquireMisses++;
+      mHasMissedSinceAdapt = true;
+      return null;
     }
+
+    final int index = --mCurrentSize;
+    final T item = (T) mItems[index];
+    mItems[index] = null;
+    mAcquireHits++;
+    mLowWaterMarkSinceAdapt = Math.min(mLowWaterMarkSinceAdapt, mCurrentSize);
     return item;
   }
 
   public void release(T item) {
     if (mIsSync) {
       synchronized (this) {
-        mPool.release(item);
-        mCurrentSize = Math.min(mMaxSize, mCurrentSize + 1);
+        releaseInternal(item);
+      }
+    } else {
+      releaseInternal(item);
+    }
+  }
+
+  /**
+   * Releases all the given items, holding the pool's lock only once for a synchronized pool.
+   */
+  public void releaseAll(List<T> items) {
+    if (mIsSync) {
+      synchronized (this) {
+        releaseAllInternal(items);
+      }
+    } else {
+      releaseAllInternal(items);
+    }
+  }
+
+  private void releaseAllInternal(List<T> items) {
+    final int size = items.size();
+    final int count = Math.min(size, mMaxSize - mCurrentSize);
+    for (int i = 0; i < count; i++) {
+      releaseInternal(items.get(i));
+    }
+
+    // Only as many items as the pool has room for are added, the rest are dropped.
+    if (count < size) {
+      mReleaseDrops += size - count;
+      mHasDroppedSinceAdapt = true;
+    }
+  }
+
+  private void releaseInternal(T item) {
+    for (int i = 0; i < mCurrentSize; i++) {
+      if (mItems[i] == item) {
+        throw new IllegalStateException("Already in the pool!");
+      }
+    }
+
+    if (mCurrentSize >= mMaxSize) {
+      mReleaseDrops++;
+      mHasDroppedSinceAdapt = true;
+      return;
+    }
+
+    mItems[mCurrentSize++] = item;
+    mHighWaterMark = Math.max(mHighWaterMark, mCurrentSize);
+  }
+
+  /**
+   * Adapts the max size of the pool to the demand observed since the last call. If the pool both
+   * ran out of items and had to drop released ones, its max size is doubled. Otherwise the items
+   * that stayed in the pool the whole time are dropped, and the max size shrinks by as many. The
+   * max size stays between a quarter and four times the one the pool was created with.
+   */
+  public void adaptMaxSize() {
+    if (mIsSync) {
+      synchronized (this) {
+        adaptMaxSizeInternal();
       }
     } else {
-      mPool.release(item);
-      mCurrentSize = Math.min(mMaxSize, mCurrentSize + 1);
+      adaptMaxSizeInternal();
     }
   }
 
+  private void adaptMaxSizeInternal() {
+    final int maxSize = adaptMaxSize(
+        mMaxSize,
+        mMinSize,
+        mMaxSizeLimit,
+        mHasMissedSinceAdapt && mHasDroppedSinceAdapt,
+        mLowWaterMarkSinceAdapt);
+
+    final int size = Math.min(maxSize, mCurrentSize - mLowWaterMarkSinceAdapt);
+    while (mCurrentSize > size) {
+      mItems[--mCurrentSize] = null;
+    }
+
+    if (maxSize != mMaxSize) {
+      mItems = Arrays.copyOf(mItems, maxSize);
+      mMaxSize = maxSize;
+    }
+
+    mHasMissedSinceAdapt = false;
+    mHasDroppedSinceAdapt = false;
+    mLowWaterMarkSinceAdapt = mCurrentSize;
+  }
+
+  /**
+   * The policy of {@link #adaptMaxSize()}, shared with the subclasses.
+   */
+  static int adaptMaxSize(
+      int maxSize,
+      int minSize,
+      int maxSizeLimit,
+      boolean isTooSmall,
+      int unusedCount) {
+    if (isTooSmall) {
+      return Math.min(maxSizeLimit, maxSize * 2);
+    }
+
+    return Math.max(minSize, maxSize - unusedCount);
+  }
+
+  /**
+   * Drops the given fraction of the items in the pool, rounded up, to give memory back under
+   * memory pressure. The max size of the pool is left as is, so it fills up again as needed.
+   */
+  public void trim(float fraction) {
+    if (mIsSync) {
+      synchronized (this) {
+        trimInternal(fraction);
+      }
+    } else {
+      trimInternal(fraction);
+    }
+  }
+
+  private void trimInternal(float fraction) {
+    final int size = getTrimmedSize(mCurrentSize, fraction);
+    while (mCurrentSize > size) {
+      mItems[--mCurrentSize] = null;
+    }
+
+    mLowWaterMarkSinceAdapt = Math.min(mLowWaterMarkSinceAdapt, mCurrentSize);
+  }
+
+  /**
+   * @return the number of items left out of the given number once the given fraction of them,
+   * rounded up, is dropped.
+   */
+  static int getTrimmedSize(int size, float fraction) {
+    if (fraction >= 1) {
+      return 0;
+    }
+
+    return Math.max(0, size - (int) Math.ceil(size * fraction));
+  }
+
+  /**
+   * @return a snapshot of the size of the pool and of its counters.
+   */
+  public PoolStats getStats() {
+    if (mIsSync) {
+      synchronized (this) {
+        return getStatsInternal();
+      }
+    } else {
+      return getStatsInternal();
+    }
+  }
+
+  private PoolStats getStatsInternal() {
+    return new PoolStats(
+        mName,
+        mMaxSize,
+        mCurrentSize,
+        mHighWaterMark,
+        mAcquireHits,
+        mAcquireMisses,
+        mReleaseDrops);
+  }
+
+  /**
+   * Resets the counters of the pool, e.g. to measure the demand of a single screen.
+   */
+  public void resetStats() {
+    if (mIsSync) {
+      synchronized (this) {
+        resetStatsInternal();
+      }
+    } else {
+      resetStatsInternal();
+    }
+  }
+
+  private void resetStatsInternal() {
+    mAcquireHits = 0;
+    mAcquireMisses = 0;
+    mReleaseDrops = 0;
+    mHighWaterMark = mCurrentSize;
+  }
+
+  int getMinSize() {
+    return mMinSize;
+  }
+
+  int getMaxSizeLimit() {
+    return mMaxSizeLimit;
+  }
+
   public String getName() {
     return mName;
   }
@@ -21,9 +21,9 @@ import com.facebook.litho.internal.ArraySet;
  */
 public class RenderState {
 
-  private final SimpleArrayMap<String, ComponentLifecycle.RenderInfo> mRenderInfos =
+  private final SimpleArrayMap<GlobalKey, ComponentLifecycle.RenderInfo> mRenderInfos =
       new SimpleArrayMap<>();
-  private final ArraySet<String> mSeenGlobalKeys = new ArraySet<>();
+  private final ArraySet<GlobalKey> mSeenGlobalKeys = new ArraySet<>();
 
   void recordRenderInfo(List<Component> components) {
     if (components == null) {
@@ -53,7 +53,7 @@ public class RenderState {
           "Trying to record previous render info for component that doesn't support it");
     }
 
-    final String key = component.getGlobalKey();
+    final GlobalKey key = component.getGlobalKey();
 
     // Sanity check like in StateHandler
     if (mSeenGlobalKeys.contains(key)) {
@@ -79,7 +79,7 @@ public class RenderState {
           "Trying to apply previous render info to component that doesn't support it");
     }
 
-    final String key = component.getGlobalKey();
+    final GlobalKey key = component.getGlobalKey();
     ComponentLifecycle.RenderInfo previousRenderInfo = mRenderInfos.get(key);
     lifecycle.applyPreviousRenderInfo(component, previousRenderInfo);
   }
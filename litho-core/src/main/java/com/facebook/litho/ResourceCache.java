@@ -23,6 +23,17 @@ abstract class ResourceCache {
     return latest;
   }
 
+  static synchronized void trimLatest(float fraction) {
+    if (latest != null) {
+      latest.trim(fraction);
+    }
+  }
+
+  @Nullable
+  static synchronized PoolStats getLatestStats() {
+    return latest == null ? null : latest.getStats();
+  }
+
   private final Configuration mConfiguration;
 
   protected ResourceCache(Configuration configuration) {
@@ -33,4 +44,11 @@ abstract class ResourceCache {
   abstract <T> T get(int key);
 
   abstract void put(int key, Object object);
+
+  /**
+   * Evicts the given fraction of the cache, starting with the least recently used entries.
+   */
+  abstract void trim(float fraction);
+
+  abstract PoolStats getStats();
 }
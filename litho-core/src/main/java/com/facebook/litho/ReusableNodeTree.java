@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2017-present, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+
+package com.facebook.litho;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.facebook.litho.config.ComponentsConfiguration;
+
+/**
+ * The {@link InternalNode} tree of the previous layout of a {@link ComponentTree}, from which a new
+ * layout calculation can take back the subtrees of components that are untouched by the pending
+ * state updates instead of calling their onCreateLayout again.
+ *
+ * <p>A subtree is only handed out if its component is equivalent to the one being laid out, no
+ * state update is pending for it or any of its descendants, no tree props reach it, it doesn't
+ * contain nested trees and its parent didn't set any layout props on it (i.e. it was added with
+ * {@link ComponentLayout.ContainerBuilder#child(Component)}). Taken subtrees are detached from the
+ * previous tree, moved to the contexts of the new layout and remeasured by Yoga. The rest of the
+ * previous tree is released with {@link #release()}, after which nothing can be taken anymore.
+ */
+final class ReusableNodeTree {
+
+  // Null once released: the contexts of the new layout keep referring to this object.
+  @GuardedBy("this")
+  private InternalNode mRoot;
+
+  // Sibling nested trees may be resolved in parallel, and may look up nodes as well.
+  @GuardedBy("this")
+  private final Map<GlobalKey, InternalNode> mNodes = new HashMap<>();
+
+  // The components with a pending state update in their subtree, looked up on the first take.
+  @GuardedBy("this")
+  private Set<GlobalKey> mGlobalKeysOfSubtreesWithPendingStateUpdates;
+
+  private ReusableNodeTree(InternalNode root) {
+    mRoot = root;
+
+    // The root itself is never reused: its style size is derived from the size specs.
+    for (int i = 0, count = root.getChildCount(); i < count; i++) {
+      index(root.getChildAt(i));
+    }
+  }
+
+  /**
+   * @return whether the ComponentTree the given context belongs to has opted into reusing the
+   * untouched subtrees of its previous layout.
+   */
+  static boolean isEnabled(ComponentContext c) {
+    final ComponentTree componentTree = c.getComponentTree();
+    return componentTree != null
+        && componentTree.isIncrementalLayoutEnabled()
+        && !ComponentsConfiguration.isDebugModeEnabled;
+  }
+
+  /**
+   * Takes the node tree the given LayoutState kept around for incremental layout.
+   *
+   * @return the reusable tree or null if the node tree was already taken, released or never kept.
+   */
+  @Nullable
+  static ReusableNodeTree take(LayoutState previousLayoutState) {
+    final InternalNode root = previousLayoutState.takeLayoutRoot();
+    return root != null ? new ReusableNodeTree(root) : null;
+  }
+
+  /**
+   * Indexes the nodes of the subtree rooted at {@code node} by the global key of the outermost
+   * component that created them.
+   *
+   * @return whether the subtree can be reused, i.e. it doesn't contain any nested tree.
+   */
+  private boolean index(InternalNode node) {
+    if (node.isNestedTreeHolder()) {
+      return false;
+    }
+
+    boolean isReusable = true;
+    for (int i = 0, count = node.getChildCount(); i < count; i++) {
+      isReusable &= index(node.getChildAt(i));
+    }
+
+    final Component<?> component = getOutermostComponent(node);
+    if (isReusable
+        && component != null
+        && component.getGlobalKey() != null
+        && node.wasAddedAsComponent()) {
+      mNodes.put(component.getGlobalKey(), node);
+    }
+
+    return isReusable;
+  }
+
+  /**
+   * @return the previous layout of a component equivalent to {@code component}, detached from the
+   * previous tree, or null if the component needs to create its layout again.
+   */
+  @Nullable
+  synchronized InternalNode take(ComponentContext c, Component<?> component) {
+    final GlobalKey globalKey = component.getGlobalKey();
+    if (globalKey == null || c.getTreeProps() != null) {
+      return null;
+    }
+
+    final InternalNode node = mNodes.remove(globalKey);
+    if (mRoot == null
+        || node == null
+        || !isAttachedToRoot(node)
+        || !component.isEquivalentTo(getOutermostComponent(node))
+        || getGlobalKeysOfSubtreesWithPendingStateUpdates(c).contains(globalKey)) {
+      return null;
+    }
+
+    final InternalNode parent = node.getParent();
+    parent.removeChildAt(parent.getChildIndex(node));
+
+    // The parent decides again whether the node was added without layout props.
+    node.setAddedAsComponent(false);
+    prepareForLayout(node, c);
+
+    return node;
+  }
+
+  /**
+   * Releases the part of the previous tree that wasn't reused and drops the reference to it.
+   */
+  synchronized void release() {
+    if (mRoot == null) {
+      return;
+    }
+
+    mNodes.clear();
+    LayoutState.releaseNodeTree(mRoot, false /* isNestedTree */);
+    mRoot = null;
+  }
+
+  /**
+   * The state updates of a layout are all queued before it starts, so the subtrees they touch are
+   * only looked up once, rather than for every component that is laid out.
+   */
+  @GuardedBy("this")
+  private Set<GlobalKey> getGlobalKeysOfSubtreesWithPendingStateUpdates(ComponentContext c) {
+    if (mGlobalKeysOfSubtreesWithPendingStateUpdates == null) {
+      final StateHandler stateHandler = c.getStateHandler();
+      mGlobalKeysOfSubtreesWithPendingStateUpdates = stateHandler == null
+          ? Collections.<GlobalKey>emptySet()
+          : stateHandler.getGlobalKeysOfSubtreesWithPendingStateUpdates();
+    }
+
+    return mGlobalKeysOfSubtreesWithPendingStateUpdates;
+  }
+
+  /**
+   * A node that belongs to a subtree that has already been taken must not be detached from it.
+   */
+  @GuardedBy("this")
+  private boolean isAttachedToRoot(InternalNode node) {
+    InternalNode current = node;
+    while (current.getParent() != null) {
+      current = current.getParent();
+    }
+
+    return current == mRoot;
+  }
+
+  /**
+   * Invalidates the measures of a reused subtree and moves the contexts its nodes and components
+   * were created with to the layout calculation {@code c} belongs to.
+   */
+  private static void prepareForLayout(InternalNode node, ComponentContext c) {
+    node.setDiffNode(null);
+    node.setCachedMeasuresValid(false);
+    node.getContext().moveToLayoutOf(c);
+
+    final List<Component> components = node.getComponents();
+    for (int i = 0, size = components.size(); i < size; i++) {
+      final ComponentContext scopedContext = components.get(i).getScopedContext();
+      if (scopedContext != null) {
+        scopedContext.moveToLayoutOf(c);
+      }
+    }
+
+    for (int i = 0, count = node.getChildCount(); i < count; i++) {
+      prepareForLayout(node.getChildAt(i), c);
+    }
+  }
+
+  @Nullable
+  private static Component<?> getOutermostComponent(InternalNode node) {
+    final int size = node.getComponents().size();
+    return size == 0 ? null : node.getComponents().get(size - 1);
+  }
+}
@@ -9,66 +9,91 @@
 
 package com.facebook.litho;
 
-import java.util.ArrayList;
-import java.util.HashMap;
+import javax.annotation.concurrent.GuardedBy;
+
+import java.util.Collections;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import android.support.v4.util.Pools;
 
-import com.facebook.infer.annotation.ThreadSafe;
 import com.facebook.litho.ComponentLifecycle.StateContainer;
+import com.facebook.litho.PersistentHashMap.EntryVisitor;
 
 import static com.facebook.litho.ComponentLifecycle.StateUpdate;
 
 /**
  * Holds information about the current State of the components in a Component Tree.
+ *
+ * <p>The state containers and the pending state updates are kept in {@link PersistentHashMap}s, so
+ * that the StateHandler of a layout can start from those of its tree without copying them. The
+ * pending state updates of a component are kept in a {@link PersistentList}, so queueing one more
+ * doesn't copy the ones before it either.
+ *
+ * <p>Sibling nested trees may be resolved in parallel during a layout, and they share the
+ * StateHandler of that layout. Every method that reads or replaces the maps or the set of known
+ * global keys is therefore synchronized on the StateHandler. The maps they return are immutable
+ * snapshots, so they can be read without holding the lock.
  */
 public class StateHandler {
 
-  private static final int INITIAL_STATE_UPDATE_LIST_CAPACITY = 4;
-  private static final int INITIAL_MAP_CAPACITY = 4;
+  private static final int INITIAL_SET_CAPACITY = 4;
   private static final int POOL_CAPACITY = 10;
 
-  private static final Pools.SynchronizedPool<List<StateUpdate>> sStateUpdatesListPool =
-      new Pools.SynchronizedPool<>(POOL_CAPACITY);
-  private static final
-  Pools.SynchronizedPool<Map<String, List<StateUpdate>>> sPendingStateUpdatesMapPool =
-      new Pools.SynchronizedPool<>(POOL_CAPACITY);
-  private static final
-  Pools.SynchronizedPool<Map<String, StateContainer>> sStateContainersMapPool =
-      new Pools.SynchronizedPool<>(POOL_CAPACITY);
-  private static final Pools.SynchronizedPool<Set<String>> sKnownGlobalKeysSetPool =
+  private static final Pools.SynchronizedPool<Set<GlobalKey>> sKnownGlobalKeysSetPool =
       new Pools.SynchronizedPool<>(POOL_CAPACITY);
 
   /**
    * List of state updates that will be applied during the next layout pass.
    */
-  private Map<String, List<StateUpdate>> mPendingStateUpdates;
+  @GuardedBy("this")
+  private PersistentHashMap<GlobalKey, PersistentList<StateUpdate>> mPendingStateUpdates =
+      PersistentHashMap.empty();
 
   /**
    * Maps a component key to a component object that retains the current state values for that key.
    */
-  public Map<String, StateContainer> mStateContainers;
+  @GuardedBy("this")
+  private PersistentHashMap<GlobalKey, StateContainer> mStateContainers =
+      PersistentHashMap.empty();
+
+  /**
+   * The state containers this StateHandler started from, to tell which ones it changed since.
+   */
+  @GuardedBy("this")
+  private PersistentHashMap<GlobalKey, StateContainer> mBaseStateContainers =
+      PersistentHashMap.empty();
 
-  private Set<String> mKnownGlobalKeys;
+  @GuardedBy("this")
+  private Set<GlobalKey> mKnownGlobalKeys;
 
   void init(StateHandler stateHandler) {
     if (stateHandler == null) {
       return;
     }
-    copyPendingStateUpdatesMap(stateHandler.getPendingStateUpdates());
-    copyCurrentStateContainers(stateHandler.getStateContainers());
+
+    // The two locks are never held at the same time, so they can't be taken in opposite orders.
+    final PersistentHashMap<GlobalKey, PersistentList<StateUpdate>> pendingStateUpdates;
+    final PersistentHashMap<GlobalKey, StateContainer> stateContainers;
+    synchronized (stateHandler) {
+      pendingStateUpdates = stateHandler.mPendingStateUpdates;
+      stateContainers = stateHandler.mStateContainers;
+    }
+
+    synchronized (this) {
+      mPendingStateUpdates = pendingStateUpdates;
+      mStateContainers = stateContainers;
+      mBaseStateContainers = stateContainers;
+    }
   }
 
   public static StateHandler acquireNewInstance(StateHandler stateHandler) {
     return ComponentsPools.acquireStateHandler(stateHandler);
   }
 
-  public boolean isEmpty() {
-    return mStateContainers == null || mStateContainers.isEmpty();
+  public synchronized boolean isEmpty() {
+    return mStateContainers.isEmpty();
   }
 
   /**
@@ -77,28 +102,22 @@ public class StateHandler {
    * @param key the global key of the component
    * @param stateUpdate the state update to apply to the component
    */
-  void queueStateUpdate(String key, StateUpdate stateUpdate) {
-    maybeInitPendingUpdates();
-
-    List<StateUpdate> pendingStateUpdatesForKey = mPendingStateUpdates.get(key);
-
-    if (pendingStateUpdatesForKey == null) {
-      pendingStateUpdatesForKey = StateHandler.acquireStateUpdatesList();
-      mPendingStateUpdates.put(key, pendingStateUpdatesForKey);
-    }
-
-    pendingStateUpdatesForKey.add(stateUpdate);
+  synchronized void queueStateUpdate(GlobalKey key, StateUpdate stateUpdate) {
+    final PersistentList<StateUpdate> pendingStateUpdatesForKey = mPendingStateUpdates.get(key);
+
+    mPendingStateUpdates = mPendingStateUpdates.plus(
+        key,
+        (pendingStateUpdatesForKey == null
+            ? PersistentList.<StateUpdate>empty()
+            : pendingStateUpdatesForKey).plus(stateUpdate));
   }
 
   /**
    * Sets the initial value for a state or transfers the previous state value to the new component,
    * then applies all the states updates that have been enqueued for the new component's global key.
-   * Assumed thread-safe because the one write is before all the reads.
    * @param component the new component
    */
-  @ThreadSafe(enableChecks = false)
-  void applyStateUpdatesForComponent(Component component) {
-    maybeInitStateContainers();
+  synchronized void applyStateUpdatesForComponent(Component component) {
     maybeInitKnownGlobalKeys();
 
     final ComponentLifecycle lifecycle = component.getLifecycle();
@@ -107,7 +126,7 @@ public class StateHandler {
     }
 
     final StateContainer previousStateContainer;
-    final String key = component.getGlobalKey();
+    final GlobalKey key = component.getGlobalKey();
     final StateContainer currentStateContainer =
         mStateContainers.get(key);
 
@@ -131,76 +150,87 @@ public class StateHandler {
       previousStateContainer = component.getStateContainer();
     }
 
-    final List<StateUpdate> stateUpdatesForKey = mPendingStateUpdates == null
-        ? null
-        : mPendingStateUpdates.get(key);
+    final PersistentList<StateUpdate> stateUpdatesForKey = mPendingStateUpdates.get(key);
 
     // If there are no state updates pending for this component, simply store its current state.
     if (stateUpdatesForKey != null) {
-      for (StateUpdate update : stateUpdatesForKey) {
-        update.updateState(previousStateContainer, component);
+      for (int i = 0, size = stateUpdatesForKey.size(); i < size; i++) {
+        stateUpdatesForKey.get(i).updateState(previousStateContainer, component);
       }
     }
 
-    mStateContainers.put(key, component.getStateContainer());
+    mStateContainers = mStateContainers.plus(key, component.getStateContainer());
   }
 
   /**
    * Removes a list of state updates that have been applied from the pending state updates list and
-   *  updates the map of current components with the given components.
+   * updates the map of current components with the state containers the given state handler
+   * changed.
    * @param stateHandler state handler that was used to apply state updates in a layout pass
    */
   void commit(StateHandler stateHandler) {
-    clearStateUpdates(stateHandler.getPendingStateUpdates());
-    updateCurrentComponentsWithState(stateHandler.getStateContainers());
+    final PersistentHashMap<GlobalKey, PersistentList<StateUpdate>> appliedStateUpdates;
+    final PersistentHashMap<GlobalKey, StateContainer> baseStateContainers;
+    final PersistentHashMap<GlobalKey, StateContainer> stateContainers;
+    synchronized (stateHandler) {
+      appliedStateUpdates = stateHandler.mPendingStateUpdates;
+      baseStateContainers = stateHandler.mBaseStateContainers;
+      stateContainers = stateHandler.mStateContainers;
+    }
+
+    synchronized (this) {
+      clearStateUpdates(appliedStateUpdates);
+      mStateContainers = mStateContainers.plusChanges(baseStateContainers, stateContainers);
+    }
   }
 
-  private void clearStateUpdates(Map<String, List<StateUpdate>> appliedStateUpdates) {
-    if (appliedStateUpdates == null ||
-        mPendingStateUpdates == null ||
-        mPendingStateUpdates.isEmpty()) {
+  @GuardedBy("this")
+  private void clearStateUpdates(
+      PersistentHashMap<GlobalKey, PersistentList<StateUpdate>> appliedStateUpdates) {
+    if (appliedStateUpdates.isEmpty() || mPendingStateUpdates.isEmpty()) {
       return;
     }
 
-    for (String key : appliedStateUpdates.keySet()) {
-      final List<StateUpdate> pendingStateUpdatesForKey = mPendingStateUpdates.get(key);
-      if (pendingStateUpdatesForKey == null) {
-        continue;
-      }
-
-      final List<StateUpdate> appliedStateUpdatesForKey = appliedStateUpdates.get(key);
-      if (pendingStateUpdatesForKey.size() == appliedStateUpdatesForKey.size()) {
-        mPendingStateUpdates.remove(key);
-        releaseStateUpdatesList(pendingStateUpdatesForKey);
-      } else {
-        pendingStateUpdatesForKey.removeAll(appliedStateUpdatesForKey);
+    appliedStateUpdates.forEachEntry(new EntryVisitor<GlobalKey, PersistentList<StateUpdate>>() {
+      @Override
+      public boolean visit(GlobalKey key, PersistentList<StateUpdate> appliedStateUpdatesForKey) {
+        clearStateUpdates(key, appliedStateUpdatesForKey);
+        return true;
       }
-    }
+    });
   }
 
-  private void updateCurrentComponentsWithState(
-      Map<String, StateContainer> updatedStateContainers) {
-    if (updatedStateContainers == null || updatedStateContainers.isEmpty()) {
+  @GuardedBy("this")
+  private void clearStateUpdates(
+      GlobalKey key,
+      PersistentList<StateUpdate> appliedStateUpdatesForKey) {
+    final PersistentList<StateUpdate> pendingStateUpdatesForKey = mPendingStateUpdates.get(key);
+    if (pendingStateUpdatesForKey == null) {
       return;
     }
 
-    maybeInitStateContainers();
-    mStateContainers.putAll(updatedStateContainers);
-  }
-
-  void release() {
-    if (mPendingStateUpdates != null) {
-      mPendingStateUpdates.clear();
-      sPendingStateUpdatesMapPool.release(mPendingStateUpdates);
-      mPendingStateUpdates = null;
+    if (pendingStateUpdatesForKey == appliedStateUpdatesForKey
+        || pendingStateUpdatesForKey.size() == appliedStateUpdatesForKey.size()) {
+      mPendingStateUpdates = mPendingStateUpdates.minus(key);
+      return;
     }
 
-    if (mStateContainers != null) {
-      mStateContainers.clear();
-      sStateContainersMapPool.release(mStateContainers);
-      mStateContainers = null;
+    PersistentList<StateUpdate> remainingStateUpdatesForKey = PersistentList.empty();
+    for (int i = 0, size = pendingStateUpdatesForKey.size(); i < size; i++) {
+      final StateUpdate stateUpdate = pendingStateUpdatesForKey.get(i);
+      if (!appliedStateUpdatesForKey.contains(stateUpdate)) {
+        remainingStateUpdatesForKey = remainingStateUpdatesForKey.plus(stateUpdate);
+      }
     }
 
+    mPendingStateUpdates = mPendingStateUpdates.plus(key, remainingStateUpdatesForKey);
+  }
+
+  synchronized void release() {
+    mPendingStateUpdates = PersistentHashMap.empty();
+    mStateContainers = PersistentHashMap.empty();
+    mBaseStateContainers = PersistentHashMap.empty();
+
     if (mKnownGlobalKeys != null) {
       mKnownGlobalKeys.clear();
       sKnownGlobalKeysSetPool.release(mKnownGlobalKeys);
@@ -208,90 +238,45 @@ public class StateHandler {
     }
   }
 
-  private static List<StateUpdate> acquireStateUpdatesList() {
-    return acquireStateUpdatesList(null);
-  }
-
-  private static List<StateUpdate> acquireStateUpdatesList(List<StateUpdate> copyFrom) {
-    List<StateUpdate> list = sStateUpdatesListPool.acquire();
-    if (list == null) {
-      list = new ArrayList<>(
-          copyFrom == null ? INITIAL_STATE_UPDATE_LIST_CAPACITY : copyFrom.size());
-    }
-    if (copyFrom != null) {
-      list.addAll(copyFrom);
-    }
-
-    return list;
-  }
-
-  private static void releaseStateUpdatesList(List<StateUpdate> list) {
-    list.clear();
-    sStateUpdatesListPool.release(list);
-  }
-
-  Map<String, StateContainer> getStateContainers() {
-    return mStateContainers;
-  }
-
-  Map<String, List<StateUpdate>> getPendingStateUpdates() {
-    return mPendingStateUpdates;
-  }
-
   /**
-   * @return copy the information from the given map of state updates into the map of pending state
-   * updates.
+   * @return the global keys of the components that have pending state updates and of all the
+   * components that created them, i.e. of the components a state update is pending for, either for
+   * themselves or for any component they created.
    */
-  private void copyPendingStateUpdatesMap(
-      Map<String, List<StateUpdate>> pendingStateUpdates) {
-    if (pendingStateUpdates == null || pendingStateUpdates.isEmpty()) {
-      return;
+  synchronized Set<GlobalKey> getGlobalKeysOfSubtreesWithPendingStateUpdates() {
+    if (mPendingStateUpdates.isEmpty()) {
+      return Collections.emptySet();
     }
 
-    maybeInitPendingUpdates();
-    for (String key : pendingStateUpdates.keySet()) {
-      mPendingStateUpdates.put(key, acquireStateUpdatesList(pendingStateUpdates.get(key)));
-    }
-  }
-
-  /**
-   * @return copy the list of given state containers into the map that holds the current
-   * state containers of components.
-   */
-  private void copyCurrentStateContainers(Map<String, StateContainer> stateContainers) {
-    if (stateContainers == null || stateContainers.isEmpty()) {
-      return;
-    }
+    final Set<GlobalKey> globalKeys = new HashSet<>();
+    mPendingStateUpdates.forEachEntry(new EntryVisitor<GlobalKey, PersistentList<StateUpdate>>() {
+      @Override
+      public boolean visit(GlobalKey key, PersistentList<StateUpdate> stateUpdates) {
+        // The ancestors of a key that was already added have been added along with it.
+        GlobalKey current = key;
+        while (current != null && globalKeys.add(current)) {
+          current = current.getParent();
+        }
+        return true;
+      }
+    });
 
-    maybeInitStateContainers();
-    for (String key : stateContainers.keySet()) {
-      mStateContainers.put(key, stateContainers.get(key));
-    }
+    return globalKeys;
   }
 
-  private void maybeInitStateContainers() {
-    if (mStateContainers == null) {
-      mStateContainers = sStateContainersMapPool.acquire();
-      if (mStateContainers == null) {
-        mStateContainers = new HashMap<>(INITIAL_MAP_CAPACITY);
-      }
-    }
+  synchronized Map<GlobalKey, StateContainer> getStateContainers() {
+    return mStateContainers;
   }
 
-  private void maybeInitPendingUpdates() {
-    if (mPendingStateUpdates == null) {
-      mPendingStateUpdates = sPendingStateUpdatesMapPool.acquire();
-      if (mPendingStateUpdates == null) {
-        mPendingStateUpdates = new HashMap<>(INITIAL_MAP_CAPACITY);
-      }
-    }
+  synchronized Map<GlobalKey, PersistentList<StateUpdate>> getPendingStateUpdates() {
+    return mPendingStateUpdates;
   }
 
   private void maybeInitKnownGlobalKeys() {
     if (mKnownGlobalKeys == null) {
       mKnownGlobalKeys = sKnownGlobalKeysSetPool.acquire();
       if (mKnownGlobalKeys == null) {
-        mKnownGlobalKeys = new HashSet<>(INITIAL_MAP_CAPACITY);
+        mKnownGlobalKeys = new HashSet<>(INITIAL_SET_CAPACITY);
       }
     }
   }
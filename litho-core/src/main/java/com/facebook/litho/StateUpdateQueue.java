@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2017-present, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+
+package com.facebook.litho;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.facebook.litho.ComponentLifecycle.StateUpdate;
+
+/**
+ * A queue of state updates that any thread can add to without taking a lock, and that a single
+ * thread at a time drains into a {@link StateHandler}.
+ *
+ * <p>Adding pushes the update on a stack with a single compare-and-set, and draining takes the
+ * whole stack at once and hands its updates over in the order they were added.
+ */
+final class StateUpdateQueue {
+
+  private final AtomicReference<Node> mHead = new AtomicReference<>();
+
+  void add(GlobalKey key, StateUpdate stateUpdate) {
+    final Node node = new Node(key, stateUpdate);
+    Node head;
+    do {
+      head = mHead.get();
+      node.mNext = head;
+    } while (!mHead.compareAndSet(head, node));
+  }
+
+  boolean isEmpty() {
+    return mHead.get() == null;
+  }
+
+  /**
+   * Moves all the queued state updates to the pending state updates of the given
+   * {@link StateHandler}, in the order they were added.
+   */
+  void drainTo(StateHandler stateHandler) {
+    Node node = mHead.getAndSet(null);
+    if (node == null) {
+      return;
+    }
+
+    // Reverses the stack, so that the updates are applied in order.
+    Node reversed = null;
+    while (node != null) {
+      final Node next = node.mNext;
+      node.mNext = reversed;
+      reversed = node;
+      node = next;
+    }
+
+    for (Node current = reversed; current != null; current = current.mNext) {
+      stateHandler.queueStateUpdate(current.mKey, current.mStateUpdate);
+    }
+  }
+
+  void clear() {
+    mHead.set(null);
+  }
+
+  private static final class Node {
+    private final GlobalKey mKey;
+    private final StateUpdate mStateUpdate;
+    private Node mNext;
+
+    private Node(GlobalKey key, StateUpdate stateUpdate) {
+      mKey = key;
+      mStateUpdate = stateUpdate;
+    }
+  }
+}
@@ -0,0 +1,284 @@
+/*
+ * Copyright (c) 2017-present, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+
+package com.facebook.litho;
+
+import javax.annotation.concurrent.GuardedBy;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import android.os.Process;
+import android.support.annotation.IntDef;
+import android.support.annotation.VisibleForTesting;
+
+/**
+ * A {@link LayoutHandler} that runs layout computations on a pool of background threads, as many
+ * as there are cores, shared by all the ComponentTrees that use it. Unlike with the default layout
+ * thread, the layouts of independent trees can then be computed concurrently.
+ *
+ * <p>Like a {@link android.os.Handler} on a single thread, every instance runs the runnables posted
+ * through it one at a time and in the order they were posted: the next one is only handed to the
+ * pool once the previous one is done. The layouts of a tree therefore never overlap or complete
+ * out of order.
+ *
+ * <p>The pool runs the runnables handed to it by priority: layouts of visible trees first, then
+ * prefetched ones and speculative ones last. Runnables with the same priority run in the order
+ * they were handed to the pool. A ComponentTree raises the priority of its handler while it's
+ * attached, see {@link #setPriority(int)}.
+ *
+ * <p>As with a {@link android.os.Handler}, {@link #removeCallbacksAndMessages(Object)} only removes
+ * the runnables posted through the same instance, so every ComponentTree should use its own.
+ */
+public class ThreadPoolLayoutHandler implements LayoutHandler {
+
+  @IntDef({PRIORITY_VISIBLE, PRIORITY_PREFETCH, PRIORITY_SPECULATIVE})
+  @Retention(RetentionPolicy.SOURCE)
+  public @interface Priority {}
+  public static final int PRIORITY_VISIBLE = 0;
+  public static final int PRIORITY_PREFETCH = 1;
+  public static final int PRIORITY_SPECULATIVE = 2;
+
+  private static final String THREAD_NAME = "ComponentLayoutThreadPool";
+  private static final int THREAD_PRIORITY = Process.THREAD_PRIORITY_BACKGROUND;
+  private static final int KEEP_ALIVE_SECONDS = 30;
+
+  private static final AtomicLong sSequenceGenerator = new AtomicLong(0);
+
+  @GuardedBy("ThreadPoolLayoutHandler.class")
+  private static ThreadPoolExecutor sDefaultExecutor;
+
+  private final ThreadPoolExecutor mExecutor;
+  @GuardedBy("this")
+  private @Priority int mPriority;
+
+  // The runnables posted through this handler that haven't been handed to the pool yet.
+  @GuardedBy("this")
+  private final ArrayDeque<LayoutTask> mPendingTasks = new ArrayDeque<>();
+
+  // The task of this handler that the pool is running or has queued, if any.
+  @GuardedBy("this")
+  private LayoutTask mScheduledTask;
+
+  public ThreadPoolLayoutHandler(@Priority int priority) {
+    this(priority, getDefaultExecutor());
+  }
+
+  @VisibleForTesting
+  ThreadPoolLayoutHandler(@Priority int priority, ThreadPoolExecutor executor) {
+    mPriority = priority;
+    mExecutor = executor;
+  }
+
+  /**
+   * Changes the priority of the runnables posted through this handler, e.g. when the tree using it
+   * becomes visible. This also applies to the runnables that are pending, including the one the
+   * pool has queued but not started running yet.
+   */
+  public void setPriority(@Priority int priority) {
+    final LayoutTask scheduledTask;
+    synchronized (this) {
+      if (mPriority == priority) {
+        return;
+      }
+
+      mPriority = priority;
+      scheduledTask = mScheduledTask;
+    }
+
+    // The priority of a task can't change while the pool's queue holds it, so it's taken out and
+    // handed to the pool again. It keeps its sequence, and with it its place among its new peers.
+    if (scheduledTask == null || !mExecutor.remove(scheduledTask)) {
+      return;
+    }
+
+    synchronized (this) {
+      scheduledTask.mPriority = mPriority;
+    }
+
+    mExecutor.execute(scheduledTask);
+  }
+
+  public synchronized @Priority int getPriority() {
+    return mPriority;
+  }
+
+  @Override
+  public boolean post(Runnable runnable) {
+    final LayoutTask task;
+    synchronized (this) {
+      mPendingTasks.add(new LayoutTask(this, runnable));
+      task = mScheduledTask == null ? scheduleNext() : null;
+    }
+
+    if (task != null) {
+      mExecutor.execute(task);
+    }
+    return true;
+  }
+
+  @Override
+  public void removeCallbacks(Runnable runnable) {
+    remove(runnable);
+  }
+
+  @Override
+  public void removeCallbacksAndMessages(Object token) {
+    // Runnables are never posted with a token, so only a null token matches any of them.
+    if (token == null) {
+      remove(null);
+    }
+  }
+
+  /**
+   * Removes the pending runnables posted through this handler that are equal to {@code runnable},
+   * or all of them if it's null.
+   */
+  private void remove(Runnable runnable) {
+    final LayoutTask scheduledTask;
+    synchronized (this) {
+      final Iterator<LayoutTask> iterator = mPendingTasks.iterator();
+      while (iterator.hasNext()) {
+        if (iterator.next().matches(runnable)) {
+          iterator.remove();
+        }
+      }
+
+      scheduledTask = mScheduledTask;
+    }
+
+    // The scheduled task can only be removed if the pool hasn't started running it yet.
+    if (scheduledTask == null
+        || !scheduledTask.matches(runnable)
+        || !mExecutor.remove(scheduledTask)) {
+      return;
+    }
+
+    final LayoutTask next;
+    synchronized (this) {
+      next = mScheduledTask == scheduledTask ? scheduleNext() : null;
+    }
+
+    if (next != null) {
+      mExecutor.execute(next);
+    }
+  }
+
+  /**
+   * Called by the pool once the scheduled task of this handler is done, hands the next one to it.
+   */
+  private void onTaskDone(LayoutTask task) {
+    final LayoutTask next;
+    synchronized (this) {
+      next = mScheduledTask == task ? scheduleNext() : null;
+    }
+
+    if (next != null) {
+      mExecutor.execute(next);
+    }
+  }
+
+  /**
+   * @return the next pending task, which the caller needs to hand to the pool once the lock is
+   * released, or null if there is none.
+   */
+  @GuardedBy("this")
+  private LayoutTask scheduleNext() {
+    mScheduledTask = mPendingTasks.poll();
+    if (mScheduledTask != null) {
+      mScheduledTask.mPriority = mPriority;
+      mScheduledTask.mSequence = sSequenceGenerator.getAndIncrement();
+    }
+
+    return mScheduledTask;
+  }
+
+  @VisibleForTesting
+  static ThreadPoolExecutor createExecutor(int poolSize) {
+    final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+        poolSize,
+        poolSize,
+        KEEP_ALIVE_SECONDS,
+        TimeUnit.SECONDS,
+        new PriorityBlockingQueue<Runnable>(),
+        new LayoutThreadFactory());
+    executor.allowCoreThreadTimeOut(true);
+
+    return executor;
+  }
+
+  private static synchronized ThreadPoolExecutor getDefaultExecutor() {
+    if (sDefaultExecutor == null) {
+      sDefaultExecutor =
+          createExecutor(Math.max(1, Runtime.getRuntime().availableProcessors()));
+    }
+
+    return sDefaultExecutor;
+  }
+
+  private static class LayoutTask implements Runnable, Comparable<LayoutTask> {
+    private final ThreadPoolLayoutHandler mHandler;
+    private final Runnable mRunnable;
+    // Set when the task is handed to the pool, which publishes them to the thread that runs it.
+    private int mPriority;
+    private long mSequence;
+
+    private LayoutTask(ThreadPoolLayoutHandler handler, Runnable runnable) {
+      mHandler = handler;
+      mRunnable = runnable;
+    }
+
+    private boolean matches(Runnable runnable) {
+      return runnable == null || mRunnable == runnable;
+    }
+
+    @Override
+    public void run() {
+      try {
+        mRunnable.run();
+      } finally {
+        mHandler.onTaskDone(this);
+      }
+    }
+
+    @Override
+    public int compareTo(LayoutTask other) {
+      if (mPriority != other.mPriority) {
+        return mPriority < other.mPriority ? -1 : 1;
+      }
+
+      return mSequence < other.mSequence ? -1 : (mSequence == other.mSequence ? 0 : 1);
+    }
+  }
+
+  private static class LayoutThreadFactory implements ThreadFactory {
+    private final AtomicInteger mThreadCount = new AtomicInteger(0);
+
+    @Override
+    public Thread newThread(final Runnable runnable) {
+      return new Thread(
+          new Runnable() {
+            @Override
+            public void run() {
+              Process.setThreadPriority(THREAD_PRIORITY);
+              runnable.run();
+            }
+          },
+          THREAD_NAME + "-" + mThreadCount.incrementAndGet());
+    }
+  }
+}
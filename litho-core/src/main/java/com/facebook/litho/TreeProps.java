@@ -10,51 +10,119 @@
 package com.facebook.litho;
 
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
 
+import android.support.annotation.VisibleForTesting;
 import android.support.v4.util.ArrayMap;
 
 import com.facebook.infer.annotation.ThreadConfined;
-import com.facebook.infer.annotation.ThreadSafe;
 import com.facebook.litho.annotations.TreeProp;
 
 /**
  * A data structure to store tree props.
+ *
+ * <p>The props are kept in an immutable list linked towards the root of the tree, so copying the
+ * TreeProps of a parent shares all of its entries and adding a prop only prepends a new entry. A
+ * prop set closer to the current component shadows the ones with the same key set above it.
  * @see {@link TreeProp}.
  */
 @ThreadConfined(ThreadConfined.ANY)
 public class TreeProps {
 
-  private final ArrayMap<Class, Object> mMap = new ArrayMap<>();
+  /**
+   * Past this many entries, lookups go through an index of the chain instead of walking it.
+   */
+  @VisibleForTesting
+  static final int INDEX_THRESHOLD = 8;
+
+  private Entry mHead;
 
   public void put(Class key, Object value) {
-    mMap.put(key, value);
+    mHead = new Entry(key, value, mHead);
   }
 
   public <T> T get(Class key) {
-    return (T) mMap.get(key);
+    final Entry head = mHead;
+    if (head == null) {
+      return null;
+    }
+
+    if (head.mDepth > INDEX_THRESHOLD) {
+      return (T) head.getIndex().get(key);
+    }
+
+    for (Entry entry = head; entry != null; entry = entry.mNext) {
+      if (entry.mKey == key) {
+        return (T) entry.mValue;
+      }
+    }
+
+    return null;
   }
 
   public Map<Class, Object> toMap() {
-    return Collections.unmodifiableMap(mMap);
+    return Collections.unmodifiableMap(collect(mHead, new ArrayMap<Class, Object>()));
   }
 
   /**
-   * Whenever a Spec sets tree props, the TreeProps map from the parent is copied.
-   *
-   * Infer knows that newProps is owned but doesn't know that newProps.mMap is owned.
+   * Whenever a Spec sets tree props, the TreeProps from the parent are copied. The copy shares
+   * the parent's entries, so this doesn't depend on how many props are set above it.
    */
-  @ThreadSafe(enableChecks = false)
   public static TreeProps copy(TreeProps source) {
-    final TreeProps newProps = ComponentsPools.acquireTreeProps();
+    final TreeProps newProps = new TreeProps();
     if (source != null) {
-      newProps.mMap.putAll((Map<? extends Class, ?>) source.mMap);
+      newProps.mHead = source.mHead;
     }
 
     return newProps;
   }
 
-  void reset() {
-    mMap.clear();
+  private static Map<Class, Object> collect(Entry head, Map<Class, Object> map) {
+    for (Entry entry = head; entry != null; entry = entry.mNext) {
+      if (!map.containsKey(entry.mKey)) {
+        map.put(entry.mKey, entry.mValue);
+      }
+    }
+
+    return map;
+  }
+
+  /**
+   * An entry is never changed once it is linked, so entries can be shared by the TreeProps of
+   * any number of subtrees, and from any thread.
+   */
+  private static final class Entry {
+    private final Class mKey;
+    private final Object mValue;
+    private final Entry mNext;
+    private final int mDepth;
+
+    /** Lazily built for long chains. Racing threads would build equal indexes. */
+    private volatile Map<Class, Object> mIndex;
+
+    private Entry(Class key, Object value, Entry next) {
+      mKey = key;
+      mValue = value;
+      mNext = next;
+      mDepth = next == null ? 1 : next.mDepth + 1;
+    }
+
+    private Map<Class, Object> getIndex() {
+      Map<Class, Object> index = mIndex;
+      if (index == null) {
+        // Reuse the index of the parent chain when it has one, and only add what's in front.
+        final Map<Class, Object> parentIndex = mNext.mIndex;
+        if (parentIndex != null) {
+          index = new HashMap<>(parentIndex);
+          index.put(mKey, mValue);
+        } else {
+          index = collect(this, new HashMap<Class, Object>());
+        }
+        mIndex = index;
+      }
+
+      return index;
+    }
   }
 }
@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2017-present, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+
+package com.facebook.litho;
+
+import javax.annotation.Nullable;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+
+import android.support.annotation.IntDef;
+
+import com.facebook.infer.annotation.ThreadConfined;
+import com.facebook.litho.dataflow.ChoreographerCompat;
+
+import static com.facebook.litho.ThreadUtils.assertMainThread;
+
+/**
+ * Collects the visibility events that {@link MountState} finds during a mount pass, and delivers
+ * them in the order they were added once per frame, from a frame callback that runs after the
+ * frame that was being mounted has been drawn. The event handlers then no longer run on the
+ * critical path of the mount.
+ *
+ * <p>If an {@link Executor} is given, the batches are handed over to it instead of being
+ * dispatched on the main thread. This is only meant for handlers that don't touch views or
+ * components, e.g. ones that log impressions, and a serial executor should be used for the events
+ * to keep their order.
+ */
+@ThreadConfined(ThreadConfined.UI)
+final class VisibilityEventBatch {
+
+  @IntDef({VISIBLE, FOCUSED, UNFOCUSED, FULL_IMPRESSION, INVISIBLE})
+  @Retention(RetentionPolicy.SOURCE)
+  @interface EventType {}
+  static final int VISIBLE = 0;
+  static final int FOCUSED = 1;
+  static final int UNFOCUSED = 2;
+  static final int FULL_IMPRESSION = 3;
+  static final int INVISIBLE = 4;
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  private final @Nullable Executor mExecutor;
+  private final ChoreographerCompat.FrameCallback mFrameCallback =
+      new ChoreographerCompat.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+          mIsFrameCallbackPosted = false;
+          flush();
+        }
+      };
+
+  private EventHandler[] mHandlers = new EventHandler[INITIAL_CAPACITY];
+  private int[] mTypes = new int[INITIAL_CAPACITY];
+  private int mSize;
+  private boolean mIsFrameCallbackPosted;
+
+  VisibilityEventBatch(@Nullable Executor executor) {
+    mExecutor = executor;
+  }
+
+  @Nullable
+  Executor getExecutor() {
+    return mExecutor;
+  }
+
+  /**
+   * Adds an event of the given type for {@code handler} to the batch, and schedules the batch to be
+   * delivered on the next frame.
+   */
+  void add(EventHandler<?> handler, @EventType int type) {
+    assertMainThread();
+
+    if (mSize == mHandlers.length) {
+      mHandlers = Arrays.copyOf(mHandlers, mSize * 2);
+      mTypes = Arrays.copyOf(mTypes, mSize * 2);
+    }
+
+    mHandlers[mSize] = handler;
+    mTypes[mSize] = type;
+    mSize++;
+
+    if (!mIsFrameCallbackPosted) {
+      mIsFrameCallbackPosted = true;
+      ChoreographerCompat.getInstance().postFrameCallback(mFrameCallback);
+    }
+  }
+
+  int size() {
+    return mSize;
+  }
+
+  /**
+   * Delivers the events of the batch right away, without waiting for the next frame.
+   */
+  void flush() {
+    assertMainThread();
+
+    if (mIsFrameCallbackPosted) {
+      ChoreographerCompat.getInstance().removeFrameCallback(mFrameCallback);
+      mIsFrameCallbackPosted = false;
+    }
+
+    if (mSize == 0) {
+      return;
+    }
+
+    if (mExecutor != null) {
+      final EventHandler[] handlers = Arrays.copyOf(mHandlers, mSize);
+      final int[] types = Arrays.copyOf(mTypes, mSize);
+      clear();
+
+      mExecutor.execute(new Runnable() {
+        @Override
+        public void run() {
+          for (int i = 0; i < handlers.length; i++) {
+            dispatchOnBackgroundThread(handlers[i], types[i]);
+          }
+        }
+      });
+      return;
+    }
+
+    try {
+      // Handlers may add more events while the batch is being dispatched, e.g. if they update the
+      // state synchronously. Those are appended to the batch and dispatched in the same loop.
+      for (int i = 0; i < mSize; i++) {
+        dispatch(mHandlers[i], mTypes[i]);
+      }
+    } finally {
+      clear();
+    }
+  }
+
+  private void clear() {
+    Arrays.fill(mHandlers, 0, mSize, null);
+    mSize = 0;
+  }
+
+  /**
+   * Dispatches an event of the given type to {@code handler} on the main thread.
+   */
+  @SuppressWarnings("unchecked")
+  static void dispatch(EventHandler handler, @EventType int type) {
+    switch (type) {
+      case VISIBLE:
+        EventDispatcherUtils.dispatchOnVisible(handler);
+        break;
+      case FOCUSED:
+        EventDispatcherUtils.dispatchOnFocused(handler);
+        break;
+      case UNFOCUSED:
+        EventDispatcherUtils.dispatchOnUnfocused(handler);
+        break;
+      case FULL_IMPRESSION:
+        EventDispatcherUtils.dispatchOnFullImpression(handler);
+        break;
+      case INVISIBLE:
+        EventDispatcherUtils.dispatchOnInvisible(handler);
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown visibility event type: " + type);
+    }
+  }
+
+  /**
+   * Unlike {@link EventDispatcherUtils}, which reuses the same event objects on the main thread,
+   * creates a new event for every dispatch.
+   */
+  @SuppressWarnings("unchecked")
+  private static void dispatchOnBackgroundThread(EventHandler handler, @EventType int type) {
+    switch (type) {
+      case VISIBLE:
+        handler.dispatchEvent(new VisibleEvent());
+        break;
+      case FOCUSED:
+        handler.dispatchEvent(new FocusedVisibleEvent());
+        break;
+      case UNFOCUSED:
+        handler.dispatchEvent(new UnfocusedVisibleEvent());
+        break;
+      case FULL_IMPRESSION:
+        handler.dispatchEvent(new FullImpressionVisibleEvent());
+        break;
+      case INVISIBLE:
+        handler.dispatchEvent(new InvisibleEvent());
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown visibility event type: " + type);
+    }
+  }
+}
@@ -66,6 +66,54 @@ public class ComponentsConfiguration {
    */
   public static volatile boolean usePooling = true;
 
+  /**
+   * Whether the measured sizes of nested trees with equivalent props can be shared across
+   * ComponentTrees through {@link com.facebook.litho.LayoutCache}. Only LayoutSpecs with
+   * {@code isPureRender = true} are cached.
+   */
+  public static volatile boolean useCrossTreeLayoutCache = false;
+
+  /**
+   * Whether the Yoga style of each node is buffered on the Java side and written with a single JNI
+   * call before the layout is calculated. Needs to be set before the first YogaNode is acquired.
+   */
+  public static boolean batchYogaStyleWrites = false;
+
+  /**
+   * Whether the Yoga layout outputs of a tree are read back with a single JNI array copy instead
+   * of being set on every YogaNode field by field. Needs to be set before the first YogaNode is
+   * acquired.
+   */
+  public static boolean bulkYogaLayoutReadback = false;
+
+  /**
+   * Whether the InternalNode trees of released layouts are detached and reset with a single Yoga
+   * JNI call and returned to the pools in a batch, instead of node by node.
+   */
+  public static boolean batchReleaseNodeTrees = false;
+
+  /**
+   * Whether the pools of the objects used during layout, such as InternalNodes and YogaNodes,
+   * give every thread its own magazine of recycled objects instead of sharing a synchronized pool,
+   * see {@link com.facebook.litho.MagazineRecyclePool}. Needs to be set before
+   * {@link com.facebook.litho.ComponentsPools} is first used.
+   */
+  public static boolean useMagazinePools = false;
+
+  /**
+   * Whether to count the mount content created because its pool was empty, so that it can be
+   * saved and used to warm up the pools on the next launch, see
+   * {@link com.facebook.litho.MountContentWarmup}.
+   */
+  public static volatile boolean recordMountContentWarmup = false;
+
+  /**
+   * Whether ComponentTrees that don't specify a layout thread run their layouts on the shared
+   * {@link com.facebook.litho.ThreadPoolLayoutHandler} rather than on the single default layout
+   * thread.
+   */
+  public static boolean useLayoutThreadPool = false;
+
   /**
    * Whether to enable incremental mount that operates directly from LithoView's methods.
    */
@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2017-present, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+
+package com.facebook.litho.internal;
+
+import java.util.Arrays;
+
+/**
+ * A map from primitive longs to primitive ints, implemented as an open addressing hash table with
+ * linear probing. Unlike a {@code LongSparseArray<Integer>} it never boxes its values, and lookups
+ * take constant time instead of a binary search over the keys.
+ *
+ * <p>Entries can't be removed one by one: the map is meant to be filled, queried, and then cleared
+ * as a whole, which keeps probing simple and lets {@link #clear()} reuse the allocated arrays.
+ */
+public class LongIntHashMap {
+
+  private static final int DEFAULT_CAPACITY = 8;
+
+  // A key of 0 marks a free slot in mKeys, so the entry for the key 0 is stored on its own.
+  private static final long FREE_KEY = 0L;
+
+  private long[] mKeys;
+  private int[] mValues;
+  private int mMask;
+  private int mSize;
+  private int mResizeThreshold;
+
+  private boolean mHasFreeKey;
+  private int mFreeKeyValue;
+
+  public LongIntHashMap() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * @param capacity the number of entries the map can hold without growing.
+   */
+  public LongIntHashMap(int capacity) {
+    if (capacity < 0) {
+      throw new IllegalArgumentException("Capacity must be non-negative: " + capacity);
+    }
+
+    allocate(tableSizeFor(capacity));
+  }
+
+  /**
+   * @return the value mapped to {@code key}, or {@code valueIfKeyNotFound} if there is none.
+   */
+  public int get(long key, int valueIfKeyNotFound) {
+    if (key == FREE_KEY) {
+      return mHasFreeKey ? mFreeKeyValue : valueIfKeyNotFound;
+    }
+
+    final long[] keys = mKeys;
+    int index = hash(key) & mMask;
+    while (true) {
+      final long current = keys[index];
+      if (current == key) {
+        return mValues[index];
+      }
+      if (current == FREE_KEY) {
+        return valueIfKeyNotFound;
+      }
+      index = (index + 1) & mMask;
+    }
+  }
+
+  public boolean containsKey(long key) {
+    if (key == FREE_KEY) {
+      return mHasFreeKey;
+    }
+
+    return mKeys[findIndex(key)] == key;
+  }
+
+  /**
+   * Maps {@code key} to {@code value}, replacing the previous value if there was one.
+   */
+  public void put(long key, int value) {
+    if (key == FREE_KEY) {
+      if (!mHasFreeKey) {
+        mHasFreeKey = true;
+        mSize++;
+      }
+      mFreeKeyValue = value;
+      return;
+    }
+
+    final int index = findIndex(key);
+    if (mKeys[index] == key) {
+      mValues[index] = value;
+      return;
+    }
+
+    mKeys[index] = key;
+    mValues[index] = value;
+    if (++mSize > mResizeThreshold) {
+      rehash(mKeys.length * 2);
+    }
+  }
+
+  public int size() {
+    return mSize;
+  }
+
+  public boolean isEmpty() {
+    return mSize == 0;
+  }
+
+  /**
+   * Removes all the entries, keeping the memory allocated for them.
+   */
+  public void clear() {
+    if (mSize == 0) {
+      return;
+    }
+
+    Arrays.fill(mKeys, FREE_KEY);
+    mHasFreeKey = false;
+    mSize = 0;
+  }
+
+  /**
+   * @return the index of the slot that holds {@code key}, or of the free slot it should be put in.
+   */
+  private int findIndex(long key) {
+    final long[] keys = mKeys;
+    int index = hash(key) & mMask;
+    while (keys[index] != key && keys[index] != FREE_KEY) {
+      index = (index + 1) & mMask;
+    }
+
+    return index;
+  }
+
+  private void rehash(int newTableSize) {
+    final long[] oldKeys = mKeys;
+    final int[] oldValues = mValues;
+    allocate(newTableSize);
+
+    for (int i = 0; i < oldKeys.length; i++) {
+      final long key = oldKeys[i];
+      if (key != FREE_KEY) {
+        final int index = findIndex(key);
+        mKeys[index] = key;
+        mValues[index] = oldValues[i];
+      }
+    }
+  }
+
+  private void allocate(int tableSize) {
+    mKeys = new long[tableSize];
+    mValues = new int[tableSize];
+    mMask = tableSize - 1;
+    // Keeps the load factor at or below 3/4 so that probe sequences stay short.
+    mResizeThreshold = tableSize - (tableSize >>> 2);
+  }
+
+  /**
+   * @return the smallest power of two table size that holds {@code capacity} entries.
+   */
+  private static int tableSizeFor(int capacity) {
+    int tableSize = DEFAULT_CAPACITY;
+    while (tableSize - (tableSize >>> 2) < capacity) {
+      tableSize <<= 1;
+    }
+
+    return tableSize;
+  }
+
+  /**
+   * Spreads the bits of {@code key}, so that ids that only differ in their high bits, such as
+   * the ids of outputs of different components, don't all collide in the low bits used for the
+   * index.
+   */
+  private static int hash(long key) {
+    final int h = (int) (key ^ (key >>> 32)) * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+}
@@ -9,6 +9,7 @@
 
 package com.facebook.litho.reference;
 
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import android.content.res.Resources;
@@ -97,6 +98,37 @@ class DrawableResourcesCache {
     drawablesPool.release(drawable);
   }
 
+  /**
+   * Drops the pooled Drawables of the given fraction of the resources, starting with the least
+   * recently used ones, to give memory back under memory pressure.
+   */
+  public void trim(float fraction) {
+    final Map<Integer, SimplePoolWithCount<Drawable>> pools = mDrawableCache.snapshot();
+    int trimCount = fraction >= 1 ? pools.size() : (int) Math.ceil(pools.size() * fraction);
+
+    for (SimplePoolWithCount<Drawable> drawablesPool : pools.values()) {
+      if (trimCount-- <= 0) {
+        break;
+      }
+
+      while (drawablesPool.acquire() != null) {
+        // Drop the Drawable.
+      }
+    }
+  }
+
+  /**
+   * @return the number of Drawables the cache holds.
+   */
+  public int getDrawableCount() {
+    int count = 0;
+    for (SimplePoolWithCount<Drawable> drawablesPool : mDrawableCache.snapshot().values()) {
+      count += drawablesPool.getPoolSize();
+    }
+
+    return count;
+  }
+
   private static class SimplePoolWithCount<T> extends Pools.SynchronizedPool<T> {
 
     private final AtomicInteger mPoolSize;
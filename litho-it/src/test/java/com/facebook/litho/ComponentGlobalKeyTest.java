@@ -67,7 +67,7 @@ public class ComponentGlobalKeyTest {
     LithoView lithoView = getLithoView(componentTree);
 
     Assert.assertEquals(
-        lithoView.getMountItemAt(0).getComponent().getGlobalKey(),
+        lithoView.getMountItemAt(0).getComponent().getGlobalKey().toString(),
         component.getKey());
   }
 
@@ -85,7 +85,7 @@ public class ComponentGlobalKeyTest {
     LithoView lithoView = getLithoView(componentTree);
 
     Assert.assertEquals(
-        lithoView.getMountItemAt(0).getComponent().getGlobalKey(),
+        lithoView.getMountItemAt(0).getComponent().getGlobalKey().toString(),
         "someKey");
   }
 
@@ -103,21 +103,21 @@ public class ComponentGlobalKeyTest {
     LithoView lithoView = getLithoView(componentTree);
 
     // Text
-    Assert.assertEquals(layoutSpecId + "[Text2]", getComponentAt(lithoView, 0).getGlobalKey());
+    Assert.assertEquals(layoutSpecId + "[Text2]", getComponentAt(lithoView, 0).getGlobalKey().toString());
     // TestViewComponent in child layout
-    Assert.assertEquals(layoutSpecId + "" + nestedLayoutSpecId + "[TestViewComponent1]", getComponentAt(lithoView, 1).getGlobalKey());
+    Assert.assertEquals(layoutSpecId + "" + nestedLayoutSpecId + "[TestViewComponent1]", getComponentAt(lithoView, 1).getGlobalKey().toString());
     //background in child
     Assert.assertNull(getComponentAt(lithoView, 2).getGlobalKey());
     // CardClip in child
-    Assert.assertEquals(layoutSpecId + "" + nestedLayoutSpecId + "[CardClip1]", getComponentAt(lithoView, 3).getGlobalKey());
+    Assert.assertEquals(layoutSpecId + "" + nestedLayoutSpecId + "[CardClip1]", getComponentAt(lithoView, 3).getGlobalKey().toString());
     // Text in child
-    Assert.assertEquals(layoutSpecId + "" + nestedLayoutSpecId + "[Text1]", getComponentAt(lithoView, 4).getGlobalKey());
+    Assert.assertEquals(layoutSpecId + "" + nestedLayoutSpecId + "[Text1]", getComponentAt(lithoView, 4).getGlobalKey().toString());
     // background
     Assert.assertNull(getComponentAt(lithoView, 5).getGlobalKey());
     // CardClip
-    Assert.assertEquals(layoutSpecId + "[CardClip2]", getComponentAt(lithoView, 6).getGlobalKey());
+    Assert.assertEquals(layoutSpecId + "[CardClip2]", getComponentAt(lithoView, 6).getGlobalKey().toString());
     // TestViewComponent
-    Assert.assertEquals(layoutSpecId + "[TestViewComponent2]", getComponentAt(lithoView, 7).getGlobalKey());
+    Assert.assertEquals(layoutSpecId + "[TestViewComponent2]", getComponentAt(lithoView, 7).getGlobalKey().toString());
   }
 
   private static Component getComponentAt(LithoView lithoView, int index) {
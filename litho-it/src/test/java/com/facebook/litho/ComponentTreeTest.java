@@ -9,11 +9,19 @@
 
 package com.facebook.litho;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
 import android.os.Looper;
 
 import com.facebook.litho.testing.TestDrawableComponent;
 import com.facebook.litho.testing.TestLayoutComponent;
 import com.facebook.litho.testing.testrunner.ComponentsTestRunner;
+import com.facebook.litho.testing.util.InlineLayoutSpec;
 
 import org.junit.Assert;
 import org.junit.Before;
@@ -28,6 +36,8 @@ import static com.facebook.litho.ComponentTree.create;
 import static com.facebook.litho.SizeSpec.AT_MOST;
 import static com.facebook.litho.SizeSpec.EXACTLY;
 import static com.facebook.litho.SizeSpec.makeSizeSpec;
+import static com.facebook.litho.ThreadPoolLayoutHandler.PRIORITY_PREFETCH;
+import static com.facebook.litho.ThreadPoolLayoutHandler.PRIORITY_VISIBLE;
 import static junit.framework.Assert.assertEquals;
 import static org.assertj.core.api.Java6Assertions.assertThat;
 import static org.junit.Assert.assertNotEquals;
@@ -460,6 +470,174 @@ public class ComponentTreeTest {
     Assert.assertNull(getComponentTree(lithoView1));
   }
 
+  @Test
+  public void testCoalescedAsyncRootsOnlyLayOutTheLatestRoot() {
+    ComponentTree componentTree =
+        create(mContext, mComponent)
+            .incrementalMount(false)
+            .layoutDiffing(false)
+            .coalesceAsyncRoots(true)
+            .build();
+    componentTree.setSizeSpec(mWidthSpec, mHeightSpec);
+
+    final Component newComponent = TestDrawableComponent.create(mContext).build();
+    componentTree.setRootAsync(TestDrawableComponent.create(mContext).build());
+    componentTree.setRootAsync(TestDrawableComponent.create(mContext).build());
+    componentTree.setRootAsync(newComponent);
+
+    assertThat(componentTree.getDroppedRootCount()).isEqualTo(2);
+
+    // A single layout is scheduled, for the latest root.
+    mLayoutThreadShadowLooper.runOneTask();
+    LayoutState backgroundLayoutState = getInternalState(componentTree, "mBackgroundLayoutState");
+    assertThat(backgroundLayoutState.isCompatibleComponentAndSpec(
+        newComponent.getId(),
+        mWidthSpec,
+        mHeightSpec)).isTrue();
+
+    mLayoutThreadShadowLooper.runToEndOfTasks();
+    assertThat((LayoutState) getInternalState(componentTree, "mBackgroundLayoutState"))
+        .isSameAs(backgroundLayoutState);
+  }
+
+  @Test
+  public void testCoalescedAsyncRootsAreLaidOutAtMostOncePerInterval() {
+    ComponentTree componentTree =
+        create(mContext, mComponent)
+            .incrementalMount(false)
+            .layoutDiffing(false)
+            .coalesceAsyncRoots(true)
+            .asyncRootMinIntervalMs(100)
+            .build();
+    componentTree.setSizeSpec(mWidthSpec, mHeightSpec);
+
+    final Component firstComponent = TestDrawableComponent.create(mContext).build();
+    componentTree.setRootAsync(firstComponent);
+    mLayoutThreadShadowLooper.runToEndOfTasks();
+    assertThat(hasBackgroundLayoutFor(componentTree, firstComponent)).isTrue();
+
+    final Component lastComponent = TestDrawableComponent.create(mContext).build();
+    componentTree.setRootAsync(TestDrawableComponent.create(mContext).build());
+    componentTree.setRootAsync(lastComponent);
+
+    // The next layout waits for the interval to pass.
+    mLayoutThreadShadowLooper.runToEndOfTasks();
+    assertThat(hasBackgroundLayoutFor(componentTree, firstComponent)).isTrue();
+
+    ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+    mLayoutThreadShadowLooper.runToEndOfTasks();
+    assertThat(hasBackgroundLayoutFor(componentTree, lastComponent)).isTrue();
+    assertThat(componentTree.getDroppedRootCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void testReplacingACoalescedRootThatWasLaidOutDoesntCountAsDropped() {
+    ComponentTree componentTree =
+        create(mContext, mComponent)
+            .incrementalMount(false)
+            .layoutDiffing(false)
+            .coalesceAsyncRoots(true)
+            .build();
+    componentTree.setSizeSpec(mWidthSpec, mHeightSpec);
+
+    final Component firstComponent = TestDrawableComponent.create(mContext).build();
+    componentTree.setRootAsync(firstComponent);
+
+    // A synchronous layout for new size specs lays the root out before its scheduled layout runs.
+    componentTree.setSizeSpec(mWidthSpec2, mHeightSpec2);
+    assertThat(hasBackgroundLayoutFor(componentTree, firstComponent, mWidthSpec2, mHeightSpec2))
+        .isTrue();
+
+    componentTree.setRootAsync(TestDrawableComponent.create(mContext).build());
+
+    assertThat(componentTree.getDroppedRootCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void testLayoutsOfAnAttachedTreeRunBeforePrefetchedOnes() throws InterruptedException {
+    final ThreadPoolExecutor executor = ThreadPoolLayoutHandler.createExecutor(1);
+    final List<String> layoutOrder = Collections.synchronizedList(new ArrayList<String>());
+
+    try {
+      // Keeps the only thread of the pool busy, so that the layouts of the trees queue up.
+      final CountDownLatch blockLatch = new CountDownLatch(1);
+      final CountDownLatch startedLatch = new CountDownLatch(1);
+      executor.execute(new Runnable() {
+        @Override
+        public void run() {
+          startedLatch.countDown();
+          try {
+            blockLatch.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        }
+      });
+      startedLatch.await();
+
+      final ThreadPoolLayoutHandler prefetchedHandler =
+          new ThreadPoolLayoutHandler(PRIORITY_PREFETCH, executor);
+      final ComponentTree prefetchedTree =
+          create(mContext, createRecordingComponent("prefetched", layoutOrder))
+              .layoutThreadHandler(prefetchedHandler)
+              .build();
+      final ThreadPoolLayoutHandler visibleHandler =
+          new ThreadPoolLayoutHandler(PRIORITY_PREFETCH, executor);
+      final ComponentTree visibleTree =
+          create(mContext, createRecordingComponent("visible", layoutOrder))
+              .layoutThreadHandler(visibleHandler)
+              .build();
+
+      prefetchedTree.setSizeSpecAsync(mWidthSpec, mHeightSpec);
+      visibleTree.setSizeSpecAsync(mWidthSpec, mHeightSpec);
+
+      // Attaching the tree raises the priority of the layout it already queued.
+      final LithoView lithoView = new LithoView(mContext);
+      lithoView.setComponentTree(visibleTree);
+      lithoView.onAttachedToWindow();
+      assertThat(visibleHandler.getPriority()).isEqualTo(PRIORITY_VISIBLE);
+
+      blockLatch.countDown();
+      final long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+      while (executor.getCompletedTaskCount() != executor.getTaskCount()) {
+        assertThat(System.currentTimeMillis()).isLessThan(deadline);
+        Thread.sleep(1);
+      }
+
+      assertThat(layoutOrder).containsExactly("visible", "prefetched");
+
+      lithoView.onDetachedFromWindow();
+      assertThat(visibleHandler.getPriority()).isEqualTo(PRIORITY_PREFETCH);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static Component createRecordingComponent(
+      final String name,
+      final List<String> layoutOrder) {
+    return new InlineLayoutSpec() {
+      @Override
+      protected ComponentLayout onCreateLayout(ComponentContext c) {
+        layoutOrder.add(name);
+        return TestDrawableComponent.create(c).buildWithLayout();
+      }
+    };
+  }
+
+  private boolean hasBackgroundLayoutFor(ComponentTree componentTree, Component component) {
+    return hasBackgroundLayoutFor(componentTree, component, mWidthSpec, mHeightSpec);
+  }
+
+  private static boolean hasBackgroundLayoutFor(
+      ComponentTree componentTree,
+      Component component,
+      int widthSpec,
+      int heightSpec) {
+    final LayoutState layoutState = getInternalState(componentTree, "mBackgroundLayoutState");
+    return layoutState.isCompatibleComponentAndSpec(component.getId(), widthSpec, heightSpec);
+  }
+
   private static LithoView getLithoView(ComponentTree componentTree) {
     return Whitebox.getInternalState(componentTree, "mLithoView");
   }
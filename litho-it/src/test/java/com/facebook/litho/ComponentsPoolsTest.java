@@ -9,12 +9,14 @@
 
 package com.facebook.litho;
 
+import android.content.ComponentCallbacks2;
 import android.content.ContextWrapper;
 import android.graphics.Color;
 import android.graphics.drawable.ColorDrawable;
 
 import com.facebook.litho.testing.testrunner.ComponentsTestRunner;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -46,6 +48,11 @@ public class ComponentsPoolsTest {
     mMountContent = new ColorDrawable(Color.RED);
   }
 
+  @After
+  public void tearDown() {
+    ComponentsPools.clearAll();
+  }
+
   @Test
   public void testAcquireMountContentWithSameContext() {
     assertThat(acquireMountContent(mContext1, mLifecycle.getId())).isNull();
@@ -72,4 +79,45 @@ public class ComponentsPoolsTest {
 
     assertThat(acquireMountContent(mContext3, mLifecycle.getId())).isNull();
   }
+
+  @Test
+  public void testTrimMemoryDropsMountContent() {
+    assertThat(acquireMountContent(mContext1, mLifecycle.getId())).isNull();
+
+    release(mContext1, mLifecycle, mMountContent);
+    release(mContext1, mLifecycle, new ColorDrawable(Color.BLUE));
+
+    ComponentsPools.trimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+    assertThat(mMountContent).isSameAs(acquireMountContent(mContext1, mLifecycle.getId()));
+
+    release(mContext1, mLifecycle, new ColorDrawable(Color.BLUE));
+
+    ComponentsPools.trimMemory(ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+    assertThat(acquireMountContent(mContext1, mLifecycle.getId())).isNull();
+  }
+
+  @Test
+  public void testTrimFractionGrowsWithMemoryPressure() {
+    assertThat(ComponentsPools.getTrimFraction(ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE))
+        .isEqualTo(0.25f);
+    assertThat(ComponentsPools.getTrimFraction(ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL))
+        .isEqualTo(0.75f);
+    assertThat(ComponentsPools.getTrimFraction(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN))
+        .isEqualTo(0.75f);
+    assertThat(ComponentsPools.getTrimFraction(ComponentCallbacks2.TRIM_MEMORY_COMPLETE))
+        .isEqualTo(1f);
+
+    final int[] levels = new int[] {
+        ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE,
+        ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW,
+        ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL,
+        ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN,
+        ComponentCallbacks2.TRIM_MEMORY_BACKGROUND,
+        ComponentCallbacks2.TRIM_MEMORY_MODERATE,
+        ComponentCallbacks2.TRIM_MEMORY_COMPLETE};
+    for (int i = 1; i < levels.length; i++) {
+      assertThat(ComponentsPools.getTrimFraction(levels[i]))
+          .isGreaterThanOrEqualTo(ComponentsPools.getTrimFraction(levels[i - 1]));
+    }
+  }
 }
@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2017-present, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+
+package com.facebook.litho;
+
+import com.facebook.litho.testing.testrunner.ComponentsTestRunner;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+@RunWith(ComponentsTestRunner.class)
+public class GlobalKeyTest {
+
+  @Test
+  public void testKeysWithSameHierarchyAreEqual() {
+    final GlobalKey key = GlobalKey.create(GlobalKey.create(GlobalKey.root("1"), "2"), "3");
+    final GlobalKey sameKey = GlobalKey.create(GlobalKey.create(GlobalKey.root("1"), "2"), "3");
+
+    assertThat(key).isEqualTo(sameKey);
+    assertThat(key.hashCode()).isEqualTo(sameKey.hashCode());
+  }
+
+  @Test
+  public void testKeysWithDifferentHierarchyAreNotEqual() {
+    final GlobalKey key = GlobalKey.create(GlobalKey.root("1"), "23");
+
+    assertThat(key).isNotEqualTo(GlobalKey.create(GlobalKey.root("12"), "3"));
+    assertThat(key).isNotEqualTo(GlobalKey.create(GlobalKey.root("2"), "23"));
+    assertThat(key).isNotEqualTo(GlobalKey.root("23"));
+  }
+
+  @Test
+  public void testToStringConcatenatesKeys() {
+    final GlobalKey key = GlobalKey.create(GlobalKey.create(GlobalKey.root("1"), "2"), "[Text]");
+
+    assertThat(key.toString()).isEqualTo("12[Text]");
+    assertThat(GlobalKey.create(null, "1").toString()).isEqualTo("1");
+  }
+
+  @Test
+  public void testIsSelfOrDescendantOf() {
+    final GlobalKey root = GlobalKey.root("1");
+    final GlobalKey child = GlobalKey.create(root, "2");
+    final GlobalKey grandChild = GlobalKey.create(child, "3");
+
+    assertThat(grandChild.isSelfOrDescendantOf(grandChild)).isTrue();
+    assertThat(grandChild.isSelfOrDescendantOf(child)).isTrue();
+    assertThat(grandChild.isSelfOrDescendantOf(GlobalKey.root("1"))).isTrue();
+    assertThat(child.isSelfOrDescendantOf(grandChild)).isFalse();
+    assertThat(grandChild.isSelfOrDescendantOf(GlobalKey.create(root, "3"))).isFalse();
+  }
+}
@@ -9,9 +9,13 @@
 
 package com.facebook.litho;
 
+import com.facebook.litho.config.ComponentsConfiguration;
 import com.facebook.litho.testing.testrunner.ComponentsTestRunner;
 import com.facebook.yoga.YogaEdge;
+import com.facebook.yoga.YogaNode;
+import com.facebook.yoga.YogaUnit;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -30,6 +34,11 @@ public class InternalNodeReleaseTest {
         RuntimeEnvironment.application.getResources());
   }
 
+  @After
+  public void tearDown() {
+    ComponentsConfiguration.batchReleaseNodeTrees = false;
+  }
+
   private static void assertDefaultValues(InternalNode node) {
     assertThat(node.isForceViewWrapping()).isEqualTo(false);
 
@@ -100,4 +109,39 @@ public class InternalNodeReleaseTest {
         0);
     mInternalNode.release();
   }
+
+  @Test
+  public void testReleaseNodeTreeInBatch() {
+    ComponentsConfiguration.batchReleaseNodeTrees = true;
+
+    final InternalNode child = acquireInternalNode();
+    final InternalNode grandChild = acquireInternalNode();
+    mInternalNode.addChildAt(child, 0);
+    child.addChildAt(grandChild, 0);
+    mInternalNode.widthPx(10);
+    child.paddingPx(YogaEdge.ALL, 5);
+
+    final YogaNode rootYogaNode = mInternalNode.mYogaNode;
+    final YogaNode childYogaNode = child.mYogaNode;
+    final YogaNode grandChildYogaNode = grandChild.mYogaNode;
+
+    LayoutState.releaseNodeTree(mInternalNode, false /* isNestedTree */);
+
+    assertThat(mInternalNode.mYogaNode).isNull();
+    assertThat(child.mYogaNode).isNull();
+    assertThat(grandChild.mYogaNode).isNull();
+
+    assertThat(rootYogaNode.getChildCount()).isEqualTo(0);
+    assertThat(childYogaNode.getParent()).isNull();
+    assertThat(childYogaNode.getChildCount()).isEqualTo(0);
+    assertThat(grandChildYogaNode.getParent()).isNull();
+    assertThat(rootYogaNode.getWidth().unit).isEqualTo(YogaUnit.AUTO);
+    assertThat(childYogaNode.getPadding(YogaEdge.LEFT).unit).isEqualTo(YogaUnit.UNDEFINED);
+  }
+
+  private static InternalNode acquireInternalNode() {
+    return ComponentsPools.acquireInternalNode(
+        new ComponentContext(RuntimeEnvironment.application),
+        RuntimeEnvironment.application.getResources());
+  }
 }
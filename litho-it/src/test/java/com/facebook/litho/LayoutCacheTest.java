@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) 2017-present, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+
+package com.facebook.litho;
+
+import java.util.Locale;
+
+import android.content.res.Configuration;
+import android.content.res.Resources;
+
+import com.facebook.litho.testing.testrunner.ComponentsTestRunner;
+import com.facebook.yoga.YogaDirection;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RuntimeEnvironment;
+
+import static com.facebook.litho.SizeSpec.AT_MOST;
+import static com.facebook.litho.SizeSpec.EXACTLY;
+import static com.facebook.litho.SizeSpec.makeSizeSpec;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+@RunWith(ComponentsTestRunner.class)
+public class LayoutCacheTest {
+
+  private static final int WIDTH_SPEC = makeSizeSpec(100, EXACTLY);
+  private static final int HEIGHT_SPEC = makeSizeSpec(200, AT_MOST);
+
+  private final TestLifecycle mLifecycle = new TestLifecycle();
+  private LayoutCache mLayoutCache;
+  private Resources mResources;
+  private Size mSize;
+
+  @Before
+  public void setup() {
+    mLayoutCache = new LayoutCache(2);
+    mResources = RuntimeEnvironment.application.getResources();
+    mSize = new Size();
+  }
+
+  @Test
+  public void testMissThenHitForEquivalentComponent() {
+    assertThat(get(create(1), WIDTH_SPEC, HEIGHT_SPEC, mSize)).isFalse();
+
+    put(create(1), WIDTH_SPEC, HEIGHT_SPEC, 100, 42);
+
+    assertThat(get(create(1), WIDTH_SPEC, HEIGHT_SPEC, mSize)).isTrue();
+    assertThat(mSize.width).isEqualTo(100);
+    assertThat(mSize.height).isEqualTo(42);
+    assertThat(mLayoutCache.getHitCount()).isEqualTo(1);
+    assertThat(mLayoutCache.getMissCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void testNonEquivalentComponentOrDifferentSpecsMiss() {
+    put(create(1), WIDTH_SPEC, HEIGHT_SPEC, 100, 42);
+
+    assertThat(get(create(2), WIDTH_SPEC, HEIGHT_SPEC, mSize)).isFalse();
+    assertThat(get(create(1), WIDTH_SPEC, WIDTH_SPEC, mSize)).isFalse();
+    assertThat(mLayoutCache.getMissCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void testNonEquivalentComponentsShareKey() {
+    put(create(1), WIDTH_SPEC, HEIGHT_SPEC, 100, 10);
+    put(create(2), WIDTH_SPEC, HEIGHT_SPEC, 100, 20);
+
+    assertThat(mLayoutCache.getSize()).isEqualTo(1);
+    assertThat(get(create(1), WIDTH_SPEC, HEIGHT_SPEC, mSize)).isTrue();
+    assertThat(mSize.height).isEqualTo(10);
+    assertThat(get(create(2), WIDTH_SPEC, HEIGHT_SPEC, mSize)).isTrue();
+    assertThat(mSize.height).isEqualTo(20);
+  }
+
+  @Test
+  public void testLeastRecentlyUsedEntryIsEvicted() {
+    final int otherHeightSpec = makeSizeSpec(300, AT_MOST);
+    final int thirdHeightSpec = makeSizeSpec(400, AT_MOST);
+
+    put(create(1), WIDTH_SPEC, HEIGHT_SPEC, 100, 10);
+    put(create(1), WIDTH_SPEC, otherHeightSpec, 100, 20);
+
+    // Touch the first entry so that the second one becomes the eldest.
+    assertThat(get(create(1), WIDTH_SPEC, HEIGHT_SPEC, mSize)).isTrue();
+
+    put(create(1), WIDTH_SPEC, thirdHeightSpec, 100, 30);
+
+    assertThat(mLayoutCache.getSize()).isEqualTo(2);
+    assertThat(mLayoutCache.getEvictionCount()).isEqualTo(1);
+    assertThat(get(create(1), WIDTH_SPEC, HEIGHT_SPEC, mSize)).isTrue();
+    assertThat(get(create(1), WIDTH_SPEC, otherHeightSpec, mSize)).isFalse();
+    assertThat(get(create(1), WIDTH_SPEC, thirdHeightSpec, mSize)).isTrue();
+  }
+
+  @Test
+  public void testDifferentLayoutDirectionMisses() {
+    put(create(1), WIDTH_SPEC, HEIGHT_SPEC, 100, 10);
+
+    assertThat(
+        mLayoutCache.get(create(1), mResources, YogaDirection.RTL, WIDTH_SPEC, HEIGHT_SPEC, mSize))
+        .isFalse();
+  }
+
+  @Test
+  public void testConfigurationChangeMisses() {
+    final Configuration configuration = mResources.getConfiguration();
+    final float fontScale = configuration.fontScale;
+    final Locale locale = configuration.locale;
+
+    put(create(1), WIDTH_SPEC, HEIGHT_SPEC, 100, 10);
+
+    try {
+      configuration.fontScale = fontScale * 2;
+      mResources.updateConfiguration(configuration, mResources.getDisplayMetrics());
+      assertThat(get(create(1), WIDTH_SPEC, HEIGHT_SPEC, mSize)).isFalse();
+
+      configuration.fontScale = fontScale;
+      configuration.locale = Locale.JAPAN.equals(locale) ? Locale.KOREA : Locale.JAPAN;
+      mResources.updateConfiguration(configuration, mResources.getDisplayMetrics());
+      assertThat(get(create(1), WIDTH_SPEC, HEIGHT_SPEC, mSize)).isFalse();
+    } finally {
+      configuration.fontScale = fontScale;
+      configuration.locale = locale;
+      mResources.updateConfiguration(configuration, mResources.getDisplayMetrics());
+    }
+
+    assertThat(get(create(1), WIDTH_SPEC, HEIGHT_SPEC, mSize)).isTrue();
+  }
+
+  @Test
+  public void testTrimDropsTheLeastRecentlyUsedEntries() {
+    final int otherHeightSpec = makeSizeSpec(300, AT_MOST);
+
+    put(create(1), WIDTH_SPEC, HEIGHT_SPEC, 100, 10);
+    put(create(1), WIDTH_SPEC, otherHeightSpec, 100, 20);
+
+    // Touch the first entry so that the second one becomes the eldest.
+    assertThat(get(create(1), WIDTH_SPEC, HEIGHT_SPEC, mSize)).isTrue();
+
+    mLayoutCache.trim(0.5f);
+
+    assertThat(mLayoutCache.getSize()).isEqualTo(1);
+    assertThat(get(create(1), WIDTH_SPEC, HEIGHT_SPEC, mSize)).isTrue();
+    assertThat(get(create(1), WIDTH_SPEC, otherHeightSpec, mSize)).isFalse();
+  }
+
+  @Test
+  public void testClear() {
+    put(create(1), WIDTH_SPEC, HEIGHT_SPEC, 100, 10);
+    mLayoutCache.clear();
+
+    assertThat(mLayoutCache.getSize()).isEqualTo(0);
+    assertThat(get(create(1), WIDTH_SPEC, HEIGHT_SPEC, mSize)).isFalse();
+  }
+
+  private boolean get(Component<?> component, int widthSpec, int heightSpec, Size outputSize) {
+    return mLayoutCache.get(
+        component,
+        mResources,
+        YogaDirection.LTR,
+        widthSpec,
+        heightSpec,
+        outputSize);
+  }
+
+  private void put(Component<?> component, int widthSpec, int heightSpec, int width, int height) {
+    mLayoutCache.put(
+        component,
+        mResources,
+        YogaDirection.LTR,
+        widthSpec,
+        heightSpec,
+        width,
+        height);
+  }
+
+  private TestComponent create(int prop) {
+    return new TestComponent(mLifecycle, prop);
+  }
+
+  private static class TestLifecycle extends ComponentLifecycle {
+    @Override
+    protected boolean canMeasure() {
+      return true;
+    }
+
+    @Override
+    protected boolean isPureRender() {
+      return true;
+    }
+  }
+
+  private static class TestComponent extends Component<TestLifecycle> implements Cloneable {
+    private final int mProp;
+
+    TestComponent(TestLifecycle lifecycle, int prop) {
+      super(lifecycle);
+      mProp = prop;
+    }
+
+    @Override
+    public String getSimpleName() {
+      return "TestComponent";
+    }
+
+    @Override
+    public boolean isEquivalentTo(Component<?> other) {
+      return other instanceof TestComponent && ((TestComponent) other).mProp == mProp;
+    }
+  }
+}
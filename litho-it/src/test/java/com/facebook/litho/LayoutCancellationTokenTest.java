@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2017-present, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+
+package com.facebook.litho;
+
+import com.facebook.litho.testing.TestDrawableComponent;
+import com.facebook.litho.testing.testrunner.ComponentsTestRunner;
+import com.facebook.litho.testing.util.InlineLayoutSpec;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RuntimeEnvironment;
+
+import static com.facebook.litho.SizeSpec.EXACTLY;
+import static com.facebook.litho.SizeSpec.makeSizeSpec;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+@RunWith(ComponentsTestRunner.class)
+public class LayoutCancellationTokenTest {
+
+  private static final int WIDTH_SPEC = makeSizeSpec(100, EXACTLY);
+  private static final int HEIGHT_SPEC = makeSizeSpec(100, EXACTLY);
+
+  private LayoutCancellationToken mToken;
+  private ComponentContext mContext;
+
+  @Before
+  public void setup() {
+    mToken = new LayoutCancellationToken();
+    mContext = ComponentContext.withLayoutCancellationToken(
+        new ComponentContext(RuntimeEnvironment.application, new StateHandler()),
+        mToken);
+  }
+
+  @Test
+  public void testLayoutCompletesIfNotCancelled() {
+    final LayoutState layoutState =
+        LayoutState.calculate(mContext, createComponent(false), -1, WIDTH_SPEC, HEIGHT_SPEC);
+
+    assertThat(mToken.isCancelled()).isFalse();
+    assertThat(layoutState).isNotNull();
+    assertThat(layoutState.getMountableOutputCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void testLayoutCancelledBeforeStartingReturnsNull() {
+    mToken.cancel();
+
+    assertThat(LayoutState.calculate(
+        mContext,
+        createComponent(false),
+        -1,
+        WIDTH_SPEC,
+        HEIGHT_SPEC)).isNull();
+  }
+
+  @Test
+  public void testLayoutCancelledWhileCreatingTreeReturnsNull() {
+    assertThat(LayoutState.calculate(
+        mContext,
+        createComponent(true),
+        -1,
+        WIDTH_SPEC,
+        HEIGHT_SPEC)).isNull();
+  }
+
+  private Component<?> createComponent(final boolean cancelWhileCreatingLayout) {
+    return new InlineLayoutSpec() {
+      @Override
+      protected ComponentLayout onCreateLayout(ComponentContext c) {
+        if (cancelWhileCreatingLayout) {
+          mToken.cancel();
+        }
+
+        return Column.create(c)
+            .child(TestDrawableComponent.create(c))
+            .build();
+      }
+    };
+  }
+}
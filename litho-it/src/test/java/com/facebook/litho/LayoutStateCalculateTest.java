@@ -506,6 +506,59 @@ public class LayoutStateCalculateTest {
     assertThat(viewNodeInfo.getPaddingBottom() == paddingSize).isTrue();
   }
 
+  @Test
+  public void testDrawableComponentsShareTheContextOfTheirNode() {
+    final Component component = new InlineLayoutSpec() {
+      @Override
+      protected ComponentLayout onCreateLayout(final ComponentContext c) {
+        return create(c)
+            .backgroundColor(0xFFFF0000)
+            .build();
+      }
+    };
+
+    final LayoutState layoutState = calculateLayoutState(
+        application,
+        component,
+        -1,
+        makeSizeSpec(100, EXACTLY),
+        makeSizeSpec(100, EXACTLY));
+
+    assertThat(getComponentAt(layoutState, 1)).isInstanceOf(DrawableComponent.class);
+    assertThat(layoutState.getMountableOutputAt(1).getComponent().getScopedContext())
+        .isSameAs(component.getScopedContext());
+  }
+
+  @Test
+  public void testScopedContextsShareTheLayoutScopeOfTheirParent() {
+    final Component component = new InlineLayoutSpec() {
+      @Override
+      protected ComponentLayout onCreateLayout(final ComponentContext c) {
+        return create(c)
+            .child(TestDrawableComponent.create(c))
+            .build();
+      }
+    };
+
+    final LayoutState layoutState = calculateLayoutState(
+        application,
+        component,
+        -1,
+        makeSizeSpec(100, EXACTLY),
+        makeSizeSpec(100, EXACTLY));
+
+    final ComponentContext parentContext = component.getScopedContext();
+    final ComponentContext childContext =
+        layoutState.getMountableOutputAt(1).getComponent().getScopedContext();
+
+    assertThat(childContext).isNotSameAs(parentContext);
+    assertThat(childContext.getComponentScope())
+        .isSameAs(layoutState.getMountableOutputAt(1).getComponent());
+    assertThat(Whitebox.getInternalState(childContext, "mLayoutScope"))
+        .isSameAs(Whitebox.getInternalState(parentContext, "mLayoutScope"));
+    assertThat(childContext.getStateHandler()).isSameAs(parentContext.getStateHandler());
+  }
+
   @Test
   public void testLayoutOutputsForMegaDeepLayoutSpecs() {
     final Component component = new InlineLayoutSpec() {
@@ -9,6 +9,8 @@
 
 package com.facebook.litho;
 
+import java.util.Arrays;
+
 import android.content.Context;
 
 import com.facebook.litho.testing.TestDrawableComponent;
@@ -17,10 +19,9 @@ import com.facebook.litho.testing.util.InlineLayoutSpec;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.powermock.reflect.Whitebox;
 
 import static com.facebook.litho.Column.create;
-import static com.facebook.litho.LayoutState.sBottomsComparator;
-import static com.facebook.litho.LayoutState.sTopsComparator;
 import static com.facebook.litho.SizeSpec.AT_MOST;
 import static com.facebook.litho.SizeSpec.EXACTLY;
 import static com.facebook.litho.SizeSpec.makeSizeSpec;
@@ -69,97 +70,123 @@ public class LayoutStateCalculateTopsAndBottomsTest {
 
     assertThat(layoutState.getMountableOutputCount()).isEqualTo(5);
 
-    assertThat(layoutState.getMountableOutputTops().get(0).getBounds().top).isEqualTo(0);
-    assertThat(layoutState.getMountableOutputTops().get(1).getBounds().top).isEqualTo(0);
-    assertThat(layoutState.getMountableOutputTops().get(2).getBounds().top).isEqualTo(0);
-    assertThat(layoutState.getMountableOutputTops().get(3).getBounds().top).isEqualTo(10);
-    assertThat(layoutState.getMountableOutputTops().get(4).getBounds().top).isEqualTo(50);
-
-    assertThat(layoutState.getMountableOutputBottoms().get(0).getBounds().bottom).isEqualTo(40);
-    assertThat(layoutState.getMountableOutputBottoms().get(1).getBounds().bottom).isEqualTo(50);
-    assertThat(layoutState.getMountableOutputBottoms().get(2).getBounds().bottom).isEqualTo(50);
-    assertThat(layoutState.getMountableOutputBottoms().get(3).getBounds().bottom).isEqualTo(70);
-    assertThat(layoutState.getMountableOutputBottoms().get(4).getBounds().bottom).isEqualTo(70);
-
-    assertThat(layoutState.getMountableOutputAt(2)).isSameAs(layoutState.getMountableOutputTops().get(2));
-    assertThat(layoutState.getMountableOutputAt(4)).isSameAs(layoutState.getMountableOutputTops().get(3));
-    assertThat(layoutState.getMountableOutputAt(3)).isSameAs(layoutState.getMountableOutputTops().get(4));
-
-    assertThat(layoutState.getMountableOutputAt(4)).isSameAs(layoutState.getMountableOutputBottoms().get(0));
-    assertThat(layoutState.getMountableOutputAt(2)).isSameAs(layoutState.getMountableOutputBottoms().get(1));
-    assertThat(layoutState.getMountableOutputAt(1)).isSameAs(layoutState.getMountableOutputBottoms().get(2));
-    assertThat(layoutState.getMountableOutputAt(3)).isSameAs(layoutState.getMountableOutputBottoms().get(3));
-    assertThat(layoutState.getMountableOutputAt(0)).isSameAs(layoutState.getMountableOutputBottoms().get(4));
+    final MountableOutputColumns columns = layoutState.getMountableOutputColumns();
+    assertThat(columns.getCount()).isEqualTo(5);
+
+    assertThat(columns.getTop(columns.getPositionByTop(0))).isEqualTo(0);
+    assertThat(columns.getTop(columns.getPositionByTop(1))).isEqualTo(0);
+    assertThat(columns.getTop(columns.getPositionByTop(2))).isEqualTo(0);
+    assertThat(columns.getTop(columns.getPositionByTop(3))).isEqualTo(10);
+    assertThat(columns.getTop(columns.getPositionByTop(4))).isEqualTo(50);
+
+    assertThat(columns.getBottom(columns.getPositionByBottom(0))).isEqualTo(40);
+    assertThat(columns.getBottom(columns.getPositionByBottom(1))).isEqualTo(50);
+    assertThat(columns.getBottom(columns.getPositionByBottom(2))).isEqualTo(50);
+    assertThat(columns.getBottom(columns.getPositionByBottom(3))).isEqualTo(70);
+    assertThat(columns.getBottom(columns.getPositionByBottom(4))).isEqualTo(70);
+
+    assertThat(columns.getPositionByTop(2)).isEqualTo(2);
+    assertThat(columns.getPositionByTop(3)).isEqualTo(4);
+    assertThat(columns.getPositionByTop(4)).isEqualTo(3);
+
+    assertThat(columns.getPositionByBottom(0)).isEqualTo(4);
+    assertThat(columns.getPositionByBottom(1)).isEqualTo(2);
+    assertThat(columns.getPositionByBottom(2)).isEqualTo(1);
+    assertThat(columns.getPositionByBottom(3)).isEqualTo(3);
+    assertThat(columns.getPositionByBottom(4)).isEqualTo(0);
+
+    for (int i = 0; i < 5; i++) {
+      final LayoutOutput layoutOutput = layoutState.getMountableOutputAt(i);
+      assertThat(columns.getTop(i)).isEqualTo(layoutOutput.getBounds().top);
+      assertThat(columns.getBottom(i)).isEqualTo(layoutOutput.getBounds().bottom);
+      assertThat(columns.getId(i)).isEqualTo(layoutOutput.getId());
+      assertThat(columns.getHostMarker(i)).isEqualTo(layoutOutput.getHostMarker());
+    }
   }
 
   @Test
-  public void testTopsComparatorIsEquivalenceRelation() {
-    LayoutOutput[] layoutOutputs = new LayoutOutput[4];
-    layoutOutputs[0] = createLayoutOutput(0, 20, false);
-    layoutOutputs[1] = createLayoutOutput(0, 20, true);
-    layoutOutputs[2] = createLayoutOutput(10, 20, false);
-    layoutOutputs[3] = createLayoutOutput(10, 20, true);
-
-    // reflexive
-    for (LayoutOutput layoutOutput : layoutOutputs) {
-      assertThat(sTopsComparator.compare(layoutOutput, layoutOutput)).isEqualTo(0);
-    }
-
-    // symmetric
-    for (int i = 0; i < 4; i++) {
-      for (int j = i + 1; j < 4; j++) {
-        assertThat(-1 * sTopsComparator.compare(layoutOutputs[j], layoutOutputs[i])).isEqualTo(sTopsComparator.compare(layoutOutputs[i], layoutOutputs[j]));
-      }
-    }
-
-    // transitivity
-    for (int i = 0; i < 4; i++) {
-      for (int j = 0; j < 4; j++) {
-        for (int k = 0; k < 4; k++) {
-          if (i != j && j != k && i != k) {
-            if (LayoutState.sTopsComparator.compare(layoutOutputs[i], layoutOutputs[j]) ==
-                LayoutState.sTopsComparator.compare(layoutOutputs[j], layoutOutputs[k])) {
-              assertThat(sTopsComparator.compare(layoutOutputs[j], layoutOutputs[k])).isEqualTo(sTopsComparator.compare(layoutOutputs[i], layoutOutputs[j]));
-            }
-          }
-        }
-      }
-    }
+  public void testHostsAreFirstByTopAndLastByBottom() {
+    final MountableOutputColumns columns = new MountableOutputColumns();
+    columns.set(Arrays.asList(
+        createLayoutOutput(10, 20, false),
+        createLayoutOutput(10, 20, true),
+        createLayoutOutput(0, 20, false),
+        createLayoutOutput(-10, 30, true)));
+
+    assertThat(columns.getPositionByTop(0)).isEqualTo(3);
+    assertThat(columns.getPositionByTop(1)).isEqualTo(2);
+    assertThat(columns.getPositionByTop(2)).isEqualTo(1);
+    assertThat(columns.getPositionByTop(3)).isEqualTo(0);
+
+    assertThat(columns.getPositionByBottom(0)).isEqualTo(0);
+    assertThat(columns.getPositionByBottom(1)).isEqualTo(2);
+    assertThat(columns.getPositionByBottom(2)).isEqualTo(1);
+    assertThat(columns.getPositionByBottom(3)).isEqualTo(3);
   }
 
   @Test
-  public void testBottomsComparatorIsEquivalenceRelation() {
-    LayoutOutput[] layoutOutputs = new LayoutOutput[4];
-    layoutOutputs[0] = createLayoutOutput(0, 10, false);
-    layoutOutputs[1] = createLayoutOutput(0, 10, true);
-    layoutOutputs[2] = createLayoutOutput(0, 20, false);
-    layoutOutputs[3] = createLayoutOutput(0, 20, true);
-
-    // reflexive
-    for (LayoutOutput layoutOutput : layoutOutputs) {
-      assertThat(sBottomsComparator.compare(layoutOutput, layoutOutput)).isEqualTo(0);
-    }
+  public void testFindFirstIndexByTopAndBottom() {
+    final MountableOutputColumns columns = new MountableOutputColumns();
+    columns.set(Arrays.asList(
+        createLayoutOutput(0, 100, true),
+        createLayoutOutput(0, 50, false),
+        createLayoutOutput(50, 100, false)));
+
+    assertThat(columns.findFirstIndexByTopAtOrBelow(0)).isEqualTo(0);
+    assertThat(columns.findFirstIndexByTopAtOrBelow(1)).isEqualTo(2);
+    assertThat(columns.findFirstIndexByTopAtOrBelow(50)).isEqualTo(2);
+    assertThat(columns.findFirstIndexByTopAtOrBelow(51)).isEqualTo(3);
+
+    assertThat(columns.findFirstIndexByBottomBelow(0)).isEqualTo(0);
+    assertThat(columns.findFirstIndexByBottomBelow(50)).isEqualTo(1);
+    assertThat(columns.findFirstIndexByBottomBelow(100)).isEqualTo(3);
+  }
 
-    // symmetric
-    for (int i = 0; i < 4; i++) {
-      for (int j = i + 1; j < 4; j++) {
-        assertThat(-1 * sBottomsComparator.compare(layoutOutputs[j], layoutOutputs[i])).isEqualTo(sBottomsComparator.compare(layoutOutputs[i], layoutOutputs[j]));
-      }
-    }
+  @Test
+  public void testFindFirstIndexByLeftAndRight() {
+    final MountableOutputColumns columns = new MountableOutputColumns();
+    columns.set(Arrays.asList(
+        createLayoutOutput(0, 100, 0, 10, true),
+        createLayoutOutput(50, 100, 0, 10, false),
+        createLayoutOutput(0, 50, 0, 10, false)));
+
+    assertThat(columns.getPositionByLeft(0)).isEqualTo(0);
+    assertThat(columns.getPositionByLeft(1)).isEqualTo(2);
+    assertThat(columns.getPositionByLeft(2)).isEqualTo(1);
+    assertThat(columns.getPositionByRight(0)).isEqualTo(2);
+    assertThat(columns.getPositionByRight(1)).isEqualTo(1);
+    assertThat(columns.getPositionByRight(2)).isEqualTo(0);
+
+    assertThat(columns.findFirstIndexByLeftAtOrAfter(0)).isEqualTo(0);
+    assertThat(columns.findFirstIndexByLeftAtOrAfter(50)).isEqualTo(2);
+    assertThat(columns.findFirstIndexByLeftAtOrAfter(51)).isEqualTo(3);
+
+    assertThat(columns.findFirstIndexByRightAfter(49)).isEqualTo(0);
+    assertThat(columns.findFirstIndexByRightAfter(50)).isEqualTo(1);
+    assertThat(columns.findFirstIndexByRightAfter(100)).isEqualTo(3);
+  }
 
-    // transitivity
-    for (int i = 0; i < 4; i++) {
-      for (int j = 0; j < 4; j++) {
-        for (int k = 0; k < 4; k++) {
-          if (i != j && j != k && i != k) {
-            if (LayoutState.sBottomsComparator.compare(layoutOutputs[i], layoutOutputs[j]) ==
-                LayoutState.sBottomsComparator.compare(layoutOutputs[j], layoutOutputs[k])) {
-              assertThat(sBottomsComparator.compare(layoutOutputs[j], layoutOutputs[k])).isEqualTo(sBottomsComparator.compare(layoutOutputs[i], layoutOutputs[j]));
-            }
-          }
-        }
-      }
-    }
+  @Test
+  public void testSortsByLeftAndRightOnlyWhenLookedUp() {
+    final MountableOutputColumns columns = new MountableOutputColumns();
+    columns.set(Arrays.asList(
+        createLayoutOutput(50, 100, 0, 10, false),
+        createLayoutOutput(0, 50, 0, 10, false)));
+
+    assertThat((Boolean) Whitebox.getInternalState(columns, "mIsSortedHorizontally")).isFalse();
+    assertThat(columns.findFirstIndexByLeftAtOrAfter(50)).isEqualTo(1);
+    assertThat((Boolean) Whitebox.getInternalState(columns, "mIsSortedHorizontally")).isTrue();
+
+    // Filling the columns again sorts them again.
+    columns.set(Arrays.asList(
+        createLayoutOutput(0, 50, 0, 10, false),
+        createLayoutOutput(20, 30, 0, 10, false),
+        createLayoutOutput(50, 100, 0, 10, false)));
+
+    assertThat((Boolean) Whitebox.getInternalState(columns, "mIsSortedHorizontally")).isFalse();
+    assertThat(columns.getPositionByLeft(1)).isEqualTo(1);
+    assertThat(columns.getPositionByRight(0)).isEqualTo(1);
+    assertThat(columns.getPositionByRight(2)).isEqualTo(2);
   }
 
   private static LayoutState calculateLayoutState(
@@ -178,8 +205,17 @@ public class LayoutStateCalculateTopsAndBottomsTest {
   }
 
   private static LayoutOutput createLayoutOutput(int top, int bottom, boolean isHostSpec) {
+    return createLayoutOutput(0, 10, top, bottom, isHostSpec);
+  }
+
+  private static LayoutOutput createLayoutOutput(
+      int left,
+      int right,
+      int top,
+      int bottom,
+      boolean isHostSpec) {
     LayoutOutput layoutOutput = new LayoutOutput();
-    layoutOutput.setBounds(0, top, 10, bottom);
+    layoutOutput.setBounds(left, top, right, bottom);
     if (isHostSpec) {
       layoutOutput.setComponent(HostComponent.create());
     }
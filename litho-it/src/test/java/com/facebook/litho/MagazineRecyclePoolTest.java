@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 2017-present, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+
+package com.facebook.litho;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.facebook.litho.config.ComponentsConfiguration;
+import com.facebook.litho.testing.testrunner.ComponentsTestRunner;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+@RunWith(ComponentsTestRunner.class)
+public class MagazineRecyclePoolTest {
+
+  @Test
+  public void testAcquireReturnsLastReleasedItemOfSameThread() {
+    final MagazineRecyclePool<Object> pool = new MagazineRecyclePool<>("Test", 16);
+    final Object first = new Object();
+    final Object second = new Object();
+
+    assertThat(pool.acquire()).isNull();
+
+    pool.release(first);
+    pool.release(second);
+
+    assertThat(pool.getCurrentSize()).isEqualTo(2);
+    assertThat(pool.acquire()).isSameAs(second);
+    assertThat(pool.acquire()).isSameAs(first);
+    assertThat(pool.acquire()).isNull();
+  }
+
+  @Test
+  public void testItemsReleasedOnOneThreadCanBeAcquiredOnAnother() throws InterruptedException {
+    final MagazineRecyclePool<Object> pool = new MagazineRecyclePool<>("Test", 16);
+    final List<Object> released = new ArrayList<>();
+    for (int i = 0; i < 17; i++) {
+      released.add(new Object());
+    }
+
+    runOnOtherThread(new Runnable() {
+      @Override
+      public void run() {
+        // Fills whole magazines and pushes them to the depot.
+        pool.releaseAll(released.subList(0, 16));
+        pool.release(released.get(16));
+      }
+    });
+
+    final Set<Object> acquired = newIdentitySet();
+    for (int i = 0; i < 4; i++) {
+      acquired.add(pool.acquire());
+    }
+
+    assertThat(acquired).hasSize(4);
+    assertThat(released).containsAll(acquired);
+  }
+
+  @Test
+  public void testMagazineOfAnExitedThreadIsReclaimed() throws InterruptedException {
+    final MagazineRecyclePool<Object> pool = new MagazineRecyclePool<>("Test", 16);
+    final Object item = new Object();
+
+    runOnOtherThread(new Runnable() {
+      @Override
+      public void run() {
+        // Stays in the magazine of the other thread.
+        pool.release(item);
+      }
+    });
+
+    assertThat(pool.acquire()).isSameAs(item);
+    assertThat(pool.acquire()).isNull();
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testReleasingTheSameItemTwiceThrowsInDebugMode() {
+    final MagazineRecyclePool<Object> pool = new MagazineRecyclePool<>("Test", 8);
+    final Object item = new Object();
+    final boolean isDebugModeEnabled = ComponentsConfiguration.isDebugModeEnabled;
+    ComponentsConfiguration.isDebugModeEnabled = true;
+
+    try {
+      pool.release(item);
+      // Pushes the magazine holding the item to the depot.
+      pool.release(new Object());
+      pool.release(new Object());
+
+      pool.release(item);
+    } finally {
+      ComponentsConfiguration.isDebugModeEnabled = isDebugModeEnabled;
+    }
+  }
+
+  @Test
+  public void testDropsItemsWhenTheDepotIsFull() {
+    final MagazineRecyclePool<Object> pool = new MagazineRecyclePool<>("Test", 8);
+    for (int i = 0; i < 100; i++) {
+      pool.release(new Object());
+    }
+
+    assertThat(pool.isFull()).isTrue();
+
+    int count = 0;
+    while (pool.acquire() != null) {
+      count++;
+    }
+
+    // A full depot of 8 items, plus the magazine of this thread.
+    assertThat(count).isEqualTo(10);
+  }
+
+  @Test
+  public void testStatsAndAdaptMaxSize() {
+    // Magazines of 2 items, and a depot of 4 magazines.
+    final MagazineRecyclePool<Object> pool = new MagazineRecyclePool<>("Test", 8);
+
+    assertThat(pool.acquire()).isNull();
+    for (int i = 0; i < 12; i++) {
+      pool.release(new Object());
+    }
+    assertThat(pool.acquire()).isNotNull();
+
+    final PoolStats stats = pool.getStats();
+    assertThat(stats.getMaxSize()).isEqualTo(8);
+    assertThat(stats.getCurrentSize()).isEqualTo(9);
+    assertThat(stats.getHighWaterMark()).isEqualTo(8);
+    assertThat(stats.getAcquireHits()).isEqualTo(1);
+    assertThat(stats.getAcquireMisses()).isEqualTo(1);
+    assertThat(stats.getReleaseDrops()).isEqualTo(2);
+
+    pool.adaptMaxSize();
+    assertThat(pool.getMaxSize()).isEqualTo(16);
+
+    // Nothing was taken from the depot since, so all of its magazines are dropped.
+    pool.adaptMaxSize();
+    assertThat(pool.getMaxSize()).isEqualTo(8);
+    assertThat(pool.getCurrentSize()).isEqualTo(1);
+  }
+
+  @Test
+  public void testTrimDropsMagazinesFromTheDepot() {
+    // Magazines of 2 items, and a depot of 4 magazines.
+    final MagazineRecyclePool<Object> pool = new MagazineRecyclePool<>("Test", 8);
+    for (int i = 0; i < 9; i++) {
+      pool.release(new Object());
+    }
+
+    pool.trim(0.5f);
+    assertThat(pool.getCurrentSize()).isEqualTo(5);
+
+    pool.trim(1f);
+    assertThat(pool.getCurrentSize()).isEqualTo(0);
+    assertThat(pool.acquire()).isNull();
+  }
+
+  @Test
+  public void testConcurrentThreadsNeverAcquireTheSameItem() throws InterruptedException {
+    final MagazineRecyclePool<Object> pool = new MagazineRecyclePool<>("Test", 64);
+    final Set<Object> inUse = Collections.synchronizedSet(newIdentitySet());
+    final AtomicBoolean failed = new AtomicBoolean();
+    final int threadCount = 4;
+    final CountDownLatch startLatch = new CountDownLatch(1);
+    final CountDownLatch doneLatch = new CountDownLatch(threadCount);
+
+    for (int t = 0; t < threadCount; t++) {
+      new Thread(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            startLatch.await();
+            final List<Object> items = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+              for (int j = 0; j < 10; j++) {
+                Object item = pool.acquire();
+                if (item == null) {
+                  item = new Object();
+                }
+                if (!inUse.add(item)) {
+                  failed.set(true);
+                }
+                items.add(item);
+              }
+
+              for (int j = 0; j < items.size(); j++) {
+                inUse.remove(items.get(j));
+              }
+              pool.releaseAll(items);
+              items.clear();
+            }
+          } catch (InterruptedException e) {
+            failed.set(true);
+          } finally {
+            doneLatch.countDown();
+          }
+        }
+      }).start();
+    }
+
+    startLatch.countDown();
+    doneLatch.await();
+
+    assertThat(failed.get()).isFalse();
+  }
+
+  private static Set<Object> newIdentitySet() {
+    return Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+  }
+
+  private static void runOnOtherThread(Runnable runnable) throws InterruptedException {
+    final Thread thread = new Thread(runnable);
+    thread.start();
+    thread.join();
+  }
+}
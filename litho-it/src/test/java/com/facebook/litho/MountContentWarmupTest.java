@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2017-present, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+
+package com.facebook.litho;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+import android.graphics.Color;
+import android.graphics.drawable.ColorDrawable;
+
+import com.facebook.litho.config.ComponentsConfiguration;
+import com.facebook.litho.testing.testrunner.ComponentsTestRunner;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RuntimeEnvironment;
+
+import static com.facebook.litho.ComponentsPools.acquireMountContent;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+@RunWith(ComponentsTestRunner.class)
+public class MountContentWarmupTest {
+
+  private ComponentContext mContext;
+  private File mManifest;
+
+  @Before
+  public void setup() throws IOException {
+    mContext = new ComponentContext(RuntimeEnvironment.application);
+    mManifest = File.createTempFile("warmup", ".txt");
+    ComponentsConfiguration.recordMountContentWarmup = true;
+  }
+
+  @After
+  public void tearDown() {
+    ComponentsConfiguration.recordMountContentWarmup = false;
+    MountContentWarmup.clearMissCounts();
+    ComponentsPools.clearAll();
+    mManifest.delete();
+  }
+
+  @Test
+  public void testWarmUpCreatesTheMountContentMissedInThePreviousSession() throws IOException {
+    final TestComponent lifecycle = TestComponent.get();
+    for (int i = 0; i < 3; i++) {
+      MountContentWarmup.recordMiss(lifecycle);
+    }
+    MountContentWarmup.save(mManifest);
+
+    // Next launch.
+    MountContentWarmup.clearMissCounts();
+    final MountContentWarmup.WarmupIdleHandler idleHandler =
+        MountContentWarmup.createIdleHandler(mContext, mManifest);
+
+    assertThat(idleHandler).isNotNull();
+    assertThat(idleHandler.queueIdle()).isTrue();
+    assertThat(idleHandler.queueIdle()).isTrue();
+    assertThat(idleHandler.queueIdle()).isFalse();
+
+    for (int i = 0; i < 3; i++) {
+      assertThat(acquireMountContent(mContext, lifecycle.getId()))
+          .isInstanceOf(ColorDrawable.class);
+    }
+    assertThat(acquireMountContent(mContext, lifecycle.getId())).isNull();
+
+    // The warmed up content still counts as needed for the launch after.
+    assertThat(MountContentWarmup.getMissCounts()).containsEntry(TestComponent.class.getName(), 3);
+  }
+
+  @Test
+  public void testWarmUpIsBoundedByThePoolSize() throws IOException {
+    writeManifest("100 " + TestComponent.class.getName());
+
+    final MountContentWarmup.WarmupIdleHandler idleHandler =
+        MountContentWarmup.createIdleHandler(mContext, mManifest);
+
+    int createdCount = 1;
+    while (idleHandler.queueIdle()) {
+      createdCount++;
+    }
+
+    assertThat(createdCount).isEqualTo(TestComponent.get().poolSize());
+  }
+
+  @Test
+  public void testWarmUpIgnoresUnknownComponentsAndMalformedLines() throws IOException {
+    writeManifest(
+        "3 com.facebook.litho.Removed\nnot a count\n\n-1 " + TestComponent.class.getName());
+
+    assertThat(MountContentWarmup.createIdleHandler(mContext, mManifest)).isNull();
+  }
+
+  @Test
+  public void testWarmUpIgnoresMissingManifest() {
+    mManifest.delete();
+
+    assertThat(MountContentWarmup.createIdleHandler(mContext, mManifest)).isNull();
+  }
+
+  private void writeManifest(String content) throws IOException {
+    final FileWriter writer = new FileWriter(mManifest);
+    try {
+      writer.write(content);
+    } finally {
+      writer.close();
+    }
+  }
+
+  public static class TestComponent extends ComponentLifecycle {
+    private static TestComponent sInstance = null;
+
+    public static synchronized TestComponent get() {
+      if (sInstance == null) {
+        sInstance = new TestComponent();
+      }
+      return sInstance;
+    }
+
+    @Override
+    protected Object onCreateMountContent(ComponentContext context) {
+      return new ColorDrawable(Color.RED);
+    }
+  }
+}
@@ -225,6 +225,81 @@ public class MountStateIncrementalMountTest {
     verifyLoggingAndResetLogger(0, 1);
   }
 
+  /**
+   * Tests incremental mount behaviour of a grid of components when the visible rect moves on both
+   * axes at once.
+   */
+  @Test
+  public void testIncrementalMountGridPanning() {
+    final TestComponent topLeft = create(mContext)
+        .build();
+    final TestComponent topRight = create(mContext)
+        .build();
+    final TestComponent bottomLeft = create(mContext)
+        .build();
+    final TestComponent bottomRight = create(mContext)
+        .build();
+    final LithoView lithoView = mountComponent(
+        mContext,
+        new InlineLayoutSpec() {
+          @Override
+          protected ComponentLayout onCreateLayout(ComponentContext c) {
+            return Column.create(c)
+                .child(
+                    Row.create(c)
+                        .child(
+                            Layout.create(c, topLeft)
+                                .widthPx(10)
+                                .heightPx(10))
+                        .child(
+                            Layout.create(c, topRight)
+                                .widthPx(10)
+                                .heightPx(10)))
+                .child(
+                    Row.create(c)
+                        .child(
+                            Layout.create(c, bottomLeft)
+                                .widthPx(10)
+                                .heightPx(10))
+                        .child(
+                            Layout.create(c, bottomRight)
+                                .widthPx(10)
+                                .heightPx(10)))
+                .build();
+          }
+        });
+
+    verifyLoggingAndResetLogger(4, 0);
+
+    lithoView.getComponentTree().mountComponent(new Rect(0, 0, 5, 5));
+    assertThat(topLeft.isMounted()).isTrue();
+    assertThat(topRight.isMounted()).isFalse();
+    assertThat(bottomLeft.isMounted()).isFalse();
+    assertThat(bottomRight.isMounted()).isFalse();
+    verifyLoggingAndResetLogger(0, 3);
+
+    lithoView.getComponentTree().mountComponent(new Rect(5, 0, 15, 5));
+    assertThat(topLeft.isMounted()).isTrue();
+    assertThat(topRight.isMounted()).isTrue();
+    assertThat(bottomLeft.isMounted()).isFalse();
+    assertThat(bottomRight.isMounted()).isFalse();
+    verifyLoggingAndResetLogger(1, 0);
+
+    lithoView.getComponentTree().mountComponent(new Rect(12, 12, 18, 18));
+    assertThat(topLeft.isMounted()).isFalse();
+    assertThat(topRight.isMounted()).isFalse();
+    assertThat(bottomLeft.isMounted()).isFalse();
+    assertThat(bottomRight.isMounted()).isTrue();
+    verifyLoggingAndResetLogger(1, 2);
+
+    lithoView.getComponentTree().mountComponent(new Rect(0, 12, 5, 18));
+    assertThat(topLeft.isMounted()).isFalse();
+    assertThat(topRight.isMounted()).isFalse();
+    assertThat(bottomLeft.isMounted()).isTrue();
+    assertThat(bottomRight.isMounted()).isFalse();
+    verifyLoggingAndResetLogger(1, 1);
+  }
+
   /**
    * Tests incremental mount behaviour of a vertical stack of components with a Drawable mount type.
    */
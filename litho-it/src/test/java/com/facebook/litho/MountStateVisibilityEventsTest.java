@@ -11,6 +11,7 @@ package com.facebook.litho;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 import android.graphics.Rect;
 import android.support.v4.util.LongSparseArray;
@@ -22,8 +23,10 @@ import com.facebook.litho.testing.testrunner.ComponentsTestRunner;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.InOrder;
 import org.powermock.reflect.Whitebox;
 import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowLooper;
 
 import static com.facebook.litho.testing.TestViewComponent.create;
 import static org.assertj.core.api.Java6Assertions.assertThat;
@@ -31,6 +34,7 @@ import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Matchers.isA;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
@@ -54,21 +58,22 @@ public class MountStateVisibilityEventsTest {
 
   private long mLastVisibilityOutputId = 0;
   private ComponentContext mContext;
+  private ComponentTree mComponentTree;
   private MountState mMountState;
 
   @Before
   public void setup() {
     mContext = new ComponentContext(RuntimeEnvironment.application);
 
-    ComponentTree mockComponentTree = mock(ComponentTree.class);
-    doReturn(mContext).when(mockComponentTree).getContext();
+    mComponentTree = mock(ComponentTree.class);
+    doReturn(mContext).when(mComponentTree).getContext();
 
     ComponentHost mockParent = mock(ComponentHost.class);
     doReturn(VIEWPORT_WIDTH).when(mockParent).getWidth();
     doReturn(VIEWPORT_HEIGHT).when(mockParent).getHeight();
 
     LithoView attachedView = spy(new LithoView(mContext));
-    Whitebox.setInternalState(attachedView, "mComponentTree", mockComponentTree);
+    Whitebox.setInternalState(attachedView, "mComponentTree", mComponentTree);
     doReturn(mockParent).when(attachedView).getParent();
 
     mMountState = new MountState(attachedView);
@@ -462,6 +467,156 @@ public class MountStateVisibilityEventsTest {
     assertThat(getVisibilityItemMapSize()).isEqualTo(2);
   }
 
+  @Test
+  public void testVisibilityEventsWhenScrollingThroughManyOutputs() {
+    final int outputCount = 20;
+    final ComponentLifecycle[] mockLifecycles = new ComponentLifecycle[outputCount];
+    final EventHandler[] visibleHandlers = new EventHandler[outputCount];
+    final EventHandler[] invisibleHandlers = new EventHandler[outputCount];
+    final List<VisibilityOutput> visibilityOutputs = new ArrayList<>();
+
+    for (int i = 0; i < outputCount; i++) {
+      mockLifecycles[i] = createLifecycleMock();
+      final Component<?> content = create(mContext).build();
+      setInternalState(content, "mLifecycle", mockLifecycles[i]);
+
+      visibleHandlers[i] = createEventHandler(content, VISIBLE);
+      invisibleHandlers[i] = createEventHandler(content, INVISIBLE);
+      visibilityOutputs.add(createVisibilityOutput(
+          content,
+          new Rect(LEFT, i * 5, RIGHT, (i + 1) * 5),
+          visibleHandlers[i],
+          null,
+          null,
+          null,
+          invisibleHandlers[i]));
+    }
+
+    // Next to the others, so it never intersects the visible rect.
+    final ComponentLifecycle offscreenLifecycle = createLifecycleMock();
+    final Component<?> offscreenContent = create(mContext).build();
+    setInternalState(offscreenContent, "mLifecycle", offscreenLifecycle);
+    visibilityOutputs.add(createVisibilityOutput(
+        offscreenContent,
+        new Rect(RIGHT, 0, RIGHT + 10, outputCount * 5),
+        createEventHandler(offscreenContent, VISIBLE),
+        null,
+        null,
+        null,
+        createEventHandler(offscreenContent, INVISIBLE)));
+
+    final LayoutState layoutState = new LayoutState();
+    layoutState.init(mContext);
+    setInternalState(layoutState, "mVisibilityOutputs", visibilityOutputs);
+
+    for (int top = 0; top <= outputCount * 5; top++) {
+      mMountState.mount(layoutState, new Rect(LEFT, top, RIGHT, top + VIEWPORT_HEIGHT));
+      assertThat(getVisibilityItemMapSize()).isEqualTo(
+          top % 5 == 0 ? (top < outputCount * 5 ? 1 : 0) : 2);
+    }
+
+    for (int i = 0; i < outputCount; i++) {
+      verify(mockLifecycles[i], times(1)).dispatchOnEvent(
+          eq(visibleHandlers[i]),
+          isA(VisibleEvent.class));
+      verify(mockLifecycles[i], times(1)).dispatchOnEvent(
+          eq(invisibleHandlers[i]),
+          isA(InvisibleEvent.class));
+    }
+    checkNoVisibilityEventsDispatched(offscreenLifecycle);
+  }
+
+  @Test
+  public void testBatchedVisibilityEventsAreDeliveredInOrderOnFlush() {
+    // Keeps the frame callback of the batch from running, so that the test flushes it instead.
+    ShadowLooper.pauseMainLooper();
+    doReturn(true).when(mComponentTree).isVisibilityEventBatchingEnabled();
+
+    ComponentLifecycle mockLifecycle = createLifecycleMock();
+    Component<?> content = create(mContext).build();
+    setInternalState(content, "mLifecycle", mockLifecycle);
+
+    final EventHandler visibleHandler = createEventHandler(content, VISIBLE);
+    final EventHandler invisibleHandler = createEventHandler(content, INVISIBLE);
+
+    final List<VisibilityOutput> visibilityOutputs = new ArrayList<>();
+    visibilityOutputs.add(createVisibilityOutput(
+        content,
+        new Rect(LEFT, 5, RIGHT, 10),
+        visibleHandler,
+        null,
+        null,
+        null,
+        invisibleHandler));
+
+    final LayoutState layoutState = new LayoutState();
+    layoutState.init(mContext);
+    setInternalState(layoutState, "mVisibilityOutputs", visibilityOutputs);
+
+    mMountState.mount(layoutState, new Rect(LEFT, 5, RIGHT, 10));
+    mMountState.mount(layoutState, new Rect(LEFT, 0, RIGHT, 5));
+
+    // The visibility items are updated during mount, only the events are deferred.
+    checkNoVisibilityEventsDispatched(mockLifecycle);
+    assertThat(getVisibilityItemMapSize()).isEqualTo(0);
+
+    final VisibilityEventBatch batch = getVisibilityEventBatch();
+    assertThat(batch.size()).isEqualTo(2);
+    batch.flush();
+
+    final InOrder inOrder = inOrder(mockLifecycle);
+    inOrder.verify(mockLifecycle).dispatchOnEvent(eq(visibleHandler), isA(VisibleEvent.class));
+    inOrder.verify(mockLifecycle).dispatchOnEvent(eq(invisibleHandler), isA(InvisibleEvent.class));
+    assertThat(batch.size()).isEqualTo(0);
+  }
+
+  @Test
+  public void testBatchedVisibilityEventsAreDeliveredOnExecutor() {
+    ShadowLooper.pauseMainLooper();
+    final List<Runnable> runnables = new ArrayList<>();
+    doReturn(true).when(mComponentTree).isVisibilityEventBatchingEnabled();
+    doReturn(new Executor() {
+      @Override
+      public void execute(Runnable runnable) {
+        runnables.add(runnable);
+      }
+    }).when(mComponentTree).getVisibilityEventExecutor();
+
+    ComponentLifecycle mockLifecycle = createLifecycleMock();
+    Component<?> content = create(mContext).build();
+    setInternalState(content, "mLifecycle", mockLifecycle);
+
+    final EventHandler visibleHandler = createEventHandler(content, VISIBLE);
+
+    final List<VisibilityOutput> visibilityOutputs = new ArrayList<>();
+    visibilityOutputs.add(createVisibilityOutput(
+        content,
+        new Rect(LEFT, 5, RIGHT, 10),
+        visibleHandler,
+        null,
+        null,
+        null,
+        null));
+
+    final LayoutState layoutState = new LayoutState();
+    layoutState.init(mContext);
+    setInternalState(layoutState, "mVisibilityOutputs", visibilityOutputs);
+
+    mMountState.mount(layoutState, new Rect(LEFT, 5, RIGHT, 10));
+    getVisibilityEventBatch().flush();
+    checkNoVisibilityEventsDispatched(mockLifecycle);
+    assertThat(runnables).hasSize(1);
+
+    runnables.get(0).run();
+    verify(mockLifecycle, times(1)).dispatchOnEvent(
+        eq(visibleHandler),
+        isA(VisibleEvent.class));
+  }
+
+  private VisibilityEventBatch getVisibilityEventBatch() {
+    return Whitebox.getInternalState(mMountState, "mVisibilityEventBatch");
+  }
+
   private int getVisibilityItemMapSize() {
     return ((LongSparseArray) Whitebox.getInternalState(
         mMountState,
@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2017-present, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+
+package com.facebook.litho;
+
+import com.facebook.litho.testing.TestSizeDependentComponent;
+import com.facebook.litho.testing.testrunner.ComponentsTestRunner;
+import com.facebook.litho.testing.util.InlineLayoutSpec;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RuntimeEnvironment;
+
+import static com.facebook.litho.SizeSpec.EXACTLY;
+import static com.facebook.litho.SizeSpec.UNSPECIFIED;
+import static com.facebook.litho.SizeSpec.makeSizeSpec;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+@RunWith(ComponentsTestRunner.class)
+public class ParallelNestedTreeResolverTest {
+
+  private ComponentContext mContext;
+
+  @Before
+  public void setup() {
+    mContext = new ComponentContext(RuntimeEnvironment.application);
+  }
+
+  @Test
+  public void testIsEnabledFollowsComponentTree() {
+    final ComponentTree serialTree = ComponentTree.create(mContext, createComponent()).build();
+    final ComponentTree parallelTree = ComponentTree.create(mContext, createComponent())
+        .parallelNestedTreeResolution(true)
+        .build();
+
+    assertThat(ParallelNestedTreeResolver.isEnabled(mContext)).isFalse();
+    assertThat(ParallelNestedTreeResolver.isEnabled(
+        ComponentContext.withComponentTree(mContext, serialTree))).isFalse();
+    assertThat(ParallelNestedTreeResolver.isEnabled(
+        ComponentContext.withComponentTree(mContext, parallelTree))).isTrue();
+  }
+
+  @Test
+  public void testOnlyFixedSizeNestedTreesAreResolved() {
+    final ComponentTree componentTree = ComponentTree.create(mContext, createComponent())
+        .parallelNestedTreeResolution(true)
+        .build();
+    final ComponentContext c = ComponentContext.withComponentTree(mContext, componentTree);
+
+    final InternalNode root = LayoutState.createTree(createComponent(), c);
+    ParallelNestedTreeResolver.resolveFixedSizeNestedTrees(root);
+
+    final InternalNode first = root.getChildAt(0);
+    assertThat(first.hasNestedTree()).isTrue();
+    assertThat(first.getNestedTree().getLastWidthSpec()).isEqualTo(makeSizeSpec(100, EXACTLY));
+    assertThat(first.getNestedTree().getLastHeightSpec()).isEqualTo(makeSizeSpec(50, EXACTLY));
+
+    final InternalNode second = root.getChildAt(1);
+    assertThat(second.hasNestedTree()).isTrue();
+    assertThat(second.getNestedTree().getLastWidthSpec()).isEqualTo(makeSizeSpec(80, EXACTLY));
+    assertThat(second.getNestedTree().getLastHeightSpec()).isEqualTo(makeSizeSpec(40, EXACTLY));
+
+    assertThat(root.getChildAt(2).hasNestedTree()).isFalse();
+  }
+
+  @Test
+  public void testNestedTreesAreOnlyResolvedWithTheirFinalSpecs() {
+    final ComponentTree componentTree = ComponentTree.create(mContext, createComponent())
+        .parallelNestedTreeResolution(true)
+        .build();
+    final ComponentContext c = ComponentContext.withComponentTree(mContext, componentTree);
+
+    final InternalNode root = LayoutState.createTree(
+        new InlineLayoutSpec() {
+          @Override
+          protected ComponentLayout onCreateLayout(ComponentContext c) {
+            return Column.create(c)
+                .child(
+                    Layout.create(c, TestSizeDependentComponent.create(c).build())
+                        .widthPx(100)
+                        .maxWidthPx(60)
+                        .heightPx(50)
+                        .minHeightPx(70))
+                .child(
+                    Layout.create(c, TestSizeDependentComponent.create(c).build())
+                        .widthPx(80)
+                        .heightPx(40))
+                .child(
+                    Layout.create(c, TestSizeDependentComponent.create(c).build())
+                        .widthPx(80)
+                        .heightPx(40)
+                        .flexShrink(1))
+                .child(
+                    Layout.create(c, TestSizeDependentComponent.create(c).build())
+                        .widthPercent(50)
+                        .heightPx(40))
+                .build();
+          }
+        },
+        c);
+    ParallelNestedTreeResolver.resolveFixedSizeNestedTrees(root);
+
+    final InternalNode bounded = root.getChildAt(0);
+    assertThat(bounded.hasNestedTree()).isTrue();
+    assertThat(bounded.getNestedTree().getLastWidthSpec()).isEqualTo(makeSizeSpec(60, EXACTLY));
+    assertThat(bounded.getNestedTree().getLastHeightSpec()).isEqualTo(makeSizeSpec(70, EXACTLY));
+
+    assertThat(root.getChildAt(1).hasNestedTree()).isTrue();
+
+    // Their final size depends on the parent, so their specs aren't known before Yoga runs.
+    assertThat(root.getChildAt(2).hasNestedTree()).isFalse();
+    assertThat(root.getChildAt(3).hasNestedTree()).isFalse();
+  }
+
+  @Test
+  public void testParallelLayoutMatchesSerialLayout() {
+    final ComponentTree serialTree = ComponentTree.create(mContext, createComponent())
+        .layoutDiffing(false)
+        .build();
+    final ComponentTree parallelTree = ComponentTree.create(mContext, createComponent())
+        .layoutDiffing(false)
+        .parallelNestedTreeResolution(true)
+        .build();
+
+    final Size serialSize = new Size();
+    final Size parallelSize = new Size();
+    serialTree.setSizeSpec(makeSizeSpec(200, EXACTLY), makeSizeSpec(0, UNSPECIFIED), serialSize);
+    parallelTree.setSizeSpec(
+        makeSizeSpec(200, EXACTLY),
+        makeSizeSpec(0, UNSPECIFIED),
+        parallelSize);
+
+    assertThat(parallelSize.width).isEqualTo(serialSize.width);
+    assertThat(parallelSize.height).isEqualTo(serialSize.height);
+
+    final LayoutState serialLayout = serialTree.getBackgroundLayoutState();
+    final LayoutState parallelLayout = parallelTree.getBackgroundLayoutState();
+    assertThat(parallelLayout.getMountableOutputCount())
+        .isEqualTo(serialLayout.getMountableOutputCount());
+    for (int i = 0, count = serialLayout.getMountableOutputCount(); i < count; i++) {
+      assertThat(parallelLayout.getMountableOutputAt(i).getBounds())
+          .isEqualTo(serialLayout.getMountableOutputAt(i).getBounds());
+    }
+  }
+
+  private static Component<?> createComponent() {
+    return new InlineLayoutSpec() {
+      @Override
+      protected ComponentLayout onCreateLayout(ComponentContext c) {
+        return Column.create(c)
+            .child(
+                Layout.create(c, TestSizeDependentComponent.create(c).build())
+                    .widthPx(100)
+                    .heightPx(50))
+            .child(
+                Layout.create(c, TestSizeDependentComponent.create(c).build())
+                    .widthPx(80)
+                    .heightPx(40))
+            .child(
+                Layout.create(c, TestSizeDependentComponent.create(c).build())
+                    .flexGrow(1))
+            .build();
+      }
+    };
+  }
+}
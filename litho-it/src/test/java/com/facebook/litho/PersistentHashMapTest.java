@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2017-present, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+
+package com.facebook.litho;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import com.facebook.litho.testing.testrunner.ComponentsTestRunner;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+@RunWith(ComponentsTestRunner.class)
+public class PersistentHashMapTest {
+
+  @Test
+  public void testPlusAndMinusLeaveTheOriginalMapUnchanged() {
+    final PersistentHashMap<String, String> empty = PersistentHashMap.empty();
+    final PersistentHashMap<String, String> map = empty.plus("a", "1").plus("b", "2");
+    final PersistentHashMap<String, String> updated = map.plus("a", "3").minus("b");
+
+    assertThat(empty).isEmpty();
+    assertThat(map).hasSize(2).containsEntry("a", "1").containsEntry("b", "2");
+    assertThat(updated).hasSize(1).containsEntry("a", "3");
+    assertThat(updated.get("b")).isNull();
+    assertThat(updated.minus("a")).isEmpty();
+  }
+
+  @Test
+  public void testMatchesHashMapWithCollidingKeys() {
+    final Random random = new Random(42);
+    PersistentHashMap<Key, Object> map = PersistentHashMap.empty();
+    final Map<Key, Object> expected = new HashMap<>();
+
+    for (int i = 0; i < 5000; i++) {
+      final int id = random.nextInt(1000);
+      // Many keys share a hash, and the others spread over all the levels of the trie.
+      final Key key = new Key(id % 3 == 0 ? id % 7 : id * 0x9E3779B9, id);
+
+      if (random.nextInt(4) == 0) {
+        map = map.minus(key);
+        expected.remove(key);
+      } else {
+        final Object value = new Object();
+        map = map.plus(key, value);
+        expected.put(key, value);
+      }
+    }
+
+    assertThat(map).isEqualTo(expected);
+  }
+
+  @Test
+  public void testPlusChangesOnlyAppliesTheEntriesChangedSinceTheBase() {
+    PersistentHashMap<Integer, String> base = PersistentHashMap.empty();
+    for (int i = 0; i < 100; i++) {
+      base = base.plus(i, "base");
+    }
+
+    final PersistentHashMap<Integer, String> updated = base.plus(1, "updated").plus(100, "added");
+    final PersistentHashMap<Integer, String> current = base.plus(2, "current");
+
+    final PersistentHashMap<Integer, String> merged = current.plusChanges(base, updated);
+
+    assertThat(merged).hasSize(101);
+    assertThat(merged.get(1)).isEqualTo("updated");
+    assertThat(merged.get(2)).isEqualTo("current");
+    assertThat(merged.get(3)).isEqualTo("base");
+    assertThat(merged.get(100)).isEqualTo("added");
+
+    // When nothing changed since the base, the updated map is used as is.
+    assertThat(base.plusChanges(base, updated)).isSameAs(updated);
+  }
+
+  @Test
+  public void testForEachEntryVisitsEveryEntryUntilTheVisitorStops() {
+    PersistentHashMap<Key, Integer> map = PersistentHashMap.empty();
+    for (int i = 0; i < 100; i++) {
+      map = map.plus(new Key(i % 10 == 0 ? 0 : i * 0x9E3779B9, i), i);
+    }
+
+    final Map<Key, Integer> visited = new HashMap<>();
+    final boolean visitedAll = map.forEachEntry(new PersistentHashMap.EntryVisitor<Key, Integer>() {
+      @Override
+      public boolean visit(Key key, Integer value) {
+        visited.put(key, value);
+        return true;
+      }
+    });
+
+    assertThat(visitedAll).isTrue();
+    assertThat(visited).isEqualTo(map);
+
+    final int[] visitCount = new int[1];
+    final boolean visitedAllUntilStopped =
+        map.forEachEntry(new PersistentHashMap.EntryVisitor<Key, Integer>() {
+          @Override
+          public boolean visit(Key key, Integer value) {
+            return ++visitCount[0] < 3;
+          }
+        });
+
+    assertThat(visitedAllUntilStopped).isFalse();
+    assertThat(visitCount[0]).isEqualTo(3);
+  }
+
+  private static class Key {
+    private final int mHash;
+    private final int mId;
+
+    private Key(int hash, int id) {
+      mHash = hash;
+      mId = id;
+    }
+
+    @Override
+    public int hashCode() {
+      return mHash;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      return other instanceof Key && ((Key) other).mId == mId;
+    }
+  }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2017-present, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+
+package com.facebook.litho;
+
+import com.facebook.litho.testing.testrunner.ComponentsTestRunner;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+@RunWith(ComponentsTestRunner.class)
+public class PersistentListTest {
+
+  @Test
+  public void testPlusLeavesTheOriginalListUnchanged() {
+    PersistentList<Integer> list = PersistentList.empty();
+    for (int i = 0; i < 10; i++) {
+      list = list.plus(i);
+    }
+
+    final PersistentList<Integer> appended = list.plus(10);
+    // Appending to a list that was already appended to must not overwrite the item of the other.
+    final PersistentList<Integer> branched = list.plus(-1).plus(-2);
+
+    assertThat(PersistentList.<Integer>empty()).isEmpty();
+    assertThat(list).containsExactly(0, 1, 2, 3, 4, 5, 6, 7, 8, 9);
+    assertThat(appended).containsExactly(0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10);
+    assertThat(branched).containsExactly(0, 1, 2, 3, 4, 5, 6, 7, 8, 9, -1, -2);
+    assertThat(appended.plus(11)).containsExactly(0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11);
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void testGetBeyondTheSizeThrows() {
+    // The shared array has room for more items than this list holds.
+    PersistentList.<Integer>empty().plus(1).get(1);
+  }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2017-present, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+
+package com.facebook.litho;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.facebook.litho.testing.testrunner.ComponentsTestRunner;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+@RunWith(ComponentsTestRunner.class)
+public class RecyclePoolTest {
+
+  @Test
+  public void testStatsCountHitsMissesAndDrops() {
+    final RecyclePool<Object> pool = new RecyclePool<>("Test", 2, true);
+
+    assertThat(pool.acquire()).isNull();
+    pool.release(new Object());
+    pool.release(new Object());
+    pool.release(new Object());
+    assertThat(pool.acquire()).isNotNull();
+
+    final PoolStats stats = pool.getStats();
+    assertThat(stats.getName()).isEqualTo("Test");
+    assertThat(stats.getMaxSize()).isEqualTo(2);
+    assertThat(stats.getCurrentSize()).isEqualTo(1);
+    assertThat(stats.getHighWaterMark()).isEqualTo(2);
+    assertThat(stats.getAcquireHits()).isEqualTo(1);
+    assertThat(stats.getAcquireMisses()).isEqualTo(1);
+    assertThat(stats.getReleaseDrops()).isEqualTo(1);
+
+    pool.resetStats();
+    final PoolStats resetStats = pool.getStats();
+    assertThat(resetStats.getHighWaterMark()).isEqualTo(1);
+    assertThat(resetStats.getAcquireHits()).isEqualTo(0);
+    assertThat(resetStats.getAcquireMisses()).isEqualTo(0);
+    assertThat(resetStats.getReleaseDrops()).isEqualTo(0);
+  }
+
+  @Test
+  public void testReleaseAllOnlyAddsTheItemsThePoolHasRoomFor() {
+    final RecyclePool<Object> pool = new RecyclePool<>("Test", 4, true);
+    pool.release(new Object());
+
+    final List<Object> items = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      items.add(new Object());
+    }
+    pool.releaseAll(items);
+
+    final PoolStats stats = pool.getStats();
+    assertThat(stats.getCurrentSize()).isEqualTo(4);
+    assertThat(stats.getReleaseDrops()).isEqualTo(2);
+    for (int i = 0; i < 4; i++) {
+      assertThat(pool.acquire()).isNotNull();
+    }
+    assertThat(pool.acquire()).isNull();
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testReleasingTheSameItemTwiceThrows() {
+    final RecyclePool<Object> pool = new RecyclePool<>("Test", 2, false);
+    final Object item = new Object();
+
+    pool.release(item);
+    pool.release(item);
+  }
+
+  @Test
+  public void testAdaptMaxSizeGrowsWhenItemsAreBothMissedAndDropped() {
+    final RecyclePool<Object> pool = new RecyclePool<>("Test", 4, false);
+
+    assertThat(pool.acquire()).isNull();
+    for (int i = 0; i < 5; i++) {
+      pool.release(new Object());
+    }
+    pool.adaptMaxSize();
+
+    assertThat(pool.getMaxSize()).isEqualTo(8);
+    assertThat(pool.getCurrentSize()).isEqualTo(4);
+
+    // Doesn't grow past four times the initial max size.
+    for (int i = 0; i < 3; i++) {
+      while (pool.acquire() != null) {
+        // Run.
+      }
+      for (int j = 0; j <= pool.getMaxSize(); j++) {
+        pool.release(new Object());
+      }
+      pool.adaptMaxSize();
+    }
+
+    assertThat(pool.getMaxSize()).isEqualTo(16);
+  }
+
+  @Test
+  public void testAdaptMaxSizeDropsItemsThatStayedUnused() {
+    final RecyclePool<Object> pool = new RecyclePool<>("Test", 8, false);
+    for (int i = 0; i < 8; i++) {
+      pool.release(new Object());
+    }
+
+    // Starts a new period with 8 items, of which only 3 are used.
+    pool.adaptMaxSize();
+    assertThat(pool.getMaxSize()).isEqualTo(8);
+
+    for (int i = 0; i < 3; i++) {
+      pool.acquire();
+    }
+    for (int i = 0; i < 3; i++) {
+      pool.release(new Object());
+    }
+    pool.adaptMaxSize();
+
+    assertThat(pool.getMaxSize()).isEqualTo(3);
+    assertThat(pool.getCurrentSize()).isEqualTo(3);
+
+    // Doesn't shrink below a quarter of the initial max size.
+    pool.adaptMaxSize();
+    assertThat(pool.getMaxSize()).isEqualTo(2);
+    assertThat(pool.getCurrentSize()).isEqualTo(0);
+  }
+
+  @Test
+  public void testTrimDropsTheGivenFractionOfTheItems() {
+    final RecyclePool<Object> pool = new RecyclePool<>("Test", 8, false);
+    for (int i = 0; i < 7; i++) {
+      pool.release(new Object());
+    }
+
+    pool.trim(0.5f);
+    assertThat(pool.getCurrentSize()).isEqualTo(3);
+    assertThat(pool.getMaxSize()).isEqualTo(8);
+
+    pool.trim(1f);
+    assertThat(pool.getCurrentSize()).isEqualTo(0);
+    assertThat(pool.acquire()).isNull();
+  }
+}
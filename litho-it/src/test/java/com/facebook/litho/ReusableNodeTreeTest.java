@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2017-present, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+
+package com.facebook.litho;
+
+import com.facebook.litho.testing.TestDrawableComponent;
+import com.facebook.litho.testing.testrunner.ComponentsTestRunner;
+import com.facebook.litho.testing.util.InlineLayoutSpec;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RuntimeEnvironment;
+
+import static com.facebook.litho.SizeSpec.EXACTLY;
+import static com.facebook.litho.SizeSpec.makeSizeSpec;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+@RunWith(ComponentsTestRunner.class)
+public class ReusableNodeTreeTest {
+
+  private static final int WIDTH_SPEC = makeSizeSpec(100, EXACTLY);
+  private static final int HEIGHT_SPEC = makeSizeSpec(100, EXACTLY);
+
+  private ComponentContext mContext;
+  private CountingLayoutSpec mChild;
+  private CountingLayoutSpec mChildWithLayoutProps;
+  private Component<?> mRoot;
+
+  @Before
+  public void setup() {
+    mContext = new ComponentContext(RuntimeEnvironment.application);
+    mChild = new CountingLayoutSpec();
+    mChildWithLayoutProps = new CountingLayoutSpec();
+    mRoot = new InlineLayoutSpec() {
+      @Override
+      protected ComponentLayout onCreateLayout(ComponentContext c) {
+        return Column.create(c)
+            .child(mChild)
+            .child(Layout.create(c, mChildWithLayoutProps).widthPx(10))
+            .build();
+      }
+    };
+  }
+
+  @Test
+  public void testLayoutRootIsOnlyKeptWhenEnabled() {
+    final LayoutState disabled = calculate(createContext(false));
+    assertThat(disabled.getLayoutRoot()).isNull();
+
+    final LayoutState enabled = calculate(createContext(true));
+    assertThat(enabled.getLayoutRoot()).isNotNull();
+    assertThat(ReusableNodeTree.take(enabled)).isNotNull();
+    assertThat(enabled.getLayoutRoot()).isNull();
+    assertThat(ReusableNodeTree.take(enabled)).isNull();
+  }
+
+  @Test
+  public void testUntouchedSubtreeIsReused() {
+    final ComponentContext c = createContext(true);
+    final LayoutState first = calculate(c);
+    final InternalNode previousChildNode = first.getLayoutRoot().getChildAt(0);
+
+    final ReusableNodeTree reusableNodeTree = ReusableNodeTree.take(first);
+    final LayoutState second =
+        calculate(ComponentContext.withReusableNodeTree(c, reusableNodeTree));
+    reusableNodeTree.release();
+
+    assertThat(mChild.mCreateLayoutCount).isEqualTo(1);
+    assertThat(second.getLayoutRoot().getChildAt(0)).isSameAs(previousChildNode);
+    assertThat(second.getLayoutRoot().getChildAt(0).getChildCount()).isEqualTo(1);
+
+    // The parent set layout props on this child, so it's created again.
+    assertThat(mChildWithLayoutProps.mCreateLayoutCount).isEqualTo(2);
+    assertThat(second.getLayoutRoot().getChildAt(1).getWidth()).isEqualTo(10);
+
+    assertThat(second.getMountableOutputCount()).isEqualTo(first.getMountableOutputCount());
+    for (int i = 0, count = first.getMountableOutputCount(); i < count; i++) {
+      assertThat(second.getMountableOutputAt(i).getBounds())
+          .isEqualTo(first.getMountableOutputAt(i).getBounds());
+    }
+  }
+
+  @Test
+  public void testReusedSubtreeIsMovedToTheNewLayout() {
+    final LayoutState first = calculate(createContext(true));
+    final StateHandler previousStateHandler =
+        first.getLayoutRoot().getChildAt(0).getContext().getStateHandler();
+
+    final ReusableNodeTree reusableNodeTree = ReusableNodeTree.take(first);
+    final ComponentContext c =
+        ComponentContext.withReusableNodeTree(createContext(true), reusableNodeTree);
+    final LayoutState second = calculate(c);
+    reusableNodeTree.release();
+
+    final InternalNode reusedNode = second.getLayoutRoot().getChildAt(0);
+    assertThat(mChild.mCreateLayoutCount).isEqualTo(1);
+    assertThat(reusedNode.getContext().getStateHandler())
+        .isNotSameAs(previousStateHandler)
+        .isSameAs(c.getStateHandler());
+    assertThat(reusedNode.getContext().getReusableNodeTree()).isSameAs(reusableNodeTree);
+    assertThat(reusedNode.getChildAt(0).getContext().getStateHandler())
+        .isSameAs(c.getStateHandler());
+  }
+
+  @Test
+  public void testSubtreeWithPendingStateUpdateIsCreatedAgain() {
+    final ComponentContext c = createContext(true);
+    final LayoutState first = calculate(c);
+
+    c.getStateHandler().queueStateUpdate(
+        mChild.getGlobalKey(),
+        new ComponentLifecycle.StateUpdate() {
+          @Override
+          public void updateState(
+              ComponentLifecycle.StateContainer stateContainer,
+              Component newComponent) {
+          }
+        });
+
+    final ReusableNodeTree reusableNodeTree = ReusableNodeTree.take(first);
+    calculate(ComponentContext.withReusableNodeTree(c, reusableNodeTree));
+    reusableNodeTree.release();
+
+    assertThat(mChild.mCreateLayoutCount).isEqualTo(2);
+  }
+
+  @Test
+  public void testGlobalKeysOfSubtreesWithPendingStateUpdates() {
+    final GlobalKey parent = GlobalKey.root("1");
+    final GlobalKey child = GlobalKey.create(parent, "23");
+    final StateHandler stateHandler = new StateHandler();
+    assertThat(stateHandler.getGlobalKeysOfSubtreesWithPendingStateUpdates()).isEmpty();
+
+    stateHandler.queueStateUpdate(child, new ComponentLifecycle.StateUpdate() {
+      @Override
+      public void updateState(
+          ComponentLifecycle.StateContainer stateContainer,
+          Component newComponent) {
+      }
+    });
+
+    assertThat(stateHandler.getGlobalKeysOfSubtreesWithPendingStateUpdates())
+        .containsOnly(parent, child)
+        .doesNotContain(GlobalKey.root("2"), GlobalKey.root("12"));
+  }
+
+  private ComponentContext createContext(boolean incrementalLayout) {
+    final ComponentTree componentTree = ComponentTree.create(mContext, mRoot)
+        .incrementalLayout(incrementalLayout)
+        .build();
+    return ComponentContext.withComponentTree(mContext, componentTree);
+  }
+
+  private LayoutState calculate(ComponentContext c) {
+    return LayoutState.calculate(c, mRoot.makeShallowCopy(), -1, WIDTH_SPEC, HEIGHT_SPEC);
+  }
+
+  private static class CountingLayoutSpec extends InlineLayoutSpec {
+    private int mCreateLayoutCount;
+
+    @Override
+    protected ComponentLayout onCreateLayout(ComponentContext c) {
+      mCreateLayoutCount++;
+      return Column.create(c)
+          .child(TestDrawableComponent.create(c))
+          .build();
+    }
+  }
+}
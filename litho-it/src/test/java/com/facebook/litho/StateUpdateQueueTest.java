@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2017-present, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+
+package com.facebook.litho;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import com.facebook.litho.testing.testrunner.ComponentsTestRunner;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static com.facebook.litho.ComponentLifecycle.StateContainer;
+import static com.facebook.litho.ComponentLifecycle.StateUpdate;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+@RunWith(ComponentsTestRunner.class)
+public class StateUpdateQueueTest {
+
+  private static final GlobalKey KEY = GlobalKey.root("1");
+
+  @Test
+  public void testDrainHandsOverTheUpdatesInOrder() {
+    final StateUpdateQueue queue = new StateUpdateQueue();
+    final StateHandler stateHandler = new StateHandler();
+    final StateUpdate first = new NoOpStateUpdate();
+    final StateUpdate second = new NoOpStateUpdate();
+    final StateUpdate third = new NoOpStateUpdate();
+
+    queue.add(KEY, first);
+    queue.add(KEY, second);
+    queue.drainTo(stateHandler);
+    queue.add(KEY, third);
+
+    assertThat(stateHandler.getPendingStateUpdates().get(KEY)).containsExactly(first, second);
+    assertThat(queue.isEmpty()).isFalse();
+
+    queue.drainTo(stateHandler);
+
+    assertThat(stateHandler.getPendingStateUpdates().get(KEY))
+        .containsExactly(first, second, third);
+    assertThat(queue.isEmpty()).isTrue();
+  }
+
+  @Test
+  public void testConcurrentProducersDontLoseUpdates() throws InterruptedException {
+    final StateUpdateQueue queue = new StateUpdateQueue();
+    final StateHandler stateHandler = new StateHandler();
+    final int threadCount = 4;
+    final int updateCount = 1000;
+    final CountDownLatch startLatch = new CountDownLatch(1);
+    final CountDownLatch doneLatch = new CountDownLatch(threadCount);
+
+    for (int t = 0; t < threadCount; t++) {
+      new Thread(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            startLatch.await();
+            for (int i = 0; i < updateCount; i++) {
+              queue.add(KEY, new NoOpStateUpdate());
+            }
+          } catch (InterruptedException e) {
+            // Fails the test through the missing updates.
+          } finally {
+            doneLatch.countDown();
+          }
+        }
+      }).start();
+    }
+
+    startLatch.countDown();
+    while (doneLatch.getCount() > 0) {
+      queue.drainTo(stateHandler);
+    }
+    doneLatch.await();
+    queue.drainTo(stateHandler);
+
+    final List<StateUpdate> stateUpdates = stateHandler.getPendingStateUpdates().get(KEY);
+    assertThat(stateUpdates).hasSize(threadCount * updateCount);
+  }
+
+  private static class NoOpStateUpdate implements StateUpdate {
+    @Override
+    public void updateState(StateContainer stateContainer, Component component) {
+      // Do nothing.
+    }
+  }
+}
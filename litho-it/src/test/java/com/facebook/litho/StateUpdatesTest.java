@@ -280,15 +280,72 @@ public class StateUpdatesTest {
     assertThat(mTestComponent.getComponentForStateUpdate().getCount()).isEqualTo(INITIAL_COUNT_STATE_VALUE + 2);
   }
 
+  @Test
+  public void testCoalescedStateUpdatesTriggerASingleLayoutPerFrame() {
+    mTestComponent = new TestComponent(mLifecycle);
+    mComponentTree = ComponentTree.create(mContext, mTestComponent)
+        .incrementalMount(false)
+        .layoutDiffing(false)
+        .coalesceStateUpdates(true)
+        .build();
+    final LithoView lithoView = new LithoView(mContext);
+    lithoView.setComponentTree(mComponentTree);
+    lithoView.onAttachedToWindow();
+    ComponentTestHelper.measureAndLayout(lithoView);
+
+    ShadowLooper.pauseMainLooper();
+    for (int i = 0; i < 3; i++) {
+      mComponentTree.updateStateAsync(mTestComponent.getGlobalKey(), new TestStateUpdate());
+    }
+    assertThat(mComponentTree.getMergedStateUpdateCount()).isEqualTo(0);
+
+    ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+    ShadowLooper.unPauseMainLooper();
+    mLayoutThreadShadowLooper.runOneTask();
+
+    assertThat(mComponentTree.getMergedStateUpdateCount()).isEqualTo(2);
+    assertThat(getPendingStateUpdatesForComponent(mTestComponent.getComponentForStateUpdate()))
+        .isNull();
+    assertThat(mTestComponent.getComponentForStateUpdate().getCount())
+        .isEqualTo(INITIAL_COUNT_STATE_VALUE + 1);
+  }
+
+  @Test
+  public void testStateUpdatesAreQueuedUntilALayoutNeedsThem() {
+    mComponentTree.updateStateLazy(mTestComponent.getGlobalKey(), new TestStateUpdate());
+    mComponentTree.updateStateLazy(mTestComponent.getGlobalKey(), new TestStateUpdate());
+
+    // Lazy state updates don't take the lock of the tree, they are only queued.
+    assertThat(getPendingStateUpdatesForComponent(mTestComponent)).isNull();
+
+    mComponentTree.updateStateAsync(mTestComponent.getGlobalKey(), new TestStateUpdate());
+    assertThat(getPendingStateUpdatesForComponent(mTestComponent)).hasSize(3);
+
+    mLayoutThreadShadowLooper.runOneTask();
+    assertThat(getPendingStateUpdatesForComponent(mTestComponent.getComponentForStateUpdate()))
+        .isNull();
+  }
+
+  @Test
+  public void testStateUpdatesAreDroppedWithoutARoot() {
+    mComponentTree.release();
+
+    mComponentTree.updateStateLazy(mTestComponent.getGlobalKey(), new TestStateUpdate());
+    mComponentTree.updateStateAsync(mTestComponent.getGlobalKey(), new TestStateUpdate());
+
+    assertThat(Whitebox.<StateUpdateQueue>getInternalState(mComponentTree, "mStateUpdateQueue")
+        .isEmpty()).isTrue();
+  }
+
   private StateHandler getStateHandler() {
     return Whitebox.getInternalState(mComponentTree, "mStateHandler");
   }
 
-  private Map<String, StateContainer> getStateContainersMap() {
+  private Map<GlobalKey, StateContainer> getStateContainersMap() {
     return getStateHandler().getStateContainers();
   }
 
-  private Map<String, List<StateUpdate>> getPendingStateUpdates() {
+  private Map<GlobalKey, PersistentList<StateUpdate>> getPendingStateUpdates() {
     return getStateHandler().getPendingStateUpdates();
   }
 
@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2017-present, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+
+package com.facebook.litho;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.facebook.litho.testing.testrunner.ComponentsTestRunner;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static com.facebook.litho.ThreadPoolLayoutHandler.PRIORITY_PREFETCH;
+import static com.facebook.litho.ThreadPoolLayoutHandler.PRIORITY_SPECULATIVE;
+import static com.facebook.litho.ThreadPoolLayoutHandler.PRIORITY_VISIBLE;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+@RunWith(ComponentsTestRunner.class)
+public class ThreadPoolLayoutHandlerTest {
+
+  private ThreadPoolExecutor mExecutor;
+  private CountDownLatch mBlockLatch;
+  private List<String> mRunOrder;
+
+  @Before
+  public void setup() throws InterruptedException {
+    mExecutor = ThreadPoolLayoutHandler.createExecutor(1);
+    mRunOrder = Collections.synchronizedList(new ArrayList<String>());
+
+    // Keeps the only thread of the pool busy, so that the runnables posted by the tests queue up.
+    mBlockLatch = new CountDownLatch(1);
+    final CountDownLatch startedLatch = new CountDownLatch(1);
+    mExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        startedLatch.countDown();
+        try {
+          mBlockLatch.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    });
+    startedLatch.await();
+  }
+
+  @After
+  public void tearDown() {
+    mExecutor.shutdownNow();
+  }
+
+  @Test
+  public void testRunsByPriorityThenInPostOrder() throws InterruptedException {
+    final ThreadPoolLayoutHandler speculative = createHandler(PRIORITY_SPECULATIVE);
+    final ThreadPoolLayoutHandler prefetch = createHandler(PRIORITY_PREFETCH);
+    final ThreadPoolLayoutHandler visible = createHandler(PRIORITY_VISIBLE);
+
+    speculative.post(record("speculative"));
+    prefetch.post(record("prefetch1"));
+    visible.post(record("visible"));
+    prefetch.post(record("prefetch2"));
+
+    runPending();
+
+    assertThat(mRunOrder).containsExactly("visible", "prefetch1", "prefetch2", "speculative");
+  }
+
+  @Test
+  public void testRemoveCallbacks() throws InterruptedException {
+    final ThreadPoolLayoutHandler handler = createHandler(PRIORITY_VISIBLE);
+    final ThreadPoolLayoutHandler otherHandler = createHandler(PRIORITY_VISIBLE);
+    final Runnable removed = record("removed");
+
+    handler.post(removed);
+    handler.post(record("kept"));
+    otherHandler.post(removed);
+
+    handler.removeCallbacks(removed);
+    runPending();
+
+    // The next runnable of the handler is handed to the pool after the one of the other handler.
+    assertThat(mRunOrder).containsExactly("removed", "kept");
+  }
+
+  @Test
+  public void testRemoveCallbacksAndMessagesOnlyRemovesOwnRunnables() throws InterruptedException {
+    final ThreadPoolLayoutHandler handler = createHandler(PRIORITY_VISIBLE);
+    final ThreadPoolLayoutHandler otherHandler = createHandler(PRIORITY_VISIBLE);
+
+    handler.post(record("removed1"));
+    otherHandler.post(record("kept"));
+    handler.post(record("removed2"));
+
+    // Only the first runnable of each handler is handed to the pool.
+    handler.removeCallbacksAndMessages(new Object());
+    assertThat(mExecutor.getQueue()).hasSize(2);
+
+    handler.removeCallbacksAndMessages(null);
+    runPending();
+
+    assertThat(mRunOrder).containsExactly("kept");
+  }
+
+  @Test
+  public void testSetPriorityAppliesToPendingRunnables() throws InterruptedException {
+    final ThreadPoolLayoutHandler handler = createHandler(PRIORITY_SPECULATIVE);
+    final ThreadPoolLayoutHandler otherHandler = createHandler(PRIORITY_PREFETCH);
+
+    handler.post(record("speculative"));
+    otherHandler.post(record("prefetch"));
+    handler.post(record("visible"));
+    handler.setPriority(PRIORITY_VISIBLE);
+
+    final ThreadPoolLayoutHandler visibleHandler = createHandler(PRIORITY_SPECULATIVE);
+    visibleHandler.setPriority(PRIORITY_VISIBLE);
+    visibleHandler.post(record("visible2"));
+    runPending();
+
+    // The runnables of a handler still run in the order they were posted.
+    assertThat(handler.getPriority()).isEqualTo(PRIORITY_VISIBLE);
+    assertThat(mRunOrder).containsExactly("speculative", "visible2", "visible", "prefetch");
+  }
+
+  @Test
+  public void testLoweringThePriorityDefersPendingRunnables() throws InterruptedException {
+    final ThreadPoolLayoutHandler handler = createHandler(PRIORITY_VISIBLE);
+    final ThreadPoolLayoutHandler otherHandler = createHandler(PRIORITY_PREFETCH);
+
+    handler.post(record("speculative"));
+    otherHandler.post(record("prefetch"));
+    handler.setPriority(PRIORITY_SPECULATIVE);
+    runPending();
+
+    assertThat(mRunOrder).containsExactly("prefetch", "speculative");
+  }
+
+  @Test
+  public void testRunnablesOfAHandlerRunInOrderAndNeverOverlap() throws InterruptedException {
+    final ThreadPoolExecutor executor = ThreadPoolLayoutHandler.createExecutor(4);
+    final ThreadPoolLayoutHandler handler = new ThreadPoolLayoutHandler(PRIORITY_VISIBLE, executor);
+    final AtomicInteger runningCount = new AtomicInteger(0);
+    final AtomicBoolean hasOverlapped = new AtomicBoolean(false);
+    final int runnableCount = 20;
+    final CountDownLatch doneLatch = new CountDownLatch(runnableCount);
+
+    try {
+      for (int i = 0; i < runnableCount; i++) {
+        final String name = String.valueOf(i);
+        handler.post(new Runnable() {
+          @Override
+          public void run() {
+            if (runningCount.incrementAndGet() > 1) {
+              hasOverlapped.set(true);
+            }
+            mRunOrder.add(name);
+            try {
+              Thread.sleep(5);
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+            }
+            runningCount.decrementAndGet();
+            doneLatch.countDown();
+          }
+        });
+      }
+
+      assertThat(doneLatch.await(5, TimeUnit.SECONDS)).isTrue();
+    } finally {
+      executor.shutdownNow();
+    }
+
+    assertThat(hasOverlapped.get()).isFalse();
+    for (int i = 0; i < runnableCount; i++) {
+      assertThat(mRunOrder.get(i)).isEqualTo(String.valueOf(i));
+    }
+  }
+
+  private ThreadPoolLayoutHandler createHandler(int priority) {
+    return new ThreadPoolLayoutHandler(priority, mExecutor);
+  }
+
+  private Runnable record(final String name) {
+    return new Runnable() {
+      @Override
+      public void run() {
+        mRunOrder.add(name);
+      }
+    };
+  }
+
+  /**
+   * Unblocks the pool and waits until it ran every task, including the ones handed to it by the
+   * handlers while it was running.
+   */
+  private void runPending() throws InterruptedException {
+    mBlockLatch.countDown();
+
+    final long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+    while (mExecutor.getCompletedTaskCount() != mExecutor.getTaskCount()) {
+      assertThat(System.currentTimeMillis()).isLessThan(deadline);
+      Thread.sleep(1);
+    }
+  }
+}
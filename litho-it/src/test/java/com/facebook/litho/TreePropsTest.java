@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2017-present, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+
+package com.facebook.litho;
+
+import com.facebook.litho.testing.testrunner.ComponentsTestRunner;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+@RunWith(ComponentsTestRunner.class)
+public class TreePropsTest {
+
+  @Test
+  public void testCopyIsNotAffectedByTheSource() {
+    final TreeProps parent = new TreeProps();
+    parent.put(String.class, "parent");
+
+    final TreeProps child = TreeProps.copy(parent);
+    child.put(Integer.class, 1);
+    parent.put(Long.class, 2L);
+
+    assertThat(child.<String>get(String.class)).isEqualTo("parent");
+    assertThat(child.<Integer>get(Integer.class)).isEqualTo(1);
+    assertThat(child.<Long>get(Long.class)).isNull();
+    assertThat(parent.<Integer>get(Integer.class)).isNull();
+    assertThat(TreeProps.copy(null).toMap()).isEmpty();
+  }
+
+  @Test
+  public void testChildPropsShadowParentProps() {
+    final TreeProps parent = new TreeProps();
+    parent.put(String.class, "parent");
+    parent.put(Integer.class, 1);
+
+    final TreeProps child = TreeProps.copy(parent);
+    child.put(String.class, "child");
+
+    assertThat(child.<String>get(String.class)).isEqualTo("child");
+    assertThat(parent.<String>get(String.class)).isEqualTo("parent");
+    assertThat(child.toMap()).hasSize(2).containsEntry(String.class, "child");
+  }
+
+  @Test
+  public void testLookupsInDeepTreesUseTheClosestProps() {
+    final Class[] keys = {String.class, Integer.class, Long.class};
+    TreeProps treeProps = new TreeProps();
+
+    for (int depth = 0; depth < TreeProps.INDEX_THRESHOLD * 3; depth++) {
+      treeProps = TreeProps.copy(treeProps);
+      treeProps.put(keys[depth % keys.length], depth);
+
+      for (int i = 0; i < keys.length && i <= depth; i++) {
+        final int expectedDepth = depth - ((depth - i) % keys.length);
+        assertThat(treeProps.<Integer>get(keys[i])).isEqualTo(expectedDepth);
+      }
+      assertThat(treeProps.<Object>get(Object.class)).isNull();
+    }
+  }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2017-present, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+
+package com.facebook.litho;
+
+import com.facebook.litho.testing.testrunner.ComponentsTestRunner;
+import com.facebook.yoga.YogaConfig;
+import com.facebook.yoga.YogaDirection;
+import com.facebook.yoga.YogaEdge;
+import com.facebook.yoga.YogaNode;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+@RunWith(ComponentsTestRunner.class)
+public class YogaBulkLayoutReadbackTest {
+
+  private static final YogaEdge[] EDGES =
+      new YogaEdge[] {YogaEdge.LEFT, YogaEdge.TOP, YogaEdge.RIGHT, YogaEdge.BOTTOM};
+
+  private YogaNode mPerNodeRoot;
+  private YogaNode mBulkRoot;
+
+  @Before
+  public void setup() {
+    final YogaConfig bulkConfig = new YogaConfig();
+    bulkConfig.setBulkLayoutReadback(true);
+
+    mPerNodeRoot = createTree(new YogaConfig());
+    mBulkRoot = createTree(bulkConfig);
+  }
+
+  @Test
+  public void testBulkReadbackMatchesPerNodeTransfer() {
+    calculateLayout(100, 200);
+
+    assertSameLayout(mPerNodeRoot, mBulkRoot);
+  }
+
+  @Test
+  public void testBulkReadbackSkipsSubtreesWithoutNewLayout() {
+    calculateLayout(100, 200);
+    markLayoutSeen(mPerNodeRoot);
+    markLayoutSeen(mBulkRoot);
+
+    mPerNodeRoot.getChildAt(1).setWidth(30);
+    mBulkRoot.getChildAt(1).setWidth(30);
+    calculateLayout(100, 200);
+
+    assertSameLayout(mPerNodeRoot, mBulkRoot);
+  }
+
+  @Test
+  public void testBulkReadbackAfterTheTreeGrew() {
+    calculateLayout(100, 200);
+
+    for (int i = 0; i < 8; i++) {
+      mPerNodeRoot.getChildAt(0).addChildAt(createLeaf(new YogaConfig(), i), 0);
+      mBulkRoot.getChildAt(0).addChildAt(createLeaf(new YogaConfig(), i), 0);
+    }
+    calculateLayout(100, 400);
+
+    assertSameLayout(mPerNodeRoot, mBulkRoot);
+  }
+
+  private void calculateLayout(float width, float height) {
+    mPerNodeRoot.calculateLayout(width, height);
+    mBulkRoot.calculateLayout(width, height);
+  }
+
+  private static YogaNode createTree(YogaConfig config) {
+    final YogaNode root = new YogaNode(config);
+    root.setDirection(YogaDirection.RTL);
+    root.setPadding(YogaEdge.ALL, 3);
+    root.setBorder(YogaEdge.START, 2);
+
+    final YogaNode container = new YogaNode(config);
+    container.setMargin(YogaEdge.HORIZONTAL, 5);
+    container.setPadding(YogaEdge.TOP, 4);
+    container.addChildAt(createLeaf(config, 0), 0);
+    container.addChildAt(createLeaf(config, 1), 1);
+    root.addChildAt(container, 0);
+
+    final YogaNode sibling = new YogaNode(config);
+    sibling.setFlexGrow(1);
+    sibling.setBorder(YogaEdge.BOTTOM, 1);
+    sibling.addChildAt(createLeaf(config, 2), 0);
+    root.addChildAt(sibling, 1);
+
+    return root;
+  }
+
+  private static YogaNode createLeaf(YogaConfig config, int index) {
+    final YogaNode leaf = new YogaNode(config);
+    leaf.setWidth(10 + index);
+    leaf.setHeight(20 + index);
+    leaf.setMargin(YogaEdge.START, index);
+    return leaf;
+  }
+
+  private static void markLayoutSeen(YogaNode node) {
+    node.markLayoutSeen();
+    for (int i = 0, count = node.getChildCount(); i < count; i++) {
+      markLayoutSeen(node.getChildAt(i));
+    }
+  }
+
+  private static void assertSameLayout(YogaNode expected, YogaNode actual) {
+    assertThat(actual.hasNewLayout()).isEqualTo(expected.hasNewLayout());
+    assertThat(actual.getLayoutDirection()).isEqualTo(expected.getLayoutDirection());
+    assertThat(actual.getLayoutX()).isEqualTo(expected.getLayoutX());
+    assertThat(actual.getLayoutY()).isEqualTo(expected.getLayoutY());
+    assertThat(actual.getLayoutWidth()).isEqualTo(expected.getLayoutWidth());
+    assertThat(actual.getLayoutHeight()).isEqualTo(expected.getLayoutHeight());
+
+    for (YogaEdge edge : EDGES) {
+      assertThat(actual.getLayoutMargin(edge)).isEqualTo(expected.getLayoutMargin(edge));
+      assertThat(actual.getLayoutPadding(edge)).isEqualTo(expected.getLayoutPadding(edge));
+      assertThat(actual.getLayoutBorder(edge)).isEqualTo(expected.getLayoutBorder(edge));
+    }
+
+    assertThat(actual.getChildCount()).isEqualTo(expected.getChildCount());
+    for (int i = 0, count = expected.getChildCount(); i < count; i++) {
+      assertSameLayout(expected.getChildAt(i), actual.getChildAt(i));
+    }
+  }
+}
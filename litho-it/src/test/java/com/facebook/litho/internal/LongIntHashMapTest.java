@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2017-present, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+
+package com.facebook.litho.internal;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class LongIntHashMapTest {
+
+  @Test
+  public void testPutAndGet() {
+    final LongIntHashMap map = new LongIntHashMap();
+
+    assertThat(map.isEmpty()).isTrue();
+    assertThat(map.get(1L, -1)).isEqualTo(-1);
+
+    map.put(1L, 10);
+    map.put(Long.MAX_VALUE, 20);
+    map.put(-5L, 30);
+
+    assertThat(map.size()).isEqualTo(3);
+    assertThat(map.get(1L, -1)).isEqualTo(10);
+    assertThat(map.get(Long.MAX_VALUE, -1)).isEqualTo(20);
+    assertThat(map.get(-5L, -1)).isEqualTo(30);
+    assertThat(map.get(2L, -1)).isEqualTo(-1);
+    assertThat(map.containsKey(-5L)).isTrue();
+    assertThat(map.containsKey(5L)).isFalse();
+  }
+
+  @Test
+  public void testPutReplacesValue() {
+    final LongIntHashMap map = new LongIntHashMap();
+
+    map.put(7L, 1);
+    map.put(7L, 2);
+
+    assertThat(map.size()).isEqualTo(1);
+    assertThat(map.get(7L, -1)).isEqualTo(2);
+  }
+
+  @Test
+  public void testZeroKey() {
+    final LongIntHashMap map = new LongIntHashMap();
+
+    assertThat(map.containsKey(0L)).isFalse();
+    assertThat(map.get(0L, -1)).isEqualTo(-1);
+
+    map.put(0L, 0);
+    map.put(0L, 4);
+
+    assertThat(map.size()).isEqualTo(1);
+    assertThat(map.containsKey(0L)).isTrue();
+    assertThat(map.get(0L, -1)).isEqualTo(4);
+
+    map.clear();
+    assertThat(map.containsKey(0L)).isFalse();
+  }
+
+  @Test
+  public void testGrowsPastInitialCapacity() {
+    final LongIntHashMap map = new LongIntHashMap(2);
+
+    // Keys that only differ in their high bits, like output ids of different components.
+    for (int i = 0; i < 1000; i++) {
+      map.put(((long) i) << 26, i);
+    }
+
+    assertThat(map.size()).isEqualTo(1000);
+    for (int i = 0; i < 1000; i++) {
+      assertThat(map.get(((long) i) << 26, -1)).isEqualTo(i);
+    }
+  }
+
+  @Test
+  public void testClear() {
+    final LongIntHashMap map = new LongIntHashMap();
+    for (int i = 1; i <= 20; i++) {
+      map.put(i, i);
+    }
+
+    map.clear();
+
+    assertThat(map.isEmpty()).isTrue();
+    for (int i = 1; i <= 20; i++) {
+      assertThat(map.containsKey(i)).isFalse();
+    }
+
+    map.put(3L, 33);
+    assertThat(map.get(3L, -1)).isEqualTo(33);
+    assertThat(map.size()).isEqualTo(1);
+  }
+}
@@ -76,4 +76,18 @@ public class DrawableResourcesCacheTest {
     assertThat(mCache.get(1, resources)).isEqualTo(drawable3);
   }
 
+  @Test
+  public void testTrimDropsTheDrawablesOfTheLeastRecentlyUsedResources() {
+    mCache.release(new ColorDrawable(), 1);
+    mCache.release(new ColorDrawable(), 1);
+    mCache.release(new ColorDrawable(), 2);
+
+    assertThat(mCache.getDrawableCount()).isEqualTo(3);
+
+    mCache.trim(0.5f);
+    assertThat(mCache.getDrawableCount()).isEqualTo(1);
+
+    mCache.trim(1f);
+    assertThat(mCache.getDrawableCount()).isEqualTo(0);
+  }
 }
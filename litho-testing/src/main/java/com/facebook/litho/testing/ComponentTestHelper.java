@@ -20,7 +20,6 @@ import com.facebook.litho.Component;
 import com.facebook.litho.ComponentContext;
 import com.facebook.litho.ComponentLifecycle;
 import com.facebook.litho.ComponentTree;
-import com.facebook.litho.ComponentsPools;
 import com.facebook.litho.EventHandler;
 import com.facebook.litho.LithoView;
 import com.facebook.litho.TestComponentTree;
@@ -408,7 +407,7 @@ public final class ComponentTestHelper {
     try {
       treeProps = Whitebox.invokeMethod(context, "getTreeProps");
       if (treeProps == null) {
-        treeProps = ComponentsPools.acquireTreeProps();
+        treeProps = new TreeProps();
         Whitebox.invokeMethod(context, "setTreeProps", treeProps);
       }
     } catch (Exception e) {
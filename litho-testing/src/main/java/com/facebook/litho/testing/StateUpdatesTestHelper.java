@@ -12,6 +12,7 @@ package com.facebook.litho.testing;
 import com.facebook.litho.Component;
 import com.facebook.litho.ComponentContext;
 import com.facebook.litho.ComponentTree;
+import com.facebook.litho.GlobalKey;
 import com.facebook.litho.LithoView;
 
 import org.powermock.reflect.Whitebox;
@@ -100,7 +101,10 @@ public class StateUpdatesTestHelper {
     final LithoView lithoView = new LithoView(context);
     ComponentTestHelper.mountComponent(lithoView, componentTree);
 
-    Whitebox.setInternalState(component, "mGlobalKey", "bogusKeyForTest");
+    Whitebox.setInternalState(
+        component,
+        "mGlobalKey",
+        Whitebox.invokeMethod(GlobalKey.class, "root", "bogusKeyForTest"));
     Whitebox.setInternalState(component, "mId", 457282882);
 
     Whitebox.setInternalState(context, "mComponentScope", component);
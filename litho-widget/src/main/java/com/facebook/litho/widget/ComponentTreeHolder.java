@@ -21,6 +21,7 @@ import com.facebook.litho.ComponentTree;
 import com.facebook.litho.LayoutHandler;
 import com.facebook.litho.Size;
 import com.facebook.litho.StateHandler;
+import com.facebook.litho.ThreadPoolLayoutHandler;
 
 /**
  * A class used to store the data backing a {@link RecyclerBinder}. For each item the
@@ -43,6 +44,8 @@ public class ComponentTreeHolder {
   private LayoutHandler mLayoutHandler;
   private boolean mCanPrefetchDisplayLists;
   private boolean mCanCacheDrawingDisplayLists;
+  @GuardedBy("this")
+  private @ThreadPoolLayoutHandler.Priority int mLayoutPriority;
 
   static ComponentTreeHolder acquire(
       ComponentInfo componentInfo,
@@ -57,6 +60,7 @@ public class ComponentTreeHolder {
     componentTreeHolder.mLayoutHandler = layoutHandler;
     componentTreeHolder.mCanPrefetchDisplayLists = canPrefetchDisplayLists;
     componentTreeHolder.mCanCacheDrawingDisplayLists = canCacheDrawingDisplayLists;
+    componentTreeHolder.mLayoutPriority = ThreadPoolLayoutHandler.PRIORITY_PREFETCH;
     return componentTreeHolder;
   }
 
@@ -69,6 +73,17 @@ public class ComponentTreeHolder {
     mIsTreeValid = false;
   }
 
+  /**
+   * Sets the priority of the layouts of the tree while it isn't attached, see
+   * {@link ComponentTree#setLayoutPriority(int)}.
+   */
+  synchronized void setLayoutPriority(@ThreadPoolLayoutHandler.Priority int priority) {
+    mLayoutPriority = priority;
+    if (mComponentTree != null) {
+      mComponentTree.setLayoutPriority(priority);
+    }
+  }
+
   synchronized void clearStateHandler() {
     mStateHandler = null;
   }
@@ -161,6 +176,7 @@ public class ComponentTreeHolder {
           .canCacheDrawingDisplayLists(mCanCacheDrawingDisplayLists)
           .shouldClipChildren(clipChildren)
           .build();
+      mComponentTree.setLayoutPriority(mLayoutPriority);
     }
   }
 
@@ -41,6 +41,7 @@ import com.facebook.litho.LithoView;
 import com.facebook.litho.MeasureComparisonUtils;
 import com.facebook.litho.Size;
 import com.facebook.litho.SizeSpec;
+import com.facebook.litho.ThreadPoolLayoutHandler;
 import com.facebook.litho.ThreadUtils;
 import com.facebook.litho.utils.DisplayListUtils;
 import com.facebook.litho.utils.IncrementalMountUtils;
@@ -1062,6 +1063,10 @@ public class RecyclerBinder implements
       }
 
       if (i >= rangeStart && i <= rangeEnd) {
+        // The items around the viewport are laid out ahead, after the ones that are shown.
+        holder.setLayoutPriority(i >= firstVisible && i <= lastVisible
+            ? ThreadPoolLayoutHandler.PRIORITY_VISIBLE
+            : ThreadPoolLayoutHandler.PRIORITY_PREFETCH);
         if (!holder.isTreeValid()) {
           holder.computeLayoutAsync(mComponentContext, childrenWidthSpec, childrenHeightSpec);
         }